@@ -0,0 +1,264 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a strategy on another thread so the game never waits for the AI.<br><br>
+ * A copy of the board is taken when the plan is submitted and only that copy is searched.
+ * Only 1 plan runs at a time, each plan is given a key so the result is only used
+ * if it still belongs to the current position. A plan that no longer belongs can be cancelled.
+ * @author GOD
+ */
+public final class AsyncPlanner
+{
+    //the search that will run on the other thread
+    private final IAgentStrategy planner;
+    
+    //where the plans are run
+    private final Executor executor;
+    
+    //the copy of the board and the Pill(s) being planned
+    private final BitBoard snapshot;
+    private final Type[] types;
+    private int pills;
+    
+    //the inputs allowed before the Pill has to move down a row
+    private int inputsPerRow = 0;
+    
+    //the time allowed for each plan in nanoseconds, counted from when the plan is submitted
+    private long budget = Long.MAX_VALUE;
+    
+    //the most placements scored for each plan, 0 if there is no limit
+    private long nodeBudget = 0;
+    
+    //when the plan was submitted
+    private long submitted;
+    
+    //the key of the position being planned
+    private long key;
+    
+    //is a plan running, this is only set back to false once the other thread is done
+    private volatile boolean running = false;
+    
+    //is the result of the last plan ready
+    private volatile boolean ready = false;
+    
+    //did the last plan find a placement
+    private boolean found;
+    private int col, row;
+    private Rotation rotation;
+    
+    //the inputs that move the Pill from the start to the placement
+    private final int[] path = new int[MoveGenerator.PATH_LIMIT];
+    private int length;
+    
+    //the plan run on the other thread
+    private final Runnable job;
+    
+    /**
+     * Create a new service for the planner
+     * @param planner The search that will run on the other thread, it should not be used anywhere else
+     * @param executor Where the plans are run
+     */
+    public AsyncPlanner(final IAgentStrategy planner, final Executor executor)
+    {
+        this.planner = planner;
+        this.executor = executor;
+        this.snapshot = new BitBoard();
+        this.types = new Type[4];
+        
+        this.job = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    AsyncPlanner.this.planner.setInputsPerRow(inputsPerRow);
+                    
+                    //the time spent waiting for a thread is taken from the budget
+                    AsyncPlanner.this.planner.setBudget(Math.max(0L, budget - (System.nanoTime() - submitted)));
+                    AsyncPlanner.this.planner.setNodeBudget(nodeBudget);
+                    
+                    found = AsyncPlanner.this.planner.plan(snapshot, types, pills);
+                    
+                    if (found)
+                    {
+                        col = AsyncPlanner.this.planner.getCol();
+                        row = AsyncPlanner.this.planner.getRow();
+                        rotation = AsyncPlanner.this.planner.getRotation();
+                        length = AsyncPlanner.this.planner.getPath(path);
+                    }
+                    
+                    //a cancelled plan has no result
+                    ready = !AsyncPlanner.this.planner.hasCancel();
+                }
+                finally
+                {
+                    synchronized (AsyncPlanner.this)
+                    {
+                        running = false;
+                        
+                        //wake up anyone waiting for the plan
+                        AsyncPlanner.this.notifyAll();
+                    }
+                }
+            }
+        };
+    }
+    
+    /**
+     * Start planning the position
+     * @param key The key of the position, used to check the result still belongs to the current position
+     * @param board The board, a copy is taken so it can keep changing
+     * @param types The Type of each half of every known Pill
+     * @param pills The number of known Pill(s)
+     * @return boolean false if the previous plan is still running and nothing was started
+     */
+    public boolean submit(final long key, final BitBoard board, final Type[] types, final int pills)
+    {
+        if (running)
+            return false;
+        
+        this.key = key;
+        this.snapshot.copy(board);
+        System.arraycopy(types, 0, this.types, 0, pills * 2);
+        this.pills = pills;
+        
+        ready = false;
+        running = true;
+        submitted = System.nanoTime();
+        
+        //the previous plan may have been cancelled
+        planner.resume();
+        
+        executor.execute(job);
+        
+        return true;
+    }
+    
+    /**
+     * Limit the inputs before the Pill has to move down a row, used from the next plan submitted
+     * @param inputsPerRow The inputs allowed for each row, 0 if there is no limit
+     */
+    public void setInputsPerRow(final int inputsPerRow)
+    {
+        this.inputsPerRow = inputsPerRow;
+    }
+    
+    /**
+     * Set the time allowed for each plan, used from the next plan submitted
+     * @param budget The time in nanoseconds, counted from when the plan is submitted
+     */
+    public void setBudget(final long budget)
+    {
+        this.budget = budget;
+    }
+    
+    /**
+     * Set the placements scored for each plan, used from the next plan submitted
+     * @param nodeBudget The most placements scored, 0 if there is no limit
+     */
+    public void setNodeBudget(final long nodeBudget)
+    {
+        this.nodeBudget = nodeBudget;
+    }
+    
+    /**
+     * Wait until the running plan is done, returns straight away if nothing is running or the thread is interrupted
+     */
+    public synchronized void await()
+    {
+        try
+        {
+            while (running)
+            {
+                wait();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            //let the caller know it was interrupted
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Stop the running plan, the result will never be ready
+     */
+    public void cancel()
+    {
+        if (running)
+            planner.cancel();
+        
+        ready = false;
+    }
+    
+    /**
+     * Is a plan still running
+     * @return boolean
+     */
+    public boolean isRunning()
+    {
+        return this.running;
+    }
+    
+    /**
+     * Is the result of the plan for the position ready
+     * @param key The key of the position
+     * @return boolean
+     */
+    public boolean hasResult(final long key)
+    {
+        return (ready && this.key == key);
+    }
+    
+    /**
+     * Get the key of the position being planned
+     * @return long
+     */
+    public long getKey()
+    {
+        return this.key;
+    }
+    
+    /**
+     * Did the plan find a placement, only valid once the result is ready
+     * @return boolean
+     */
+    public boolean hasPlacement()
+    {
+        return this.found;
+    }
+    
+    public int getCol()
+    {
+        return this.col;
+    }
+    
+    public int getRow()
+    {
+        return this.row;
+    }
+    
+    public Rotation getRotation()
+    {
+        return this.rotation;
+    }
+    
+    /**
+     * Get the inputs that move the Pill from the start to the placement, only valid once the result is ready
+     * @param result The array where the inputs will be written in order, it needs room for MoveGenerator.PATH_LIMIT inputs
+     * @return int The number of inputs
+     */
+    public int getPath(final int[] result)
+    {
+        System.arraycopy(path, 0, result, 0, length);
+        
+        return length;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.Board;
+import com.gamesbykevin.drmario.board.ChainReport;
+
+/**
+ * Scores the placement of a Pill on the packed board, a higher score is a better placement.<br><br>
+ * Each half of the Pill is scored by the Block it lands on and its height,
+ * the Block(s) destroyed by the placement and every chain reaction after it are scored from the report after settling.
+ * The score for each rule comes from the Weights.
+ * @author GOD
+ */
+public final class Evaluator
+{
+    //score to add for every virus kill, highest priority
+    private final int virusKill;
+    
+    //score to add for every pill kill
+    private final int pillKill;
+    
+    //score to add when adding pill on top of matching virus
+    private final int virusMatch;
+    
+    //score to add when adding pill on top of matching pill
+    private final int blockMatch;
+    
+    //score to deduct when placing pill on top of non-matching virus
+    private final int virusNoMatch;
+    
+    //score to deduct when placing pill on top of non-matching pill
+    private final int blockNoMatch;
+    
+    //if the block matches and in the same column there is a virus, we need this so the agent will work towards mining down to get to the virus
+    private final int blockMatchVirusColumn;
+    
+    //if the block does not match and same has a virus, we need this so the agent will avoid these locations
+    private final int blockNoMatchVirusColumn;
+    
+    //the penalty for each row
+    private final int height;
+    
+    //we are very close to the top and the block(s) don't match
+    private final int dangerZoneNoMatch;
+    
+    //score to add for every virus kill in a chain reaction
+    private final int chainVirusKill;
+    
+    //score to add for every chain reaction
+    private final int chain;
+    
+    /**
+     * Create an evaluator with the default weights
+     */
+    public Evaluator()
+    {
+        this(Weights.DEFAULT);
+    }
+    
+    /**
+     * Create an evaluator
+     * @param weights The score for each rule
+     */
+    public Evaluator(final Weights weights)
+    {
+        this.virusKill = weights.get(Weights.VIRUS_KILL);
+        this.pillKill = weights.get(Weights.PILL_KILL);
+        this.virusMatch = weights.get(Weights.VIRUS_MATCH);
+        this.blockMatch = weights.get(Weights.BLOCK_MATCH);
+        this.virusNoMatch = weights.get(Weights.VIRUS_NO_MATCH);
+        this.blockNoMatch = weights.get(Weights.BLOCK_NO_MATCH);
+        this.blockMatchVirusColumn = weights.get(Weights.BLOCK_MATCH_VIRUS_COLUMN);
+        this.blockNoMatchVirusColumn = weights.get(Weights.BLOCK_NO_MATCH_VIRUS_COLUMN);
+        this.height = weights.get(Weights.HEIGHT);
+        this.dangerZoneNoMatch = weights.get(Weights.DANGER_ZONE_NO_MATCH);
+        this.chainVirusKill = weights.get(Weights.CHAIN_VIRUS_KILL);
+        this.chain = weights.get(Weights.CHAIN);
+    }
+    
+    /**
+     * Score both halves of the Pill by what they land on, this has to be done before the Pill is placed
+     * @param board The board before the Pill is placed
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param type Type of the Pill
+     * @param col2 Column of the Pill extra
+     * @param row2 Row of the Pill extra
+     * @param type2 Type of the Pill extra
+     * @return int
+     */
+    public int getScore(final BitBoard board, final int col, final int row, final Type type, final int col2, final int row2, final Type type2)
+    {
+        return getScore(board, col, row, type) + getScore(board, col2, row2, type2);
+    }
+    
+    /**
+     * Score the Block(s) destroyed by placing the Pill, every match until the board settled.<br>
+     * The first match is made by the Pill, the viruses destroyed by every match after that are part of a chain
+     * @param report The report from settling the board after the Pill was placed
+     * @return int
+     */
+    public int getScore(final ChainReport report)
+    {
+        if (report.getMatches() == 0)
+            return 0;
+        
+        int score = (report.getVirusCount(0) * virusKill) + (report.getPillCount(0) * pillKill);
+        
+        for (int match = 1; match < report.getMatches(); match++)
+        {
+            score += (report.getVirusCount(match) * chainVirusKill) + (report.getPillCount(match) * pillKill) + chain;
+        }
+        
+        return score;
+    }
+    
+    /**
+     * Get the score for a single half of the Pill and the first Block below in the same column
+     * @param board The board before the Pill is placed
+     * @param col Column of the half
+     * @param row Row of the half
+     * @param type Type of the half
+     * @return int the score sum
+     */
+    private int getScore(final BitBoard board, final int col, final int row, final Type type)
+    {
+        int score = 0;
+        
+        //the first Block below the half, the Pill may be under an overhang
+        final int below = board.getBelow(col, row);
+        
+        if (below >= board.getRows())
+            return score;
+        
+        //does the same column as the Pill contain a virus
+        final boolean hasVirus = (board.getVirusTop(col) < board.getRows());
+        
+        //the penalty for the height of the half
+        final int penalty = ((board.getRows() - row) * height);
+        
+        //does the half match the block below
+        if (BitBoard.hasMatch(type, board.getType(col, below)))
+        {
+            //more points if Block is a virus because we want to destroy the virus
+            score += (board.isVirus(col, below)) ? virusMatch : blockMatch;
+            
+            //if Block matches and the column contains a virus, this is good because we are trying to get to the virus
+            if (hasVirus)
+                score += blockMatchVirusColumn;
+            
+            //block isn't directly below so a gap is created, and we are also in the danger zone
+            if (row + 1 != below && row < Board.MATCH_MINIMUM)
+                score += penalty;
+        }
+        else
+        {
+            //no match so add penalty
+            score += (board.isVirus(col, below)) ? virusNoMatch : blockNoMatch;
+            
+            //if we aren't matching and column has a virus we penalize even more
+            if (hasVirus)
+                score += blockNoMatchVirusColumn;
+            
+            //are we in the danger zone
+            if (row < Board.MATCH_MINIMUM)
+                score += dangerZoneNoMatch;
+            
+            //add extra penalty for height since the Block(s) don't match
+            score += penalty;
+        }
+        
+        //also penalize depending on the height
+        score += penalty;
+        
+        return score;
+    }
+}
\ No newline at end of file
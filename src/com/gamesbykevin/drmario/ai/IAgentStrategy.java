@@ -0,0 +1,85 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+
+/**
+ * A way for the AI to decide where the current Pill goes.<br><br>
+ * The strategy is given the board and the colors of the current and next Pill,
+ * it chooses a placement along with the inputs that move the Pill there from the start.
+ * A plan may be run on another thread, so the strategy can be cancelled from the game thread.
+ * @author GOD
+ */
+public interface IAgentStrategy
+{
+    /**
+     * Limit the inputs before the Pill has to move down a row, so only placements reachable before gravity are chosen
+     * @param inputsPerRow The inputs allowed for each row, 0 if there is no limit
+     */
+    public void setInputsPerRow(final int inputsPerRow);
+    
+    /**
+     * Set the time allowed for each plan, the strategy deepens its search until then and keeps the best placement found so far
+     * @param budget The time in nanoseconds
+     */
+    public void setBudget(final long budget);
+    
+    /**
+     * Set the placements the strategy can score for each plan, unlike the time the same position always gets the same plan.
+     * The strategy stops at whichever runs out first, so with no time limit only the placements count
+     * @param nodes The most placements scored, 0 if there is no limit
+     */
+    public void setNodeBudget(final long nodes);
+    
+    /**
+     * Find the placement for the first Pill
+     * @param board The board, this will not be changed
+     * @param types The Type of each half of every known Pill, the first Pill is types[0] and types[1]
+     * @param pills The number of known Pill(s)
+     * @return boolean true if a placement was found
+     */
+    public boolean plan(final BitBoard board, final Type[] types, final int pills);
+    
+    /**
+     * Get the column of the placement chosen
+     * @return int
+     */
+    public int getCol();
+    
+    /**
+     * Get the row of the placement chosen
+     * @return int
+     */
+    public int getRow();
+    
+    /**
+     * Get the rotation of the placement chosen
+     * @return Rotation
+     */
+    public Rotation getRotation();
+    
+    /**
+     * Get the inputs that move the Pill from the start to the placement chosen
+     * @param result The array where the inputs will be written in order, it needs room for MoveGenerator.PATH_LIMIT inputs
+     * @return int The number of inputs
+     */
+    public int getPath(final int[] result);
+    
+    /**
+     * Stop the plan that is running on another thread as soon as possible, the plan will not find a placement.
+     * Every plan after this will also be cancelled until resume is called.
+     */
+    public void cancel();
+    
+    /**
+     * Allow plans to run again after being cancelled
+     */
+    public void resume();
+    
+    /**
+     * Has the strategy been cancelled
+     * @return boolean
+     */
+    public boolean hasCancel();
+}
\ No newline at end of file
@@ -0,0 +1,428 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.sim.Game;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Plays headless matches between strategies with no human player, as fast as the computer allows.
+ * This is the turbo mode, the time of the game is the ticks played so nothing waits for real time and nothing is drawn.<br><br>
+ * Every player starts with the same viruses and Pill(s) and moves the Pill the same way the Agent does at medium speed.
+ * Each plan is limited by the placements scored instead of the time, so a match with the same seed always plays the same.
+ * Every plan needed for a tick is submitted before waiting for any of them, so the plans of every player run at the same time.
+ * The first player competes against the rest, the same as every Game.
+ * @author GOD
+ */
+public final class Match
+{
+    //the ticks between gravity and between each move, the same as the medium speed
+    private static final int GRAVITY_TICKS = GameState.toTicks(500L);
+    private static final int MOVEMENT_TICKS = GameState.toTicks(250L);
+    
+    //a match taking longer than 10 minutes is lost by everyone still playing
+    private static final int TIME_LIMIT = GameState.toTicks(10L * 60L * 1000L);
+    
+    //the placements scored for each plan when not specified, about what 1 thread scores in the time the Agent has at medium speed
+    public static final long DEFAULT_NODES = MOVEMENT_TICKS * 1000L;
+    
+    //the number of matches and viruses when not specified
+    private static final int DEFAULT_MATCHES = 20;
+    private static final int DEFAULT_VIRUSES = 20;
+    
+    //shown when the arguments can't be used
+    private static final String USAGE = "usage: java " + Match.class.getName() + " [matches] [viruses] [strategy strategy...]";
+    
+    //is every other player penalized when a virus is destroyed
+    private final boolean attack;
+    
+    //runs the plan of each player, 1 thread each so every plan can run at the same time
+    private final ExecutorService executor;
+    
+    //the plan of each player
+    private final AsyncPlanner[] planners;
+    
+    //finds the path again for each player when the Pill leaves it
+    private final MoveGenerator[] moves;
+    
+    //the path each player follows
+    private final PathFollower[] paths;
+    
+    //scores the placements still reachable once the goal can't be reached, the same weights every strategy uses by default
+    private final Evaluator evaluator = new Evaluator();
+    
+    //the inputs of a path
+    private final int[] inputs = new int[MoveGenerator.PATH_LIMIT];
+    
+    //the Pill planned, the goal and the moves of each player
+    private final int[] planned, goalCols, goalRows, movementWaits, inputRows, inputsUsed;
+    private final Rotation[] goalRotations;
+    private final boolean[] waiting, goals;
+    
+    //the Type of each half of the current and next Pill
+    private final Type[] types = new Type[4];
+    
+    //the input of each player for the current tick
+    private final int[] actions;
+    
+    //the ticks the last match took
+    private int ticks;
+    
+    /**
+     * Create a match between strategies
+     * @param strategies Decides where each Pill goes for each player, each should not be used anywhere else
+     * @param nodes The placements scored for each plan
+     * @param attack Is every other player penalized when a virus is destroyed
+     */
+    public Match(final IAgentStrategy[] strategies, final long nodes, final boolean attack)
+    {
+        if (strategies.length < 2)
+            throw new IllegalArgumentException("A match needs at least 2 players");
+        
+        this.attack = attack;
+        
+        this.executor = Executors.newFixedThreadPool(strategies.length, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "Match search");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        
+        final int count = strategies.length;
+        
+        this.planners = new AsyncPlanner[count];
+        this.moves = new MoveGenerator[count];
+        this.paths = new PathFollower[count];
+        
+        for (int i = 0; i < count; i++)
+        {
+            planners[i] = new AsyncPlanner(strategies[i], executor);
+            planners[i].setInputsPerRow(SelfPlay.INPUTS_PER_ROW);
+            
+            //the time is never used so the match never depends on how fast the computer is
+            planners[i].setBudget(Long.MAX_VALUE);
+            planners[i].setNodeBudget(nodes);
+            
+            moves[i] = new MoveGenerator();
+            moves[i].setInputsPerRow(SelfPlay.INPUTS_PER_ROW);
+            
+            paths[i] = new PathFollower();
+        }
+        
+        this.planned = new int[count];
+        this.goalCols = new int[count];
+        this.goalRows = new int[count];
+        this.goalRotations = new Rotation[count];
+        this.movementWaits = new int[count];
+        this.inputRows = new int[count];
+        this.inputsUsed = new int[count];
+        this.waiting = new boolean[count];
+        this.goals = new boolean[count];
+        this.actions = new int[count];
+    }
+    
+    /**
+     * Get the number of players
+     * @return int
+     */
+    public int getPlayerCount()
+    {
+        return planners.length;
+    }
+    
+    /**
+     * Play a single match
+     * @param seed The seed of the match, every player gets the same viruses and Pill(s)
+     * @param viruses The number of viruses
+     * @return int The index of the player that won, -1 if nobody won or more than 1 player won on the same tick
+     */
+    public int play(final long seed, final int viruses)
+    {
+        final GameState[] players = new GameState[planners.length];
+        
+        for (int i = 0; i < players.length; i++)
+        {
+            players[i] = new GameState(viruses, seed, GRAVITY_TICKS, TIME_LIMIT);
+            
+            planned[i] = -1;
+            goals[i] = false;
+            waiting[i] = false;
+            paths[i].clear();
+        }
+        
+        final Game game = new Game(players, attack);
+        
+        ticks = 0;
+        
+        while (!game.hasEnded())
+        {
+            //start every plan needed before waiting for any of them
+            for (int i = 0; i < players.length; i++)
+            {
+                submit(i, players[i]);
+            }
+            
+            for (int i = 0; i < players.length; i++)
+            {
+                actions[i] = getInput(i, players[i]);
+            }
+            
+            game.step(actions);
+            
+            ticks++;
+        }
+        
+        int winner = -1;
+        
+        for (int i = 0; i < players.length; i++)
+        {
+            if (!players[i].hasWin())
+                continue;
+            
+            //a draw
+            if (winner >= 0)
+                return -1;
+            
+            winner = i;
+        }
+        
+        return winner;
+    }
+    
+    /**
+     * Start the plan for the new Pill of the player
+     * @param index The index of the player
+     * @param state The game of the player
+     */
+    private void submit(final int index, final GameState state)
+    {
+        if (state.hasWin() || state.hasLose() || !state.hasPill() || !state.getBoard().canInteract())
+            return;
+        
+        //the Pill was already planned
+        if (state.getPills() == planned[index])
+            return;
+        
+        planned[index] = state.getPills();
+        
+        types[0] = state.getPillType();
+        types[1] = state.getPillExtraType();
+        types[2] = state.getNextType();
+        types[3] = state.getNextExtraType();
+        
+        //the previous plan is always finished before the next is submitted
+        planners[index].submit(planned[index], state.getBoard().getBoard(), types, (types[2] == null) ? 1 : 2);
+        
+        waiting[index] = true;
+    }
+    
+    /**
+     * Get the input that moves the Pill of the player towards the goal, waiting for the plan if needed
+     * @param index The index of the player
+     * @param state The game of the player
+     * @return int Each bit is an Input
+     */
+    private int getInput(final int index, final GameState state)
+    {
+        if (waiting[index])
+        {
+            final AsyncPlanner planner = planners[index];
+            
+            planner.await();
+            
+            waiting[index] = false;
+            goals[index] = (planner.hasResult(planned[index]) && planner.hasPlacement());
+            
+            if (goals[index])
+            {
+                goalCols[index] = planner.getCol();
+                goalRows[index] = planner.getRow();
+                goalRotations[index] = planner.getRotation();
+                
+                paths[index].setPath(inputs, planner.getPath(inputs));
+            }
+            else
+            {
+                paths[index].clear();
+            }
+            
+            movementWaits[index] = 0;
+            inputRows[index] = -1;
+        }
+        
+        if (state.hasWin() || state.hasLose() || !state.hasPill() || !state.getBoard().canInteract())
+            return Input.NONE;
+        
+        movementWaits[index]++;
+        
+        //wait until it is time to move
+        if (!goals[index] || movementWaits[index] < MOVEMENT_TICKS)
+            return Input.NONE;
+        
+        movementWaits[index] = 0;
+        
+        //count the moves we had since the Pill moved down a row
+        if (state.getPillRow() != inputRows[index])
+        {
+            inputRows[index] = state.getPillRow();
+            inputsUsed[index] = 0;
+        }
+        
+        //follow the path to the goal, once it only has to fall we drop
+        final PathFollower path = paths[index];
+        
+        int input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+        
+        //the Pill left the path, so search for the shortest path from where it is
+        if (input < 0)
+        {
+            final MoveGenerator.Moves reachable = moves[index].generate(state.getBoard().getBoard(), state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputsUsed[index]);
+            
+            path.setPath(state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputs, reachable.getPath(goalCols[index], goalRows[index], goalRotations[index], inputs));
+            
+            input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+            
+            //the goal can no longer be reached, so go to the best placement that still can be
+            if (input < 0)
+            {
+                final int best = path.setBestPath(reachable, state.getBoard().getBoard(), evaluator, state.getPillType(), state.getPillExtraType(), state.getPillCol(), state.getPillRow(), state.getPillRotation());
+                
+                //there is nowhere left to go so leave the Pill to gravity
+                if (best < 0)
+                    return Input.NONE;
+                
+                goalCols[index] = reachable.getCol(best);
+                goalRows[index] = reachable.getRow(best);
+                goalRotations[index] = reachable.getRotation(best);
+                
+                input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+            }
+        }
+        
+        inputsUsed[index]++;
+        
+        return input;
+    }
+    
+    /**
+     * Get the number of ticks the last match took
+     * @return int
+     */
+    public int getTicks()
+    {
+        return this.ticks;
+    }
+    
+    /**
+     * Stop the threads the plans run on
+     */
+    public void dispose()
+    {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Get a number from the arguments
+     * @param args The arguments
+     * @param index The index of the number
+     * @param defaultValue The number if there are not enough arguments
+     * @return int The number, -1 if the argument is not a number above 0
+     */
+    private static int getNumber(final String[] args, final int index, final int defaultValue)
+    {
+        if (args.length <= index)
+            return defaultValue;
+        
+        try
+        {
+            final int value = Integer.parseInt(args[index]);
+            
+            return (value > 0) ? value : -1;
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+    
+    /**
+     * Play matches between strategies
+     * @param args The number of matches, the number of viruses, then the names of at least 2 strategies, the default against itself if none are named
+     */
+    public static void main(final String[] args)
+    {
+        final int count = getNumber(args, 0, DEFAULT_MATCHES);
+        final int viruses = getNumber(args, 1, DEFAULT_VIRUSES);
+        
+        //a match needs at least 2 players
+        if (count < 0 || viruses < 0 || args.length == 3)
+        {
+            System.err.println(USAGE);
+            System.err.println("the matches and viruses have to be above 0, and at least 2 strategies are needed when any are named");
+            System.exit(1);
+        }
+        
+        final List<String> names = (args.length > 3) ? Arrays.asList(args).subList(2, args.length) : Arrays.asList(StrategyRegistry.DEFAULT, StrategyRegistry.DEFAULT);
+        
+        final IAgentStrategy[] strategies = new IAgentStrategy[names.size()];
+        
+        for (int i = 0; i < strategies.length; i++)
+        {
+            if (!StrategyRegistry.getNames().contains(names.get(i)))
+            {
+                System.err.println(USAGE);
+                System.err.println("there is no strategy named " + names.get(i) + ", the strategies are " + StrategyRegistry.getNames());
+                System.exit(1);
+            }
+            
+            //each plan searches on 1 thread, the players plan at the same time
+            strategies[i] = StrategyRegistry.create(names.get(i), null);
+        }
+        
+        final Match match = new Match(strategies, DEFAULT_NODES, true);
+        
+        final int[] wins = new int[strategies.length];
+        int draws = 0;
+        long ticks = 0;
+        
+        final long start = System.nanoTime();
+        
+        for (int seed = 0; seed < count; seed++)
+        {
+            final int winner = match.play(seed, viruses);
+            
+            if (winner < 0)
+            {
+                draws++;
+            }
+            else
+            {
+                wins[winner]++;
+            }
+            
+            ticks += match.getTicks();
+        }
+        
+        final double seconds = (System.nanoTime() - start) / 1000000000.0;
+        
+        match.dispose();
+        
+        for (int i = 0; i < strategies.length; i++)
+        {
+            System.out.println(String.format("player %d %-8s won %d of %d matches", i, names.get(i), wins[i], count));
+        }
+        
+        System.out.println(String.format("%d draws, %d ticks in %.1f seconds, %.0f ticks per second", draws, ticks, seconds, ticks / seconds));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,480 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Locates every place a Pill can reach on the board and the inputs needed to get there.<br><br>
+ * Every column, row and Rotation the Pill can be moved to is searched breadth first from the start,
+ * using the same collision rules as the game. A placement is a location where the Pill can't move down.
+ * Gravity can be accounted for by limiting the inputs before the Pill has to move down a row,
+ * then moving down is left to gravity until the Pill only has to fall.
+ * The result for each board and start is cached so asking again costs nothing.
+ * @author GOD
+ */
+public final class MoveGenerator
+{
+    //every rotation, kept so the array isn't created for every state
+    private static final Rotation[] ROTATION_VALUES = Rotation.values();
+    
+    //the number of rotations
+    private static final int ROTATIONS = ROTATION_VALUES.length;
+    
+    //every column, row and rotation
+    private static final int STATES = BitBoard.CELLS * ROTATIONS;
+    
+    /**
+     * The most placements a single search can find
+     */
+    public static final int PLACEMENTS = STATES;
+    
+    /**
+     * The most inputs in a path, a shortest path never visits a column and rotation twice in the same row
+     */
+    public static final int PATH_LIMIT = BitBoard.ROWS * ((BitBoard.COLUMNS * ROTATIONS) + 1);
+    
+    //the inputs tried from each state, in order
+    private static final int[] INPUTS = {Input.LEFT, Input.RIGHT, Input.ROTATE, Input.DOWN};
+    
+    //the number of results cached
+    private static final int CACHE_SIZE = 64;
+    
+    //the results for each board and start, the least recently used is removed first
+    private final Map<Long, Moves> cache;
+    
+    //the result removed from the cache, reused for the next search
+    private Moves spare;
+    
+    //the inputs allowed before the Pill has to move down a row, 0 if there is no limit
+    private int inputsPerRow = 0;
+    
+    //the searches done and the searches found in the cache
+    private int searches = 0, hits = 0;
+    
+    public MoveGenerator()
+    {
+        this.cache = new LinkedHashMap<Long, Moves>(CACHE_SIZE * 2, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Moves> eldest)
+            {
+                if (size() <= CACHE_SIZE)
+                    return false;
+                
+                spare = eldest.getValue();
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Limit the inputs before the Pill has to move down a row, the cached results are removed if the limit changed
+     * @param inputsPerRow The inputs allowed for each row, 0 if there is no limit
+     */
+    public void setInputsPerRow(final int inputsPerRow)
+    {
+        if (inputsPerRow < 0)
+            throw new IllegalArgumentException("The inputs per row can't be negative");
+        
+        if (this.inputsPerRow == inputsPerRow)
+            return;
+        
+        this.inputsPerRow = inputsPerRow;
+        this.cache.clear();
+        this.spare = null;
+    }
+    
+    public int getInputsPerRow()
+    {
+        return this.inputsPerRow;
+    }
+    
+    /**
+     * Get the state index for the column, row and rotation
+     * @param col Column
+     * @param row Row
+     * @param rotation The ordinal of the Rotation
+     * @return int
+     */
+    private static int getState(final int col, final int row, final int rotation)
+    {
+        return (BitBoard.getIndex(col, row) * ROTATIONS) + rotation;
+    }
+    
+    /**
+     * Would the Pill collide with the board
+     * @param board The board
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation The ordinal of the Rotation
+     * @return boolean
+     */
+    private static boolean hasCollision(final BitBoard board, final int col, final int row, final int rotation)
+    {
+        final Rotation r = ROTATION_VALUES[rotation];
+        
+        return (board.hasCollision(col, row) || board.hasCollision(col + GameState.getExtraCol(r), row + GameState.getExtraRow(r)));
+    }
+    
+    /**
+     * Get every place the Pill can reach from the start
+     * @param board The board
+     * @param col Column the Pill starts at
+     * @param row Row the Pill starts at
+     * @param rotation Rotation the Pill starts at
+     * @return Moves The reachable placements, the result is shared with the cache and should not be kept
+     */
+    public Moves generate(final BitBoard board, final int col, final int row, final Rotation rotation)
+    {
+        return generate(board, col, row, rotation, 0);
+    }
+    
+    /**
+     * Get every place the Pill can reach from the start
+     * @param board The board
+     * @param col Column the Pill starts at
+     * @param row Row the Pill starts at
+     * @param rotation Rotation the Pill starts at
+     * @param used The inputs already used in the row the Pill starts at
+     * @return Moves The reachable placements, the result is shared with the cache and should not be kept
+     */
+    public Moves generate(final BitBoard board, final int col, final int row, final Rotation rotation, final int used)
+    {
+        //the inputs used only matter up to the limit
+        final int start = (inputsPerRow == 0) ? 0 : Math.min(used, inputsPerRow);
+        
+        final long key = board.getHash() ^ ((((getState(col, row, rotation.ordinal()) * (inputsPerRow + 1)) + start) + 1) * 0x9E3779B97F4A7C15L);
+        
+        searches++;
+        
+        Moves moves = cache.get(key);
+        
+        if (moves != null)
+        {
+            hits++;
+            return moves;
+        }
+        
+        moves = (spare != null) ? spare : new Moves(inputsPerRow);
+        spare = null;
+        
+        moves.search(board, col, row, rotation.ordinal(), start);
+        
+        cache.put(key, moves);
+        
+        return moves;
+    }
+    
+    /**
+     * Get the first input that will move the Pill towards the goal.<br>
+     * If the Pill has to move down before it can move again we wait for gravity,
+     * so every row still gets the inputs it was searched with.
+     * @param board The board
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation Rotation of the Pill
+     * @param used The inputs already used in the row the Pill is at
+     * @param goalCol Column of the goal
+     * @param goalRow Row of the goal
+     * @param goalRotation Rotation of the goal
+     * @return int The Input, DOWN if the Pill only has to fall or the goal can't be reached
+     */
+    public int getInput(final BitBoard board, final int col, final int row, final Rotation rotation, final int used, final int goalCol, final int goalRow, final Rotation goalRotation)
+    {
+        final Moves moves = generate(board, col, row, rotation, used);
+        
+        final int input = moves.getFirstInput(goalCol, goalRow, goalRotation);
+        
+        if (input == Input.DOWN && moves.hasState(goalCol, goalRow, goalRotation) && !moves.isFalling(goalCol, goalRow, goalRotation))
+            return Input.NONE;
+        
+        return input;
+    }
+    
+    public int getSearches()
+    {
+        return this.searches;
+    }
+    
+    public int getHits()
+    {
+        return this.hits;
+    }
+    
+    /**
+     * The result of a search, every reachable state and how it was reached.<br>
+     * Each column, row and rotation is searched once for every number of inputs used in the row.
+     */
+    public static final class Moves
+    {
+        //the inputs allowed before the Pill has to move down a row, 0 if there is no limit
+        private final int limit;
+        
+        //the number of layers for each state, 1 for every number of inputs used in the row
+        private final int layers;
+        
+        //the node each node was reached from, -1 if the node was not reached
+        private final int[] parents;
+        
+        //the input used to reach each node
+        private final int[] inputs;
+        
+        //the nodes waiting to be searched
+        private final int[] queue;
+        
+        //the first node reached for each state, -1 if the state was not reached
+        private final int[] firsts;
+        
+        //the placements found, ordered by column, rotation then row
+        private final int[] placements;
+        private int count;
+        
+        //the node the search started from
+        private int start;
+        
+        private Moves(final int limit)
+        {
+            this.limit = limit;
+            this.layers = (limit == 0) ? 1 : limit + 1;
+            this.parents = new int[STATES * layers];
+            this.inputs = new int[STATES * layers];
+            this.queue = new int[STATES * layers];
+            this.firsts = new int[STATES];
+            this.placements = new int[STATES];
+        }
+        
+        /**
+         * Search every state reachable from the start
+         */
+        private void search(final BitBoard board, final int col, final int row, final int rotation, final int startUsed)
+        {
+            for (int i = 0; i < parents.length; i++)
+            {
+                parents[i] = -1;
+            }
+            
+            for (int i = 0; i < firsts.length; i++)
+            {
+                firsts[i] = -1;
+            }
+            
+            count = 0;
+            start = -1;
+            
+            //there is no room for the Pill
+            if (!BitBoard.hasBounds(col, row) || hasCollision(board, col, row, rotation))
+                return;
+            
+            start = (getState(col, row, rotation) * layers) + startUsed;
+            parents[start] = start;
+            firsts[start / layers] = start;
+            
+            int head = 0, tail = 0;
+            
+            queue[tail++] = start;
+            
+            while (head < tail)
+            {
+                final int node = queue[head++];
+                
+                final int state = node / layers;
+                final int used = node % layers;
+                
+                final int c = (state / ROTATIONS) % BitBoard.COLUMNS;
+                final int r = (state / ROTATIONS) / BitBoard.COLUMNS;
+                final int o = state % ROTATIONS;
+                
+                for (int input : INPUTS)
+                {
+                    int nextCol = c, nextRow = r, nextRotation = o, nextUsed = used;
+                    
+                    switch (input)
+                    {
+                        case Input.LEFT:
+                            nextCol--;
+                            break;
+                        
+                        case Input.RIGHT:
+                            nextCol++;
+                            break;
+                        
+                        case Input.ROTATE:
+                            nextRotation = (o + 1) % ROTATIONS;
+                            break;
+                        
+                        default:
+                            nextRow++;
+                            break;
+                    }
+                    
+                    if (limit > 0)
+                    {
+                        if (input == Input.DOWN)
+                        {
+                            nextUsed = 0;
+                        }
+                        else
+                        {
+                            //gravity will move the Pill down before another input
+                            if (used >= limit)
+                                continue;
+                            
+                            nextUsed++;
+                        }
+                    }
+                    
+                    if (hasCollision(board, nextCol, nextRow, nextRotation))
+                        continue;
+                    
+                    final int next = (getState(nextCol, nextRow, nextRotation) * layers) + nextUsed;
+                    
+                    if (parents[next] >= 0)
+                        continue;
+                    
+                    parents[next] = node;
+                    inputs[next] = input;
+                    queue[tail++] = next;
+                    
+                    //the first time a state is reached is the shortest path
+                    if (firsts[next / layers] < 0)
+                        firsts[next / layers] = next;
+                }
+            }
+            
+            //every reached state that can't move down is a placement
+            for (int c = 0; c < BitBoard.COLUMNS; c++)
+            {
+                for (int o = 0; o < ROTATIONS; o++)
+                {
+                    for (int r = 0; r < BitBoard.ROWS; r++)
+                    {
+                        final int state = getState(c, r, o);
+                        
+                        if (firsts[state] >= 0 && hasCollision(board, c, r + 1, o))
+                            placements[count++] = state;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Get the number of placements
+         * @return int
+         */
+        public int getCount()
+        {
+            return this.count;
+        }
+        
+        public int getCol(final int index)
+        {
+            return (placements[index] / ROTATIONS) % BitBoard.COLUMNS;
+        }
+        
+        public int getRow(final int index)
+        {
+            return (placements[index] / ROTATIONS) / BitBoard.COLUMNS;
+        }
+        
+        public Rotation getRotation(final int index)
+        {
+            return ROTATION_VALUES[placements[index] % ROTATIONS];
+        }
+        
+        /**
+         * Can the Pill reach the column, row and rotation
+         * @param col Column
+         * @param row Row
+         * @param rotation Rotation
+         * @return boolean
+         */
+        public boolean hasState(final int col, final int row, final Rotation rotation)
+        {
+            return (BitBoard.hasBounds(col, row) && firsts[getState(col, row, rotation.ordinal())] >= 0);
+        }
+        
+        /**
+         * Get the inputs that move the Pill from the start to the column, row and rotation
+         * @param col Column
+         * @param row Row
+         * @param rotation Rotation
+         * @param result The array where the inputs will be written in order, it has to be big enough for the path
+         * @return int The number of inputs, -1 if the state can't be reached
+         */
+        public int getPath(final int col, final int row, final Rotation rotation, final int[] result)
+        {
+            if (!hasState(col, row, rotation))
+                return -1;
+            
+            int length = 0;
+            
+            //walk back to the start
+            for (int node = firsts[getState(col, row, rotation.ordinal())]; node != start; node = parents[node])
+            {
+                result[length++] = inputs[node];
+            }
+            
+            //the inputs were found last to first
+            for (int i = 0; i < length / 2; i++)
+            {
+                final int tmp = result[i];
+                result[i] = result[length - 1 - i];
+                result[length - 1 - i] = tmp;
+            }
+            
+            return length;
+        }
+        
+        /**
+         * Get the first input that moves the Pill from the start towards the column, row and rotation
+         * @param col Column
+         * @param row Row
+         * @param rotation Rotation
+         * @return int The Input, DOWN if the Pill is already there or it can't be reached
+         */
+        public int getFirstInput(final int col, final int row, final Rotation rotation)
+        {
+            if (!hasState(col, row, rotation))
+                return Input.DOWN;
+            
+            int node = firsts[getState(col, row, rotation.ordinal())];
+            
+            if (node == start)
+                return Input.DOWN;
+            
+            //walk back until the node after the start
+            while (parents[node] != start)
+            {
+                node = parents[node];
+            }
+            
+            return inputs[node];
+        }
+        
+        /**
+         * Does the Pill only have to fall to reach the column, row and rotation
+         * @param col Column
+         * @param row Row
+         * @param rotation Rotation
+         * @return boolean false if the state can't be reached or the Pill still has to move or rotate
+         */
+        public boolean isFalling(final int col, final int row, final Rotation rotation)
+        {
+            if (!hasState(col, row, rotation))
+                return false;
+            
+            for (int node = firsts[getState(col, row, rotation.ordinal())]; node != start; node = parents[node])
+            {
+                if (inputs[node] != Input.DOWN)
+                    return false;
+            }
+            
+            return true;
+        }
+    }
+}
\ No newline at end of file
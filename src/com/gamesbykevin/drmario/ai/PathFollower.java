@@ -0,0 +1,216 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+/**
+ * Follows the inputs a plan found from the start to the goal so the moves don't have to be searched again every update.<br><br>
+ * The column, row and Rotation of the Pill before each input is worked out when the path is set.
+ * Moving down is left to gravity until the Pill only has to fall, once the Pill is somewhere the path never goes it is no longer followed
+ * and a new path has to be found from where the Pill is. If the goal can't be reached from there the best placement that still can be is followed instead.
+ * @author GOD
+ */
+public final class PathFollower
+{
+    //the number of Rotation values
+    private static final int ROTATIONS = Rotation.values().length;
+    
+    //the inputs from the start to the goal
+    private final int[] inputs = new int[MoveGenerator.PATH_LIMIT];
+    
+    //the number of inputs, -1 if there is no path to follow
+    private int length = -1;
+    
+    //the column, row and rotation of the Pill before each input, the last is the goal
+    private final int[] cols = new int[MoveGenerator.PATH_LIMIT + 1];
+    private final int[] rows = new int[MoveGenerator.PATH_LIMIT + 1];
+    private final int[] rotations = new int[MoveGenerator.PATH_LIMIT + 1];
+    
+    //how far along the path the Pill is
+    private int index = 0;
+    
+    //the inputs to a placement found from where the Pill is
+    private final int[] found = new int[MoveGenerator.PATH_LIMIT];
+    
+    //used to see what each placement still reachable destroys
+    private final BitBoard scratch = new BitBoard();
+    private final ChainReport report = new ChainReport();
+    
+    /**
+     * Follow a new path from where the Pill starts
+     * @param inputs The inputs that move the Pill from the start to the goal
+     * @param length The number of inputs, -1 if there is no path
+     */
+    public void setPath(final int[] inputs, final int length)
+    {
+        setPath(GameState.START_COL, GameState.START_ROW, Rotation.East, inputs, length);
+    }
+    
+    /**
+     * Follow a new path
+     * @param startCol Column of the Pill where the path starts
+     * @param startRow Row of the Pill where the path starts
+     * @param startRotation Rotation of the Pill where the path starts
+     * @param inputs The inputs that move the Pill from the start to the goal
+     * @param length The number of inputs, -1 if there is no path
+     */
+    public void setPath(final int startCol, final int startRow, final Rotation startRotation, final int[] inputs, final int length)
+    {
+        this.length = length;
+        this.index = 0;
+        
+        int col = startCol, row = startRow, rotation = startRotation.ordinal();
+        
+        for (int i = 0; i <= length; i++)
+        {
+            cols[i] = col;
+            rows[i] = row;
+            rotations[i] = rotation;
+            
+            if (i == length)
+                break;
+            
+            this.inputs[i] = inputs[i];
+            
+            switch (inputs[i])
+            {
+                case Input.LEFT:
+                    col--;
+                    break;
+                
+                case Input.RIGHT:
+                    col++;
+                    break;
+                
+                case Input.ROTATE:
+                    rotation = (rotation + 1) % ROTATIONS;
+                    break;
+                
+                default:
+                    row++;
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Follow the path to the best placement that can be reached from where the Pill is, used once the goal can't be reached.<br>
+     * Each placement is scored by what the Pill lands on and what it destroys, without looking ahead.
+     * @param moves Every placement that can be reached from where the Pill is
+     * @param board The board
+     * @param evaluator Scores each placement
+     * @param type Type of the Pill
+     * @param type2 Type of the Pill extra
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation Rotation of the Pill
+     * @return int The index of the placement followed in the moves, -1 if there is none and the path is cleared
+     */
+    public int setBestPath(final MoveGenerator.Moves moves, final BitBoard board, final Evaluator evaluator, final Type type, final Type type2, final int col, final int row, final Rotation rotation)
+    {
+        int best = -1, bestScore = 0;
+        
+        scratch.copy(board);
+        
+        for (int i = 0; i < moves.getCount(); i++)
+        {
+            final int col2 = moves.getCol(i) + GameState.getExtraCol(moves.getRotation(i));
+            final int row2 = moves.getRow(i) + GameState.getExtraRow(moves.getRotation(i));
+            
+            int score = evaluator.getScore(board, moves.getCol(i), moves.getRow(i), type, col2, row2, type2);
+            
+            //place the Pill on the copy, see what is destroyed and put the copy back
+            scratch.begin();
+            scratch.addPill(moves.getCol(i), moves.getRow(i), type, col2, row2, type2);
+            scratch.settle(report);
+            scratch.rollback();
+            
+            score += evaluator.getScore(report);
+            
+            if (best < 0 || score > bestScore)
+            {
+                best = i;
+                bestScore = score;
+            }
+        }
+        
+        if (best < 0)
+        {
+            clear();
+            return -1;
+        }
+        
+        setPath(col, row, rotation, found, moves.getPath(moves.getCol(best), moves.getRow(best), moves.getRotation(best), found));
+        
+        return best;
+    }
+    
+    /**
+     * Stop following the path
+     */
+    public void clear()
+    {
+        this.length = -1;
+        this.index = 0;
+    }
+    
+    /**
+     * Is there a path being followed
+     * @return boolean
+     */
+    public boolean hasPath()
+    {
+        return (length >= 0);
+    }
+    
+    /**
+     * Get the next input on the path
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation Rotation of the Pill
+     * @return int The Input, DOWN once the Pill only has to fall, NONE while waiting for gravity, -1 if the Pill isn't on the path
+     */
+    public int getInput(final int col, final int row, final Rotation rotation)
+    {
+        if (length < 0)
+            return -1;
+        
+        //the Pill only ever moves forward along the path
+        while (index <= length && (cols[index] != col || rows[index] != row || rotations[index] != rotation.ordinal()))
+        {
+            index++;
+        }
+        
+        //the Pill left the path so it can't be followed any more
+        if (index > length)
+        {
+            clear();
+            return -1;
+        }
+        
+        //drop once the rest of the path only falls
+        boolean falling = true;
+        
+        for (int i = index; i < length; i++)
+        {
+            if (inputs[i] != Input.DOWN)
+            {
+                falling = false;
+                break;
+            }
+        }
+        
+        if (falling)
+            return Input.DOWN;
+        
+        //leave moving down to gravity
+        if (inputs[index] == Input.DOWN)
+            return Input.NONE;
+        
+        return inputs[index];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.sim.GameState;
+
+/**
+ * Every distinct pair of cells a Pill can cover on the board, built once.<br><br>
+ * East and West cover the same 2 cells as do South and North, only the color on each cell is swapped.
+ * When both halves of the Pill are the same color those placements are the same and only 1 has to be scored.
+ * @author GOD
+ */
+public final class PlacementTable
+{
+    //the number of rotations
+    private static final int ROTATIONS = Rotation.values().length;
+    
+    //the number of pairs of cells side by side, and above each other
+    private static final int HORIZONTAL = (BitBoard.COLUMNS - 1) * BitBoard.ROWS;
+    private static final int VERTICAL = BitBoard.COLUMNS * (BitBoard.ROWS - 1);
+    
+    /**
+     * The number of distinct pairs of cells
+     */
+    public static final int FOOTPRINTS = HORIZONTAL + VERTICAL;
+    
+    //the pair of cells for every column, row and rotation, -1 if the Pill is off the board
+    private static final int[] TABLE = createTable();
+    
+    private PlacementTable()
+    {
+        //this class only contains the table
+    }
+    
+    private static int[] createTable()
+    {
+        final int[] table = new int[BitBoard.CELLS * ROTATIONS];
+        
+        for (int row = 0; row < BitBoard.ROWS; row++)
+        {
+            for (int col = 0; col < BitBoard.COLUMNS; col++)
+            {
+                for (Rotation rotation : Rotation.values())
+                {
+                    final int col2 = col + GameState.getExtraCol(rotation);
+                    final int row2 = row + GameState.getExtraRow(rotation);
+                    
+                    int footprint = -1;
+                    
+                    if (BitBoard.hasBounds(col2, row2))
+                    {
+                        //the pair is identified by the west or north cell
+                        if (row == row2)
+                        {
+                            footprint = (row * (BitBoard.COLUMNS - 1)) + Math.min(col, col2);
+                        }
+                        else
+                        {
+                            footprint = HORIZONTAL + (Math.min(row, row2) * BitBoard.COLUMNS) + col;
+                        }
+                    }
+                    
+                    table[(BitBoard.getIndex(col, row) * ROTATIONS) + rotation.ordinal()] = footprint;
+                }
+            }
+        }
+        
+        return table;
+    }
+    
+    /**
+     * Get the pair of cells covered by the Pill
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation Rotation of the Pill
+     * @return int The pair of cells from 0 to FOOTPRINTS - 1, -1 if the Pill is off the board
+     */
+    public static int getFootprint(final int col, final int row, final Rotation rotation)
+    {
+        return TABLE[(BitBoard.getIndex(col, row) * ROTATIONS) + rotation.ordinal()];
+    }
+}
\ No newline at end of file
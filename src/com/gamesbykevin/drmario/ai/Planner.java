@@ -0,0 +1,827 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+import com.gamesbykevin.drmario.sim.GameState;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Beam search over the placements of the known Pill(s), the current Pill and the next Pill.<br><br>
+ * Every placement of the first Pill is scored, the best placements are kept and the board
+ * is settled before every placement of the following Pill is scored on top of it.
+ * The placement of the first Pill on the path with the highest total score is chosen.
+ * The search deepens 1 Pill at a time until it runs out of time, so the best placement of the
+ * deepest finished Pill is always ready. If the depth is more than the known Pill(s),
+ * the Pill after them is sampled from the possible colors and each board gets the average of its best placements.
+ * Only the placements the Pill can actually be moved to from the start are considered.
+ * The candidates can be scored at the same time on a fork/join pool, every candidate is scored
+ * on its own copy of the board and the result is the same as scoring them 1 at a time.<br><br>
+ * The score of each placement is saved in a transposition table by the board and the Pill, so a board seen
+ * again, usually the next Pill on the board kept by the previous plan, isn't scored again.
+ * Boards kept after a Pill that are the same as a better board already kept are left out so the beam isn't wasted.
+ * @author GOD
+ */
+public final class Planner implements IAgentStrategy
+{
+    //the most placements for each Pill
+    private static final int PLACEMENTS = MoveGenerator.PLACEMENTS;
+    
+    //the number of boards kept after each Pill
+    private final int width;
+    
+    //the most Pill(s) we will look ahead
+    private final int depth;
+    
+    //the time allowed for each decision in nanoseconds
+    private long budget;
+    
+    //the most placements scored for each decision, 0 if there is no limit
+    private long nodeBudget = 0;
+    
+    //the placements scored by the current decision
+    private long nodes;
+    
+    //the colors of the Pill sampled after the known Pill(s), the most likely colors first
+    private static final Type[][] SAMPLES =
+    {
+        {Type.RedPill, Type.BluePill},
+        {Type.RedPill, Type.YellowPill},
+        {Type.BluePill, Type.YellowPill},
+        {Type.RedPill, Type.RedPill},
+        {Type.BluePill, Type.BluePill},
+        {Type.YellowPill, Type.YellowPill},
+    };
+    
+    //how likely each sample is, a Pill with 2 colors can be either way around
+    private static final int[] SAMPLE_CHANCES = {2, 2, 2, 1, 1, 1};
+    
+    //the score of a board where the sampled Pill has no placement
+    private static final int SCORE_NO_PLACEMENT = -100000;
+    
+    //the best score of each board for the sample, and the total of every sample
+    private final int[] sampleBest;
+    private final long[] sampleTotals;
+    
+    //scores each placement
+    private final Evaluator evaluator;
+    
+    //locates the placements each Pill can reach
+    private final MoveGenerator generator;
+    
+    //the boards, total scores and first placement kept after the previous Pill
+    private BitBoard[] boards;
+    private final int[] scores;
+    private final int[] firsts;
+    private int count;
+    
+    //the boards being created for the current Pill
+    private BitBoard[] nextBoards;
+    private final int[] nextScores;
+    private final int[] nextFirsts;
+    
+    //every placement of the current Pill, the total score, the board it came from and the placement
+    private final int[] candidateScores;
+    private final int[] candidateParents;
+    private final int[] candidateMoves;
+    private int candidates;
+    
+    //the number of placements we remember the score for
+    private static final int TABLE_SIZE = 1 << 14;
+    
+    //the score each placement adds to the board it was placed on
+    private final TranspositionTable table;
+    
+    //the key of each candidate and was the score found in the table
+    private final long[] candidateKeys;
+    private final boolean[] candidateCached;
+    
+    //the pairs of cells already listed for the board, marked with the current stamp
+    private final int[] footprints;
+    private int stamp = 0;
+    
+    //the matches made when settling
+    private final ChainReport report;
+    
+    //the number of candidates scored together on 1 board
+    private static final int GROUP_SIZE = 16;
+    
+    //the board and report used to score each group of candidates
+    private final BitBoard[] scratch;
+    private final ChainReport[] reports;
+    
+    //the pool used to score the groups at the same time, null if they are scored 1 at a time
+    private final ForkJoinPool pool;
+    
+    //the Pill being scored, the time the plan started and can we run out of time
+    private Type type, type2;
+    private long start;
+    private boolean timed;
+    
+    //the placement chosen and the inputs to get there
+    private int col, row;
+    private Rotation rotation;
+    private final int[] path = new int[MoveGenerator.PATH_LIMIT];
+    private int length;
+    
+    //did the last plan run out of time or placements before every Pill was checked
+    private volatile boolean timeout = false;
+    
+    //has the plan been cancelled from another thread
+    private volatile boolean cancel = false;
+    
+    /**
+     * Create a new planner
+     * @param width The number of boards kept after each Pill
+     * @param depth The most Pill(s) to look ahead, 1 will only score the current Pill
+     * @param budget The time allowed for each decision in nanoseconds
+     */
+    public Planner(final int width, final int depth, final long budget)
+    {
+        this(width, depth, budget, null);
+    }
+    
+    /**
+     * Create a new planner that will score the candidates at the same time
+     * @param width The number of boards kept after each Pill
+     * @param depth The most Pill(s) to look ahead, 1 will only score the current Pill
+     * @param budget The time allowed for each decision in nanoseconds
+     * @param pool The pool used to score the candidates, null to score them 1 at a time
+     */
+    public Planner(final int width, final int depth, final long budget, final ForkJoinPool pool)
+    {
+        this(width, depth, budget, pool, Weights.DEFAULT);
+    }
+    
+    /**
+     * Create a new planner that scores the placements with the weights
+     * @param width The number of boards kept after each Pill
+     * @param depth The most Pill(s) to look ahead, 1 will only score the current Pill
+     * @param budget The time allowed for each decision in nanoseconds
+     * @param pool The pool used to score the candidates, null to score them 1 at a time
+     * @param weights The score for each rule used to score a placement
+     */
+    public Planner(final int width, final int depth, final long budget, final ForkJoinPool pool, final Weights weights)
+    {
+        if (width < 1 || depth < 1)
+            throw new IllegalArgumentException("The width and depth have to be at least 1");
+        
+        this.width = width;
+        this.depth = depth;
+        this.budget = budget;
+        this.evaluator = new Evaluator(weights);
+        this.generator = new MoveGenerator();
+        this.report = new ChainReport();
+        
+        this.boards = createBoards(width);
+        this.scores = new int[width];
+        this.firsts = new int[width];
+        
+        this.nextBoards = createBoards(width);
+        this.nextScores = new int[width];
+        this.nextFirsts = new int[width];
+        
+        this.candidateScores = new int[width * PLACEMENTS];
+        this.candidateParents = new int[width * PLACEMENTS];
+        this.candidateMoves = new int[width * PLACEMENTS];
+        this.candidateKeys = new long[width * PLACEMENTS];
+        this.candidateCached = new boolean[width * PLACEMENTS];
+        this.table = new TranspositionTable(TABLE_SIZE);
+        this.footprints = new int[PlacementTable.FOOTPRINTS];
+        this.sampleBest = new int[width];
+        this.sampleTotals = new long[width];
+        
+        this.pool = pool;
+        this.scratch = createBoards((width * PLACEMENTS + GROUP_SIZE - 1) / GROUP_SIZE);
+        this.reports = new ChainReport[scratch.length];
+        
+        for (int i = 0; i < reports.length; i++)
+        {
+            reports[i] = new ChainReport();
+        }
+    }
+    
+    private static BitBoard[] createBoards(final int length)
+    {
+        final BitBoard[] boards = new BitBoard[length];
+        
+        for (int i = 0; i < boards.length; i++)
+        {
+            boards[i] = new BitBoard();
+        }
+        
+        return boards;
+    }
+    
+    /**
+     * Limit the inputs before the Pill has to move down a row, so only placements reachable before gravity are chosen
+     * @param inputsPerRow The inputs allowed for each row, 0 if there is no limit
+     */
+    @Override
+    public void setInputsPerRow(final int inputsPerRow)
+    {
+        generator.setInputsPerRow(inputsPerRow);
+    }
+    
+    /**
+     * Set the time allowed for each decision, the first Pill is always scored
+     * @param budget The time in nanoseconds
+     */
+    @Override
+    public void setBudget(final long budget)
+    {
+        this.budget = budget;
+    }
+    
+    /**
+     * Set the placements scored for each decision, the first Pill is always scored.<br>
+     * A Pill is only scored if every placement on every board kept fits in what is left,
+     * so where the search stops never depends on the threads scoring it
+     * @param nodes The most placements scored, 0 if there is no limit
+     */
+    @Override
+    public void setNodeBudget(final long nodes)
+    {
+        this.nodeBudget = nodes;
+    }
+    
+    /**
+     * Find the best placement for the first Pill
+     * @param board The board, this will not be changed
+     * @param types The Type of each half of every known Pill, the first Pill is types[0] and types[1]
+     * @param pills The number of known Pill(s)
+     * @return boolean true if a placement was found
+     */
+    @Override
+    public boolean plan(final BitBoard board, final Type[] types, final int pills)
+    {
+        final long start = System.nanoTime();
+        
+        timeout = false;
+        nodes = 0;
+        
+        //start with the current board
+        boards[0].copy(board);
+        scores[0] = 0;
+        firsts[0] = -1;
+        count = 1;
+        
+        final int limit = (pills < depth) ? pills : depth;
+        
+        int pill = 0;
+        
+        while (pill < limit)
+        {
+            //always score the first Pill, after that stop if we are out of time
+            if (pill > 0 && System.nanoTime() - start > budget)
+            {
+                timeout = true;
+                break;
+            }
+            
+            if (!expand(types[pill * 2], types[(pill * 2) + 1], start, pill > 0))
+                break;
+            
+            pill++;
+        }
+        
+        //every known Pill was placed and we can look 1 Pill further
+        if (pill == limit && pills < depth && pills > 0)
+            sample(start);
+        
+        //nothing will be chosen once cancelled
+        if (cancel)
+            return false;
+        
+        //the first placement of the board with the best score, the boards are kept in order
+        if (count == 0 || firsts[0] < 0)
+            return false;
+        
+        this.col = getCol(firsts[0]);
+        this.row = getRow(firsts[0]);
+        this.rotation = getRotation(firsts[0]);
+        
+        //the first Pill was placed on this board so the search is still cached
+        this.length = generator.generate(board, GameState.START_COL, GameState.START_ROW, Rotation.East).getPath(col, row, rotation, path);
+        
+        return true;
+    }
+    
+    /**
+     * Score every placement of the Pill on every board kept, then keep the best boards that are different
+     * @param type Type of the Pill
+     * @param type2 Type of the Pill extra
+     * @param start The time the plan started
+     * @param timed Can we stop if we are out of time
+     * @return boolean false if there was no placement or we ran out of time, the previous boards are kept
+     */
+    private boolean expand(final Type type, final Type type2, final long start, final boolean timed)
+    {
+        if (!scoreCandidates(type, type2, start, timed))
+            return false;
+        
+        //keep the best candidates, the earliest candidate wins a tie
+        int kept = 0;
+        
+        for (int i = 0; i < candidates && kept < width; i++)
+        {
+            int best = i;
+            
+            for (int j = i + 1; j < candidates; j++)
+            {
+                if (candidateScores[j] > candidateScores[best])
+                    best = j;
+            }
+            
+            //move the best candidate into position while keeping the order of the rest
+            final int bestScore = candidateScores[best];
+            final int bestParent = candidateParents[best];
+            final int bestMove = candidateMoves[best];
+            
+            System.arraycopy(candidateScores, i, candidateScores, i + 1, best - i);
+            System.arraycopy(candidateParents, i, candidateParents, i + 1, best - i);
+            System.arraycopy(candidateMoves, i, candidateMoves, i + 1, best - i);
+            
+            candidateScores[i] = bestScore;
+            candidateParents[i] = bestParent;
+            candidateMoves[i] = bestMove;
+            
+            //create the board after this placement
+            final BitBoard board = nextBoards[kept];
+            final int move = bestMove;
+            final Rotation r = getRotation(move);
+            
+            board.copy(boards[bestParent]);
+            board.addPill(getCol(move), getRow(move), type, getCol(move) + GameState.getExtraCol(r), getRow(move) + GameState.getExtraRow(r), type2);
+            board.settle(report);
+            
+            //a better placement already led to the same board
+            if (hasBoard(board.getHash(), kept))
+                continue;
+            
+            nextScores[kept] = bestScore;
+            nextFirsts[kept] = (firsts[bestParent] < 0) ? move : firsts[bestParent];
+            kept++;
+        }
+        
+        //the boards created are now the boards kept
+        final BitBoard[] tmp = boards;
+        boards = nextBoards;
+        nextBoards = tmp;
+        
+        System.arraycopy(nextScores, 0, scores, 0, kept);
+        System.arraycopy(nextFirsts, 0, firsts, 0, kept);
+        count = kept;
+        
+        return true;
+    }
+    
+    /**
+     * Is there a board created for the current Pill with the hash
+     * @param hash The hash of the board
+     * @param created The number of boards created
+     * @return boolean
+     */
+    private boolean hasBoard(final long hash, final int created)
+    {
+        for (int i = 0; i < created; i++)
+        {
+            if (nextBoards[i].getHash() == hash)
+                return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Score the Pill after the known Pill(s) on every board kept, for as many of the possible colors as time allows.<br>
+     * The average of the best placement for each color is added to the score of each board, then the boards are sorted again.
+     * @param start The time the plan started
+     */
+    private void sample(final long start)
+    {
+        for (int parent = 0; parent < count; parent++)
+        {
+            sampleTotals[parent] = 0;
+        }
+        
+        int chances = 0;
+        
+        for (int sample = 0; sample < SAMPLES.length; sample++)
+        {
+            if (System.nanoTime() - start > budget)
+            {
+                timeout = true;
+                break;
+            }
+            
+            for (int parent = 0; parent < count; parent++)
+            {
+                sampleBest[parent] = SCORE_NO_PLACEMENT;
+            }
+            
+            //a board where the Pill can't be placed keeps the penalty
+            if (scoreCandidates(SAMPLES[sample][0], SAMPLES[sample][1], start, true))
+            {
+                for (int i = 0; i < candidates; i++)
+                {
+                    final int parent = candidateParents[i];
+                    
+                    sampleBest[parent] = Math.max(sampleBest[parent], candidateScores[i] - scores[parent]);
+                }
+            }
+            else if (timeout || cancel)
+            {
+                break;
+            }
+            
+            for (int parent = 0; parent < count; parent++)
+            {
+                sampleTotals[parent] += (long)sampleBest[parent] * SAMPLE_CHANCES[sample];
+            }
+            
+            chances += SAMPLE_CHANCES[sample];
+        }
+        
+        //not a single sample was finished so the boards keep their order
+        if (chances == 0)
+            return;
+        
+        for (int parent = 0; parent < count; parent++)
+        {
+            scores[parent] += (int)(sampleTotals[parent] / chances);
+        }
+        
+        //sort the boards by the new score, the earlier board wins a tie
+        for (int i = 1; i < count; i++)
+        {
+            final BitBoard board = boards[i];
+            final int score = scores[i];
+            final int first = firsts[i];
+            
+            int j = i - 1;
+            
+            while (j >= 0 && scores[j] < score)
+            {
+                boards[j + 1] = boards[j];
+                scores[j + 1] = scores[j];
+                firsts[j + 1] = firsts[j];
+                j--;
+            }
+            
+            boards[j + 1] = board;
+            scores[j + 1] = score;
+            firsts[j + 1] = first;
+        }
+    }
+    
+    /**
+     * List and score every placement of the Pill on every board kept
+     * @param type Type of the Pill
+     * @param type2 Type of the Pill extra
+     * @param start The time the plan started
+     * @param timed Can we stop if we are out of time
+     * @return boolean false if there was no placement, we ran out of time or were cancelled
+     */
+    private boolean scoreCandidates(final Type type, final Type type2, final long start, final boolean timed)
+    {
+        candidates = 0;
+        
+        //when both halves are the same color, placements covering the same cells are the same placement
+        final boolean symmetric = (type == type2);
+        
+        //list every placement the Pill can reach in order, the board it came from and where the Pill lands
+        for (int parent = 0; parent < count; parent++)
+        {
+            final MoveGenerator.Moves moves = generator.generate(boards[parent], GameState.START_COL, GameState.START_ROW, Rotation.East);
+            
+            stamp++;
+            
+            for (int i = 0; i < moves.getCount(); i++)
+            {
+                if (symmetric)
+                {
+                    final int footprint = PlacementTable.getFootprint(moves.getCol(i), moves.getRow(i), moves.getRotation(i));
+                    
+                    //only the first placement covering these cells is scored
+                    if (footprints[footprint] == stamp)
+                        continue;
+                    
+                    footprints[footprint] = stamp;
+                }
+                
+                candidateParents[candidates] = parent;
+                candidateMoves[candidates] = getMove(moves.getCol(i), moves.getRow(i), moves.getRotation(i));
+                candidates++;
+            }
+        }
+        
+        if (candidates == 0)
+            return false;
+        
+        //there aren't enough placements left to score all of them
+        if (timed && nodeBudget > 0 && nodes + candidates > nodeBudget)
+        {
+            timeout = true;
+            return false;
+        }
+        
+        nodes += candidates;
+        
+        this.type = type;
+        this.type2 = type2;
+        this.start = start;
+        this.timed = timed;
+        
+        //the placements already scored on the same board are taken from the table, only the rest are scored
+        for (int index = 0; index < candidates; index++)
+        {
+            final int parent = candidateParents[index];
+            
+            candidateKeys[index] = TranspositionTable.getKey(boards[parent].getHash(), candidateMoves[index], type, type2);
+            
+            final int slot = table.find(candidateKeys[index]);
+            
+            candidateCached[index] = (slot >= 0);
+            
+            if (slot >= 0)
+                candidateScores[index] = scores[parent] + table.getValue(slot);
+        }
+        
+        //each group of candidates is scored on its own board so they can be scored at the same time
+        final int groups = (candidates + GROUP_SIZE - 1) / GROUP_SIZE;
+        
+        if (pool == null || groups < 2)
+        {
+            for (int group = 0; group < groups; group++)
+            {
+                score(group);
+            }
+        }
+        else
+        {
+            pool.invoke(new ScoreTask(0, groups));
+        }
+        
+        if (timeout || cancel)
+            return false;
+        
+        //remember the score each new placement added, this is done in order on 1 thread so the table is the same every time
+        for (int index = 0; index < candidates; index++)
+        {
+            if (!candidateCached[index])
+                table.put(candidateKeys[index], candidateScores[index] - scores[candidateParents[index]]);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Score a group of candidates, the score of each candidate is written to the same index it was listed at
+     * @param group The group of candidates
+     */
+    private void score(final int group)
+    {
+        //we ran out of time or were cancelled so the scores won't be used
+        if (cancel)
+            return;
+        
+        if (timed && System.nanoTime() - start > budget)
+        {
+            timeout = true;
+            return;
+        }
+        
+        final BitBoard board = scratch[group];
+        final ChainReport chain = reports[group];
+        
+        final int end = Math.min(candidates, (group + 1) * GROUP_SIZE);
+        
+        //the board the scratch board holds, the candidates are listed by board so it is rarely copied
+        int current = -1;
+        
+        for (int index = group * GROUP_SIZE; index < end; index++)
+        {
+            //the score was found in the table
+            if (candidateCached[index])
+                continue;
+            
+            final int parent = candidateParents[index];
+            final int move = candidateMoves[index];
+            final Rotation r = getRotation(move);
+            
+            final int col2 = getCol(move) + GameState.getExtraCol(r);
+            final int row2 = getRow(move) + GameState.getExtraRow(r);
+            
+            int score = scores[parent];
+            
+            score += evaluator.getScore(boards[parent], getCol(move), getRow(move), type, col2, row2, type2);
+            
+            if (parent != current)
+            {
+                board.copy(boards[parent]);
+                current = parent;
+            }
+            
+            //place the Pill, see what is destroyed and put the board back
+            board.begin();
+            board.addPill(getCol(move), getRow(move), type, col2, row2, type2);
+            board.settle(chain);
+            board.rollback();
+            
+            score += evaluator.getScore(chain);
+            
+            candidateScores[index] = score;
+        }
+    }
+    
+    /**
+     * Scores a range of candidate groups, splitting the range in half until it is a single group
+     */
+    private final class ScoreTask extends RecursiveAction
+    {
+        private final int first, last;
+        
+        private ScoreTask(final int first, final int last)
+        {
+            this.first = first;
+            this.last = last;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (last - first == 1)
+            {
+                score(first);
+                return;
+            }
+            
+            final int middle = (first + last) >>> 1;
+            
+            invokeAll(new ScoreTask(first, middle), new ScoreTask(middle, last));
+        }
+    }
+    
+    /**
+     * Get the placement for the column, row and rotation
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation Rotation of the Pill
+     * @return int
+     */
+    private static int getMove(final int col, final int row, final Rotation rotation)
+    {
+        return (col << 6) | (row << 2) | rotation.ordinal();
+    }
+    
+    private static int getCol(final int move)
+    {
+        return (move >>> 6);
+    }
+    
+    private static int getRow(final int move)
+    {
+        return (move >>> 2) & 0xF;
+    }
+    
+    private static Rotation getRotation(final int move)
+    {
+        return Rotation.values()[move & 3];
+    }
+    
+    /**
+     * Get the column of the placement chosen
+     * @return int
+     */
+    @Override
+    public int getCol()
+    {
+        return this.col;
+    }
+    
+    /**
+     * Get the row of the placement chosen
+     * @return int
+     */
+    @Override
+    public int getRow()
+    {
+        return this.row;
+    }
+    
+    /**
+     * Get the rotation of the placement chosen
+     * @return Rotation
+     */
+    @Override
+    public Rotation getRotation()
+    {
+        return this.rotation;
+    }
+    
+    /**
+     * Get the number of boards kept by the last plan, the best first
+     * @return int
+     */
+    public int getCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Get the column of the first placement that led to the board kept, with a depth of 1 each board is a different placement
+     * @param index The board kept
+     * @return int
+     */
+    public int getFirstCol(final int index)
+    {
+        return getCol(firsts[index]);
+    }
+    
+    public int getFirstRow(final int index)
+    {
+        return getRow(firsts[index]);
+    }
+    
+    public Rotation getFirstRotation(final int index)
+    {
+        return getRotation(firsts[index]);
+    }
+    
+    @Override
+    public int getPath(final int[] result)
+    {
+        System.arraycopy(path, 0, result, 0, length);
+        
+        return length;
+    }
+    
+    /**
+     * Stop the plan that is running on another thread as soon as possible, the plan will not find a placement.
+     * Every plan after this will also be cancelled until resume is called.
+     */
+    @Override
+    public void cancel()
+    {
+        this.cancel = true;
+    }
+    
+    /**
+     * Allow plans to run again after being cancelled
+     */
+    @Override
+    public void resume()
+    {
+        this.cancel = false;
+    }
+    
+    /**
+     * Has the planner been cancelled
+     * @return boolean
+     */
+    @Override
+    public boolean hasCancel()
+    {
+        return this.cancel;
+    }
+    
+    /**
+     * Did the last plan run out of time or placements before every Pill was checked
+     * @return boolean
+     */
+    public boolean hasTimeout()
+    {
+        return this.timeout;
+    }
+    
+    /**
+     * Get the number of placements scored by the last plan
+     * @return long
+     */
+    public long getNodes()
+    {
+        return this.nodes;
+    }
+    
+    /**
+     * Get the number of placements found in the transposition table, by every plan
+     * @return int
+     */
+    public int getHits()
+    {
+        return table.getHits();
+    }
+    
+    /**
+     * Get the number of placements that had to be scored, by every plan
+     * @return int
+     */
+    public int getMisses()
+    {
+        return table.getMisses();
+    }
+}
\ No newline at end of file
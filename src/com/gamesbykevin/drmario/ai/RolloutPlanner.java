@@ -0,0 +1,523 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+import com.gamesbykevin.drmario.sim.GameState;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Chooses between the best placements of the current Pill by playing random games after each of them.<br><br>
+ * The heuristic picks the best few placements, then each rollout places the next Pill and a number of random Pill(s)
+ * after every placement with the greedy heuristic and counts the viruses destroyed.
+ * The placement with the best average wins, a tie goes to the placement the heuristic liked more.
+ * With a budget of placements the rollouts played are decided before any are played, so the result is always the same.
+ * Every placement plays the same random Pill(s) in each rollout, the colors come from the board and the known Pill(s)
+ * so the same position always plays the same rollouts. The rollouts can run at the same time on a fork/join pool
+ * and stop once the time runs out, every placement always has the same number of rollouts.
+ * @author GOD
+ */
+public final class RolloutPlanner implements IAgentStrategy
+{
+    //the colors of each half of a random Pill
+    private static final Type[] COLORS = {Type.RedPill, Type.BluePill, Type.YellowPill};
+    
+    //the score of a rollout where the board filled up
+    private static final int SCORE_LOSE = -20;
+    
+    //the score added to a rollout where every virus was destroyed
+    private static final int SCORE_WIN = 20;
+    
+    //the placements of the current Pill chosen by the heuristic
+    private final Planner candidates;
+    
+    //the most placements compared
+    private final int width;
+    
+    //the most rollouts of each placement
+    private final int rollouts;
+    
+    //the random Pill(s) placed in each rollout after the known Pill(s)
+    private final int horizon;
+    
+    //the time allowed for each decision in nanoseconds
+    private long budget;
+    
+    //the most placements scored for each decision, 0 if there is no limit
+    private long nodeBudget = 0;
+    
+    //each thread plays the rollouts with its own workspace
+    private final Worker[] workers;
+    
+    //the pool used to play the rollouts at the same time, null if they are played 1 at a time
+    private final ForkJoinPool pool;
+    
+    //locates the path to the placement chosen
+    private final MoveGenerator generator;
+    
+    //the position being planned
+    private BitBoard board;
+    private Type[] types;
+    private int pills;
+    private long seed;
+    private long start;
+    
+    //the rollouts each placement can play in the current decision
+    private int limit;
+    
+    //the placements compared, the total score of the rollouts and the rollouts played for each placement
+    private int count;
+    private final int[] cols, rows;
+    private final Rotation[] rotations;
+    private final long[] totals;
+    private int played;
+    
+    //the placement chosen and the inputs to get there
+    private int col, row;
+    private Rotation rotation;
+    private final int[] path = new int[MoveGenerator.PATH_LIMIT];
+    private int length;
+    
+    //has the plan been cancelled from another thread
+    private volatile boolean cancel = false;
+    
+    /**
+     * Create a new planner
+     * @param width The most placements compared
+     * @param rollouts The most rollouts of each placement
+     * @param horizon The random Pill(s) placed in each rollout after the known Pill(s)
+     * @param budget The time allowed for each decision in nanoseconds
+     * @param pool The pool used to play the rollouts, null to play them 1 at a time
+     * @param weights The score for each rule used to score a placement
+     */
+    public RolloutPlanner(final int width, final int rollouts, final int horizon, final long budget, final ForkJoinPool pool, final Weights weights)
+    {
+        if (width < 1 || rollouts < 1 || horizon < 0)
+            throw new IllegalArgumentException("The width and rollouts have to be at least 1");
+        
+        this.width = width;
+        this.rollouts = rollouts;
+        this.horizon = horizon;
+        this.budget = budget;
+        this.pool = pool;
+        this.generator = new MoveGenerator();
+        
+        //the heuristic only scores the current Pill and keeps the best placements
+        this.candidates = new Planner(width, 1, Long.MAX_VALUE, null, weights);
+        
+        this.cols = new int[width];
+        this.rows = new int[width];
+        this.rotations = new Rotation[width];
+        this.totals = new long[width];
+        
+        this.workers = new Worker[(pool == null) ? 1 : pool.getParallelism()];
+        
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = new Worker(weights);
+        }
+    }
+    
+    /**
+     * Limit the inputs before the Pill has to move down a row, so only placements reachable before gravity are chosen
+     * @param inputsPerRow The inputs allowed for each row, 0 if there is no limit
+     */
+    @Override
+    public void setInputsPerRow(final int inputsPerRow)
+    {
+        generator.setInputsPerRow(inputsPerRow);
+        candidates.setInputsPerRow(inputsPerRow);
+        
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i].policy.setInputsPerRow(inputsPerRow);
+        }
+    }
+    
+    /**
+     * Set the time allowed for each decision, every placement always plays at least 1 rollout
+     * @param budget The time in nanoseconds
+     */
+    @Override
+    public void setBudget(final long budget)
+    {
+        this.budget = budget;
+    }
+    
+    /**
+     * Set the placements scored for each decision, every placement always plays at least 1 rollout.<br>
+     * Each Pill placed in a rollout is counted as scoring as many placements as the current Pill had
+     * @param nodes The most placements scored, 0 if there is no limit
+     */
+    @Override
+    public void setNodeBudget(final long nodes)
+    {
+        this.nodeBudget = nodes;
+    }
+    
+    /**
+     * Find the best placement for the first Pill
+     * @param board The board, this will not be changed
+     * @param types The Type of each half of every known Pill, the first Pill is types[0] and types[1]
+     * @param pills The number of known Pill(s)
+     * @return boolean true if a placement was found
+     */
+    @Override
+    public boolean plan(final BitBoard board, final Type[] types, final int pills)
+    {
+        this.start = System.nanoTime();
+        
+        //the heuristic chooses the placements worth comparing
+        if (!candidates.plan(board, types, 1) || cancel)
+            return false;
+        
+        this.count = Math.min(width, candidates.getCount());
+        
+        for (int i = 0; i < count; i++)
+        {
+            cols[i] = candidates.getFirstCol(i);
+            rows[i] = candidates.getFirstRow(i);
+            rotations[i] = candidates.getFirstRotation(i);
+            totals[i] = 0;
+        }
+        
+        this.board = board;
+        this.types = types;
+        this.pills = pills;
+        this.seed = getSeed(board, types, pills);
+        this.played = 0;
+        this.limit = getLimit();
+        
+        //with a single placement there is nothing to compare
+        if (count > 1)
+        {
+            if (pool == null || workers.length < 2)
+            {
+                workers[0].run(0, 1);
+            }
+            else
+            {
+                pool.invoke(new RolloutTask(0, workers.length));
+            }
+            
+            for (int i = 0; i < workers.length; i++)
+            {
+                played += workers[i].merge(totals);
+            }
+        }
+        
+        //nothing will be chosen once cancelled
+        if (cancel)
+            return false;
+        
+        //the best average, every placement played the same rollouts so the totals can be compared
+        int best = 0;
+        
+        for (int i = 1; i < count; i++)
+        {
+            if (totals[i] > totals[best])
+                best = i;
+        }
+        
+        this.col = cols[best];
+        this.row = rows[best];
+        this.rotation = rotations[best];
+        
+        this.length = generator.generate(board, GameState.START_COL, GameState.START_ROW, Rotation.East).getPath(col, row, rotation, path);
+        
+        return true;
+    }
+    
+    /**
+     * Get the rollouts each placement can play within the budget of placements
+     * @return int At least 1
+     */
+    private int getLimit()
+    {
+        if (nodeBudget <= 0)
+            return rollouts;
+        
+        final long scored = Math.max(1, candidates.getNodes());
+        
+        //every placement compared places the known Pill(s) after the first and the random Pill(s)
+        final long rollout = Math.max(1, (long)count * ((pills - 1) + horizon) * scored);
+        
+        return (int)Math.max(1, Math.min(rollouts, (nodeBudget - scored) / rollout));
+    }
+    
+    /**
+     * Get the seed of the random Pill(s) for the position
+     * @param board The board
+     * @param types The Type of each half of every known Pill
+     * @param pills The number of known Pill(s)
+     * @return long
+     */
+    private static long getSeed(final BitBoard board, final Type[] types, final int pills)
+    {
+        long seed = board.getHash();
+        
+        for (int i = 0; i < pills * 2; i++)
+        {
+            seed = (seed * 31L) + types[i].ordinal();
+        }
+        
+        return seed;
+    }
+    
+    /**
+     * Get the number of rollouts each placement played in the last plan
+     * @return int
+     */
+    public int getRollouts()
+    {
+        return this.played;
+    }
+    
+    /**
+     * Plays the rollouts for a range of workers, splitting the range in half until it is a single worker
+     */
+    private final class RolloutTask extends RecursiveAction
+    {
+        private final int first, last;
+        
+        private RolloutTask(final int first, final int last)
+        {
+            this.first = first;
+            this.last = last;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (last - first == 1)
+            {
+                workers[first].run(first, workers.length);
+                return;
+            }
+            
+            final int middle = (first + last) >>> 1;
+            
+            invokeAll(new RolloutTask(first, middle), new RolloutTask(middle, last));
+        }
+    }
+    
+    /**
+     * The board, heuristic and random numbers used by 1 thread to play rollouts
+     */
+    private final class Worker
+    {
+        //places each Pill in the rollout
+        private final Planner policy;
+        
+        //the board of the rollout and the matches made when settling
+        private final BitBoard rollout = new BitBoard();
+        private final ChainReport report = new ChainReport();
+        
+        //the colors of the Pill placed by the heuristic
+        private final Type[] pill = new Type[2];
+        
+        private final Random random = new Random();
+        
+        //the total score of each placement and the rollouts played
+        private final long[] totals;
+        private int played;
+        
+        private Worker(final Weights weights)
+        {
+            this.policy = new Planner(1, 1, Long.MAX_VALUE, null, weights);
+            this.totals = new long[width];
+        }
+        
+        /**
+         * Play every rollout with the index first, first + step, first + (step * 2) and so on until the rollouts allowed are played or the time runs out
+         * @param first The first rollout
+         * @param step The number of workers
+         */
+        private void run(final int first, final int step)
+        {
+            played = 0;
+            
+            for (int i = 0; i < count; i++)
+            {
+                totals[i] = 0;
+            }
+            
+            //every rollout starts from this board and puts it back when done
+            rollout.copy(board);
+            
+            for (int index = first; index < limit; index += step)
+            {
+                if (cancel)
+                    return;
+                
+                //every placement plays at least 1 rollout
+                if (index > 0 && System.nanoTime() - start > budget)
+                    return;
+                
+                for (int i = 0; i < count; i++)
+                {
+                    //every placement gets the same random Pill(s)
+                    random.setSeed(seed + index);
+                    
+                    totals[i] += play(i);
+                }
+                
+                played++;
+            }
+        }
+        
+        /**
+         * Play a rollout after the placement, the board is put back once it is done
+         * @param candidate The placement of the current Pill
+         * @return int The viruses destroyed, with a bonus for destroying every virus and a penalty if the board fills up
+         */
+        private int play(final int candidate)
+        {
+            rollout.begin();
+            
+            final int result = playRollout(candidate);
+            
+            rollout.rollback();
+            
+            return result;
+        }
+        
+        /**
+         * Play a rollout after the placement on the rollout board
+         * @param candidate The placement of the current Pill
+         * @return int The viruses destroyed, with a bonus for destroying every virus and a penalty if the board fills up
+         */
+        private int playRollout(final int candidate)
+        {
+            final int viruses = rollout.getVirusCount();
+            
+            place(cols[candidate], rows[candidate], rotations[candidate], types[0], types[1]);
+            
+            //the next Pill is known, after that the colors are random
+            for (int i = 0; i < (pills - 1) + horizon; i++)
+            {
+                if (rollout.getVirusCount() == 0)
+                    break;
+                
+                if (i < pills - 1)
+                {
+                    pill[0] = types[(i + 1) * 2];
+                    pill[1] = types[((i + 1) * 2) + 1];
+                }
+                else
+                {
+                    pill[0] = COLORS[random.nextInt(COLORS.length)];
+                    pill[1] = COLORS[random.nextInt(COLORS.length)];
+                }
+                
+                if (!policy.plan(rollout, pill, 1))
+                    return (viruses - rollout.getVirusCount()) + SCORE_LOSE;
+                
+                place(policy.getCol(), policy.getRow(), policy.getRotation(), pill[0], pill[1]);
+            }
+            
+            final int left = rollout.getVirusCount();
+            
+            return (viruses - left) + ((left == 0) ? SCORE_WIN : 0);
+        }
+        
+        /**
+         * Place the Pill on the rollout board and destroy any matches
+         */
+        private void place(final int col, final int row, final Rotation rotation, final Type type, final Type type2)
+        {
+            rollout.addPill(col, row, type, col + GameState.getExtraCol(rotation), row + GameState.getExtraRow(rotation), type2);
+            rollout.settle(report);
+        }
+        
+        /**
+         * Add the totals of the worker
+         * @param result The total score of each placement
+         * @return int The rollouts played
+         */
+        private int merge(final long[] result)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                result[i] += totals[i];
+            }
+            
+            return played;
+        }
+    }
+    
+    /**
+     * Get the column of the placement chosen
+     * @return int
+     */
+    @Override
+    public int getCol()
+    {
+        return this.col;
+    }
+    
+    /**
+     * Get the row of the placement chosen
+     * @return int
+     */
+    @Override
+    public int getRow()
+    {
+        return this.row;
+    }
+    
+    /**
+     * Get the rotation of the placement chosen
+     * @return Rotation
+     */
+    @Override
+    public Rotation getRotation()
+    {
+        return this.rotation;
+    }
+    
+    @Override
+    public int getPath(final int[] result)
+    {
+        System.arraycopy(path, 0, result, 0, length);
+        
+        return length;
+    }
+    
+    /**
+     * Stop the plan that is running on another thread as soon as possible, the plan will not find a placement.
+     * Every plan after this will also be cancelled until resume is called.
+     */
+    @Override
+    public void cancel()
+    {
+        this.cancel = true;
+        
+        candidates.cancel();
+    }
+    
+    /**
+     * Allow plans to run again after being cancelled
+     */
+    @Override
+    public void resume()
+    {
+        this.cancel = false;
+        
+        candidates.resume();
+    }
+    
+    /**
+     * Has the plan been cancelled
+     * @return boolean
+     */
+    @Override
+    public boolean hasCancel()
+    {
+        return this.cancel;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import java.util.Arrays;
+
+/**
+ * Plays headless games with a strategy the same way the Agent plays at medium speed.<br><br>
+ * The searches and arrays are kept between games so playing many games creates very little garbage,
+ * a single instance should only be used by 1 thread.
+ * @author GOD
+ */
+public final class SelfPlay
+{
+    //the ticks between gravity and between each move, the same as the medium speed
+    private static final int GRAVITY_TICKS = GameState.toTicks(500L);
+    private static final int MOVEMENT_TICKS = GameState.toTicks(250L);
+    
+    /**
+     * The inputs the Agent has before gravity moves the Pill down a row
+     */
+    public static final int INPUTS_PER_ROW = Math.max(1, GRAVITY_TICKS / MOVEMENT_TICKS);
+    
+    //a game taking longer than 10 minutes is lost
+    private static final int TIME_LIMIT = GameState.toTicks(10L * 60L * 1000L);
+    
+    //finds the inputs that move the Pill to the goal
+    private final MoveGenerator moves;
+    
+    //the Type of each half of the current and next Pill
+    private final Type[] types = new Type[4];
+    
+    //the viruses left and the Pill(s) used in the last game
+    private int virusesLeft, pillsUsed;
+    
+    //should the time of every decision be kept
+    private boolean recording = false;
+    
+    //the time of every decision in nanoseconds
+    private long[] latencies = new long[0];
+    private int decisions = 0;
+    
+    public SelfPlay()
+    {
+        this.moves = new MoveGenerator();
+        this.moves.setInputsPerRow(INPUTS_PER_ROW);
+    }
+    
+    /**
+     * Keep the time of every decision
+     * @param recording true to keep the time of every decision from now on
+     */
+    public void setRecording(final boolean recording)
+    {
+        this.recording = recording;
+    }
+    
+    /**
+     * Play a single game
+     * @param strategy Decides where each Pill goes
+     * @param seed The seed of the game
+     * @param viruses The number of viruses
+     * @return boolean true if the game was won
+     */
+    public boolean play(final IAgentStrategy strategy, final long seed, final int viruses)
+    {
+        final GameState state = new GameState(viruses, seed, GRAVITY_TICKS, TIME_LIMIT);
+        
+        strategy.setInputsPerRow(INPUTS_PER_ROW);
+        
+        //the Pill planned, do we have a goal and the moves we had in the current row
+        int pills = -1;
+        boolean goal = false;
+        int movementWait = 0;
+        int inputRow = -1, inputsUsed = 0;
+        
+        while (!state.hasWin() && !state.hasLose())
+        {
+            int input = Input.NONE;
+            
+            if (state.hasPill() && state.getBoard().canInteract())
+            {
+                //decide where each new Pill goes
+                if (state.getPills() != pills)
+                {
+                    pills = state.getPills();
+                    
+                    types[0] = state.getPillType();
+                    types[1] = state.getPillExtraType();
+                    types[2] = state.getNextType();
+                    types[3] = state.getNextExtraType();
+                    
+                    final long start = System.nanoTime();
+                    
+                    goal = strategy.plan(state.getBoard().getBoard(), types, (types[2] == null) ? 1 : 2);
+                    
+                    if (recording)
+                        record(System.nanoTime() - start);
+                    
+                    movementWait = 0;
+                    inputRow = -1;
+                }
+                
+                movementWait++;
+                
+                if (goal && movementWait >= MOVEMENT_TICKS)
+                {
+                    movementWait = 0;
+                    
+                    if (state.getPillRow() != inputRow)
+                    {
+                        inputRow = state.getPillRow();
+                        inputsUsed = 0;
+                    }
+                    
+                    input = moves.getInput(state.getBoard().getBoard(), state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputsUsed, strategy.getCol(), strategy.getRow(), strategy.getRotation());
+                    
+                    inputsUsed++;
+                }
+            }
+            
+            state.step(input);
+        }
+        
+        this.virusesLeft = state.getBoard().getVirusCount();
+        this.pillsUsed = state.getPills();
+        
+        return state.hasWin();
+    }
+    
+    private void record(final long latency)
+    {
+        if (decisions == latencies.length)
+            latencies = Arrays.copyOf(latencies, Math.max(1024, latencies.length * 2));
+        
+        latencies[decisions++] = latency;
+    }
+    
+    /**
+     * Get the viruses left at the end of the last game
+     * @return int
+     */
+    public int getVirusesLeft()
+    {
+        return this.virusesLeft;
+    }
+    
+    /**
+     * Get the Pill(s) used in the last game
+     * @return int
+     */
+    public int getPillsUsed()
+    {
+        return this.pillsUsed;
+    }
+    
+    /**
+     * Get the number of decisions recorded
+     * @return int
+     */
+    public int getDecisions()
+    {
+        return this.decisions;
+    }
+    
+    /**
+     * Get a copy of the time of every decision recorded
+     * @return long[] The time of each decision in nanoseconds
+     */
+    public long[] getLatencies()
+    {
+        return Arrays.copyOf(latencies, decisions);
+    }
+}
\ No newline at end of file
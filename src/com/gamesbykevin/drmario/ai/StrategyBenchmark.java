@@ -0,0 +1,151 @@
+package com.gamesbykevin.drmario.ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays headless games with each strategy to compare how strong they are and what each decision costs.<br><br>
+ * Every strategy plays the same seeds and moves the Pill the same way the Agent does at medium speed.
+ * The time of every decision is recorded so the mean and 99th percentile can be reported,
+ * along with the share of placements the beam search found in its transposition table.
+ * @author GOD
+ */
+public final class StrategyBenchmark
+{
+    //the number of games and viruses when not specified
+    private static final int DEFAULT_GAMES = 100;
+    private static final int DEFAULT_VIRUSES = 40;
+    
+    //the name of the strategy
+    private final String name;
+    
+    //the games played and won
+    private int games = 0, wins = 0;
+    
+    //the time of every decision in nanoseconds
+    private long[] latencies = new long[0];
+    
+    //the placements found in the transposition table and scored, 0 if the strategy doesn't have a table
+    private long hits = 0, misses = 0;
+    
+    /**
+     * Create a benchmark for the strategy
+     * @param name The name of the registered strategy
+     */
+    public StrategyBenchmark(final String name)
+    {
+        this.name = name;
+    }
+    
+    /**
+     * Play the games, game n uses the seed n so every strategy plays the same games
+     * @param count The number of games
+     * @param viruses The number of viruses in each game
+     */
+    public void run(final int count, final int viruses)
+    {
+        //search on 1 thread so the time is the cost of the strategy alone
+        final IAgentStrategy strategy = StrategyRegistry.create(name, null);
+        final SelfPlay play = new SelfPlay();
+        
+        play.setRecording(true);
+        
+        for (int seed = 0; seed < count; seed++)
+        {
+            if (play.play(strategy, seed, viruses))
+                wins++;
+            
+            games++;
+        }
+        
+        latencies = play.getLatencies();
+        
+        if (strategy instanceof Planner)
+        {
+            hits = ((Planner)strategy).getHits();
+            misses = ((Planner)strategy).getMisses();
+        }
+    }
+    
+    /**
+     * Get the share of placements found in the transposition table
+     * @return double From 0 to 1, -1 if the strategy doesn't have a table
+     */
+    public double getHitRate()
+    {
+        return (hits + misses == 0) ? -1 : (double)hits / (hits + misses);
+    }
+    
+    /**
+     * Get the share of games won
+     * @return double From 0 to 1
+     */
+    public double getWinRate()
+    {
+        return (games == 0) ? 0 : (double)wins / games;
+    }
+    
+    /**
+     * Get the mean time of each decision
+     * @return double The time in milliseconds
+     */
+    public double getMeanLatency()
+    {
+        if (latencies.length == 0)
+            return 0;
+        
+        long total = 0;
+        
+        for (int i = 0; i < latencies.length; i++)
+        {
+            total += latencies[i];
+        }
+        
+        return (total / (double)latencies.length) / 1000000.0;
+    }
+    
+    /**
+     * Get the time that the percentage of decisions were faster than or equal to
+     * @param percentile The percentage from 0 to 100
+     * @return double The time in milliseconds
+     */
+    public double getLatency(final double percentile)
+    {
+        if (latencies.length == 0)
+            return 0;
+        
+        final long[] sorted = latencies.clone();
+        
+        Arrays.sort(sorted);
+        
+        final int index = (int)Math.ceil((percentile / 100.0) * sorted.length) - 1;
+        
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000000.0;
+    }
+    
+    /**
+     * Run the benchmark
+     * @param args The number of games, the number of viruses, then the names of the strategies, every strategy if none are named
+     */
+    public static void main(final String[] args)
+    {
+        final int count = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        final int viruses = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_VIRUSES;
+        
+        final List<String> names = (args.length > 2) ? Arrays.asList(args).subList(2, args.length) : StrategyRegistry.getNames();
+        
+        for (String name : names)
+        {
+            final StrategyBenchmark benchmark = new StrategyBenchmark(name);
+            
+            benchmark.run(count, viruses);
+            
+            String line = String.format("%-8s won %5.1f%% of %d games, decision mean %.3f ms, 99th percentile %.3f ms", name, benchmark.getWinRate() * 100.0, count, benchmark.getMeanLatency(), benchmark.getLatency(99.0));
+            
+            if (benchmark.getHitRate() >= 0)
+                line += String.format(", table hits %.1f%%", benchmark.getHitRate() * 100.0);
+            
+            System.out.println(line);
+        }
+    }
+}
\ No newline at end of file
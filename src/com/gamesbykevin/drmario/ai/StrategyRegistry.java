@@ -0,0 +1,151 @@
+package com.gamesbykevin.drmario.ai;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Every strategy the AI can use, each is selected by name.<br><br>
+ * A strategy keeps its own search state so a new one is created for every Agent.
+ * Each strategy is created with the weights used to score a placement.
+ * @author GOD
+ */
+public final class StrategyRegistry
+{
+    /**
+     * Creates a new instance of a strategy
+     */
+    public interface IFactory
+    {
+        /**
+         * Create the strategy
+         * @param pool The pool the strategy can use to search at the same time, null to search on 1 thread
+         * @param weights The score for each rule used to score a placement
+         * @return IAgentStrategy
+         */
+        public IAgentStrategy create(final ForkJoinPool pool, final Weights weights);
+    }
+    
+    /**
+     * The strategy used when none is chosen
+     */
+    public static final String DEFAULT = "anytime";
+    
+    //the time allowed for each decision, so the game can still run at 60 updates per second with 4 agents
+    private static final long BUDGET = 2000000L;
+    
+    //the time allowed for each decision played out with rollouts, the Agent gives it more time at slower speeds
+    private static final long ROLLOUT_BUDGET = 20000000L;
+    
+    //each strategy by name, in the order they were registered
+    private static final Map<String, IFactory> FACTORIES = new LinkedHashMap<String, IFactory>();
+    
+    static
+    {
+        //the current and next Pill, keeping the best 8 boards after the current Pill
+        register("beam", new IFactory()
+        {
+            @Override
+            public IAgentStrategy create(final ForkJoinPool pool, final Weights weights)
+            {
+                return new Planner(8, 2, BUDGET, pool, weights);
+            }
+        });
+        
+        //only the current Pill, the best placement right now
+        register("greedy", new IFactory()
+        {
+            @Override
+            public IAgentStrategy create(final ForkJoinPool pool, final Weights weights)
+            {
+                return new Planner(1, 1, BUDGET, pool, weights);
+            }
+        });
+        
+        //the current and next Pill, keeping twice as many boards
+        register("wide", new IFactory()
+        {
+            @Override
+            public IAgentStrategy create(final ForkJoinPool pool, final Weights weights)
+            {
+                return new Planner(16, 2, BUDGET, pool, weights);
+            }
+        });
+        
+        //the current and next Pill, then the Pill after them sampled from every color while there is time
+        register(DEFAULT, new IFactory()
+        {
+            @Override
+            public IAgentStrategy create(final ForkJoinPool pool, final Weights weights)
+            {
+                return new Planner(8, 3, BUDGET, pool, weights);
+            }
+        });
+        
+        //the best 4 placements of the current Pill, each played out with 6 random Pill(s) after the known Pill(s)
+        register("rollout", new IFactory()
+        {
+            @Override
+            public IAgentStrategy create(final ForkJoinPool pool, final Weights weights)
+            {
+                return new RolloutPlanner(4, 32, 6, ROLLOUT_BUDGET, pool, weights);
+            }
+        });
+    }
+    
+    private StrategyRegistry()
+    {
+        //this class only contains the registered strategies
+    }
+    
+    /**
+     * Add a strategy, replacing any strategy with the same name
+     * @param name The name the strategy is selected by
+     * @param factory Creates the strategy
+     */
+    public static synchronized void register(final String name, final IFactory factory)
+    {
+        FACTORIES.put(name, factory);
+    }
+    
+    /**
+     * Create a new instance of the strategy with the default weights
+     * @param name The name of the strategy
+     * @param pool The pool the strategy can use to search at the same time, null to search on 1 thread
+     * @return IAgentStrategy
+     * @throws IllegalArgumentException if no strategy has the name
+     */
+    public static IAgentStrategy create(final String name, final ForkJoinPool pool)
+    {
+        return create(name, pool, Weights.DEFAULT);
+    }
+    
+    /**
+     * Create a new instance of the strategy
+     * @param name The name of the strategy
+     * @param pool The pool the strategy can use to search at the same time, null to search on 1 thread
+     * @param weights The score for each rule used to score a placement
+     * @return IAgentStrategy
+     * @throws IllegalArgumentException if no strategy has the name
+     */
+    public static synchronized IAgentStrategy create(final String name, final ForkJoinPool pool, final Weights weights)
+    {
+        final IFactory factory = FACTORIES.get(name);
+        
+        if (factory == null)
+            throw new IllegalArgumentException("There is no strategy named " + name + ", the strategies are " + FACTORIES.keySet());
+        
+        return factory.create(pool, weights);
+    }
+    
+    /**
+     * Get the name of every strategy, in the order they were registered
+     * @return List<String>
+     */
+    public static synchronized List<String> getNames()
+    {
+        return new ArrayList<String>(FACTORIES.keySet());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+import java.util.Random;
+
+/**
+ * A fixed size cache of a value for each position the AI has seen.<br><br>
+ * A position is the board hash along with the colors of the Pill(s), and the placement when a placement is scored.
+ * Each key can only be stored in a small group of neighboring slots, when the group is full
+ * a clock hand skips the recently used entries and replaces the first one that was not.
+ * @author GOD
+ */
+public final class TranspositionTable
+{
+    //the number of neighboring slots a key can be stored in
+    private static final int GROUP_SIZE = 4;
+    
+    //a random key for each Type in each of the 4 Pill halves
+    private static final long[] PILL_KEYS = createKeys(4 * Type.values().length);
+    
+    //a random key for each placement of a Pill
+    private static final long[] MOVE_KEYS = createKeys(1 << 9);
+    
+    //the key and value of each slot, a key of 0 is an empty slot
+    private final long[] keys;
+    private final int[] values;
+    
+    //was the slot used since the clock hand last passed
+    private final boolean[] referenced;
+    
+    //the clock hand of each group
+    private final byte[] hands;
+    
+    //used to locate the first slot of a group
+    private final int mask;
+    
+    //statistics
+    private int hits = 0, misses = 0;
+    
+    /**
+     * Create a new table
+     * @param size The number of entries, this will be rounded up to a power of 2
+     */
+    public TranspositionTable(final int size)
+    {
+        int capacity = GROUP_SIZE;
+        
+        while (capacity < size)
+        {
+            capacity <<= 1;
+        }
+        
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.referenced = new boolean[capacity];
+        this.hands = new byte[capacity / GROUP_SIZE];
+        this.mask = capacity - 1;
+    }
+    
+    private static long[] createKeys(final int length)
+    {
+        final Random random = new Random(0xC2B2AE3D27D4EB4FL + length);
+        
+        final long[] keys = new long[length];
+        
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextLong();
+        }
+        
+        return keys;
+    }
+    
+    /**
+     * Get the key for a position
+     * @param hash The hash of the board
+     * @param type The Type of the current Pill
+     * @param extraType The Type of the current Pill extra
+     * @param nextType The Type of the next Pill
+     * @param nextExtraType The Type of the next Pill extra
+     * @return long The key, this will never be 0
+     */
+    public static long getKey(final long hash, final Type type, final Type extraType, final Type nextType, final Type nextExtraType)
+    {
+        final int length = Type.values().length;
+        
+        long key = hash;
+        
+        key ^= PILL_KEYS[type.ordinal()];
+        key ^= PILL_KEYS[length + extraType.ordinal()];
+        key ^= PILL_KEYS[(length * 2) + ((nextType == null) ? 0 : nextType.ordinal())];
+        key ^= PILL_KEYS[(length * 3) + ((nextExtraType == null) ? 0 : nextExtraType.ordinal())];
+        
+        //0 is reserved for an empty slot
+        return (key == 0) ? 1 : key;
+    }
+    
+    /**
+     * Get the key for a placement of a Pill
+     * @param hash The hash of the board before the placement
+     * @param move The placement, the column, row and rotation packed into 9 bits
+     * @param type The Type of the Pill
+     * @param extraType The Type of the Pill extra
+     * @return long The key, this will never be 0
+     */
+    public static long getKey(final long hash, final int move, final Type type, final Type extraType)
+    {
+        final int length = Type.values().length;
+        
+        long key = hash;
+        
+        key ^= MOVE_KEYS[move];
+        key ^= PILL_KEYS[type.ordinal()];
+        key ^= PILL_KEYS[length + extraType.ordinal()];
+        
+        //0 is reserved for an empty slot
+        return (key == 0) ? 1 : key;
+    }
+    
+    /**
+     * Get the first slot of the group for the key
+     * @param key The key
+     * @return int
+     */
+    private int getGroup(final long key)
+    {
+        //mix the upper bits into the lower bits so every bit decides the group
+        final long mixed = key ^ (key >>> 32) ^ (key >>> 17);
+        
+        return ((int)mixed & mask) & ~(GROUP_SIZE - 1);
+    }
+    
+    /**
+     * Does the table contain the key
+     * @param key The key
+     * @return int The slot where the key is found, -1 if not found
+     */
+    public int find(final long key)
+    {
+        final int group = getGroup(key);
+        
+        for (int slot = group; slot < group + GROUP_SIZE; slot++)
+        {
+            if (keys[slot] == key)
+            {
+                referenced[slot] = true;
+                hits++;
+                return slot;
+            }
+        }
+        
+        misses++;
+        return -1;
+    }
+    
+    /**
+     * Get the value stored in the slot
+     * @param slot The slot returned from find
+     * @return int
+     */
+    public int getValue(final int slot)
+    {
+        return values[slot];
+    }
+    
+    /**
+     * Store the value for the key, replacing an entry if the group is full
+     * @param key The key
+     * @param value The value
+     */
+    public void put(final long key, final int value)
+    {
+        final int group = getGroup(key);
+        
+        //use the existing or an empty slot
+        for (int slot = group; slot < group + GROUP_SIZE; slot++)
+        {
+            if (keys[slot] == key || keys[slot] == 0)
+            {
+                set(slot, key, value);
+                return;
+            }
+        }
+        
+        //move the clock hand until we find a slot that was not recently used
+        int hand = hands[group / GROUP_SIZE];
+        
+        while (referenced[group + hand])
+        {
+            referenced[group + hand] = false;
+            hand = (hand + 1) % GROUP_SIZE;
+        }
+        
+        set(group + hand, key, value);
+        
+        hands[group / GROUP_SIZE] = (byte)((hand + 1) % GROUP_SIZE);
+    }
+    
+    private void set(final int slot, final long key, final int value)
+    {
+        keys[slot] = key;
+        values[slot] = value;
+        referenced[slot] = false;
+    }
+    
+    /**
+     * Remove every entry
+     */
+    public void clear()
+    {
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            keys[slot] = 0;
+            referenced[slot] = false;
+        }
+    }
+    
+    public int getHits()
+    {
+        return this.hits;
+    }
+    
+    public int getMisses()
+    {
+        return this.misses;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,363 @@
+package com.gamesbykevin.drmario.ai;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the Weights the Evaluator uses with a genetic algorithm and headless self-play.<br><br>
+ * Every generation each set of weights plays the same games, the games are split into tasks run on every core.
+ * The best weights are kept, the rest of the next generation is bred from the best weights and mutated.
+ * The best weights of every generation are saved so the Agent can load them at startup,
+ * the tuner stops early once it runs out of time.
+ * @author GOD
+ */
+public final class WeightTuner
+{
+    //the number of games each task plays
+    private static final int TASK_GAMES = 16;
+    
+    //the number of best weights copied to the next generation unchanged
+    private static final int ELITES = 2;
+    
+    //the number of weights compared when selecting a parent
+    private static final int TOURNAMENT = 3;
+    
+    //the chance each weight is mutated
+    private static final double MUTATION_RATE = 0.3;
+    
+    //the mutation size as a share of each default weight, at the start and at the end
+    private static final double MUTATION_START = 0.3;
+    private static final double MUTATION_END = 0.05;
+    
+    //the smallest mutation size
+    private static final double MUTATION_MINIMUM = 2.0;
+    
+    //the number of weights in each generation
+    private int population = 32;
+    
+    //the most generations to run
+    private int generations = 20;
+    
+    //the games each set of weights plays every generation
+    private int games = 64;
+    
+    //the viruses in each game
+    private int viruses = 40;
+    
+    //the strategy the weights are tuned for
+    private String strategy = StrategyRegistry.DEFAULT;
+    
+    //the time allowed in minutes, 0 if there is no limit
+    private long minutes = 0;
+    
+    //where the best weights are saved
+    private File output = new File("weights.properties");
+    
+    //the seed of the random numbers used to breed the weights
+    private long seed = 0;
+    
+    //every set of weights in the current generation and its fitness
+    private Weights[] weights;
+    private double[] fitness;
+    
+    //each thread keeps its own self-play so the games create very little garbage
+    private final ThreadLocal<SelfPlay> plays = new ThreadLocal<SelfPlay>()
+    {
+        @Override
+        protected SelfPlay initialValue()
+        {
+            return new SelfPlay();
+        }
+    };
+    
+    /**
+     * Plays a share of the games for a single set of weights
+     */
+    private final class Task implements Callable<Double>
+    {
+        private final Weights weights;
+        private final long first;
+        private final int count;
+        
+        private Task(final Weights weights, final long first, final int count)
+        {
+            this.weights = weights;
+            this.first = first;
+            this.count = count;
+        }
+        
+        @Override
+        public Double call()
+        {
+            //search on 1 thread, the games are already played on every core
+            final IAgentStrategy player = StrategyRegistry.create(strategy, null, weights);
+            final SelfPlay play = plays.get();
+            
+            double total = 0;
+            
+            for (int i = 0; i < count; i++)
+            {
+                final boolean win = play.play(player, first + i, viruses);
+                
+                //the share of viruses destroyed, and 1 more for the win
+                total += (viruses - play.getVirusesLeft()) / (double)viruses;
+                
+                if (win)
+                    total += 1.0;
+            }
+            
+            return total;
+        }
+    }
+    
+    /**
+     * Run the tuner
+     * @throws IOException if the weights can't be saved
+     * @throws InterruptedException if the tuner was interrupted
+     * @throws ExecutionException if a game failed
+     */
+    public void run() throws IOException, InterruptedException, ExecutionException
+    {
+        final Random random = new Random(seed);
+        
+        final long deadline = (minutes > 0) ? System.nanoTime() + (minutes * 60L * 1000000000L) : Long.MAX_VALUE;
+        
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        
+        try
+        {
+            //the first generation is the defaults and mutations of the defaults
+            weights = new Weights[population];
+            fitness = new double[population];
+            
+            weights[0] = Weights.DEFAULT;
+            
+            for (int i = 1; i < population; i++)
+            {
+                weights[i] = mutate(Weights.DEFAULT, random, MUTATION_START);
+            }
+            
+            for (int generation = 0; generation < generations; generation++)
+            {
+                final long start = System.nanoTime();
+                
+                //every set of weights plays the same new games each generation
+                evaluate(executor, (long)generation * games);
+                
+                sort();
+                
+                System.out.println(String.format("generation %d best %.3f mean %.3f in %.1f seconds, %s", generation, fitness[0] / games, getMean() / games, (System.nanoTime() - start) / 1000000000.0, weights[0]));
+                
+                weights[0].save(output, "tuned for " + strategy + " with " + viruses + " viruses, generation " + generation);
+                
+                if (generation == generations - 1 || System.nanoTime() > deadline)
+                    break;
+                
+                //the mutations get smaller as the weights improve
+                final double progress = (generations > 1) ? generation / (double)(generations - 1) : 1.0;
+                
+                breed(random, MUTATION_START + ((MUTATION_END - MUTATION_START) * progress));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Play the games for every set of weights
+     * @param executor Where the games are played
+     * @param first The seed of the first game
+     */
+    private void evaluate(final ExecutorService executor, final long first) throws InterruptedException, ExecutionException
+    {
+        final List<Task> tasks = new ArrayList<Task>();
+        
+        for (int i = 0; i < population; i++)
+        {
+            for (int game = 0; game < games; game += TASK_GAMES)
+            {
+                tasks.add(new Task(weights[i], first + game, Math.min(TASK_GAMES, games - game)));
+            }
+        }
+        
+        final List<Future<Double>> results = executor.invokeAll(tasks);
+        
+        final int chunks = tasks.size() / population;
+        
+        for (int i = 0; i < population; i++)
+        {
+            fitness[i] = 0;
+            
+            for (int chunk = 0; chunk < chunks; chunk++)
+            {
+                fitness[i] += results.get((i * chunks) + chunk).get();
+            }
+        }
+    }
+    
+    /**
+     * Sort the weights by fitness, the best first
+     */
+    private void sort()
+    {
+        for (int i = 1; i < population; i++)
+        {
+            final Weights current = weights[i];
+            final double score = fitness[i];
+            
+            int j = i - 1;
+            
+            while (j >= 0 && fitness[j] < score)
+            {
+                weights[j + 1] = weights[j];
+                fitness[j + 1] = fitness[j];
+                j--;
+            }
+            
+            weights[j + 1] = current;
+            fitness[j + 1] = score;
+        }
+    }
+    
+    private double getMean()
+    {
+        double total = 0;
+        
+        for (int i = 0; i < population; i++)
+        {
+            total += fitness[i];
+        }
+        
+        return total / population;
+    }
+    
+    /**
+     * Create the next generation, the weights have to be sorted
+     * @param random Random number generator
+     * @param scale The mutation size as a share of each default weight
+     */
+    private void breed(final Random random, final double scale)
+    {
+        final Weights[] next = new Weights[population];
+        
+        //the best weights are kept as they are
+        for (int i = 0; i < ELITES && i < population; i++)
+        {
+            next[i] = weights[i];
+        }
+        
+        for (int i = ELITES; i < population; i++)
+        {
+            final int[] mother = select(random).toArray();
+            final int[] father = select(random).toArray();
+            
+            //each weight comes from either parent
+            for (int index = 0; index < Weights.COUNT; index++)
+            {
+                if (random.nextBoolean())
+                    mother[index] = father[index];
+            }
+            
+            next[i] = mutate(new Weights(mother), random, scale);
+        }
+        
+        weights = next;
+    }
+    
+    /**
+     * Select a parent, the best of a few random weights
+     * @param random Random number generator
+     * @return Weights
+     */
+    private Weights select(final Random random)
+    {
+        int best = random.nextInt(population);
+        
+        for (int i = 1; i < TOURNAMENT; i++)
+        {
+            final int index = random.nextInt(population);
+            
+            //the weights are sorted so a lower index is better
+            if (index < best)
+                best = index;
+        }
+        
+        return weights[best];
+    }
+    
+    /**
+     * Change some of the weights by a random amount
+     * @param parent The weights to start with
+     * @param random Random number generator
+     * @param scale The mutation size as a share of each default weight
+     * @return Weights
+     */
+    private static Weights mutate(final Weights parent, final Random random, final double scale)
+    {
+        final int[] values = parent.toArray();
+        
+        for (int index = 0; index < Weights.COUNT; index++)
+        {
+            if (random.nextDouble() >= MUTATION_RATE)
+                continue;
+            
+            final double size = Math.max(MUTATION_MINIMUM, Math.abs(Weights.DEFAULT.get(index)) * scale);
+            
+            values[index] += (int)Math.round(random.nextGaussian() * size);
+        }
+        
+        return new Weights(values);
+    }
+    
+    /**
+     * Run the tuner from the command line
+     * @param args Each setting as name=value: population, generations, games, viruses, strategy, minutes, output and seed
+     * @throws Exception if the tuner failed
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        final WeightTuner tuner = new WeightTuner();
+        
+        for (String arg : args)
+        {
+            final int split = arg.indexOf('=');
+            
+            if (split < 0)
+                throw new IllegalArgumentException("Settings are name=value, not " + arg);
+            
+            final String name = arg.substring(0, split);
+            final String value = arg.substring(split + 1);
+            
+            if (name.equals("population"))
+                tuner.population = Math.max(ELITES + 1, Integer.parseInt(value));
+            else if (name.equals("generations"))
+                tuner.generations = Math.max(1, Integer.parseInt(value));
+            else if (name.equals("games"))
+                tuner.games = Math.max(1, Integer.parseInt(value));
+            else if (name.equals("viruses"))
+                tuner.viruses = Integer.parseInt(value);
+            else if (name.equals("strategy"))
+                tuner.strategy = value;
+            else if (name.equals("minutes"))
+                tuner.minutes = Long.parseLong(value);
+            else if (name.equals("output"))
+                tuner.output = new File(value);
+            else if (name.equals("seed"))
+                tuner.seed = Long.parseLong(value);
+            else
+                throw new IllegalArgumentException("Unknown setting " + name);
+        }
+        
+        tuner.run();
+    }
+}
\ No newline at end of file
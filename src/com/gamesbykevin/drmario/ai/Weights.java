@@ -0,0 +1,197 @@
+package com.gamesbykevin.drmario.ai;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * The score for each rule the Evaluator uses to score a placement.<br><br>
+ * The weights can be saved to and loaded from a properties file, any weight missing from the file keeps its default.
+ * The weights are never changed once created so they can be shared between threads.
+ * @author GOD
+ */
+public final class Weights
+{
+    //score to add for every virus kill, highest priority
+    public static final int VIRUS_KILL = 0;
+    
+    //score to add for every pill kill
+    public static final int PILL_KILL = 1;
+    
+    //score to add when adding pill on top of matching virus
+    public static final int VIRUS_MATCH = 2;
+    
+    //score to add when adding pill on top of matching pill
+    public static final int BLOCK_MATCH = 3;
+    
+    //score to deduct when placing pill on top of non-matching virus
+    public static final int VIRUS_NO_MATCH = 4;
+    
+    //score to deduct when placing pill on top of non-matching pill
+    public static final int BLOCK_NO_MATCH = 5;
+    
+    //score to add when the block matches and the same column has a virus
+    public static final int BLOCK_MATCH_VIRUS_COLUMN = 6;
+    
+    //score to deduct when the block does not match and the same column has a virus
+    public static final int BLOCK_NO_MATCH_VIRUS_COLUMN = 7;
+    
+    //the penalty for each row
+    public static final int HEIGHT = 8;
+    
+    //score to deduct when we are very close to the top and the block(s) don't match
+    public static final int DANGER_ZONE_NO_MATCH = 9;
+    
+    //score to add for every virus kill after Block(s) have dropped, the game scores these double
+    public static final int CHAIN_VIRUS_KILL = 10;
+    
+    //score to add for every match after the first
+    public static final int CHAIN = 11;
+    
+    /**
+     * The number of weights
+     */
+    public static final int COUNT = 12;
+    
+    //the name of each weight in the file
+    private static final String[] NAMES =
+    {
+        "virusKill", "pillKill", "virusMatch", "blockMatch", "virusNoMatch", "blockNoMatch",
+        "blockMatchVirusColumn", "blockNoMatchVirusColumn", "height", "dangerZoneNoMatch",
+        "chainVirusKill", "chain"
+    };
+    
+    //the weights the game was designed with
+    private static final int[] DEFAULTS = {150, 25, 50, 25, -50, -25, 45, -25, -5, -350, 300, 25};
+    
+    /**
+     * The weights the game was designed with
+     */
+    public static final Weights DEFAULT = new Weights(DEFAULTS);
+    
+    //the value of each weight
+    private final int[] values;
+    
+    /**
+     * Create the weights
+     * @param values The value of each weight, the array is copied
+     */
+    public Weights(final int[] values)
+    {
+        if (values.length != COUNT)
+            throw new IllegalArgumentException("There are " + COUNT + " weights but " + values.length + " were given");
+        
+        this.values = values.clone();
+    }
+    
+    /**
+     * Get the weight
+     * @param index The weight, for example VIRUS_KILL
+     * @return int
+     */
+    public int get(final int index)
+    {
+        return values[index];
+    }
+    
+    /**
+     * Get a copy of every weight
+     * @return int[]
+     */
+    public int[] toArray()
+    {
+        return values.clone();
+    }
+    
+    /**
+     * Get the name of the weight used in the file
+     * @param index The weight, for example VIRUS_KILL
+     * @return String
+     */
+    public static String getName(final int index)
+    {
+        return NAMES[index];
+    }
+    
+    /**
+     * Load the weights from a properties file
+     * @param file The file
+     * @return Weights
+     * @throws IOException if the file can't be read
+     * @throws NumberFormatException if a weight is not a whole number
+     */
+    public static Weights load(final File file) throws IOException
+    {
+        final Properties properties = new Properties();
+        
+        final InputStream input = new FileInputStream(file);
+        
+        try
+        {
+            properties.load(input);
+        }
+        finally
+        {
+            input.close();
+        }
+        
+        final int[] values = DEFAULTS.clone();
+        
+        for (int i = 0; i < COUNT; i++)
+        {
+            final String value = properties.getProperty(NAMES[i]);
+            
+            if (value != null)
+                values[i] = Integer.parseInt(value.trim());
+        }
+        
+        return new Weights(values);
+    }
+    
+    /**
+     * Save the weights to a properties file
+     * @param file The file
+     * @param comment The comment written at the top of the file
+     * @throws IOException if the file can't be written
+     */
+    public void save(final File file, final String comment) throws IOException
+    {
+        final Properties properties = new Properties();
+        
+        for (int i = 0; i < COUNT; i++)
+        {
+            properties.setProperty(NAMES[i], Integer.toString(values[i]));
+        }
+        
+        final OutputStream output = new FileOutputStream(file);
+        
+        try
+        {
+            properties.store(output, comment);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        
+        for (int i = 0; i < COUNT; i++)
+        {
+            if (i > 0)
+                builder.append(", ");
+            
+            builder.append(NAMES[i]).append('=').append(values[i]);
+        }
+        
+        return builder.toString();
+    }
+}
\ No newline at end of file
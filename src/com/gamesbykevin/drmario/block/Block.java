@@ -5,6 +5,8 @@ import com.gamesbykevin.framework.base.Animation;
 import com.gamesbykevin.framework.resources.Disposable;
 import com.gamesbykevin.framework.util.TimerCollection;
 
+import com.gamesbykevin.drmario.shared.DrawList;
+
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Image;
@@ -142,14 +144,33 @@ public class Block extends Sprite implements Disposable
      */
     public void setPosition(final double startX, final double startY)
     {
-        final int x = (int)(startX + (getCol() * (WIDTH - 1)  ) - (WIDTH * .1));
-        final int y = (int)(startY + (getRow() * (HEIGHT - 1) ));
-
         //set the appropriate location and dimensions
-        setLocation(x, y);
+        setLocation(getX(startX, (int)getCol()), getY(startY, (int)getRow()));
         setDimensions(WIDTH, HEIGHT);
     }
     
+    /**
+     * Get the x location of a Block in the column
+     * @param startX Where the board starts
+     * @param col The column
+     * @return int
+     */
+    private static int getX(final double startX, final int col)
+    {
+        return (int)(startX + (col * (WIDTH - 1)  ) - (WIDTH * .1));
+    }
+    
+    /**
+     * Get the y location of a Block in the row
+     * @param startY Where the board starts
+     * @param row The row
+     * @return int
+     */
+    private static int getY(final double startY, final int row)
+    {
+        return (int)(startY + (row * (HEIGHT - 1) ));
+    }
+    
     public void setType(final Type type)
     {
         this.type = type;
@@ -220,26 +241,112 @@ public class Block extends Sprite implements Disposable
         else
         {
             //set the correct color accordingly
-            switch(type)
-            {
-                case RedPill:
-                case RedVirus:
-                    graphics.setColor(Color.RED);
-                    break;
-
-                case YellowPill:
-                case YellowVirus:
-                    graphics.setColor(Color.YELLOW);
-                    break;
-
-                case BluePill:
-                case BlueVirus:
-                    graphics.setColor(Color.BLUE);
-                    break;
-            }
+            graphics.setColor(getColor(type));
             
             //empty circle will be drawn when dead
             graphics.drawOval((int)getX(), (int)getY(), (int)getWidth(), (int)getHeight());
         }
     }
+    
+    /**
+     * Record the Block so it can be drawn later, it will look the same as render
+     * @param list Where the Block is recorded
+     * @param time The time in nanoseconds, used to choose the frame of the virus animation
+     */
+    public void record(final DrawList list, final long time)
+    {
+        record(list, type, isDead(), (int)getX(), (int)getY(), (int)getWidth(), (int)getHeight(), time);
+    }
+    
+    /**
+     * Record a Block on the board without a Sprite, it will look the same as a Block at the column, row
+     * @param list Where the Block is recorded
+     * @param type The Type of Block
+     * @param dead Is the Block dead
+     * @param col Column
+     * @param row Row
+     * @param startX Where the board starts
+     * @param startY Where the board starts
+     * @param time The time in nanoseconds, used to choose the frame of the virus animation
+     */
+    public static void record(final DrawList list, final Type type, final boolean dead, final int col, final int row, final double startX, final double startY, final long time)
+    {
+        record(list, type, dead, getX(startX, col), getY(startY, row), WIDTH, HEIGHT, time);
+    }
+    
+    /**
+     * Record a Block at the location
+     * @param list Where the Block is recorded
+     * @param type The Type of Block
+     * @param dead Is the Block dead
+     * @param x Where the Block is drawn
+     * @param y Where the Block is drawn
+     * @param width The width of the Block
+     * @param height The height of the Block
+     * @param time The time in nanoseconds, used to choose the frame of the virus animation
+     */
+    private static void record(final DrawList list, final Type type, final boolean dead, final int x, final int y, final int width, final int height, final long time)
+    {
+        if (!dead)
+        {
+            list.add(getSource(type, time), x, y, width, height);
+        }
+        else
+        {
+            //empty circle will be drawn when dead
+            list.addOval(x, y, width, height, getColor(type));
+        }
+    }
+    
+    /**
+     * Get the color of the Type
+     * @param type The Type of Block
+     * @return Color
+     */
+    private static Color getColor(final Type type)
+    {
+        switch(type)
+        {
+            case RedPill:
+            case RedVirus:
+                return Color.RED;
+                
+            case YellowPill:
+            case YellowVirus:
+                return Color.YELLOW;
+                
+            default:
+                return Color.BLUE;
+        }
+    }
+    
+    /**
+     * Get the location of the Type on the sprite sheet, the viruses switch between 2 frames
+     * @param type The Type of Block
+     * @param time The time in nanoseconds
+     * @return Rectangle
+     */
+    private static Rectangle getSource(final Type type, final long time)
+    {
+        switch(type)
+        {
+            case BluePill:
+                return PILL_BLUE;
+                
+            case YellowPill:
+                return PILL_YELLOW;
+                
+            case RedPill:
+                return PILL_RED;
+                
+            case BlueVirus:
+                return ((time / BLUE_DELAY) % 2 == 0) ? BOARD_VIRUS_BLUE_1 : BOARD_VIRUS_BLUE_2;
+                
+            case YellowVirus:
+                return ((time / YELLOW_DELAY) % 2 == 0) ? BOARD_VIRUS_YELLOW_1 : BOARD_VIRUS_YELLOW_2;
+                
+            default:
+                return ((time / RED_DELAY) % 2 == 0) ? BOARD_VIRUS_RED_1 : BOARD_VIRUS_RED_2;
+        }
+    }
 }
\ No newline at end of file
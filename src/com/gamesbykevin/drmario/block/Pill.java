@@ -6,6 +6,7 @@ import com.gamesbykevin.framework.base.Animation;
 import com.gamesbykevin.framework.util.TimerCollection;
 
 import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.shared.DrawList;
 
 import java.awt.Graphics;
 import java.awt.Image;
@@ -280,4 +281,11 @@ public class Pill extends Block implements IBlock
         super.render(graphics, image);
         extra.render(graphics, image);
     }
+    
+    @Override
+    public void record(final DrawList list, final long time)
+    {
+        super.record(list, time);
+        extra.record(list, time);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,1091 @@
+package com.gamesbykevin.drmario.board;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A packed version of the board that contains no Sprite(s).<br><br>
+ * The 8 x 16 cells fit in 128 bits so every mask is stored in 2 longs,
+ * rows 0 - 7 in the first and rows 8 - 15 in the second.
+ * The cell index is (row * COLUMNS) + col so each row is one byte of a long.
+ * @author GOD
+ */
+public final class BitBoard
+{
+    //the dimensions for the board
+    public static final int COLUMNS = 8;
+    public static final int ROWS = 16;
+    
+    //the total number of cells
+    public static final int CELLS = COLUMNS * ROWS;
+    
+    //the different masks, each mask occupies 2 longs
+    private static final int MASK_RED = 0;
+    private static final int MASK_BLUE = 1;
+    private static final int MASK_YELLOW = 2;
+    private static final int MASK_VIRUS = 3;
+    
+    //the cell is connected to the cell east of it
+    private static final int MASK_LINK_EAST = 4;
+    
+    //the cell is connected to the cell south of it
+    private static final int MASK_LINK_SOUTH = 5;
+    
+    //the total number of masks
+    private static final int MASK_TOTAL = 6;
+    
+    //the number of color masks
+    private static final int COLORS = 3;
+    
+    //every cell a horizontal run of 4 can start from (columns 0 - 4 of each row)
+    private static final long HORIZONTAL_START = 0x1F1F1F1F1F1F1F1FL;
+    
+    //the first and last column of each row
+    private static final long COLUMN_FIRST = 0x0101010101010101L;
+    private static final long COLUMN_LAST  = 0x8080808080808080L;
+    
+    //every row, or every column, when checking for matches
+    public static final int ALL_ROWS = (1 << ROWS) - 1;
+    public static final int ALL_COLUMNS = (1 << COLUMNS) - 1;
+    
+    //all of our masks
+    private final long[] masks;
+    
+    //temporary masks used when moving Block(s)
+    private final long[] unit;
+    
+    //the Block(s) cleared by each match when settling
+    private final MatchResult cleared;
+    
+    //the first row in each column that contains a Block, ROWS if the column is empty
+    private final int[] tops;
+    
+    //the first row in each column that contains a virus, ROWS if there is no virus
+    private final int[] virusTops;
+    
+    //the number of Block(s) of each Type, indexed by the Type ordinal
+    private final int[] counts;
+    
+    //the number of viruses of any Type
+    private int virusCount = 0;
+    
+    //the journal of every mask word changed during a transaction, the word and its previous value
+    private int[] journalWords = new int[64];
+    private long[] journalValues = new long[64];
+    private int journalSize = 0;
+    
+    //the journal size and hash when each open transaction began
+    private int[] marks = new int[8];
+    private long[] markHashes = new long[8];
+    private int depth = 0;
+    
+    //a random key for every bit of every mask, the hash is every key of a set bit xor'd together
+    private static final long[] KEYS = createKeys(MASK_TOTAL * 2 * 64);
+    
+    //the zobrist hash of the board, updated every time a mask changes
+    private long hash = 0;
+    
+    public BitBoard()
+    {
+        this.masks = new long[MASK_TOTAL * 2];
+        this.unit = new long[2];
+        this.cleared = new MatchResult();
+        this.tops = new int[COLUMNS];
+        this.virusTops = new int[COLUMNS];
+        this.counts = new int[Type.values().length];
+        
+        clear();
+    }
+    
+    /**
+     * Remove everything from the board
+     */
+    public void clear()
+    {
+        for (int i = 0; i < masks.length; i++)
+        {
+            write(i, 0);
+        }
+        
+        for (int col = 0; col < COLUMNS; col++)
+        {
+            tops[col] = ROWS;
+            virusTops[col] = ROWS;
+        }
+        
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] = 0;
+        }
+        
+        virusCount = 0;
+    }
+    
+    /**
+     * Get the total number of Columns on the board
+     * @return int
+     */
+    public int getCols()
+    {
+        return COLUMNS;
+    }
+    
+    /**
+     * Get the total number of Rows on the board
+     * @return int
+     */
+    public int getRows()
+    {
+        return ROWS;
+    }
+    
+    /**
+     * Is the column, row within the board
+     * @param col Column
+     * @param row Row
+     * @return boolean
+     */
+    public static boolean hasBounds(final int col, final int row)
+    {
+        return (col >= 0 && col < COLUMNS && row >= 0 && row < ROWS);
+    }
+    
+    /**
+     * Get the cell index of the column, row
+     * @param col Column
+     * @param row Row
+     * @return int
+     */
+    public static int getIndex(final int col, final int row)
+    {
+        return (row * COLUMNS) + col;
+    }
+    
+    /**
+     * Get the color mask for the Type of Block
+     * @param type The type of Block
+     * @return int
+     */
+    private static int getColor(final Type type)
+    {
+        switch(type)
+        {
+            case RedPill:
+            case RedVirus:
+                return MASK_RED;
+            
+            case BluePill:
+            case BlueVirus:
+                return MASK_BLUE;
+            
+            default:
+                return MASK_YELLOW;
+        }
+    }
+    
+    /**
+     * Are the 2 Type(s) the same color
+     * @param type The first Type
+     * @param type2 The second Type
+     * @return boolean
+     */
+    public static boolean hasMatch(final Type type, final Type type2)
+    {
+        return (type != null && type2 != null && getColor(type) == getColor(type2));
+    }
+    
+    private boolean has(final int mask, final int index)
+    {
+        return ((masks[(mask << 1) + (index >>> 6)] >>> (index & 63)) & 1L) != 0;
+    }
+    
+    private void set(final int mask, final int index)
+    {
+        final int word = (mask << 1) + (index >>> 6);
+        
+        write(word, masks[word] | (1L << (index & 63)));
+    }
+    
+    private void unset(final int mask, final int index)
+    {
+        final int word = (mask << 1) + (index >>> 6);
+        
+        write(word, masks[word] & ~(1L << (index & 63)));
+    }
+    
+    /**
+     * Change a mask word, if a transaction is open the previous value is added to the journal
+     * @param word The index of the word in the masks
+     * @param value The new value
+     */
+    private void write(final int word, final long value)
+    {
+        //the bits that will change
+        long changed = masks[word] ^ value;
+        
+        while (changed != 0)
+        {
+            hash ^= KEYS[(word << 6) + Long.numberOfTrailingZeros(changed)];
+            changed &= (changed - 1);
+        }
+        
+        if (depth > 0 && masks[word] != value)
+        {
+            if (journalSize == journalWords.length)
+            {
+                journalWords = Arrays.copyOf(journalWords, journalSize * 2);
+                journalValues = Arrays.copyOf(journalValues, journalSize * 2);
+            }
+            
+            journalWords[journalSize] = word;
+            journalValues[journalSize] = masks[word];
+            journalSize++;
+        }
+        
+        masks[word] = value;
+    }
+    
+    /**
+     * Start a transaction, every change from now on can be undone with rollback.<br>
+     * Transactions can be nested, rollback only undoes the changes of the last open transaction.
+     */
+    public void begin()
+    {
+        if (depth == marks.length)
+        {
+            marks = Arrays.copyOf(marks, depth * 2);
+            markHashes = Arrays.copyOf(markHashes, depth * 2);
+        }
+        
+        marks[depth] = journalSize;
+        markHashes[depth] = hash;
+        depth++;
+    }
+    
+    /**
+     * Undo every change made since the last open transaction began and close it
+     */
+    public void rollback()
+    {
+        if (depth == 0)
+            throw new IllegalStateException("There is no transaction to roll back");
+        
+        final int mark = marks[--depth];
+        
+        //restore the words in the reverse order they were changed
+        while (journalSize > mark)
+        {
+            journalSize--;
+            masks[journalWords[journalSize]] = journalValues[journalSize];
+        }
+        
+        hash = markHashes[depth];
+        
+        //the counts and indexes are rebuilt from the masks
+        rebuild();
+    }
+    
+    /**
+     * Keep every change made since the last open transaction began and close it.<br>
+     * If there is an outer transaction its rollback will still undo these changes.
+     */
+    public void commit()
+    {
+        if (depth == 0)
+            throw new IllegalStateException("There is no transaction to commit");
+        
+        depth--;
+        
+        //nothing else can be undone
+        if (depth == 0)
+            journalSize = 0;
+    }
+    
+    /**
+     * Get the zobrist hash of the board.<br>
+     * Boards with the same Block(s) and links will always have the same hash.
+     * @return long
+     */
+    public long getHash()
+    {
+        return this.hash;
+    }
+    
+    /**
+     * Create the random keys used for the hash, the same keys are created every time
+     * @param length The number of keys
+     * @return long[]
+     */
+    private static long[] createKeys(final int length)
+    {
+        final Random random = new Random(0x9E3779B97F4A7C15L);
+        
+        final long[] keys = new long[length];
+        
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextLong();
+        }
+        
+        return keys;
+    }
+    
+    /**
+     * Is there an open transaction
+     * @return boolean
+     */
+    public boolean hasTransaction()
+    {
+        return (depth > 0);
+    }
+    
+    /**
+     * Calculate the counts and the first row of every column from the masks
+     */
+    private void rebuild()
+    {
+        final long m0 = getOccupied(0);
+        final long m1 = getOccupied(1);
+        
+        for (int col = 0; col < COLUMNS; col++)
+        {
+            tops[col] = getTop(col, m0, m1);
+            virusTops[col] = getTop(col, masks[MASK_VIRUS << 1], masks[(MASK_VIRUS << 1) + 1]);
+        }
+        
+        for (Type type : Type.values())
+        {
+            counts[type.ordinal()] = scanCount(type);
+        }
+        
+        virusCount = Long.bitCount(masks[MASK_VIRUS << 1]) + Long.bitCount(masks[(MASK_VIRUS << 1) + 1]);
+    }
+    
+    private long getOccupied(final int word)
+    {
+        return masks[(MASK_RED << 1) + word] | masks[(MASK_BLUE << 1) + word] | masks[(MASK_YELLOW << 1) + word];
+    }
+    
+    /**
+     * Is there a Block at the specified column, row
+     * @param col Column
+     * @param row Row
+     * @return boolean false will be returned if out of bounds
+     */
+    public boolean hasBlock(final int col, final int row)
+    {
+        if (!hasBounds(col, row))
+            return false;
+        
+        final int index = getIndex(col, row);
+        
+        return ((getOccupied(index >>> 6) >>> (index & 63)) & 1L) != 0;
+    }
+    
+    /**
+     * Is the Block at the specified column, row a virus
+     * @param col Column
+     * @param row Row
+     * @return boolean
+     */
+    public boolean isVirus(final int col, final int row)
+    {
+        return (hasBounds(col, row) && has(MASK_VIRUS, getIndex(col, row)));
+    }
+    
+    /**
+     * Get the Type of Block at the specified column, row
+     * @param col Column
+     * @param row Row
+     * @return Type, null will be returned if there is no Block or out of bounds
+     */
+    public Type getType(final int col, final int row)
+    {
+        if (!hasBounds(col, row))
+            return null;
+        
+        final int index = getIndex(col, row);
+        
+        final boolean virus = has(MASK_VIRUS, index);
+        
+        if (has(MASK_RED, index))
+            return (virus) ? Type.RedVirus : Type.RedPill;
+        if (has(MASK_BLUE, index))
+            return (virus) ? Type.BlueVirus : Type.BluePill;
+        if (has(MASK_YELLOW, index))
+            return (virus) ? Type.YellowVirus : Type.YellowPill;
+        
+        return null;
+    }
+    
+    /**
+     * Place a Block of the specified Type at the column, row.
+     * Any existing Block at that location will be replaced.
+     * @param col Column
+     * @param row Row
+     * @param type The type of Block
+     */
+    public void set(final int col, final int row, final Type type)
+    {
+        //remove what was there
+        remove(col, row);
+        
+        final int index = getIndex(col, row);
+        
+        set(getColor(type), index);
+        
+        counts[type.ordinal()]++;
+        
+        if (row < tops[col])
+            tops[col] = row;
+        
+        if (type == Type.RedVirus || type == Type.BlueVirus || type == Type.YellowVirus)
+        {
+            set(MASK_VIRUS, index);
+            
+            virusCount++;
+            
+            if (row < virusTops[col])
+                virusTops[col] = row;
+        }
+        
+        //only checked when assertions are enabled with -ea
+        assert checkCounts();
+    }
+    
+    /**
+     * Remove the Block at the column, row.
+     * If the Block was part of a Pill the other half will no longer be connected.
+     * @param col Column
+     * @param row Row
+     */
+    public void remove(final int col, final int row)
+    {
+        final Type type = getType(col, row);
+        
+        //take the Block out of the count
+        if (type != null)
+        {
+            counts[type.ordinal()]--;
+            
+            if (isVirus(col, row))
+                virusCount--;
+        }
+        
+        final int index = getIndex(col, row);
+        
+        for (int mask = 0; mask <= MASK_VIRUS; mask++)
+        {
+            unset(mask, index);
+        }
+        
+        unset(MASK_LINK_EAST, index);
+        unset(MASK_LINK_SOUTH, index);
+        
+        //also remove any link pointing to this cell
+        if (col > 0)
+            unset(MASK_LINK_EAST, index - 1);
+        if (row > 0)
+            unset(MASK_LINK_SOUTH, index - COLUMNS);
+        
+        //if the first Block was removed look for the next one
+        if (tops[col] == row)
+            tops[col] = getTop(col, getOccupied(0), getOccupied(1));
+        if (virusTops[col] == row)
+            virusTops[col] = getTop(col, masks[MASK_VIRUS << 1], masks[(MASK_VIRUS << 1) + 1]);
+        
+        //only checked when assertions are enabled with -ea
+        assert checkCounts();
+    }
+    
+    /**
+     * Connect 2 neighboring Block(s) so they are treated as 1 Pill
+     * @param col Column of the first Block
+     * @param row Row of the first Block
+     * @param col2 Column of the second Block
+     * @param row2 Row of the second Block
+     */
+    public void link(final int col, final int row, final int col2, final int row2)
+    {
+        if (row == row2)
+        {
+            set(MASK_LINK_EAST, getIndex((col < col2) ? col : col2, row));
+        }
+        else
+        {
+            set(MASK_LINK_SOUTH, getIndex(col, (row < row2) ? row : row2));
+        }
+    }
+    
+    /**
+     * Place both halves of a Pill and connect them
+     * @param col Column of the first half
+     * @param row Row of the first half
+     * @param type Type of the first half
+     * @param col2 Column of the second half
+     * @param row2 Row of the second half
+     * @param type2 Type of the second half
+     */
+    public void addPill(final int col, final int row, final Type type, final int col2, final int row2, final Type type2)
+    {
+        set(col, row, type);
+        set(col2, row2, type2);
+        link(col, row, col2, row2);
+    }
+    
+    /**
+     * Get the cell index of the other half of the Pill
+     * @param col Column
+     * @param row Row
+     * @return int The cell index, -1 if the Block is not connected to another
+     */
+    public int getPartner(final int col, final int row)
+    {
+        if (!hasBounds(col, row))
+            return -1;
+        
+        final int index = getIndex(col, row);
+        
+        if (has(MASK_LINK_EAST, index))
+            return index + 1;
+        if (col > 0 && has(MASK_LINK_EAST, index - 1))
+            return index - 1;
+        if (has(MASK_LINK_SOUTH, index))
+            return index + COLUMNS;
+        if (row > 0 && has(MASK_LINK_SOUTH, index - COLUMNS))
+            return index - COLUMNS;
+        
+        return -1;
+    }
+    
+    /**
+     * Is there a collision at the specified column, row.
+     * @param col Column
+     * @param row Row
+     * @return boolean true if out of bounds or a Block exists
+     */
+    public boolean hasCollision(final int col, final int row)
+    {
+        return (!hasBounds(col, row) || hasBlock(col, row));
+    }
+    
+    /**
+     * Get the count for a specific Type of Block
+     * @param type The type of Block we want a count for
+     * @return int The total number of Block type found in the board
+     */
+    public int getCount(final Type type)
+    {
+        return counts[type.ordinal()];
+    }
+    
+    /**
+     * Copy the count of every Type of Block
+     * @param result The array where the counts will be written, indexed by the Type ordinal
+     */
+    public void getCounts(final int[] result)
+    {
+        System.arraycopy(counts, 0, result, 0, counts.length);
+    }
+    
+    /**
+     * Count a specific Type of Block by checking every cell
+     * @param type The type of Block we want a count for
+     * @return int The total number of Block type found in the board
+     */
+    private int scanCount(final Type type)
+    {
+        final int color = getColor(type);
+        
+        final boolean virus = (type == Type.RedVirus || type == Type.BlueVirus || type == Type.YellowVirus);
+        
+        int count = 0;
+        
+        for (int word = 0; word < 2; word++)
+        {
+            final long viruses = masks[(MASK_VIRUS << 1) + word];
+            
+            count += Long.bitCount(masks[(color << 1) + word] & ((virus) ? viruses : ~viruses));
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Count the total number of viruses on the board.
+     * @return int The total number of red, blue, and yellow viruses
+     */
+    public int getVirusCount()
+    {
+        return virusCount;
+    }
+    
+    /**
+     * Make sure the counts and hash match every cell on the board
+     * @return boolean true, an exception is thrown if anything doesn't match
+     */
+    private boolean checkCounts()
+    {
+        for (Type type : Type.values())
+        {
+            if (counts[type.ordinal()] != scanCount(type))
+                throw new IllegalStateException(type + " count is " + counts[type.ordinal()] + " but the board has " + scanCount(type));
+        }
+        
+        if (virusCount != Long.bitCount(masks[MASK_VIRUS << 1]) + Long.bitCount(masks[(MASK_VIRUS << 1) + 1]))
+            throw new IllegalStateException("virus count is " + virusCount + " but the board has a different amount");
+        
+        long expected = 0;
+        
+        for (int word = 0; word < masks.length; word++)
+        {
+            for (long remaining = masks[word]; remaining != 0; remaining &= (remaining - 1))
+            {
+                expected ^= KEYS[(word << 6) + Long.numberOfTrailingZeros(remaining)];
+            }
+        }
+        
+        if (hash != expected)
+            throw new IllegalStateException("hash is " + hash + " but the board has " + expected);
+        
+        return true;
+    }
+    
+    /**
+     * Get the first row in the column that contains a Block
+     * @param col The column
+     * @return int The row, ROWS will be returned if the column is empty
+     */
+    public int getTop(final int col)
+    {
+        return tops[col];
+    }
+    
+    /**
+     * Get the first row below the row in the column that contains a Block
+     * @param col The column
+     * @param row The row
+     * @return int The row, ROWS will be returned if there is no Block below
+     */
+    public int getBelow(final int col, final int row)
+    {
+        //most of the time we are above every Block in the column
+        if (row < tops[col])
+            return tops[col];
+        
+        for (int below = row + 1; below < ROWS; below++)
+        {
+            if (hasBlock(col, below))
+                return below;
+        }
+        
+        return ROWS;
+    }
+    
+    /**
+     * Get the first row in the column that contains a virus
+     * @param col The column
+     * @return int The row, ROWS will be returned if there is no virus in the column
+     */
+    public int getVirusTop(final int col)
+    {
+        return virusTops[col];
+    }
+    
+    /**
+     * Scan a mask for the first row in the column that is set
+     * @param col The column
+     * @param m0 The first long of the mask
+     * @param m1 The second long of the mask
+     * @return int The row, ROWS will be returned if the column is empty
+     */
+    private static int getTop(final int col, final long m0, final long m1)
+    {
+        final long column = (COLUMN_FIRST << col);
+        
+        final long top = m0 & column;
+        
+        if (top != 0)
+            return (Long.numberOfTrailingZeros(top) >>> 3);
+        
+        final long bottom = m1 & column;
+        
+        if (bottom != 0)
+            return (ROWS / 2) + (Long.numberOfTrailingZeros(bottom) >>> 3);
+        
+        return ROWS;
+    }
+    
+    /**
+     * Locate every Block that is part of a match.<br>
+     * A match is at least MATCH_MINIMUM consecutive Block(s) of the same color
+     * horizontally or vertically where at least 1 of them is a Pill.
+     *
+     * @param result The result where the matching cells and counts will be written
+     * @return boolean true if at least 1 match was found
+     */
+    public boolean getMatches(final MatchResult result)
+    {
+        return getMatches(result, ALL_ROWS, ALL_COLUMNS);
+    }
+    
+    /**
+     * Locate every Block that is part of a match, only checking the specified rows and columns.<br>
+     * Rows are only checked for horizontal matches and columns for vertical matches.
+     *
+     * @param result The result where the matching cells and counts will be written
+     * @param rows Each bit represents a row we want to check
+     * @param cols Each bit represents a column we want to check
+     * @return boolean true if at least 1 match was found
+     */
+    public boolean getMatches(final MatchResult result, final int rows, final int cols)
+    {
+        //the cells that are part of a match
+        long cells0 = 0, cells1 = 0;
+        
+        //the cells of the rows we are checking
+        long rows0 = 0, rows1 = 0;
+        
+        for (int row = 0; row < ROWS / 2; row++)
+        {
+            if ((rows & (1 << row)) != 0)
+                rows0 |= (0xFFL << (row * COLUMNS));
+            if ((rows & (1 << (row + (ROWS / 2)))) != 0)
+                rows1 |= (0xFFL << (row * COLUMNS));
+        }
+        
+        //the cells of the columns we are checking
+        final long columns = (cols & ALL_COLUMNS) * COLUMN_FIRST;
+        
+        final long virus0 = masks[MASK_VIRUS << 1];
+        final long virus1 = masks[(MASK_VIRUS << 1) + 1];
+        
+        for (int color = 0; color < COLORS; color++)
+        {
+            final long m0 = masks[color << 1];
+            final long m1 = masks[(color << 1) + 1];
+            
+            //horizontal runs never cross a row so each word can be checked on its own
+            if (rows0 != 0)
+                cells0 |= getHorizontalMatches(m0 & rows0, m0 & rows0 & ~virus0);
+            if (rows1 != 0)
+                cells1 |= getHorizontalMatches(m1 & rows1, m1 & rows1 & ~virus1);
+            
+            //no need to check vertical if there are no columns
+            if (columns == 0)
+                continue;
+            
+            final long v0 = m0 & columns;
+            final long v1 = m1 & columns;
+            
+            //every cell that starts a vertical run
+            final long start0 = v0 & shiftUp0(v0, v1, 1) & shiftUp0(v0, v1, 2) & shiftUp0(v0, v1, 3);
+            final long start1 = v1 & (v1 >>> 8) & (v1 >>> 16) & (v1 >>> 24);
+            
+            //all the cells that are part of a vertical run
+            final long run0 = start0 | (start0 << 8) | (start0 << 16) | (start0 << 24);
+            final long run1 = start1 | (start1 << 8) | (start1 << 16) | (start1 << 24) |
+                              (start0 >>> 56) | (start0 >>> 48) | (start0 >>> 40);
+            
+            //only the runs that contain at least 1 pill count
+            long seed0 = run0 & ~virus0;
+            long seed1 = run1 & ~virus1;
+            
+            while (true)
+            {
+                final long next0 = seed0 | (run0 & ((seed0 << 8) | (seed0 >>> 8) | (seed1 << 56)));
+                final long next1 = seed1 | (run1 & ((seed1 << 8) | (seed1 >>> 8) | (seed0 >>> 56)));
+                
+                if (next0 == seed0 && next1 == seed1)
+                    break;
+                
+                seed0 = next0;
+                seed1 = next1;
+            }
+            
+            cells0 |= seed0;
+            cells1 |= seed1;
+        }
+        
+        result.setCells(cells0, cells1);
+        
+        //count each Type of Block that was matched
+        for (Type type : Type.values())
+        {
+            final int color = getColor(type);
+            
+            final boolean virus = (type == Type.RedVirus || type == Type.BlueVirus || type == Type.YellowVirus);
+            
+            final long match0 = masks[color << 1] & cells0;
+            final long match1 = masks[(color << 1) + 1] & cells1;
+            
+            result.setCount(type, Long.bitCount(match0 & ((virus) ? virus0 : ~virus0)) + Long.bitCount(match1 & ((virus) ? virus1 : ~virus1)));
+        }
+        
+        return (cells0 != 0 || cells1 != 0);
+    }
+    
+    /**
+     * Move the bits of the lower half up by the specified number of rows so
+     * cell index i will contain what was at i + (rows * COLUMNS).
+     */
+    private static long shiftUp0(final long m0, final long m1, final int rows)
+    {
+        return (m0 >>> (rows * COLUMNS)) | (m1 << (64 - (rows * COLUMNS)));
+    }
+    
+    /**
+     * Get the cells of the horizontal runs in a single word that contain a pill
+     * @param mask The cells of a single color
+     * @param pills The cells of a single color that are a pill
+     * @return long
+     */
+    private static long getHorizontalMatches(final long mask, final long pills)
+    {
+        final long start = mask & (mask >>> 1) & (mask >>> 2) & (mask >>> 3) & HORIZONTAL_START;
+        
+        if (start == 0)
+            return 0;
+        
+        final long run = start | (start << 1) | (start << 2) | (start << 3);
+        
+        long seed = run & pills;
+        
+        while (true)
+        {
+            final long next = seed | (run & (((seed << 1) & ~COLUMN_FIRST) | ((seed >>> 1) & ~COLUMN_LAST)));
+            
+            if (next == seed)
+                return seed;
+            
+            seed = next;
+        }
+    }
+    
+    /**
+     * Apply gravity to any separate hanging Block(s) by moving them down 1 row.<br>
+     * The rows are checked from the bottom up so a stack of hanging Block(s) will all move together.
+     * Viruses never move and both halves of a Pill have to be able to move.
+     *
+     * @param moved Array of 2 longs where the previous cells of every moved Block will be written
+     * @return boolean true if at least 1 Block was moved
+     */
+    public boolean drop(final long[] moved)
+    {
+        moved[0] = 0;
+        moved[1] = 0;
+        
+        //start on the second to last row and go backwards
+        for (int row = ROWS - 2; row >= 0; row--)
+        {
+            for (int col = 0; col < COLUMNS; col++)
+            {
+                if (!canDrop(col, row))
+                    continue;
+                
+                //move the Block and the other half of the Pill
+                final int index = getIndex(col, row);
+                final int partner = getPartner(col, row);
+                
+                unit[0] = 0;
+                unit[1] = 0;
+                unit[index >>> 6] |= (1L << (index & 63));
+                
+                if (partner >= 0)
+                    unit[partner >>> 6] |= (1L << (partner & 63));
+                
+                moved[0] |= unit[0];
+                moved[1] |= unit[1];
+                
+                moveDown(unit[0], unit[1], 1);
+            }
+        }
+        
+        return (moved[0] != 0 || moved[1] != 0);
+    }
+    
+    /**
+     * Apply gravity until every hanging Block has landed.<br>
+     * The rows are checked from the bottom up so every Block below has already landed,
+     * which gives the same board as calling drop until nothing moves.
+     *
+     * @return boolean true if at least 1 Block was moved
+     */
+    public boolean fall()
+    {
+        boolean result = false;
+        
+        //start on the second to last row and go backwards
+        for (int row = ROWS - 2; row >= 0; row--)
+        {
+            for (int col = 0; col < COLUMNS; col++)
+            {
+                if (!canDrop(col, row))
+                    continue;
+                
+                final int index = getIndex(col, row);
+                final int partner = getPartner(col, row);
+                
+                //the number of rows the Block can fall
+                int rows = getFall(col, row);
+                
+                //the other half is next to us so both halves have to fit
+                if (partner >= 0 && (partner / COLUMNS) == row)
+                {
+                    final int fall = getFall(partner % COLUMNS, row);
+                    
+                    if (fall < rows)
+                        rows = fall;
+                }
+                
+                unit[0] = 0;
+                unit[1] = 0;
+                unit[index >>> 6] |= (1L << (index & 63));
+                
+                if (partner >= 0)
+                    unit[partner >>> 6] |= (1L << (partner & 63));
+                
+                moveDown(unit[0], unit[1], rows);
+                
+                result = true;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Drop every hanging Block, then remove any matches and continue until the board no longer changes.
+     * @param report The report where every match in the chain will be written
+     */
+    public void settle(final ChainReport report)
+    {
+        report.reset();
+        
+        while (true)
+        {
+            if (fall())
+                report.setDrop();
+            
+            //once there are no matches the board is settled
+            if (!getMatches(cleared))
+                break;
+            
+            report.add(cleared);
+            
+            for (int index = cleared.next(0); index >= 0; index = cleared.next(index + 1))
+            {
+                remove(index % COLUMNS, index / COLUMNS);
+            }
+        }
+    }
+    
+    /**
+     * Get the number of empty rows directly below the column, row
+     * @param col Column
+     * @param row Row
+     * @return int
+     */
+    private int getFall(final int col, final int row)
+    {
+        int rows = 0;
+        
+        while (!hasCollision(col, row + rows + 1))
+        {
+            rows++;
+        }
+        
+        return rows;
+    }
+    
+    /**
+     * Can the Block at the column, row move down 1 row
+     * @param col Column
+     * @param row Row
+     * @return boolean
+     */
+    private boolean canDrop(final int col, final int row)
+    {
+        //we are only dropping pills
+        if (!hasBlock(col, row) || isVirus(col, row))
+            return false;
+        
+        //the block below has to be empty
+        if (hasCollision(col, row + 1))
+            return false;
+        
+        final int partner = getPartner(col, row);
+        
+        //the other half is next to us so it also needs an empty space below
+        if (partner >= 0 && (partner / COLUMNS) == row)
+            return !hasCollision(partner % COLUMNS, row + 1);
+        
+        return true;
+    }
+    
+    /**
+     * Move every mask in the unit down the specified number of rows, which has to be at least 1.
+     * The destination of the unit needs to be empty, other than the unit itself.
+     */
+    private void moveDown(final long unit0, final long unit1, final int rows)
+    {
+        //the number of bits the unit moves
+        final int shift = rows * COLUMNS;
+        
+        for (int mask = 0; mask < MASK_TOTAL; mask++)
+        {
+            final long m0 = masks[mask << 1];
+            final long m1 = masks[(mask << 1) + 1];
+            
+            final long moved0 = m0 & unit0;
+            final long moved1 = m1 & unit1;
+            
+            if (shift < 64)
+            {
+                write(mask << 1,       (m0 & ~unit0) | (moved0 << shift));
+                write((mask << 1) + 1, (m1 & ~unit1) | (moved1 << shift) | (moved0 >>> (64 - shift)));
+            }
+            else
+            {
+                write(mask << 1,       (m0 & ~unit0));
+                write((mask << 1) + 1, (m1 & ~unit1) | (moved0 << (shift - 64)));
+            }
+        }
+        
+        //fold every row of the unit together to get the columns that moved
+        long cols = unit0 | unit1;
+        cols |= (cols >>> 32);
+        cols |= (cols >>> 16);
+        cols |= (cols >>> 8);
+        
+        final long m0 = getOccupied(0);
+        final long m1 = getOccupied(1);
+        
+        //viruses never move so only the first Block can change
+        for (int col = 0; col < COLUMNS; col++)
+        {
+            if (((cols >>> col) & 1L) != 0)
+                tops[col] = getTop(col, m0, m1);
+        }
+    }
+    
+    /**
+     * Copy the state of another board into this one
+     * @param board The board we want to copy
+     */
+    public void copy(final BitBoard board)
+    {
+        for (int i = 0; i < masks.length; i++)
+        {
+            write(i, board.masks[i]);
+        }
+        
+        System.arraycopy(board.tops, 0, tops, 0, tops.length);
+        System.arraycopy(board.virusTops, 0, virusTops, 0, virusTops.length);
+        System.arraycopy(board.counts, 0, counts, 0, counts.length);
+        
+        this.virusCount = board.virusCount;
+    }
+}
\ No newline at end of file
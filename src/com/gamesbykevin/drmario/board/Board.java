@@ -2,125 +2,90 @@ package com.gamesbykevin.drmario.board;
 
 import com.gamesbykevin.framework.base.Cell;
 import com.gamesbykevin.framework.base.Sprite;
-import com.gamesbykevin.framework.util.*;
 
 import com.gamesbykevin.drmario.block.*;
 import com.gamesbykevin.drmario.block.Block.*;
 import com.gamesbykevin.drmario.engine.Engine;
-import com.gamesbykevin.drmario.resource.*;
+import com.gamesbykevin.drmario.shared.DrawList;
+import com.gamesbykevin.drmario.sim.BoardState;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
- * The board where the viruses and pills will be contained
+ * The board where the viruses and pills will be contained.<br><br>
+ * The rules are kept in the BoardState, the board only contains the Sprite(s) used to render the Block(s).
  * @author GOD
  */
 public class Board extends Sprite
 {
-    //this List will contain all of the blocks on the board
+    //this array will contain the Sprite(s) of the blocks on the board
     private Block[][] blocks;
     
-    //if any blocks need to be marked as dead they will be contained in here
-    private List<Block> deadBlocks;
+    //the rules of the board
+    private final BoardState state;
     
-    //minimum amount of pieces needed for a match
-    public static final int MATCH_MINIMUM = 4;
-    
-    //the row to start the virus spawn to give the player some room
-    private static final int SPAWN_START_ROW = 6;
-    
-    //the virus count, and progress count
-    private int virusCount;
-    
-    //where are we compared to the actual total
-    private int countProgress = 0;
-    
-    //the spawn locations for the viruses
-    private List<Cell> locations;
-    
-    //once the dead pieces are removed we need to drop any existing pills accordingly
-    private boolean drop = false;
-    
-    //are we done spawning viruses
-    private boolean spawnComplete = false;
-    
-    //our timers that will track death duration, and drop pill durtation
-    private TimerCollection timers;
-    
-    //the time to show the dead blocks animation
-    private static final long DEATH_TIME = TimerCollection.toNanoSeconds(500L);
+    //the packed board from the rules
+    private final BitBoard bits;
     
-    //the time to wait between dropping the Block(s)
-    private static final long DROP_TIME = TimerCollection.toNanoSeconds(125L);
-    
-    private enum Key
+    /**
+     * The different ways the Sprite(s) of the board can be created
+     */
+    public enum Representation
     {
-        Death, Drop
+        //every Block on the board has a Sprite as soon as it is added
+        Objects,
+        
+        //the Sprite(s) are only created once they are needed
+        Packed
     }
     
-    //the dimensions for the board
-    private static final int COLUMNS = 8;
-    private static final int ROWS = 16;
-    
-    //our random number generator object
-    private final Random random;
-    
-    //the blocks that we will add as the penalty
-    private List<Block> penaltyBlocks;
-    
-    //when we check for a match where we previously dropping so we can determine chain(s)
-    private boolean previousDrop = false;
-    
-    //we will track score here for the current level
-    private int score = 0;
+    //how the Sprite(s) are created
+    private final Representation representation;
     
-    //the score to add for a pill kill regardless of a chain or not
-    private static final int SCORE_PILL_KILL = 10;
-    
-    //the score to add for a virus kill
-    private static final int SCORE_VIRUS_KILL = 100;
+    //minimum amount of pieces needed for a match
+    public static final int MATCH_MINIMUM = 4;
     
-    //the score to add for a chained virus kill
-    private static final int SCORE_VIRUS_KILL_CHAIN = 200;
+    //the dimensions for the board
+    private static final int COLUMNS = BitBoard.COLUMNS;
+    private static final int ROWS = BitBoard.ROWS;
     
     /**
      * Create a new empty board of the specified columns and rows and to be rendered within the screen.
-     * 
-     * @param container The container the board resides in
-     * @param cols The total number of columns
-     * @param rows The total number of rows
-     * @param count The total number of viruses
+     *
+     * @param virusCount The total number of viruses
+     * @param seed The seed used to generate random numbers
      */
     public Board(final int virusCount, final long seed)
     {
-        //create our random number generator object
-        this.random = new Random(seed);
-        
-        //set the virus count
-        this.virusCount = virusCount;
+        this(virusCount, seed, Representation.Objects);
+    }
+    
+    /**
+     * Create a new empty board where the Sprite(s) are created as specified.
+     *
+     * @param virusCount The total number of viruses
+     * @param seed The seed used to generate random numbers
+     * @param representation How the Sprite(s) of the blocks are created
+     */
+    public Board(final int virusCount, final long seed, final Representation representation)
+    {
+        this(new BoardState(virusCount, new Random(seed)), representation);
+    }
+    
+    /**
+     * Create a new board that will display the existing rules.
+     *
+     * @param state The rules of the board
+     * @param representation How the Sprite(s) of the blocks are created
+     */
+    public Board(final BoardState state, final Representation representation)
+    {
+        this.state = state;
+        this.bits = state.getBoard();
+        this.representation = representation;
         
         //the blocks on the board
         blocks = new Block[ROWS][COLUMNS];
-        
-        //create a new list for the spawn locations
-        locations = new ArrayList<>();
-        
-        //add all spawn locations so we can choose at random
-        for (int row = SPAWN_START_ROW; row < ROWS; row++)
-        {
-            for (int col=0; col < COLUMNS; col++)
-            {
-                locations.add(new Cell(col, row));
-            }
-        }
-        
-        //create an empty List that will contain our dead Block(s)
-        this.deadBlocks = new ArrayList<>();
-        
-        //a list of blocks being added to the board as a penalty
-        this.penaltyBlocks = new ArrayList<>();
     }
     
     /**
@@ -144,27 +109,34 @@ public class Board extends Sprite
         }
         
         blocks = null;
-        
-        deadBlocks.clear();
-        deadBlocks = null;
-    
-        locations.clear();
-        locations = null;
+    }
     
-        if (timers != null)
-            timers.dispose();
-        
-        timers = null;
+    /**
+     * Get the rules of the board
+     * @return BoardState
+     */
+    public BoardState getState()
+    {
+        return this.state;
     }
     
     public int getScore()
     {
-        return this.score;
+        return state.getScore();
     }
     
     public void addScore(final int bonus)
     {
-        this.score += bonus;
+        state.addScore(bonus);
+    }
+    
+    /**
+     * Are the Sprite(s) only created once they are needed
+     * @return boolean
+     */
+    public boolean isPacked()
+    {
+        return (representation == Representation.Packed);
     }
     
     /**
@@ -173,7 +145,7 @@ public class Board extends Sprite
      */
     public boolean isSpawnComplete()
     {
-        return this.spawnComplete;
+        return state.isSpawnComplete();
     }
     
     /**
@@ -182,7 +154,7 @@ public class Board extends Sprite
      */
     public boolean hasDead()
     {
-        return (!deadBlocks.isEmpty());
+        return state.hasDead();
     }
     
     /**
@@ -191,170 +163,42 @@ public class Board extends Sprite
      */
     public int getDeadVirusCount()
     {
-        int count = 0;
-        
-        for (Block block : deadBlocks)
-        {
-            if (Virus.isVirus(block))
-                count++;
-        }
-        
-        return count;
+        return state.getDeadVirusCount();
     }
     
     /**
      * Are we in the middle of dropping any single existing blocks
-     * @return 
+     * @return
      */
     public boolean hasDrop()
     {
-        return this.drop;
-    }
-    
-    /**
-     * Have all the viruses been created
-     * @return boolean
-     */
-    private boolean hasSpawnGoal()
-    {
-        return countProgress >= virusCount;
+        return state.hasDrop();
     }
     
     /**
      * Does the Player have the opportunity to interact with the board.
      * This will be true if the spawn is complete, there are no dead Block(s)
      * and no Block(s) are currently dropping.
-     * 
+     *
      * @return boolean
      */
     public boolean canInteract()
     {
-        //if the spawn has completed and no Block(s) are dead and none of the Block(s) are dropping
-        return (isSpawnComplete() && !hasDead() && !hasDrop());
+        return state.canInteract();
     }
     
     /**
-     * Here we will check for match and drop the Block(s) if necessary
+     * Update the Sprite(s) to match the Block(s) once the rules have been updated
      * @param engine
-     * @throws Exception 
+     * @throws Exception
      */
     public void update(final Engine engine) throws Exception
     {
-        if (this.timers == null)
-        {
-            this.timers = new TimerCollection(engine.getMain().getTime());
-            this.timers.add(Key.Death, DEATH_TIME);
-            this.timers.add(Key.Drop, DROP_TIME);
-        }
+        //move the Sprite(s) along with any Block(s) that dropped
+        moveCached();
         
-        //if we haven't reached our goal and there are still spawn locations
-        if (!isSpawnComplete())
-        {
-            //add virus to board
-            spawnVirus();
-            
-            //if we have reached our limit or no more spawn locations the spawn is complete
-            this.spawnComplete = (hasSpawnGoal() || locations.isEmpty());
-        }
-        else
-        {
-            //if blocks are dead wait until animation has finished
-            if (hasDead())
-            {
-                timers.update();
-                
-                //if the time has passed
-                if (timers.hasTimePassed(Key.Death))
-                {
-                    //reset timer
-                    timers.reset();
-                    
-                    //remove any existing dead pieces
-                    removeDead();
-                    
-                    //now that the dead pieces have been removed we need to drop the extra Block(s)
-                    this.drop = true;
-                }
-            }
-            else
-            {
-                if (hasDrop())
-                {
-                    //we are dropping so set flag
-                    previousDrop = true;
-                    
-                    //update timer
-                    timers.update();
-                    
-                    checkDrop();
-                }
-                else
-                {
-                    //create a List of Block(s) that match
-                    List<Block> deadBlocksTmp = getMatches();
-
-                    //were any dead Block(s) found
-                    if (!deadBlocksTmp.isEmpty())
-                    {
-                        //reset timers again
-                        this.timers.reset();
-
-                        //the number of viruses destroyed
-                        int countV = 0;
-                        
-                        //the number of pills destroyed
-                        int countP  = 0;
-                        
-                        //mark all found as dead
-                        for (Block tmpBlock : deadBlocksTmp)
-                        {
-                            if (Virus.isVirus(tmpBlock))
-                            {
-                                //count the total number of viruses
-                                countV++;
-                            }
-                            else
-                            {
-                                //count the total number of pills
-                                countP++;
-                            }
-                            
-                            //mark the Block as dead
-                            getBlock(tmpBlock).setDead(true);
-
-                            //now add it to the official dead List
-                            deadBlocks.add(getBlock(tmpBlock));
-                        }
-                        
-                        //add pill score
-                        addScore((countP * SCORE_PILL_KILL));
-                        
-                        //if we were previously dropping this is part of a chain
-                        if (previousDrop)
-                        {
-                            //add chained virus kill score 
-                            addScore((countV * SCORE_VIRUS_KILL_CHAIN));
-                            
-                            //play chain sound effect
-                            engine.getResources().playGameAudio(GameAudio.Keys.Chain, false);
-                        }
-                        else
-                        {
-                            //add virus kill score
-                            addScore((countV * SCORE_VIRUS_KILL));
-                            
-                            //play match sound effect
-                            engine.getResources().playGameAudio(GameAudio.Keys.Match, false);
-                        }
-                    }
-                    else
-                    {
-                        //no match was found so set flag back to false
-                        previousDrop = false;
-                    }
-                }
-            }
-        }
+        //make sure every Sprite matches the Block on the board
+        sync();
         
         //update animations
         for (Block[] row : blocks)
@@ -373,491 +217,260 @@ public class Board extends Sprite
     }
     
     /**
-     * If there are penalty blocks add them to the board and return true, otherwise return false
-     * @return boolean
+     * Remove any Sprite that no longer matches the Block on the board and mark the dead Sprite(s).
+     * If the Sprite(s) are not packed any missing Sprite will be created.
      */
-    public boolean applyPenalty()
+    private void sync()
     {
-        //if there are penalty blocks add them
-        if (!penaltyBlocks.isEmpty())
+        for (int row = 0; row < getRows(); row++)
         {
-            //add the penalty blocks to the board
-            for (Block block : penaltyBlocks)
+            for (int col = 0; col < getCols(); col++)
             {
-                //make sure block is in the first row
-                block.setRow(0);
-
-                //set the correct x, y position
-                block.setPosition(getX(), getY());
-
-                //add block to board
-                setBlock(block.getCol(), block.getRow(), new Block(block));
+                final Block block = blocks[row][col];
+                
+                //the Sprite is no longer correct
+                if (block != null && block.getType() != bits.getType(col, row))
+                    blocks[row][col] = null;
+                
+                //create the Sprite right away
+                if (!isPacked() && blocks[row][col] == null && bits.hasBlock(col, row))
+                    blocks[row][col] = createBlock(col, row);
             }
-
-            //clear list
-            penaltyBlocks.clear();
-
-            //drop will remain true to drop new pieces
-            drop = true;
-            
-            //penalty has been applied return true;
-            return true;
         }
-        else
+        
+        //mark the Block(s) that are dead, a packed Sprite created later is marked when it is created
+        for (int index = state.getDead().next(0); index >= 0; index = state.getDead().next(index + 1))
         {
-            return false;
+            if (blocks[index / getCols()][index % getCols()] != null)
+                blocks[index / getCols()][index % getCols()].setDead(true);
         }
     }
     
+    /**
+     * If there are penalty blocks add them to the board and return true, otherwise return false
+     * @return boolean
+     */
+    public boolean applyPenalty()
+    {
+        return state.applyPenalty();
+    }
+    
     /**
      * When we penalize we add pills to columns that contain viruses.<br><br>
      * Not every virus will be covered
      */
     public void penalize()
     {
-        //we don't want to stack up too many blocks too fast
-        if (!penaltyBlocks.isEmpty())
-            return;
-        
-        //the number of penalty blocks we will be adding
-        final int limit = (getCols() / 2);
+        state.penalize();
+    }
+    
+    /**
+     * Get the first Block in the column starting from row 0.
+     * If no Block is found null is returned.
+     *
+     * @param col The column
+     * @return Block if there is no Block below null will be returned
+     */
+    public Block getBlockBelow(final double col)
+    {
+        if (col < 0 || col > getCols() - 1)
+            return null;
         
-        List<Integer> columns = new ArrayList<>();
+        return getBlock(col, bits.getTop((int)col));
+    }
+    
+    /**
+     * Does the column contain a virus
+     * @param col The column
+     * @return boolean
+     */
+    public boolean hasVirus(final double col)
+    {
+        if (col < 0 || col > getCols() - 1)
+            return false;
         
-        for (int i=0; i < getCols(); i++)
-        {
-            columns.add(i);
-        }
+        return (bits.getVirusTop((int)col) < getRows());
+    }
+    
+    /**
+     * Move the existing Sprite(s) down 1 row for every cell the board has moved
+     */
+    private void moveCached()
+    {
+        final long[] cells = state.getMoved();
         
-        //the total number of penalty blocks will be half the total number of columns
-        while(penaltyBlocks.size() < limit && !columns.isEmpty())
+        //start at the bottom so the destination is always empty
+        for (int index = BitBoard.CELLS - 1; index >= 0; index--)
         {
-            //random index
-            final int index = random.nextInt(columns.size());
+            if (((cells[index >>> 6] >>> (index & 63)) & 1L) == 0)
+                continue;
             
-            //get column
-            final int col = columns.get(index);
+            final int col = index % getCols();
+            final int row = index / getCols();
             
-            //penalty block
-            Block tmp = new Block();
-
-            //set the column to the random one chosen
-            tmp.setCol(col);
+            final Block block = blocks[row][col];
             
-            //get the first virus found in the specific column
-            final Block block = getBlockBelow(col);
+            blocks[row][col] = null;
+            blocks[row + 1][col] = block;
             
-            //if the block exists then pick a non-matching color
             if (block != null)
             {
-                if (block.hasMatch(Type.RedPill))
-                    tmp.setType((random.nextInt(2) == 1) ? Type.BluePill : Type.YellowPill);
-                if (block.hasMatch(Type.BluePill))
-                    tmp.setType((random.nextInt(2) == 1) ? Type.YellowPill : Type.RedPill);
-                if (block.hasMatch(Type.YellowPill))
-                    tmp.setType((random.nextInt(2) == 1) ? Type.BluePill : Type.RedPill);
-            }
-            else
-            {
-                //set random type
-                final int result = random.nextInt(3);
+                //drop Block down 1 row
+                block.increaseRow();
                 
-                switch(result)
-                {
-                    case 0:
-                        tmp.setType(Type.RedPill);
-                        break;
-                        
-                    case 1:
-                        tmp.setType(Type.BluePill);
-                        break;
-                        
-                    case 2:
-                        tmp.setType(Type.YellowPill);
-                        break;
-                }
+                //update x, y coordinates
+                block.setPosition(getX(), getY());
             }
-            
-            //remove selection from list so we don't choose it again
-            columns.remove(index);
-            
-            //add block to penalty list
-            this.penaltyBlocks.add(tmp);
         }
     }
     
     /**
-     * Start at the first row 0 and move south until we find a Block
-     * If no Block is found null is returned.
-     * 
-     * @param col The column
-     * @param board The board to check
-     * @return Block if there is no Block below null will be returned
+     * Check if the Block Type is found in the dead blocks.<br><br>
+     * If there are no dead blocks then no matches have been found and false is returned.
+     * @param type The type of Block we are looking for
+     * @return boolean True if found.
      */
-    public Block getBlockBelow(final double col)
+    public boolean hasDeadType(final Type type)
     {
-        //start at the top and continue moving south
-        for (int row = 0; row < getRows(); row++)
-        {
-            //if the Block exists return it
-            if (getBlock(col, row) != null)
-                return getBlock(col, row);
-        }
-        
-        //no Block was found so return null
-        return null;
+        return state.hasDeadType(type);
     }
     
     /**
-     * Apply gravity to any separate hanging Block(s)
+     * Drop every hanging Block and remove every match until the board no longer changes.<br><br>
+     * This happens instantly without waiting for the drop, and gives the same board as
+     * the animated drop would. Any Block(s) already marked dead are removed first, the score is not changed.
+     * During a transaction no Sprite(s) are changed.
+     * @return ChainReport Every match made, the report is reused on the next call
      */
-    private void checkDrop()
+    public ChainReport settle()
     {
-        //not enough time has passed yet for the next drop
-        if (!timers.hasTimePassed(Key.Drop))
-            return;
+        final ChainReport report = state.settle();
         
-        //time has passed to make the next drop
-        timers.reset();
-
-        //are we finished dropping Block(s)
-        boolean finish = true;
-
-        //start on the second to last row and go backwards
-        for (int row = getRows() - 2; row >= 0; row--)
-        {
-            for (int col=0; col < getCols(); col++)
-            {
-                final Block tmp = getBlock(col, row);
-
-                //if the block does not exist no need to check or if it is already dead
-                if (tmp == null)
-                    continue;
-
-                //we are only dropping pills so skip if other
-                if (!Pill.isPill(tmp))
-                    continue;
-
-                //if the Block below is a virus we can't drop because the viruses don't drop
-                if (getBlock(col, row + 1) != null && Virus.isVirus(getBlock(col, row + 1)))
-                    continue;
-
-                // the block below the current does not exist so we will need to check if it needs to be dropped
-                if (getBlock(col, row + 1) == null)
-                {
-                    //get the Block to the west and east
-                    final Block west = getBlock(col - 1, row);
-                    final Block east = getBlock(col + 1, row);
-
-                    //if there is no connecting piece to the east or west it will be dropped
-                    if (west == null && east == null)
-                    {
-                        //apply Gravity to specific Block
-                        applyGravity(col, row, tmp);
-
-                        //we have altered a Block so we are not finished
-                        finish = false;
-                    }
-                    else
-                    {
-                        boolean westMember = false;
-                        boolean eastMember = false;
-
-                        //if a west Block exists
-                        if (west != null)
-                        {
-                            //is the west Block part of the current Block
-                            westMember = (west.getGroup() == tmp.getGroup());
-
-                            //is the west Block part of the current Block
-                            if (westMember)
-                            {
-                                //the west Block does not have anchor below it
-                                if (getBlock(west.getCol(), west.getRow() + 1) == null)
-                                {
-                                    //apply Gravity to specific Block
-                                    applyGravity(col, row, tmp);
-
-                                    //we have altered a Block so we are not finished
-                                    finish = false;
-                                }
-                            }
-                        }
-
-                        //if an east Block exists
-                        if (east != null)
-                        {
-                            //is the east Block part of the current Block
-                            eastMember = (east.getGroup() == tmp.getGroup());
-
-                            //is the east Block part of the current Block
-                            if (eastMember)
-                            {
-                                //the east Block does not have anchor below it
-                                if (getBlock(east.getCol(), east.getRow() + 1) == null)
-                                {
-                                    //apply Gravity to specific Block
-                                    applyGravity(col, row, tmp);
-
-                                    //we have altered a Block so we are not finished
-                                    finish = false;
-                                }
-                            }
-                        }
-
-                        //if the neighbors exist but are not part of the same group we can drop
-                        if (!westMember && !eastMember)
-                        {
-                            //apply Gravity to specific Block
-                            applyGravity(col, row, tmp);
-
-                            //we have altered a Block so we are not finished
-                            finish = false;
-                        }
-                    }
-                }
-            }
-        }
-
-        //if no changes were made, stop checking the drop
-        if (finish)
-        {
-            drop = false;
-        }
+        //during a transaction only the rules are changed, the Sprite(s) will match again after rollback
+        if (!state.hasTransaction())
+            sync();
+        
+        return report;
     }
     
     /**
-     * Applies gravity to the specified block.
-     * We will remove the block from the array at the specified col/row position
-     * and then apply it to its new location specified by block.getCol(), block.getRow().
-     * 
-     * @param col The column we want to remove the current Block from
-     * @param row The row we want to remove the current Block from
-     * @param block The Block we are re-positioning that contains the new col/row values
+     * Get the zobrist hash of the board, boards with the same Block(s) will have the same hash
+     * @return long
      */
-    private void applyGravity(final int col, final int row, final Block block)
+    public long getHash()
     {
-        //drop Block down 1 row
-        block.increaseRow();
-
-        //update x, y coordinates
-        block.setPosition(getX(), getY());
-
-        //set the block to be in the correct location in the array
-        setBlock(block.getCol(), block.getRow(), block);
-
-        //remove the block from the current position in the array
-        removeBlock(col, row);
+        return bits.getHash();
     }
     
     /**
-     * Remove any dead Block(s) in our List
+     * Start a transaction, every change to the board from now on is undone by rollback.<br><br>
+     * Only the rules are changed during a transaction so no Sprite(s) are created,
+     * this is used to try a placement, see what is cleared and put the board back.
+     * The rows to check for matches, the dead Block(s) and the drop are put back as well.
      */
-    private void removeDead()
+    public void begin()
     {
-        for (Block block : deadBlocks)
-        {
-            removeBlock(block.getCol(), block.getRow());
-        }
-        
-        //clear List
-        deadBlocks.clear();
+        state.begin();
     }
     
     /**
-     * Check if the Block Type is found in the List of dead blocks.<br><br>
-     * If the List of dead blocks is empty then no matches have been found and false is returned.
-     * @param type The type of Block we are looking for
-     * @return boolean True if found.
+     * Place the Pill on the board without creating any Sprite(s).
+     * This should only be done during a transaction.
+     * @param pill The Pill we want to place
      */
-    public boolean hasDeadType(final Type type)
+    public void placeLogical(final Pill pill)
     {
-        if (deadBlocks.isEmpty())
-            return false;
+        if (!state.hasTransaction())
+            throw new IllegalStateException("A Pill can only be placed logically during a transaction");
         
-        for (Block block : deadBlocks)
-        {
-            if (block.getType() == type)
-                return true;
-        }
-        
-        return false;
+        state.addPill((int)pill.getCol(), (int)pill.getRow(), pill.getType(), (int)pill.getExtra().getCol(), (int)pill.getExtra().getRow(), pill.getExtra().getType());
     }
     
-    private void spawnVirus() throws Exception
+    /**
+     * Undo every change made since the transaction began
+     */
+    public void rollback()
     {
-        //pick a random index
-        int index = 0;
-        
-        if (locations.size() > 1)
-            index = random.nextInt(locations.size() - 1);
-        
-        //get the location using the index
-        Cell tmp = locations.get(index);
-
-        //create new virus
-        Virus virus = new Virus();
-        
-        //set random type
-        virus.setRandom(random);
-        
-        //setup animations
-        virus.setup();
-        
-        //set the correct Column, Row
-        virus.setCol(tmp);
-        virus.setRow(tmp);
-
-        //update the virus to be at the given location
-        virus.setPosition(getX(), getY());
-
-        //set the virus on the board
-        setBlock(tmp.getCol(), tmp.getRow(), virus);
-
-        //remove location from list so we don't pick it again
-        locations.remove(index);
-
-        //increase the progress
-        countProgress++;
+        state.rollback();
     }
     
-    public List<Block> getMatches()
+    /**
+     * Get the Block(s) that are part of a match.<br><br>
+     * Only the rows and columns that have changed since the last check are examined,
+     * because a new match has to cross at least 1 of the changed cells.
+     * Every Block will only be in the result once and the result is reused on the next check.
+     * @return MatchResult The matching Block(s)
+     */
+    public MatchResult getMatches()
     {
-        //list of matching blocks
-        ArrayList<Block> deadBlocksTmp = new ArrayList<>();
-        
-        for (int row=0; row < getRows(); row++)
-        {
-            for (int col=0; col < getCols(); col++)
-            {
-                Block block = getBlock(col, row);
-
-                //block not found, or if block is dead we don't need to check it
-                if (block == null || block.isDead())
-                    continue;
-
-                //get the block type
-                final Type tmpType = block.getType();
-
-                //make sure we aren't soo close that there is no way we will make a match
-                if (col <= getCols() - MATCH_MINIMUM)
-                {
-                    //start at the current position and head east checking for all matching
-                    checkConsecutiveMatch(col, getCols(), row, tmpType, true, deadBlocksTmp);
-                }
-                
-                //make sure we aren't soo close that there is no way we will make a match
-                if (row <= getRows() - MATCH_MINIMUM)
-                {
-                    //start at the current position and head south checking for all matching
-                    checkConsecutiveMatch(row, getRows(), col, tmpType, false, deadBlocksTmp);
-                }
-            }
-        }
-        
-        return deadBlocksTmp;
+        return state.getMatches();
     }
     
     /**
-     * Here we will check a number of Block(s) from a start to finish location 
-     * going in a certain direction checking for a match of Block.Type 
-     * 
-     * @param start The start row or column
-     * @param finish The end row or column
-     * @param staticDimension Either the row or column that will not change while testing
-     * @param tmpType The type of Block we are looking for a match.
-     * @param horizontal If true we will test going east. If false we will test going south.
+     * Get the block of the specified column, row
+     * If the col/row is out of bounds null will be returned
+     * @param col Column
+     * @param row Row
+     * @return Block, null will be returned if the col/row is out of bounds
      */
-    private void checkConsecutiveMatch(final int start, final int finish, final int staticDimension, final Type tmpType, final boolean horizontal, final ArrayList<Block> deadBlocksTmp)
+    public Block getBlock(final double col, final double row)
     {
-        //the number of matching blocks
-        int matchCount = 0;
+        if (col < 0 || col > blocks[0].length - 1)
+            return null;
+        if (row < 0 || row > blocks.length - 1)
+            return null;
         
-        //temporary block object
-        Block tmpBlock;
+        final Block block = blocks[(int)row][(int)col];
         
-        boolean hasPill = false;
+        //the Sprite is missing or no longer correct so create it now
+        if (block == null || block.getType() != bits.getType((int)col, (int)row))
+            blocks[(int)row][(int)col] = (bits.hasBlock((int)col, (int)row)) ? createBlock((int)col, (int)row) : null;
         
-        //from the next position check the rest for match going south
-        for (int current=start; current < finish; current++)
+        return blocks[(int)row][(int)col];
+    }
+    
+    /**
+     * Record every Block on the board so it can be drawn later, straight from the packed board so no Sprite(s) are created
+     * @param list Where the Block(s) are recorded
+     * @param time The time in nanoseconds, used to choose the frame of each virus animation
+     */
+    public void record(final DrawList list, final long time)
+    {
+        for (int row = 0; row < getRows(); row++)
         {
-            //if moving horizontal
-            if (horizontal)
-            {
-                tmpBlock = getBlock(current, staticDimension);
-            }
-            else
-            {
-                tmpBlock = getBlock(staticDimension, current);
-            }
-
-            boolean match = (tmpBlock != null && tmpBlock.hasMatch(tmpType));
-
-            //if there is a match increase the count
-            if (match)
-            {
-                //see if at least one of the matching Block(s) is a Pill
-                if (Pill.isPill(tmpBlock))
-                    hasPill = true;
-                
-                matchCount++;
-            }
-
-            //if the block does not exist or the type does not match or the last dimension
-            if (tmpBlock == null || !match || current == finish - 1)
+            for (int col = 0; col < getCols(); col++)
             {
-                //make sure we made the minimum requirements and at least 1 of the matching Block(s) is a Pill
-                if (matchCount >= MATCH_MINIMUM && hasPill)
-                {
-                    //the last dimension that is part of the match
-                    final int matchFinish; 
-                    
-                    //if we have a match or at the finish line
-                    if (current == finish - 1 && match)
-                    {
-                        matchFinish = current;
-                    }
-                    else
-                    {
-                        matchFinish = current - 1;
-                    }
-                    
-                    for (int matchCurrent = start; matchCurrent <= matchFinish; matchCurrent++)
-                    {
-                        //if we are heading east the column will be the variable
-                        if (horizontal)
-                        {
-                            deadBlocksTmp.add(getBlock(matchCurrent, staticDimension));
-                        }
-                        else
-                        {
-                            //we are heading south and the row will be the variable
-                            deadBlocksTmp.add(getBlock(staticDimension, matchCurrent));
-                        }
-                    }
-                }
-
-                //exit the loop and check next
-                break;
+                //draw the blocks that exist
+                if (bits.hasBlock(col, row))
+                    Block.record(list, bits.getType(col, row), state.getDead().has(BitBoard.getIndex(col, row)), col, row, getX(), getY(), time);
             }
         }
     }
     
     /**
-     * Get the block of the specified column, row
-     * If the col/row is out of bounds null will be returned
+     * Create the Sprite for the Block at the column, row
      * @param col Column
      * @param row Row
-     * @return Block, null will be returned if the col/row is out of bounds
+     * @return Block
      */
-    public Block getBlock(final double col, final double row)
+    private Block createBlock(final int col, final int row)
     {
-        if (col < 0 || col > blocks[0].length - 1)
-            return null;
-        if (row < 0 || row > blocks.length - 1)
-            return null;
+        final Block block = new Block();
+        block.setType(bits.getType(col, row));
+        block.setCol(col);
+        block.setRow(row);
         
-        return blocks[(int)row][(int)col];
+        //both halves of a Pill share the lowest cell index as the group
+        final int index = BitBoard.getIndex(col, row);
+        final int partner = bits.getPartner(col, row);
+        block.setGroup((partner >= 0 && partner < index) ? partner : index);
+        block.setDead(state.getDead().has(index));
+        
+        //setup animation for this block
+        block.setup(block);
+        block.setPosition(getX(), getY());
+        
+        return block;
     }
     
     public Block getBlock(final Block block)
@@ -876,17 +489,7 @@ public class Board extends Sprite
      */
     public int getVirusCount()
     {
-        int count = 0;
-        
-        for (Type type : Type.values())
-        {
-            if (Virus.isVirus(type))
-            {
-                count += getCount(type);
-            }
-        }
-        
-        return count;
+        return state.getVirusCount();
     }
     
     /**
@@ -896,19 +499,16 @@ public class Board extends Sprite
      */
     public int getCount(final Type type)
     {
-        //count of Block(s) of a specific Type
-        int typeCount = 0;
-        
-        for (int col=0; col < getCols(); col++)
-        {
-            for (int row=0; row < getRows(); row++)
-            {
-                if (getBlock(col, row) != null && getBlock(col, row).getType() == type)
-                    typeCount++;
-            }
-        }
-        
-        return typeCount;
+        return state.getCount(type);
+    }
+    
+    /**
+     * Copy the count of every Type of Block
+     * @param result The array where the counts will be written, indexed by the Type ordinal
+     */
+    public void getCounts(final int[] result)
+    {
+        state.getCounts(result);
     }
     
     public void removeBlock(final Pill pill)
@@ -919,19 +519,11 @@ public class Board extends Sprite
     
     public void removeBlock(final double col, final double row)
     {
+        state.remove((int)col, (int)row);
+        
         blocks[(int)row][(int)col] = null;
     }
     
-    private void setBlock(final Cell cell, final Block block)
-    {
-        setBlock(cell.getCol(), cell.getRow(), block);
-    }
-    
-    private void setBlock(final double col, final double row, final Block block)
-    {
-        blocks[(int)row][(int)col] = block;
-    }
-    
     /**
      * Get the total number of Columns on the board
      * @return int
@@ -957,25 +549,15 @@ public class Board extends Sprite
     
     /**
      * Check if the given Block collides with any of the Blocks on our board.
-     * Will return true if an existing block is at the same spot or if the 
+     * Will return true if an existing block is at the same spot or if the
      * parameter block is out of bounds.
-     * 
+     *
      * @param block The Block we want to check for collision
      * @return boolean Return true if the Block equals any of the existing Block(s) on the board or if out of bounds
      */
     private boolean hasCollision(final Block block)
     {
-        //there will be a collision if the user goes out of bounds
-        if (block.getCol() < 0 || block.getCol() > getCols() - 1)
-            return true;
-        if (block.getRow() < 0 || block.getRow() > getRows() - 1)
-            return true;
-        
-        //if an object exists then there is a collision
-        if (getBlock(block) != null)
-            return true;
-        
-        return false;
+        return bits.hasCollision((int)block.getCol(), (int)block.getRow());
     }
     
     /**
@@ -987,8 +569,6 @@ public class Board extends Sprite
         //correct the x,y coordinates
         pill.setPosition(getX(), getY());
         
-        //add the Block(s) to the board
-        setBlock(pill.getCol(), pill.getRow(), new Block(pill));
-        setBlock(pill.getExtra().getCol(), pill.getExtra().getRow(), new Block(pill.getExtra()));
+        state.addPill((int)pill.getCol(), (int)pill.getRow(), pill.getType(), (int)pill.getExtra().getCol(), (int)pill.getExtra().getRow(), pill.getExtra().getType());
     }
 }
\ No newline at end of file
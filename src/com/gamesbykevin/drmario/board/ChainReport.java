@@ -0,0 +1,141 @@
+package com.gamesbykevin.drmario.board;
+
+/**
+ * The result of settling a board, every match in the chain along with the number of viruses and pills destroyed.<br><br>
+ * The first match is the one made before any Block(s) have dropped, every match after that is part of a chain.
+ * @author GOD
+ */
+public final class ChainReport
+{
+    //the most matches possible since each match removes at least MATCH_MINIMUM Block(s)
+    private static final int MATCHES_MAXIMUM = BitBoard.CELLS / Board.MATCH_MINIMUM;
+    
+    //the number of viruses and pills destroyed by each match
+    private final int[] viruses;
+    private final int[] pills;
+    
+    //the number of matches
+    private int matches = 0;
+    
+    //did any Block(s) drop
+    private boolean drop = false;
+    
+    public ChainReport()
+    {
+        this.viruses = new int[MATCHES_MAXIMUM];
+        this.pills = new int[MATCHES_MAXIMUM];
+    }
+    
+    /**
+     * Remove all of the matches
+     */
+    public void reset()
+    {
+        for (int i = 0; i < matches; i++)
+        {
+            viruses[i] = 0;
+            pills[i] = 0;
+        }
+        
+        matches = 0;
+        drop = false;
+    }
+    
+    /**
+     * Add the next match in the chain
+     * @param result The Block(s) destroyed by the match
+     */
+    protected void add(final MatchResult result)
+    {
+        viruses[matches] = result.getVirusCount();
+        pills[matches] = result.getPillCount();
+        matches++;
+    }
+    
+    /**
+     * Flag that Block(s) have dropped
+     */
+    protected void setDrop()
+    {
+        this.drop = true;
+    }
+    
+    /**
+     * Did any Block(s) drop while settling
+     * @return boolean
+     */
+    public boolean hasDrop()
+    {
+        return this.drop;
+    }
+    
+    /**
+     * Get the number of matches made
+     * @return int
+     */
+    public int getMatches()
+    {
+        return this.matches;
+    }
+    
+    /**
+     * Get the number of matches made after the first, these are the chain reactions
+     * @return int
+     */
+    public int getChains()
+    {
+        return (matches > 1) ? matches - 1 : 0;
+    }
+    
+    /**
+     * Get the number of viruses destroyed by a match
+     * @param match The match in the order it was made, starting at 0
+     * @return int
+     */
+    public int getVirusCount(final int match)
+    {
+        return viruses[match];
+    }
+    
+    /**
+     * Get the number of pills destroyed by a match
+     * @param match The match in the order it was made, starting at 0
+     * @return int
+     */
+    public int getPillCount(final int match)
+    {
+        return pills[match];
+    }
+    
+    /**
+     * Get the total number of viruses destroyed
+     * @return int
+     */
+    public int getVirusCount()
+    {
+        int count = 0;
+        
+        for (int i = 0; i < matches; i++)
+        {
+            count += viruses[i];
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Get the total number of pills destroyed
+     * @return int
+     */
+    public int getPillCount()
+    {
+        int count = 0;
+        
+        for (int i = 0; i < matches; i++)
+        {
+            count += pills[i];
+        }
+        
+        return count;
+    }
+}
\ No newline at end of file
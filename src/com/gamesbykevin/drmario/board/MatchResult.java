@@ -0,0 +1,157 @@
+package com.gamesbykevin.drmario.board;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+/**
+ * The cells that are part of a match along with a count of each Type of Block.<br><br>
+ * The object is owned by the board and cleared in place so no new objects are created when checking for matches.
+ * @author GOD
+ */
+public final class MatchResult
+{
+    //each bit represents a cell on the board
+    private final long[] cells;
+    
+    //the number of Block(s) found for each Type
+    private final int[] counts;
+    
+    public MatchResult()
+    {
+        this.cells = new long[2];
+        this.counts = new int[Type.values().length];
+    }
+    
+    /**
+     * Remove all of the cells and counts
+     */
+    public void reset()
+    {
+        cells[0] = 0;
+        cells[1] = 0;
+        
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] = 0;
+        }
+    }
+    
+    /**
+     * Copy the cells and counts from another result
+     * @param result The result we want to copy
+     */
+    public void copy(final MatchResult result)
+    {
+        cells[0] = result.cells[0];
+        cells[1] = result.cells[1];
+        
+        System.arraycopy(result.counts, 0, counts, 0, counts.length);
+    }
+    
+    /**
+     * Add the cell to the result, if the cell has already been added nothing will happen
+     * @param index The cell index
+     * @param type The Type of Block at the cell
+     */
+    protected void add(final int index, final Type type)
+    {
+        if (has(index))
+            return;
+        
+        cells[index >>> 6] |= (1L << (index & 63));
+        counts[type.ordinal()]++;
+    }
+    
+    /**
+     * Set all of the cells at once, the counts need to be set separately
+     * @param cells0 The cells of rows 0 - 7
+     * @param cells1 The cells of rows 8 - 15
+     */
+    protected void setCells(final long cells0, final long cells1)
+    {
+        cells[0] = cells0;
+        cells[1] = cells1;
+    }
+    
+    /**
+     * Set the count for the Type of Block
+     * @param type The Type of Block
+     * @param count The number of Block(s)
+     */
+    protected void setCount(final Type type, final int count)
+    {
+        counts[type.ordinal()] = count;
+    }
+    
+    /**
+     * Are there no cells in the result
+     * @return boolean
+     */
+    public boolean isEmpty()
+    {
+        return (cells[0] == 0 && cells[1] == 0);
+    }
+    
+    /**
+     * Is the cell part of the result
+     * @param index The cell index
+     * @return boolean
+     */
+    public boolean has(final int index)
+    {
+        return ((cells[index >>> 6] >>> (index & 63)) & 1L) != 0;
+    }
+    
+    /**
+     * Get the next cell that is part of the result
+     * @param index The cell index to start from
+     * @return int The cell index, -1 if there are no more cells
+     */
+    public int next(final int index)
+    {
+        if (index < 64)
+        {
+            final long remaining = cells[0] & (-1L << index);
+            
+            if (remaining != 0)
+                return Long.numberOfTrailingZeros(remaining);
+        }
+        
+        if (index < BitBoard.CELLS)
+        {
+            final long remaining = cells[1] & ((index < 64) ? -1L : (-1L << (index & 63)));
+            
+            if (remaining != 0)
+                return 64 + Long.numberOfTrailingZeros(remaining);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Get the number of Block(s) of a specific Type
+     * @param type The Type of Block
+     * @return int
+     */
+    public int getCount(final Type type)
+    {
+        return counts[type.ordinal()];
+    }
+    
+    /**
+     * Get the number of viruses in the result
+     * @return int
+     */
+    public int getVirusCount()
+    {
+        return getCount(Type.RedVirus) + getCount(Type.BlueVirus) + getCount(Type.YellowVirus);
+    }
+    
+    /**
+     * Get the number of pills in the result
+     * @return int
+     */
+    public int getPillCount()
+    {
+        return getCount(Type.RedPill) + getCount(Type.BluePill) + getCount(Type.YellowPill);
+    }
+}
\ No newline at end of file
@@ -32,8 +32,28 @@ public class Engine implements KeyListener, MouseMotionListener, MouseListener,
     //original font
     private Font font;
     
-    //object containing all of the game elements
-    private Manager manager;
+    //object containing all of the game elements, the render thread draws the snapshots it publishes
+    private volatile Manager manager;
+    
+    //the share of the next update that has passed when the current frame is drawn
+    private volatile double alpha = 0;
+    
+    //held while updating, and while drawing the loading screen and menu since they are drawn from the live objects
+    private final Object lock = new Object();
+    
+    //the most input events received between updates
+    private static final int INPUT_CAPACITY = 256;
+    
+    //the key and mouse events received on the event thread, drained at the start of every update
+    private final InputQueue input = new InputQueue(INPUT_CAPACITY);
+    
+    //the events drained for the current update and the time each was received
+    private final InputEvent[] inputEvents = new InputEvent[INPUT_CAPACITY];
+    private final long[] inputTimes = new long[INPUT_CAPACITY];
+    private int inputCount = 0;
+    
+    //how long each event waited before the update that used it
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
     
     /**
      * The Engine that contains the game/menu objects
@@ -84,48 +104,165 @@ public class Engine implements KeyListener, MouseMotionListener, MouseListener,
     @Override
     public void update(Main main)
     {
-        try
+        synchronized (lock)
         {
-            //if resources are still loading
-            if (resources.isLoading())
-            {
-                resources.update(main.getContainerClass());
-
-                //resources are now loaded so create the menu
-                if (!resources.isLoading())
-                    menu = new CustomMenu(this);
-            }
-            else
+            try
             {
-                //does the menu have focus
-                if (!menu.hasFocus())
+                //take every event received since the last update
+                drainInput();
+                
+                //if resources are still loading
+                if (resources.isLoading())
                 {
-                    //reset mouse and keyboard input
-                    mouse.reset();
-                    keyboard.reset();
+                    resources.update(main.getContainerClass());
+
+                    //resources are now loaded so create the menu
+                    if (!resources.isLoading())
+                        menu = new CustomMenu(this);
                 }
+                else
+                {
+                    //does the menu have focus
+                    if (!menu.hasFocus())
+                    {
+                        //reset mouse and keyboard input
+                        mouse.reset();
+                        keyboard.reset();
+                    }
 
-                //update the menu
-                menu.update(this);
+                    //update the menu
+                    menu.update(this);
 
-                //if the menu is finished and the window has focus
-                if (menu.hasFinished() && menu.hasFocus())
-                {
-                    //NOTE: MAIN GAME LOGIC HERE
-                    if (manager != null)
-                        manager.update(this);
+                    //if the menu is finished and the window has focus
+                    if (menu.hasFinished() && menu.hasFocus())
+                    {
+                        //NOTE: MAIN GAME LOGIC HERE
+                        if (manager != null)
+                            manager.update(this);
+                    }
+
+                    if (mouse.isMouseReleased())
+                        mouse.reset();
                 }
-                
-                if (mouse.isMouseReleased())
-                    mouse.reset();
+            }
+            catch(Exception e)
+            {
+                e.printStackTrace();
             }
         }
-        catch(Exception e)
+    }
+    
+    /**
+     * Take every event received since the last update, record how long each waited and apply them to the mouse and keyboard
+     */
+    private void drainInput()
+    {
+        //forget the events from the last update
+        for (int i = 0; i < inputCount; i++)
         {
-            e.printStackTrace();
+            inputEvents[i] = null;
+        }
+        
+        inputCount = input.drain(inputEvents, inputTimes);
+        
+        final long now = System.nanoTime();
+        
+        for (int i = 0; i < inputCount; i++)
+        {
+            inputLatency.record(now - inputTimes[i]);
+            
+            //the menu still reads the mouse and keyboard
+            apply(inputEvents[i]);
         }
     }
     
+    /**
+     * Apply the event to the mouse or keyboard
+     * @param event The key or mouse event
+     */
+    private void apply(final InputEvent event)
+    {
+        switch (event.getID())
+        {
+            case KeyEvent.KEY_PRESSED:
+                keyboard.addKeyPressed(((KeyEvent)event).getKeyCode());
+                break;
+                
+            case KeyEvent.KEY_RELEASED:
+                keyboard.addKeyReleased(((KeyEvent)event).getKeyCode());
+                break;
+                
+            case KeyEvent.KEY_TYPED:
+                keyboard.addKeyTyped(((KeyEvent)event).getKeyChar());
+                break;
+                
+            case MouseEvent.MOUSE_CLICKED:
+                mouse.setMouseClicked((MouseEvent)event);
+                break;
+                
+            case MouseEvent.MOUSE_PRESSED:
+                mouse.setMousePressed((MouseEvent)event);
+                break;
+                
+            case MouseEvent.MOUSE_RELEASED:
+                mouse.setMouseReleased((MouseEvent)event);
+                break;
+                
+            case MouseEvent.MOUSE_ENTERED:
+                mouse.setMouseEntered(((MouseEvent)event).getPoint());
+                break;
+                
+            case MouseEvent.MOUSE_EXITED:
+                mouse.setMouseExited(((MouseEvent)event).getPoint());
+                break;
+                
+            case MouseEvent.MOUSE_MOVED:
+                mouse.setMouseMoved(((MouseEvent)event).getPoint());
+                break;
+                
+            case MouseEvent.MOUSE_DRAGGED:
+                mouse.setMouseDragged(((MouseEvent)event).getPoint());
+                break;
+        }
+    }
+    
+    /**
+     * Get the number of input events drained for the current update
+     * @return int
+     */
+    public int getInputCount()
+    {
+        return this.inputCount;
+    }
+    
+    /**
+     * Get an input event drained for the current update, in the order received
+     * @param index The index of the event
+     * @return InputEvent The key or mouse event
+     */
+    public InputEvent getInputEvent(final int index)
+    {
+        return this.inputEvents[index];
+    }
+    
+    /**
+     * Get how long each input event waited before the update that used it, this is only changed by the game thread
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getInputLatency()
+    {
+        return this.inputLatency;
+    }
+    
+    /**
+     * Get the number of input events dropped because too many were received between updates
+     * @return long
+     */
+    public long getDroppedInput()
+    {
+        return input.getDropped();
+    }
+    
     public Main getMain()
     {
         return main;
@@ -150,29 +287,39 @@ public class Engine implements KeyListener, MouseMotionListener, MouseListener,
     }
     
     /**
-     * Draw our game to the Graphics object whether resources are still loading or the game is intact
+     * Draw our game to the Graphics object whether resources are still loading or the game is intact.<br>
+     * This is called from the render thread, the game is drawn from the last snapshots without waiting for an update
      * @param graphics
+     * @param alpha The share of the next update that has passed from 0 to 1
      * @return Graphics
      * @throws Exception 
      */
     @Override
-    public void render(Graphics graphics) throws Exception
+    public void render(Graphics graphics, final double alpha) throws Exception
     {
+        this.alpha = alpha;
+        
         //store the original font if we haven't already
         if (font == null)
             font = graphics.getFont();
         
-        //if the resources are still loading
-        if (resources.isLoading())
+        synchronized (lock)
         {
-            //draw loading screen
-            resources.render(graphics, main.getScreen());
+            //if the resources are still loading
+            if (resources.isLoading())
+            {
+                //draw loading screen
+                resources.render(graphics, main.getScreen());
+                
+                return;
+            }
         }
-        else
+        
+        //draw application elements
+        renderElements((Graphics2D)graphics);
+        
+        synchronized (lock)
         {
-            //draw application elements
-            renderElements((Graphics2D)graphics);
-            
             //draw menu on top of the game if visible
             renderMenu(graphics);
         }
@@ -185,12 +332,15 @@ public class Engine implements KeyListener, MouseMotionListener, MouseListener,
      */
     private void renderElements(Graphics2D graphics) throws Exception
     {
+        //the manager can be replaced by an update while we draw
+        final Manager current = manager;
+        
         //NOTE: DRAW MAIN GAME HERE
-        if (manager != null)
+        if (current != null)
         {
             graphics.setFont(resources.getFont(AllFonts.Keys.Game).deriveFont(18f));
             
-            manager.render(graphics);
+            current.render(graphics);
         }
     }
     
@@ -238,6 +388,16 @@ public class Engine implements KeyListener, MouseMotionListener, MouseListener,
         return this.manager;
     }
     
+    /**
+     * Get the share of the next update that has passed when the current frame is drawn.<br>
+     * The board moves 1 cell at a time so nothing is drawn between updates yet
+     * @return double From 0 to 1
+     */
+    public double getAlpha()
+    {
+        return this.alpha;
+    }
+    
     public CustomMenu getMenu()
     {
         return this.menu;
@@ -248,64 +408,66 @@ public class Engine implements KeyListener, MouseMotionListener, MouseListener,
         return resources;
     }
     
+    //the listeners below are called on the event thread, the events are applied by the game thread in update
+    
     @Override
     public void keyReleased(KeyEvent e)
     {
-        keyboard.addKeyReleased(e.getKeyCode());
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void keyPressed(KeyEvent e)
     {
-        keyboard.addKeyPressed(e.getKeyCode());
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void keyTyped(KeyEvent e)
     {
-        keyboard.addKeyTyped(e.getKeyChar());
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mouseClicked(MouseEvent e)
     {
-        mouse.setMouseClicked(e);
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mousePressed(MouseEvent e)
     {
-        mouse.setMousePressed(e);
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mouseReleased(MouseEvent e)
     {
-        mouse.setMouseReleased(e);
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mouseEntered(MouseEvent e)
     {
-        mouse.setMouseEntered(e.getPoint());
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mouseExited(MouseEvent e)
     {
-        mouse.setMouseExited(e.getPoint());
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mouseMoved(MouseEvent e)
     {
-        mouse.setMouseMoved(e.getPoint());
+        input.offer(e, System.nanoTime());
     }
     
     @Override
     public void mouseDragged(MouseEvent e)
     {
-        mouse.setMouseDragged(e.getPoint());
+        input.offer(e, System.nanoTime());
     }
     
     public Mouse getMouse()
@@ -18,10 +18,11 @@ public interface IEngine extends Disposable
     /**
      * Draw the engine which contains all of the game elements
      * @param graphics Graphics object that game will be written to
+     * @param alpha The share of the next update that has passed from 0 to 1, so elements can be drawn between updates
      * @return Graphics object containing game/menu elements
      * @throws Exception 
      */
-    public void render(Graphics graphics) throws Exception;
+    public void render(Graphics graphics, double alpha) throws Exception;
     
     /**
      * The Main class where the application is initialized
@@ -0,0 +1,118 @@
+package com.gamesbykevin.drmario.engine;
+
+import java.awt.event.InputEvent;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes the key and mouse events from the AWT event thread to the game thread without locking.<br><br>
+ * There is exactly 1 producer, the event thread, and 1 consumer, the game thread.
+ * Each event is stored with the time it was received, the game thread drains every event at the start of an update.
+ * The producer never waits, when the queue is full the event is dropped and counted.
+ * @author GOD
+ */
+public final class InputQueue
+{
+    //the events and the time from System.nanoTime() each was received
+    private final InputEvent[] events;
+    private final long[] times;
+    
+    //the capacity is a power of 2 so the index is found with a mask
+    private final int mask;
+    
+    //the next event to drain, only changed by the consumer
+    private final AtomicLong head = new AtomicLong();
+    
+    //the next free slot, only changed by the producer
+    private final AtomicLong tail = new AtomicLong();
+    
+    //the number of events dropped because the queue was full
+    private final AtomicLong dropped = new AtomicLong();
+    
+    /**
+     * Create a new queue
+     * @param capacity The most events waiting to be drained, a power of 2
+     */
+    public InputQueue(final int capacity)
+    {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("The capacity has to be a power of 2");
+        
+        this.events = new InputEvent[capacity];
+        this.times = new long[capacity];
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * Get the most events waiting to be drained
+     * @return int
+     */
+    public int getCapacity()
+    {
+        return events.length;
+    }
+    
+    /**
+     * Add an event, this is only called from the producer thread
+     * @param event The event received
+     * @param time The time from System.nanoTime() the event was received
+     * @return boolean true if the event was added, false if the queue was full and it was dropped
+     */
+    public boolean offer(final InputEvent event, final long time)
+    {
+        final long index = tail.get();
+        
+        //the consumer hasn't caught up so the event is dropped
+        if (index - head.get() >= events.length)
+        {
+            dropped.incrementAndGet();
+            return false;
+        }
+        
+        events[(int)index & mask] = event;
+        times[(int)index & mask] = time;
+        
+        //publish the slot, the consumer reads the tail before the slot
+        tail.lazySet(index + 1);
+        
+        return true;
+    }
+    
+    /**
+     * Remove every event waiting in the order received, this is only called from the consumer thread
+     * @param events The events drained are copied here, the same length as the capacity
+     * @param times The time each event drained was received
+     * @return int The number of events drained
+     */
+    public int drain(final InputEvent[] events, final long[] times)
+    {
+        final long start = head.get();
+        final long end = tail.get();
+        
+        final int count = (int)Math.min(end - start, events.length);
+        
+        for (int i = 0; i < count; i++)
+        {
+            final int slot = (int)(start + i) & mask;
+            
+            events[i] = this.events[slot];
+            times[i] = this.times[slot];
+            
+            //don't hold on to the event
+            this.events[slot] = null;
+        }
+        
+        //hand the slots back to the producer
+        head.lazySet(start + count);
+        
+        return count;
+    }
+    
+    /**
+     * Get the number of events dropped because the queue was full
+     * @return long
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+}
\ No newline at end of file
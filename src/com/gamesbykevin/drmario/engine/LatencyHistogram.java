@@ -0,0 +1,166 @@
+package com.gamesbykevin.drmario.engine;
+
+/**
+ * Counts how long each input event waited before the game used it.<br><br>
+ * The buckets double in size, bucket 0 is less than 2 microseconds and bucket n is from 2^n up to 2^(n+1) microseconds,
+ * so the histogram is small and never allocates while the game is running.
+ * @author GOD
+ */
+public final class LatencyHistogram
+{
+    //the number of buckets, the last bucket also holds everything longer
+    public static final int BUCKETS = 24;
+    
+    //how many nanoseconds are there in one microsecond
+    private static final long NANO_SECONDS_PER_MICRO_SECOND = 1000L;
+    
+    //the count of latencies in each bucket
+    private final long[] counts = new long[BUCKETS];
+    
+    //the number of latencies, the total and the longest in nanoseconds
+    private long count = 0;
+    private long total = 0;
+    private long maximum = 0;
+    
+    /**
+     * Add a latency
+     * @param latency The time in nanoseconds
+     */
+    public void record(final long latency)
+    {
+        final long time = Math.max(0, latency);
+        
+        counts[getBucket(time)]++;
+        
+        count++;
+        total += time;
+        maximum = Math.max(maximum, time);
+    }
+    
+    /**
+     * Get the bucket of the latency
+     * @param latency The time in nanoseconds, not negative
+     * @return int The bucket
+     */
+    private static int getBucket(final long latency)
+    {
+        final long micro = latency / NANO_SECONDS_PER_MICRO_SECOND;
+        
+        if (micro < 2)
+            return 0;
+        
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micro));
+    }
+    
+    /**
+     * Get the longest latency in the bucket
+     * @param bucket The bucket
+     * @return long The time in microseconds, the last bucket has no limit
+     */
+    public static long getUpperBound(final int bucket)
+    {
+        return (bucket >= BUCKETS - 1) ? Long.MAX_VALUE : (1L << (bucket + 1));
+    }
+    
+    /**
+     * Get the count of latencies in the bucket
+     * @param bucket The bucket
+     * @return long
+     */
+    public long getCount(final int bucket)
+    {
+        return counts[bucket];
+    }
+    
+    /**
+     * Get the number of latencies
+     * @return long
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Get the average latency
+     * @return double The time in nanoseconds
+     */
+    public double getMean()
+    {
+        return (count == 0) ? 0 : (double)total / count;
+    }
+    
+    /**
+     * Get the longest latency
+     * @return long The time in nanoseconds
+     */
+    public long getMaximum()
+    {
+        return this.maximum;
+    }
+    
+    /**
+     * Get the latency the share of events were within
+     * @param share The share of events from 0 to 1, for example 0.99
+     * @return long The upper bound of the bucket in microseconds, 0 if nothing has been recorded
+     */
+    public long getPercentile(final double share)
+    {
+        if (count == 0)
+            return 0;
+        
+        final long target = (long)Math.ceil(share * count);
+        
+        long sum = 0;
+        
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            sum += counts[bucket];
+            
+            if (sum >= target)
+                return getUpperBound(bucket);
+        }
+        
+        return getUpperBound(BUCKETS - 1);
+    }
+    
+    /**
+     * Forget every latency so far
+     */
+    public void reset()
+    {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            counts[bucket] = 0;
+        }
+        
+        count = 0;
+        total = 0;
+        maximum = 0;
+    }
+    
+    @Override
+    public String toString()
+    {
+        final StringBuilder result = new StringBuilder();
+        
+        result.append(String.format("%d events, mean %.3f ms, maximum %.3f ms", count, getMean() / 1000000.0, maximum / 1000000.0));
+        
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            if (counts[bucket] == 0)
+                continue;
+            
+            if (bucket < BUCKETS - 1)
+            {
+                result.append(String.format("%n  < %d us: %d", getUpperBound(bucket), counts[bucket]));
+            }
+            else
+            {
+                result.append(String.format("%n  >= %d us: %d", getUpperBound(bucket - 1), counts[bucket]));
+            }
+        }
+        
+        return result.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.gamesbykevin.drmario.main;
+
+/**
+ * Decides how many fixed steps are due each time through the game loop.<br><br>
+ * The time passed is added up and a step is due for every whole step of time.
+ * Only a limited number of steps are run at once, so after a long pause the loop does not try to catch up on
+ * every step missed and fall further behind. The steps above the limit are dropped and counted as skipped.
+ * The share of the next step that has passed is the alpha used to draw between steps.
+ * @author GOD
+ */
+public final class FixedTimestep
+{
+    //how many nanoseconds between each step
+    private final double nanoSecondsPerStep;
+    
+    //the most steps run at once
+    private int maximumSteps;
+    
+    //the steps owed, the whole steps are due and the rest is the share of the next step
+    private double delta = 0;
+    
+    //the time the steps were last checked
+    private long lastRun;
+    
+    //the total steps dropped because there were too many at once
+    private long skipped = 0;
+    
+    /**
+     * Create a new timestep
+     * @param nanoSecondsPerStep How many nanoseconds between each step
+     * @param maximumSteps The most steps run at once
+     */
+    public FixedTimestep(final double nanoSecondsPerStep, final int maximumSteps)
+    {
+        this.nanoSecondsPerStep = nanoSecondsPerStep;
+        
+        setMaximumSteps(maximumSteps);
+        reset(System.nanoTime());
+    }
+    
+    /**
+     * Set the most steps run at once
+     * @param maximumSteps The most steps, at least 1
+     */
+    public void setMaximumSteps(final int maximumSteps)
+    {
+        if (maximumSteps < 1)
+            throw new IllegalArgumentException("At least 1 step has to be run at once");
+        
+        this.maximumSteps = maximumSteps;
+    }
+    
+    public int getMaximumSteps()
+    {
+        return this.maximumSteps;
+    }
+    
+    /**
+     * Start counting the time from now, no steps are owed
+     * @param now The time from System.nanoTime()
+     */
+    public void reset(final long now)
+    {
+        this.lastRun = now;
+        this.delta = 0;
+    }
+    
+    /**
+     * Add the time passed and get the steps to run now
+     * @param now The time from System.nanoTime()
+     * @return int The steps due, never more than the maximum
+     */
+    public int advance(final long now)
+    {
+        delta += ((now - lastRun) / nanoSecondsPerStep);
+        lastRun = now;
+        
+        int steps = (int)delta;
+        
+        //drop the steps we can't catch up on
+        if (steps > maximumSteps)
+        {
+            skipped += steps - maximumSteps;
+            steps = maximumSteps;
+        }
+        
+        delta -= (int)delta;
+        
+        return steps;
+    }
+    
+    /**
+     * Get the share of the next step that has passed
+     * @return double From 0 to 1
+     */
+    public double getAlpha()
+    {
+        return this.delta;
+    }
+    
+    /**
+     * Get the time the next step is due
+     * @return long The time from System.nanoTime()
+     */
+    public long getNextDeadline()
+    {
+        return lastRun + (long)((1 - delta) * nanoSecondsPerStep);
+    }
+    
+    /**
+     * Get the total steps dropped because there were too many at once
+     * @return long
+     */
+    public long getSkipped()
+    {
+        return this.skipped;
+    }
+}
\ No newline at end of file
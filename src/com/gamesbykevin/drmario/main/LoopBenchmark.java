@@ -0,0 +1,107 @@
+package com.gamesbykevin.drmario.main;
+
+import com.gamesbykevin.drmario.shared.Shared;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the CPU used by an idle game loop with and without the scheduler.<br><br>
+ * The loop runs headless with empty updates and frames at the default rates, so all of the CPU
+ * used is the cost of waiting. The loop without a scheduler is the old loop that never sleeps.
+ * @author GOD
+ */
+public final class LoopBenchmark
+{
+    //how long each loop runs when not specified
+    private static final int DEFAULT_SECONDS = 5;
+    
+    //how many nanoseconds are there in one second
+    private static final double NANO_SECONDS_PER_SECOND = 1000000000.0;
+    
+    //the most updates run before each frame
+    private static final int MAXIMUM_UPDATES = 5;
+    
+    private LoopBenchmark()
+    {
+        //this class only runs the benchmark
+    }
+    
+    /**
+     * Run an idle loop
+     * @param scheduler Waits for the next update or frame, null to never wait
+     * @param seconds How long the loop runs
+     * @return int The number of updates
+     */
+    private static int run(final LoopScheduler scheduler, final int seconds)
+    {
+        final double nanoSecondsPerUpdate = NANO_SECONDS_PER_SECOND / Shared.DEFAULT_UPS;
+        final double nanoSecondsPerFrame = NANO_SECONDS_PER_SECOND / Shared.DEFAULT_FPS;
+        
+        final FixedTimestep updateTimestep = new FixedTimestep(nanoSecondsPerUpdate, MAXIMUM_UPDATES);
+        final FixedTimestep frameTimestep = new FixedTimestep(nanoSecondsPerFrame, 1);
+        
+        final long end = System.nanoTime() + (long)(seconds * NANO_SECONDS_PER_SECOND);
+        
+        int updates = 0;
+        
+        while (true)
+        {
+            final long now = System.nanoTime();
+            
+            if (now >= end)
+                break;
+            
+            updates += updateTimestep.advance(now);
+            frameTimestep.advance(now);
+            
+            if (scheduler != null)
+                scheduler.waitUntil(Math.min(updateTimestep.getNextDeadline(), frameTimestep.getNextDeadline()));
+        }
+        
+        return updates;
+    }
+    
+    /**
+     * Run the loop and print the CPU used and how late the updates were
+     * @param name The name printed
+     * @param scheduler Waits for the next update or frame, null to never wait
+     * @param seconds How long the loop runs
+     */
+    private static void report(final String name, final LoopScheduler scheduler, final int seconds)
+    {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        
+        final long wall = System.nanoTime();
+        final long cpu = threads.getCurrentThreadCpuTime();
+        
+        final int updates = run(scheduler, seconds);
+        
+        final double usage = (threads.getCurrentThreadCpuTime() - cpu) / (double)(System.nanoTime() - wall);
+        
+        if (scheduler == null)
+        {
+            System.out.println(String.format("%-12s cpu %5.1f%%, %d updates", name, usage * 100.0, updates));
+        }
+        else
+        {
+            System.out.println(String.format("%-12s cpu %5.1f%%, %d updates, late mean %.3f ms, maximum %.3f ms", name, usage * 100.0, updates, scheduler.getMeanLateness() / 1000000.0, scheduler.getMaximumLateness() / 1000000.0));
+        }
+    }
+    
+    /**
+     * Run the benchmark
+     * @param args The number of seconds each loop runs
+     */
+    public static void main(final String[] args)
+    {
+        final int seconds = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+        
+        report("busy", null, seconds);
+        
+        for (LoopScheduler.Policy policy : LoopScheduler.Policy.values())
+        {
+            report(policy.toString(), new LoopScheduler(policy), seconds);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.gamesbykevin.drmario.main;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for the next update or frame of the game loop without keeping a core busy.<br><br>
+ * The thread is parked until shortly before the deadline, then it spins for the rest of the time
+ * because a parked thread can wake up late. How long it spins depends on the policy.
+ * The time each wait finished after its deadline is kept so the accuracy can be measured.
+ * @author GOD
+ */
+public final class LoopScheduler
+{
+    /**
+     * How the scheduler trades accuracy for CPU use
+     */
+    public enum Policy
+    {
+        /**
+         * Spin for the last few hundred microseconds so the updates happen on time
+         */
+        LowLatency,
+        
+        /**
+         * Never spin, the updates can happen up to a millisecond or so late
+         */
+        PowerSaving
+    }
+    
+    //the time spent spinning before each deadline in nanoseconds for the different policies
+    private static final long SPIN_LOW_LATENCY = 500000L;
+    private static final long SPIN_POWER_SAVING = 0L;
+    
+    //how accurate the waits should be
+    private Policy policy;
+    
+    //the number of waits, the total and the most time they finished after the deadline in nanoseconds
+    private long waits = 0;
+    private long lateness = 0;
+    private long latenessMaximum = 0;
+    
+    /**
+     * Create a scheduler that keeps the updates on time
+     */
+    public LoopScheduler()
+    {
+        this(Policy.LowLatency);
+    }
+    
+    /**
+     * Create a scheduler
+     * @param policy How accurate the waits should be
+     */
+    public LoopScheduler(final Policy policy)
+    {
+        setPolicy(policy);
+    }
+    
+    /**
+     * Set how accurate the waits should be
+     * @param policy The policy
+     */
+    public void setPolicy(final Policy policy)
+    {
+        if (policy == null)
+            throw new IllegalArgumentException("The policy can't be null");
+        
+        this.policy = policy;
+    }
+    
+    public Policy getPolicy()
+    {
+        return this.policy;
+    }
+    
+    /**
+     * Wait until the deadline, returns straight away if the deadline has passed or the thread is interrupted
+     * @param deadline The time from System.nanoTime() to wait for
+     */
+    public void waitUntil(final long deadline)
+    {
+        final long spin = (policy == Policy.LowLatency) ? SPIN_LOW_LATENCY : SPIN_POWER_SAVING;
+        
+        long now = System.nanoTime();
+        
+        while (now < deadline)
+        {
+            //a parked thread wakes up straight away once interrupted
+            if (Thread.currentThread().isInterrupted())
+                break;
+            
+            //park until it is time to spin, the thread may wake up early so check again
+            if (deadline - now > spin)
+                LockSupport.parkNanos(deadline - now - spin);
+            
+            now = System.nanoTime();
+        }
+        
+        //keep track of how late we were
+        final long late = (now > deadline) ? now - deadline : 0;
+        
+        waits++;
+        lateness += late;
+        latenessMaximum = Math.max(latenessMaximum, late);
+    }
+    
+    /**
+     * Get the number of waits since the lateness was last reset
+     * @return long
+     */
+    public long getWaits()
+    {
+        return this.waits;
+    }
+    
+    /**
+     * Get the average time each wait finished after its deadline
+     * @return double The time in nanoseconds
+     */
+    public double getMeanLateness()
+    {
+        return (waits == 0) ? 0 : (double)lateness / waits;
+    }
+    
+    /**
+     * Get the most time a wait finished after its deadline
+     * @return long The time in nanoseconds
+     */
+    public long getMaximumLateness()
+    {
+        return this.latenessMaximum;
+    }
+    
+    /**
+     * Forget the lateness of every wait so far
+     */
+    public void reset()
+    {
+        waits = 0;
+        lateness = 0;
+        latenessMaximum = 0;
+    }
+}
\ No newline at end of file
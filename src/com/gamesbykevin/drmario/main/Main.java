@@ -24,7 +24,7 @@ public class Main extends Thread
     private Rectangle currentWindow;
     
     //our main game engine
-    private Engine engine;
+    private volatile Engine engine;
     
     //do we hide mouse when the menu is not visible and actual gameplay started
     public static boolean HIDE_MOUSE = true;
@@ -35,6 +35,13 @@ public class Main extends Thread
     //how many nanoseconds between each frame render
     private double nanoSecondsPerFrame;
     
+    //the most updates run before each frame, after a pause the rest are skipped so the loop can't fall further behind
+    private static final int DEFAULT_MAXIMUM_UPDATES = 5;
+    
+    //decides how many updates and frames are due, only 1 frame is ever drawn at once
+    private final FixedTimestep updateTimestep;
+    private final FixedTimestep frameTimestep;
+    
     //frames per second
     private int frames = 0;
     
@@ -42,10 +49,20 @@ public class Main extends Thread
     private int updates = 0;
     
     //frames per second current count
-    private int currentFPS  = 0;
+    private volatile int currentFPS  = 0;
     
     //updates per second current count
-    private int currentUPS = 0;
+    private volatile int currentUPS = 0;
+    
+    //the latency half and 99% of the input events were within in microseconds, read on the game thread once a second
+    private volatile long inputLatency50 = 0;
+    private volatile long inputLatency99 = 0;
+    
+    //the time the last update finished, the render thread uses this for the share of the next update that has passed
+    private volatile long lastUpdate;
+    
+    //has full screen been switched on/off since the last frame
+    private volatile boolean resize = false;
     
     //how many nanoseconds are there in one second
     private static final double NANO_SECONDS_PER_SECOND = 1000000000.0;
@@ -59,6 +76,12 @@ public class Main extends Thread
     //cache this graphics object so we aren't constantly creating it
     private Graphics graphics;
     
+    //waits for the next update so the loop doesn't keep a core busy
+    private final LoopScheduler scheduler = new LoopScheduler();
+    
+    //waits for the next frame on the render thread
+    private final LoopScheduler renderScheduler = new LoopScheduler();
+    
     /**
      * Main class that runs the game engine
      * 
@@ -76,6 +99,9 @@ public class Main extends Thread
         
         //duration per each frame render in nanoseconds
         nanoSecondsPerFrame = NANO_SECONDS_PER_SECOND / fps;
+        
+        updateTimestep = new FixedTimestep(nanoSecondsPerUpdate, DEFAULT_MAXIMUM_UPDATES);
+        frameTimestep = new FixedTimestep(nanoSecondsPerFrame, 1);
     }
     
     /**
@@ -100,65 +126,131 @@ public class Main extends Thread
         }
     }
     
+    /**
+     * Run the game updates on this thread, the frames are drawn on a separate render thread
+     * so a slow frame never delays an update
+     */
     @Override
     public void run()
     {
-        //we need to determine the last run so we can calculate ups/fps
-        long lastRun = System.nanoTime();
+        //start counting the time passed from now
+        updateTimestep.reset(System.nanoTime());
+        lastUpdate = System.nanoTime();
         
-        //this will reset ups/fps count every second
-        long timer = System.nanoTime();
+        //draw the frames from the snapshots published by each update
+        final Thread renderer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                render();
+            }
+        }, "Render");
         
-        //this variables will keep track of the time passed
-        double deltaUpdate = 0;
-        double deltaFrame = 0;
+        renderer.setDaemon(true);
+        renderer.start();
+        
+        //this will reset ups count every second
+        long timer = System.nanoTime();
         
         while(true)
         {
             try
             {
                 //get current system nano time
-                long now = System.nanoTime();
-                
-                //update these variables
-                deltaUpdate += ((now - lastRun) / nanoSecondsPerUpdate);
-                deltaFrame += ((now - lastRun) / nanoSecondsPerFrame);
+                final long now = System.nanoTime();
                 
-                //set the current time as the last run
-                lastRun = now;
+                //run the updates due, never more than the maximum
+                final int due = updateTimestep.advance(now);
                 
-                while(deltaUpdate >= 1)
+                for (int i = 0; i < due; i++)
                 {
-                    if (engine != null)
+                    //the time still passes while the engine is being created
+                    final Engine current = engine;
+                    
+                    if (current != null)
                     {
-                        engine.update(this);
-
+                        current.update(this);
+                        
                         updates++;
-                        deltaUpdate--;
                     }
                 }
                 
-                while(deltaFrame >= 1)
+                if (due > 0)
+                    lastUpdate = System.nanoTime();
+                
+                //sleep until the next update is due
+                scheduler.waitUntil(updateTimestep.getNextDeadline());
+                
+                //if 1 second has passed
+                if (System.nanoTime() - timer > NANO_SECONDS_PER_SECOND)
                 {
-                    renderImage();
+                    //add 1 second time for next update
+                    timer += NANO_SECONDS_PER_SECOND;
+                    
+                    //store the current ups to be displayed to the user
+                    currentUPS = updates;
+                    
+                    //the histogram is only changed on this thread so the render thread is given a copy
+                    final Engine current = engine;
+                    
+                    if (current != null)
+                    {
+                        inputLatency50 = current.getInputLatency().getPercentile(0.5);
+                        inputLatency99 = current.getInputLatency().getPercentile(0.99);
+                    }
+                    
+                    //reset the counter
+                    updates = 0;
+                }
+            }
+            catch(Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * The render thread, draws the latest frame whenever one is due
+     */
+    private void render()
+    {
+        //start counting the time passed from now
+        frameTimestep.reset(System.nanoTime());
+        
+        //this will reset fps count every second
+        long timer = System.nanoTime();
+        
+        while(true)
+        {
+            try
+            {
+                //only draw the latest frame, any other frames due are skipped
+                if (frameTimestep.advance(System.nanoTime()) > 0)
+                {
+                    //the share of the next update that has passed since the last update finished
+                    final double alpha = (System.nanoTime() - lastUpdate) / nanoSecondsPerUpdate;
+                    
+                    renderImage(Math.max(0, Math.min(1, alpha)));
                     drawScreen();
                     
                     frames++;
-                    deltaFrame--;
                 }
                 
+                //sleep until the next frame is due
+                renderScheduler.waitUntil(frameTimestep.getNextDeadline());
+                
                 //if 1 second has passed
                 if (System.nanoTime() - timer > NANO_SECONDS_PER_SECOND)
                 {
                     //add 1 second time for next update
                     timer += NANO_SECONDS_PER_SECOND;
                     
-                    //store the current fps/ups to be displayed to the user
-                    currentUPS = updates;
+                    //store the current fps to be displayed to the user
                     currentFPS = frames;
                     
                     //reset the counter
-                    updates = 0;
                     frames = 0;
                 }
             }
@@ -169,6 +261,43 @@ public class Main extends Thread
         }
     }
     
+    /**
+     * Set how accurately the loop wakes up for each update and frame
+     * @param policy LowLatency to keep the updates on time, PowerSaving to use less CPU
+     */
+    public void setPolicy(final LoopScheduler.Policy policy)
+    {
+        scheduler.setPolicy(policy);
+        renderScheduler.setPolicy(policy);
+    }
+    
+    /**
+     * Set the most updates run before each frame, once the game falls further behind the rest are skipped
+     * @param maximumUpdates The most updates, at least 1
+     */
+    public void setMaximumUpdates(final int maximumUpdates)
+    {
+        updateTimestep.setMaximumSteps(maximumUpdates);
+    }
+    
+    /**
+     * Get the total updates skipped because the game fell too far behind
+     * @return long
+     */
+    public long getSkippedUpdates()
+    {
+        return updateTimestep.getSkipped();
+    }
+    
+    /**
+     * Get the total frames skipped because the game fell behind
+     * @return long
+     */
+    public long getSkippedFrames()
+    {
+        return frameTimestep.getSkipped();
+    }
+    
     public void setApplet(final JApplet applet)
     {
         this.applet = applet;
@@ -227,10 +356,21 @@ public class Main extends Thread
     }
     
     /**
-     * This method will be called whenever the user turns full-screen on/off
+     * This method will be called whenever the user turns full-screen on/off,
+     * the window is resized by the render thread before the next frame
      */
     public void setFullScreen()
     {
+        resize = true;
+    }
+    
+    /**
+     * Set the current window to the size of the container, only called from the render thread
+     */
+    private void updateWindow()
+    {
+        resize = false;
+        
         if (applet != null)
         {
             fullSizeWindow = new Rectangle(0, 0, applet.getWidth(), applet.getHeight());
@@ -261,10 +401,17 @@ public class Main extends Thread
      * Writes all game/menu elements in our 
      * engine to our single bufferedImage.
      * 
+     * @param alpha The share of the next update that has passed
      * @throws Exception 
      */
-    private void renderImage() throws Exception
+    private void renderImage(final double alpha) throws Exception
     {
+        //the engine is created after the threads start
+        final Engine current = engine;
+        
+        if (current == null)
+            return;
+        
         if (bufferedImage != null)
         {
             if (bufferedImageGraphics == null)
@@ -274,7 +421,7 @@ public class Main extends Thread
             bufferedImageGraphics.setColor(Color.BLACK);
             bufferedImageGraphics.fillRect(0, 0, Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT);
 
-            engine.render(bufferedImageGraphics);
+            current.render(bufferedImageGraphics, alpha);
 
             if (Shared.DEBUG)
                 renderCounter(bufferedImageGraphics);
@@ -310,7 +457,7 @@ public class Main extends Thread
      */
     private void renderCounter(Graphics graphics)
     {
-        String result = currentUPS + " UPS, " + currentFPS + " FPS";
+        String result = currentUPS + " UPS, " + currentFPS + " FPS, " + getSkippedUpdates() + " skipped, input p50 " + (inputLatency50 / 1000.0) + " ms p99 " + (inputLatency99 / 1000.0) + " ms";
         int width = graphics.getFontMetrics().stringWidth(result);
         int height = graphics.getFontMetrics().getHeight() + 1;
         Rectangle tmp = new Rectangle(originalSizeWindow.width - width, originalSizeWindow.height - height, width, height);
@@ -350,8 +497,8 @@ public class Main extends Thread
             createGraphicsObject();
         
         //make sure current window dimensions are set
-        if (currentWindow == null)
-            setFullScreen();
+        if (currentWindow == null || resize)
+            updateWindow();
         
         try
         {
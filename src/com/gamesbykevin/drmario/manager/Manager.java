@@ -10,8 +10,10 @@ import com.gamesbykevin.drmario.player.Agent;
 import com.gamesbykevin.drmario.player.Human;
 import com.gamesbykevin.drmario.player.Player;
 import com.gamesbykevin.drmario.player.PlayerInformation.SpeedKey;
+import com.gamesbykevin.drmario.player.PlayerSnapshot;
 import com.gamesbykevin.drmario.resource.*;
-import com.gamesbykevin.framework.util.TimerCollection;
+import com.gamesbykevin.drmario.sim.Game;
+import com.gamesbykevin.drmario.sim.GameState;
 
 import java.awt.Graphics;
 import java.awt.Image;
@@ -19,6 +21,7 @@ import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 /**
  * The parent class that contains all of the game elements
  * @author GOD
@@ -56,7 +59,13 @@ public final class Manager implements Disposable
     private final int modeIndex;
     
     //the amount of time to add for each virus in Timed mode, currently 20 seconds
-    private static final long TIMED_DELAY = TimerCollection.toNanoSeconds(20000L);
+    private static final int TIMED_DELAY = GameState.toTicks(20000L);
+    
+    //the rules of the game between every player
+    private Game game;
+    
+    //the input for each player, the human is first
+    private int[] inputs;
     
     //different music selections
     private static final int MUSIC_FEVER = 0;
@@ -69,6 +78,9 @@ public final class Manager implements Disposable
     //have we started to play the music
     private boolean musicStarted = false;
     
+    //what every player showed after the last update, the human is first, swapped in whole so it can be drawn on another thread
+    private final AtomicReference<PlayerSnapshot[]> snapshots = new AtomicReference<>(new PlayerSnapshot[0]);
+    
     public Manager(final Engine engine) throws Exception
     {
         this.musicSelection = engine.getMenu().getOptionSelectionIndex(LayerKey.Options, OptionKey.Music);
@@ -201,20 +213,14 @@ public final class Manager implements Disposable
         this.virusCount = (level * VIRUS_PER_LEVEL);
         
         //time passed timer or time remaining depending on the number of viruses
-        final long time = (modeIndex != MODE_TIMED) ? 0 : (virusCount * TIMED_DELAY);
-        
-        //create new board
-        player.createBoard(virusCount);
-        
-        //create new pill
-        player.createPill();
-        
-        //create next pill
-        player.createNextPill();
+        final int time = (modeIndex != MODE_TIMED) ? 0 : (virusCount * TIMED_DELAY);
         
         //create timer
         player.createTimer(time);
         
+        //create new board
+        player.createBoard(virusCount);
+        
         //set the level for proper display
         player.setLevel(level);
         
@@ -252,6 +258,19 @@ public final class Manager implements Disposable
                 setNextLevel(agent);
             }
         }
+        
+        //every player competes against the human
+        final GameState[] players = new GameState[agents.size() + 1];
+        
+        players[0] = human.getState();
+        
+        for (int i = 0; i < agents.size(); i++)
+        {
+            players[i + 1] = agents.get(i).getState();
+        }
+        
+        this.game = new Game(players, (modeIndex == MODE_ATTACK_VS));
+        this.inputs = new int[players.length];
     }
     
     /**
@@ -306,9 +325,21 @@ public final class Manager implements Disposable
         //has the level/game ended
         boolean statusChange = (human.hasWin() || human.hasLose());
         
+        //get the input for every player
+        inputs[0] = human.getInput(engine);
+        
+        for (int i = 0; i < agents.size(); i++)
+        {
+            //execute ai logic
+            inputs[i + 1] = agents.get(i).getInput(engine);
+        }
+        
+        //run the game for 1 tick, this will also penalize and locate the winner
+        game.step(inputs);
+        
         if (human != null)
         {
-            //check for keyboard input etc..
+            //display the game and play sound effects
             human.update(engine);
             
             //if the human won, check for input to go to next level
@@ -322,6 +353,9 @@ public final class Manager implements Disposable
                     //setup next level for all players
                     setNextLevel();
                     
+                    //show the next level
+                    publish();
+                    
                     //exit method
                     return;
                 }
@@ -332,18 +366,11 @@ public final class Manager implements Disposable
         {
             for (Agent agent : agents)
             {
-                //execute ai logic
+                //display the game and play sound effects
                 agent.update(engine);
             }
         }
         
-        //if playing attack mode we need to see if any players need to be penalized
-        if (modeIndex == MODE_ATTACK_VS)
-            checkPenalty();
-        
-        //check if one of the players won
-        locateWinner();
-        
         //if we haven't won or lost previously but we have now play the correct music
         if (!statusChange && (human.hasWin() || human.hasLose()))
         {
@@ -359,143 +386,46 @@ public final class Manager implements Disposable
                 engine.getResources().playGameMusic(GameMusic.Keys.Lose, true);
             }
         }
+        
+        //show the result of the update
+        publish();
     }
     
     /**
-     * Check if 1 player has a virus kill and if so penalize all other players
+     * Record what every player shows now, replacing the snapshots drawn
      */
-    private void checkPenalty()
+    private void publish()
     {
-        //does any of the players have killed a virus
-        boolean hasKill = false;
+        final long time = System.nanoTime();
+        
+        final PlayerSnapshot[] tmp = new PlayerSnapshot[((human != null) ? 1 : 0) + ((agents != null) ? agents.size() : 0)];
+        
+        int index = 0;
         
         if (human != null)
-        {
-            hasKill = human.hasKill();
-        }
+            tmp[index++] = human.createSnapshot(time);
         
-        //if the human did not have a kill check the ai opponents
-        if (!hasKill)
+        if (agents != null)
         {
             for (Agent agent : agents)
             {
-                hasKill = agent.hasKill();
-                
-                //if we have a kill no need to check the others
-                if (hasKill)
-                    break;
+                tmp[index++] = agent.createSnapshot(time);
             }
         }
         
-        //if somebody has a kill add penalty, player(s) that have a kill will not be penalized
-        if (hasKill)
-        {
-            human.penalize();
-            
-            for (Agent agent : agents)
-            {
-                agent.penalize();
-            }
-        }
+        snapshots.set(tmp);
     }
     
     /**
-     * Check if one of the players won and if so mark every one else defeated.
-     */
-    private void locateWinner()
-    {
-        //if playing against opponents
-        if (!agents.isEmpty())
-        {
-            //has one of the agents won
-            boolean hasWin = false;
-            
-            for (Agent agent : agents)
-            {
-                if (agent.hasWin())
-                {
-                    hasWin = true;
-                    break;
-                }
-            }
-            
-            //if agent won set others to lose as well as human
-            if (hasWin)
-            {
-                for (Agent agent : agents)
-                {
-                    if (!agent.hasWin())
-                    {
-                        agent.setLose();
-                    }
-                }
-
-                human.setLose();
-            }
-            else
-            {
-                //if human won
-                if (human.hasWin())
-                {
-                    //set every agent to lose
-                    for (Agent agent : agents)
-                    {
-                        agent.setLose();
-                    }
-                }
-
-                //if human lost
-                if (human.hasLose())
-                {
-                    //set every agent to win
-                    for (Agent agent : agents)
-                    {
-                        //set any agent that hasn't lost to win
-                        if (!agent.hasLose())
-                            agent.setWin();
-                    }
-                }
-                
-                boolean hasLose = true;
-                
-                //if all opponents lost declare human the winner
-                for (Agent agent : agents)
-                {
-                    if (!agent.hasLose())
-                    {
-                        hasLose = false;
-                        break;
-                    }
-                }
-                
-                //all opponents lost so human has won
-                if (hasLose)
-                {
-                    human.setWin();
-                }
-            }
-        }
-    }
-    
-    /**
-     * Draw all of our application elements
+     * Draw what every player showed after the last update, this can be called from another thread
      * @param graphics Graphics object used for drawing
      */
     public void render(final Graphics graphics)
     {
-        if (human != null)
+        for (PlayerSnapshot snapshot : snapshots.get())
         {
             //draw the player's screen
-            human.render(graphics);
-        }
-        
-        if (agents != null)
-        {
-            for (Agent agent : agents)
-            {
-                //draw the AI's screen
-                agent.render(graphics);
-            }
+            snapshot.render(graphics);
         }
     }
 }
\ No newline at end of file
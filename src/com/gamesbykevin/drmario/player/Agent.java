@@ -1,20 +1,28 @@
 package com.gamesbykevin.drmario.player;
 
 import com.gamesbykevin.framework.base.Cell;
-import com.gamesbykevin.framework.util.Timer;
-import com.gamesbykevin.framework.util.TimerCollection;
 
-import com.gamesbykevin.drmario.block.Block;
-import com.gamesbykevin.drmario.block.Pill.Rotation;
-import com.gamesbykevin.drmario.block.Virus;
-import com.gamesbykevin.drmario.board.Board;
+import com.gamesbykevin.drmario.ai.AsyncPlanner;
+import com.gamesbykevin.drmario.ai.Evaluator;
+import com.gamesbykevin.drmario.ai.IAgentStrategy;
+import com.gamesbykevin.drmario.ai.MoveGenerator;
+import com.gamesbykevin.drmario.ai.PathFollower;
+import com.gamesbykevin.drmario.ai.StrategyRegistry;
+import com.gamesbykevin.drmario.ai.TranspositionTable;
+import com.gamesbykevin.drmario.ai.Weights;
+import com.gamesbykevin.drmario.block.Block.Type;
 import com.gamesbykevin.drmario.engine.Engine;
 import com.gamesbykevin.drmario.player.PlayerInformation.SpeedKey;
-import com.gamesbykevin.drmario.resource.*;
 import com.gamesbykevin.drmario.shared.IElement;
+import com.gamesbykevin.drmario.shared.Shared;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
 import java.awt.Rectangle;
-
-import java.util.List;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * The AI Agent we are competing against
@@ -22,412 +30,346 @@ import java.util.List;
  */
 public final class Agent extends Player implements IElement
 {
-    //score to add for every virus kill, highest priority
-    private static final int SCORE_VIRUS_KILL = 150;
+    //the ticks waited since the Agent last moved
+    private int movementWait = 0;
     
-    //score to add for every pill kill
-    private static final int SCORE_PILL_KILL = 25;
+    //the ticks between each move
+    private int movementTicks;
     
-    //score to add when adding pill on top of matching virus
-    private static final int SCORE_VIRUS_MATCH = 50;
+    //movement delay for the differet speed(s)
+    private static final int SPEED_LOW = GameState.toTicks(750L);
+    private static final int SPEED_MED = GameState.toTicks(250L);
+    private static final int SPEED_HI  = GameState.toTicks(165L);
     
-    //score to add when adding pill on top of matching pill
-    private static final int SCORE_BLOCK_MATCH = 25;
+    //searches for the best place for the current Pill on another thread
+    private final AsyncPlanner planner;
     
-    //score to deduct when placing pill on top of non-matching virus
-    private static final int SCORE_VIRUS_NO_MATCH = -50;
+    //the threads every Agent shares to plan, so the planning cost stays the same no matter how many Agents there are
+    private static final int PLANNING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
     
-    //score to deduct when placing pill on top of non-matching pill
-    private static final int SCORE_BLOCK_NO_MATCH = -25;
+    //every Agent scores its candidates on the same pool
+    private static final ForkJoinPool POOL = new ForkJoinPool(PLANNING_THREADS);
     
-    //if the block matches and in the same column there is a virus, we need this so the agent will work towards mining down to get to the virus
-    private static final int SCORE_BLOCK_MATCH_VIRUS_COLUMN = 45;
+    //every Agent runs its search on the same threads, a plan waiting for a thread has less time to plan, the threads won't keep the game running
+    private static final ExecutorService SEARCHES = Executors.newFixedThreadPool(PLANNING_THREADS, new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(final Runnable runnable)
+        {
+            final Thread thread = new Thread(runnable, "Agent search");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     
-    //if the block does not match and same has a virus, we need this so the agent will avoid these locations
-    private static final int SCORE_BLOCK_NO_MATCH_VIRUS_COLUMN = -25;
+    //the weights created by the tuner, if the file is found they are used instead of the defaults
+    private static final String WEIGHTS_FILE = "weights.properties";
     
-    //the penalty for each row
-    private static final int SCORE_HEIGHT = -5;
+    //the weights every Agent scores a placement with, loaded once at startup
+    private static final Weights WEIGHTS = loadWeights();
     
-    //we are very close to the top and the block(s) don't match
-    private static final int SCORE_DANGER_ZONE_NO_MATCH = -350;
+    //scores the placements still reachable once the goal can't be reached
+    private static final Evaluator EVALUATOR = new Evaluator(WEIGHTS);
     
-    //the Timer that determines when the Agent can move
-    private Timer movementTimer;
+    //the share of the movement delay the Agent can plan for, the plan is done before the first move
+    private static final double PLANNING_SHARE = 0.5;
     
-    //movement delay for the differet speed(s)
-    private static final long SPEED_LOW = TimerCollection.toNanoSeconds(750L);
-    private static final long SPEED_MED = TimerCollection.toNanoSeconds(250L);
-    private static final long SPEED_HI  = TimerCollection.toNanoSeconds(165L);
+    //the time allowed to plan each Pill in nanoseconds, 0 to use a share of the movement delay
+    private long planningBudget = 0;
+    
+    //finds the inputs that move the Pill to the goal
+    private final MoveGenerator moves = new MoveGenerator();
+    
+    //the row of the Pill and the moves we had in that row
+    private int inputRow = -1;
+    private int inputsUsed = 0;
+    
+    //the inputs the plan found from the start to the goal
+    private final int[] inputs = new int[MoveGenerator.PATH_LIMIT];
+    
+    //follows the inputs the plan found
+    private final PathFollower path = new PathFollower();
+    
+    //the Type of each half of the current and next Pill
+    private final Type[] types = new Type[4];
     
     public Agent(final Rectangle renderLocation)
+    {
+        this(renderLocation, StrategyRegistry.DEFAULT);
+    }
+    
+    /**
+     * Create an Agent using a registered strategy
+     * @param renderLocation Where the Agent will be drawn
+     * @param strategy The name of the strategy
+     */
+    public Agent(final Rectangle renderLocation, final String strategy)
+    {
+        this(renderLocation, StrategyRegistry.create(strategy, POOL, WEIGHTS));
+    }
+    
+    /**
+     * Create an Agent with a custom strategy
+     * @param renderLocation Where the Agent will be drawn
+     * @param strategy Decides where each Pill goes, it should not be used anywhere else
+     */
+    public Agent(final Rectangle renderLocation, final IAgentStrategy strategy)
     {
         super(renderLocation);
         
+        this.planner = new AsyncPlanner(strategy, SEARCHES);
+        
         //we are not human
         super.setHuman(false);
     }
     
+    /**
+     * Load the weights from the file if it exists, otherwise the defaults are used
+     * @return Weights
+     */
+    private static Weights loadWeights()
+    {
+        final File file = new File(WEIGHTS_FILE);
+        
+        if (!file.isFile())
+            return Weights.DEFAULT;
+        
+        try
+        {
+            return Weights.load(file);
+        }
+        catch(Exception e)
+        {
+            e.printStackTrace();
+            
+            return Weights.DEFAULT;
+        }
+    }
+    
+    /**
+     * Set the time allowed to plan each Pill, the plan looks further ahead until it runs out of time
+     * @param planningBudget The time in nanoseconds, 0 to use a share of the delay between each move
+     */
+    public void setPlanningBudget(final long planningBudget)
+    {
+        this.planningBudget = planningBudget;
+        
+        updateBudget();
+    }
+    
+    /**
+     * Set the time the planner has for each Pill from the budget chosen or the movement delay
+     */
+    private void updateBudget()
+    {
+        if (planningBudget > 0)
+            planner.setBudget(planningBudget);
+        else
+            planner.setBudget((long)(movementTicks * (1000000000L / Shared.DEFAULT_UPS) * PLANNING_SHARE));
+    }
+    
+    /**
+     * Free up resources, any search still running is cancelled
+     */
+    @Override
+    public void dispose()
+    {
+        planner.cancel();
+        
+        super.dispose();
+    }
+    
     @Override
     public void setSpeed(final SpeedKey speedKey)
     {
-        //create a new Timer that calculates the delay between each move
+        //set the delay between each move
         switch(speedKey)
         {
             case Low:
-                this.movementTimer = new Timer(SPEED_LOW);
+                this.movementTicks = SPEED_LOW;
                 break;
                 
             case Medium:
-                this.movementTimer = new Timer(SPEED_MED);
+                this.movementTicks = SPEED_MED;
                 break;
                 
             case High:
-                this.movementTimer = new Timer(SPEED_HI);
+                this.movementTicks = SPEED_HI;
                 break;
         }
         
         //set speed for display purposes
         super.setSpeed(speedKey);
+        
+        //only choose goals we can move to before gravity drops the Pill
+        final int inputsPerRow = Math.max(1, getGravityTicks() / movementTicks);
+        
+        planner.setInputsPerRow(inputsPerRow);
+        moves.setInputsPerRow(inputsPerRow);
+        
+        //the faster we move the less time we have to plan
+        updateBudget();
     }
     
+    /**
+     * Get the input that will move the Pill towards our goal, if there is no goal one will be found
+     * @param engine
+     * @return int Each bit is an Input
+     */
     @Override
-    public void update(final Engine engine) throws Exception
+    public int getInput(final Engine engine) throws Exception
     {
-        super.update(engine);
+        //if the position changed stop searching
+        checkPlan();
         
-        //if we won or lost no need to check for keyboard input
+        //if we won or lost no need to move
         if (hasWin() || hasLose())
-            return;
+            return Input.NONE;
         
         //if we can't interact with the board due to a virus/pill match or pill drop etc..
         if (!getBoard().canInteract())
-            return;
+            return Input.NONE;
+        
+        //make sure the Pill exists
+        if (getPill() == null)
+            return Input.NONE;
+        
+        //the time spent planning counts towards the delay before the first move
+        movementWait++;
         
         //if the goal is not set we need to find one
         if (getGoal() == null)
         {
-            //make sure the Pill exists so we can calculate the best position
-            if (getPill() != null)
-            {
-                //store the original location
-                final int pillCol = (int)getPill().getCol();
-                final int pillRow = (int)getPill().getRow();
-                
-                //find the best place for the current Pill
-                locateGoal();
-                
-                //reset the rotation
-                getPill().reset();
-
-                //set the pill back to the original location
-                getPill().setCol(pillCol);
-                getPill().setRow(pillRow);
-            }
+            //find the best place for the current Pill
+            locateGoal();
+            
+            inputRow = -1;
+            
+            return Input.NONE;
         }
-        else
+        
+        //wait until it is time to move
+        if (movementWait < movementTicks)
+            return Input.NONE;
+        
+        movementWait = 0;
+        
+        final GameState state = getState();
+        
+        //count the moves we had since the Pill moved down a row
+        if (state.getPillRow() != inputRow)
         {
-            //update our timer
-            movementTimer.update(engine.getMain().getTime());
-            
-            //the goal is set, now we need to move the Pill to the correct Location
-            if (movementTimer.hasTimePassed())
-            {
-                //restart the timer
-                movementTimer.reset();
-                
-                //if we aren't at the final rotation yet
-                if (getPill().getRotation() != getRotation())
-                {
-                    //rotate Pill
-                    getPill().rotate();
-                    
-                    //play sound effect
-                    engine.getResources().playGameAudio(GameAudio.Keys.Rotate, false);
-                }
-                else
-                {
-                    //we are at the correct location so now we need to drop
-                    if (getPill().getCol() == getGoal().getCol())
-                    {
-                        //drop Pill to next row
-                        final boolean result = applyGravity();
-                        
-                        //if block(s) were placed play sound effect
-                        if (result)
-                            engine.getResources().playGameAudio(GameAudio.Keys.Stack, false);
-                    }
-                    else
-                    {
-                        //we are west of our goal so move east
-                        if (getPill().getCol() < getGoal().getCol())
-                        {
-                            //move 1 column to the east
-                            getPill().increaseCol();
-                            
-                            //if there was a collision move our Pill back
-                            if (getBoard().hasCollision(getPill()) && getPill().getRow() > 0)
-                                getPill().decreaseCol();
-                            
-                            //play sound effect
-                            //engine.getResources().getGameAudio(GameAudio.Move).play();
-                        }
-
-                        //we are east of our goal so move west
-                        if (getPill().getCol() > getGoal().getCol())
-                        {
-                            //move 1 column to the west
-                            getPill().decreaseCol();
-                            
-                            //if there was a collision move our Pill back
-                            if (getBoard().hasCollision(getPill()) && getPill().getRow() > 0)
-                                getPill().increaseCol();
-                            
-                            //play sound effect
-                            //engine.getResources().getGameAudio(GameAudio.Move).play();
-                        }
-                    }
-                }
-            }
+            inputRow = state.getPillRow();
+            inputsUsed = 0;
         }
         
-        //set the correct x,y Location for the current Pill
-        updateLocation();
-    }
-    
-    private void locateGoal() throws Exception
-    {
-        //start score
-        int score = -100000;
+        //follow the path to the goal, once it only has to fall we drop
+        int input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
         
-        //check every column
-        for (int col=0; col < getBoard().getCols(); col++)
+        //the Pill left the path, so search for the shortest path from where it is
+        if (input < 0)
         {
-            //get the first block found in the current column so we know where to place the Pill
-            final Block block = getBoard().getBlockBelow(col);
+            final MoveGenerator.Moves reachable = moves.generate(state.getBoard().getBoard(), state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputsUsed);
             
-            //check every rotation at the current position
-            for (Rotation rotation : Rotation.values())
-            {
-                //set the current rotation
-                getPill().setRotation(rotation);
+            path.setPath(state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputs, reachable.getPath((int)getGoal().getCol(), (int)getGoal().getRow(), getRotation(), inputs));
             
-                //set the appropriate column now that the rotation has taken place
-                getPill().setCol(col);
-                
-                //we also need to get the block below the Pill Extra
-                final Block extraBlock = getBoard().getBlockBelow(getPill().getExtra().getCol());
-                
-                //we need to find the appropriate place height
-                if (block != null && extraBlock != null)
-                {
-                    if (block.getRow() < extraBlock.getRow())
-                    {
-                        getPill().setRow(block.getRow());
-                    }
-                    else
-                    {
-                        getPill().setRow(extraBlock.getRow());
-                    }
-                    
-                    getPill().decreaseRow();
-                }
-                else
-                {
-                    if (block == null && extraBlock == null)
-                    {
-                        //there were no blocks below so place the piece on the floor
-                        getPill().setRow(getBoard().getRows() - 1);
-                    }
-                    else
-                    {
-                        if (block != null)
-                            getPill().setRow(block.getRow());
-                        
-                        if (extraBlock != null)
-                            getPill().setRow(extraBlock.getRow());
-                        
-                        getPill().decreaseRow();
-                    }
-                }
-                
-                //move up 1 more row if facing south
-                if (rotation == Rotation.South)
-                    getPill().decreaseRow();
+            input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+            
+            //the goal can no longer be reached, so go to the best placement that still can be
+            if (input < 0)
+            {
+                final int best = path.setBestPath(reachable, state.getBoard().getBoard(), EVALUATOR, state.getPillType(), state.getPillExtraType(), state.getPillCol(), state.getPillRow(), state.getPillRotation());
                 
-                //if there's a collision this is an invalid location
-                if (getBoard().hasCollision(getPill()))
-                    continue;
+                //there is nowhere left to go so leave the Pill to gravity
+                if (best < 0)
+                    return Input.NONE;
                 
-                //calculate the score for this position
-                final int tmpScore = calculateScore(block, extraBlock);
+                super.setGoals(new Cell(reachable.getCol(best), reachable.getRow(best)), reachable.getRotation(best));
                 
-                //if the current score matches or beats the saved score set the new goal
-                if (tmpScore > score)
-                {
-                    //set the location goal and rotation
-                    super.setGoals(new Cell(getPill().getCol(), getPill().getRow()), getPill().getRotation());
-
-                    //set this score as the one to beat
-                    score = tmpScore;
-                }
+                input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
             }
         }
+        
+        inputsUsed++;
+        
+        return input;
     }
     
-    private int calculateScore(final Block block, final Block extraBlock) throws Exception
+    /**
+     * Get the key of the current position, the board and the colors of the current and next Pill
+     * @return long
+     */
+    private long getKey()
     {
-        //current score we are calculating
-        int tmpScore = 0;
-
-        //place the Pill on the board so we can check for matches etc...
-        getBoard().addPill(getPill());
-
-        //get the list of blocks that matched so we can count the number of viruses destroyed
-        List<Block> deadBlocks = getBoard().getMatches();
-
-        //number of viruses destroyed
-        int countVirus = 0;
-        
-        //number of pills destroyed
-        int countPill = 0;
-        
-        //if there are dead Block(s) count how many to determine the score added
-        if (deadBlocks.size() > 0)
-        {
-            for (Block tmp : deadBlocks)
-            {
-                //increase the count(s) accordingly
-                if (Virus.isVirus(tmp.getType()))
-                {
-                    countVirus++;
-                }
-                else
-                {
-                    countPill++;
-                }
-            }
-
-            //add up our score
-            tmpScore += (countVirus * SCORE_VIRUS_KILL);
-            tmpScore += (countPill  * SCORE_PILL_KILL);
-        }
-        
-        //calculate the score for the Pill Block
-        tmpScore += scoreBlock(getPill(), block);
-        
-        //calculate the score for the Pill extra Block
-        tmpScore += scoreBlock(getPill().getExtra(), extraBlock);
+        final Type nextType = (getNext() == null) ? null : getNext().getType();
+        final Type nextExtraType = (getNext() == null) ? null : getNext().getExtra().getType();
         
-        //remove the pill we placed on the getBoard()
-        getBoard().removeBlock(getPill());
-        
-        //return the score calculated
-        return tmpScore;
+        return TranspositionTable.getKey(getBoard().getHash(), getPill().getType(), getPill().getExtra().getType(), nextType, nextExtraType);
     }
     
     /**
-     * Get the score for the specific Pill block and the specified block below
-     * @param blockPill The Block we are checking
-     * @param blockBelow The Block we are placing our blockPill on top of
-     * @return int the score sum
+     * Cancel the plan if the position changed since it was submitted
      */
-    private int scoreBlock(final Block blockPill, final Block blockBelow)
+    private void checkPlan()
     {
-        int tmpScore = 0;
+        if (!planner.isRunning())
+            return;
         
-        if (blockBelow == null)
-            return tmpScore;
+        //the Pill was placed, or a penalty or match is changing the board
+        if (getPill() == null || !getBoard().canInteract() || getKey() != planner.getKey())
+            planner.cancel();
+    }
+    
+    /**
+     * Find the best place for the current Pill, the search is started on another thread and the goal is set once it is done.<br><br>
+     * The planner remembers the score of every placement it has seen, so a position seen before is planned again quickly
+     * and the search can go deeper with the time it has.
+     */
+    private void locateGoal()
+    {
+        final long key = getKey();
         
-        //does the same column as the Pill contain a virus
-        final boolean hasVirus = (getVirus(blockPill.getCol()) != null);
-
-        //does the extra Block match the block below
-        if (blockPill.hasMatch(blockBelow.getType()))
-        {
-            //more points if Block is a virus because we want to destroy the virus
-            if (Virus.isVirus(blockBelow))
-            {
-                tmpScore += SCORE_VIRUS_MATCH;
-            }
-            else
-            {
-                //but still some points if the Block matches
-                tmpScore += SCORE_BLOCK_MATCH;
-            }
-
-            //if Block matches and the column contains a virus, this is good because we are trying to get to the virus
-            if (hasVirus)
-            {
-                tmpScore += SCORE_BLOCK_MATCH_VIRUS_COLUMN;
-            }
-            
-            //block isn't directly below so a gap is created
-            if (blockPill.getRow() + 1 != blockBelow.getRow())
-            {
-                //are we also in the danger zone
-                if (blockPill.getRow() < Board.MATCH_MINIMUM)
-                {
-                    //add additional height penalty
-                    tmpScore += ((getBoard().getRows() - blockPill.getRow()) * SCORE_HEIGHT);
-                }
-            }
-        }
-        else
+        //the search for this position is done
+        if (planner.hasResult(key))
         {
-            //the non-matching block is a virus
-            if (Virus.isVirus(blockBelow))
+            if (planner.hasPlacement())
             {
-                //no match so add penalty
-                tmpScore += SCORE_VIRUS_NO_MATCH;
+                super.setGoals(new Cell(planner.getCol(), planner.getRow()), planner.getRotation());
+                
+                //follow the inputs the plan found
+                path.setPath(inputs, planner.getPath(inputs));
             }
             else
             {
-                //no match so add penalty
-                tmpScore += SCORE_BLOCK_NO_MATCH;
-            }
-
-            //if we aren't matching and column has a virus we penalize even more
-            if (hasVirus)
-            {
-                tmpScore += SCORE_BLOCK_NO_MATCH_VIRUS_COLUMN;
+                path.clear();
             }
             
-            //are we in the danger zone
-            if (blockPill.getRow() < Board.MATCH_MINIMUM)
-            {
-                //add additional penalty
-                tmpScore += SCORE_DANGER_ZONE_NO_MATCH;
-            }
-            
-            //add extra penalty for height since the Block(s) don't match
-            tmpScore += ((getBoard().getRows() - blockPill.getRow()) * SCORE_HEIGHT);
+            return;
         }
         
-        //also penaliza depending on the height based on height
-        tmpScore += ((getBoard().getRows() - blockPill.getRow()) * SCORE_HEIGHT);
-        
-        return tmpScore;
+        //start the search unless the previous search is still stopping
+        if (!planner.isRunning())
+            searchGoal(key);
     }
     
     /**
-     * Check the specified column to determine if a virus exists.
-     * @param col The column we want to start at.
-     * @return Block - The virus found and if none found null will be returned.
+     * Start searching the placements of the current and next Pill for the best place for the current Pill
+     * @param key The key of the current position
      */
-    private Block getVirus(final double col)
+    private void searchGoal(final long key)
     {
-        //start at the top and continue moving south
-        for (int row = 0; row < getBoard().getRows(); row++)
+        types[0] = getPill().getType();
+        types[1] = getPill().getExtra().getType();
+        
+        //the next Pill is known so we can look ahead
+        final int pills = (getNext() == null) ? 1 : 2;
+        
+        if (getNext() != null)
         {
-            final Block block = getBoard().getBlock(col, row);
-            
-            //if the Block exists and is a virus, then there is a virus below
-            if (block != null && Virus.isVirus(block))
-                return block;
+            types[2] = getNext().getType();
+            types[3] = getNext().getExtra().getType();
         }
         
-        //no virus was found so return
-        return null;
+        planner.submit(key, getState().getBoard().getBoard(), types, pills);
     }
 }
\ No newline at end of file
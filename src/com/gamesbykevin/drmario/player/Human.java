@@ -3,9 +3,10 @@ package com.gamesbykevin.drmario.player;
 import com.gamesbykevin.drmario.shared.IElement;
 
 import com.gamesbykevin.drmario.engine.Engine;
-import com.gamesbykevin.drmario.resource.*;
+import com.gamesbykevin.drmario.sim.Input;
 import java.awt.Rectangle;
 
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 
 /**
@@ -14,6 +15,9 @@ import java.awt.event.KeyEvent;
  */
 public final class Human extends Player implements IElement
 {
+    //the key presses not applied yet in the order received
+    private final PendingInput pending = new PendingInput();
+    
     public Human(final Rectangle renderLocation) throws Exception
     {
         super(renderLocation);
@@ -23,113 +27,79 @@ public final class Human extends Player implements IElement
     }
     
     /**
-     * Update the Human Player with the given keyboard input
+     * Get the input from the key presses received used to control the Pill.<br>
+     * Every press is applied once in the order received, a press is held for the next step when this
+     * step would apply it before a press already taken, so presses are never lost or reordered.
      * @param engine 
+     * @return int Each bit is an Input
      */
     @Override
-    public void update(final Engine engine) throws Exception
+    public int getInput(final Engine engine) throws Exception
     {
-        super.update(engine);
-        
-        //if we won or lost no need to check for keyboard input
-        if (hasWin() || hasLose())
-            return;
-        
         //if we can't interact with the board due to a virus/pill match or pill drop etc..
-        if (!getBoard().canInteract())
-            return;
-        
-        //if the Pill does not exist we don't need to worry about keyboard input
-        if (getPill() == null)
-            return;
+        final boolean waiting = !getBoard().canInteract() || !getState().hasPill();
         
-        if (engine.getKeyboard().hasKeyReleased(KeyEvent.VK_DOWN))
+        //add the key presses received since the last step
+        for (int i = 0; i < engine.getInputCount(); i++)
         {
-            //remove key pressed from List
-            engine.getKeyboard().removeKeyPressed(KeyEvent.VK_DOWN);
+            final InputEvent event = engine.getInputEvent(i);
             
-            //remove key released from List
-            engine.getKeyboard().removeKeyReleased(KeyEvent.VK_DOWN);
-        }
-        
-        //if time has passed the blocks need to drop or if the user is forcing the piece to drop
-        if (engine.getKeyboard().hasKeyPressed(KeyEvent.VK_DOWN))
-        {
-            //remove key pressed from List
-            engine.getKeyboard().removeKeyPressed(KeyEvent.VK_DOWN);
-
-            //apply gravity to pill
-            final boolean result = applyGravity();
+            if (event.getID() != KeyEvent.KEY_PRESSED)
+                continue;
             
-            //if block(s) were placed play sound effect
-            if (result)
-                engine.getResources().playGameAudio(GameAudio.Keys.Stack, false);
-        }
-        
-        //the user wants to rotate the pieces
-        if (engine.getKeyboard().hasKeyPressed(KeyEvent.VK_UP))
-        {
-            engine.getKeyboard().removeKeyPressed(KeyEvent.VK_UP);
+            final int input = getInput(((KeyEvent)event).getKeyCode());
+            
+            if (input == Input.NONE)
+                continue;
             
-            //rotate the pill
-            getPill().rotate();
+            //the keys are read from the events so don't leave them in the keyboard
+            engine.getKeyboard().removeKeyPressed(((KeyEvent)event).getKeyCode());
             
-            //check for collision
-            if (getBoard().hasCollision(getPill()))
-            {
-                //reset the location because of collision
-                getPill().rewind();
-            }
-            else
-            {
-                //play sound effect
-                engine.getResources().playGameAudio(GameAudio.Keys.Rotate, false);
-            }
+            pending.add(input, waiting);
         }
         
-        //move piece to the left
-        if (engine.getKeyboard().hasKeyPressed(KeyEvent.VK_LEFT))
+        //if we won or lost no need to check for keyboard input
+        if (hasWin() || hasLose())
         {
-            //move the pill left
-            getPill().decreaseCol();
-
-            //now that the blocked moved check for collision
-            if (getBoard().hasCollision(getPill()))
-            {
-                //move the pill back
-                getPill().increaseCol();
-            }
-            else
-            {
-                //play sound effect
-                //engine.getResources().getGameAudio(Resources.GameAudio.Move).play();
-            }
-            
-            engine.getKeyboard().removeKeyPressed(KeyEvent.VK_LEFT);
+            pending.clear();
+            return Input.NONE;
         }
-
-        //move the piece to the right
-        if (engine.getKeyboard().hasKeyPressed(KeyEvent.VK_RIGHT))
+        
+        //the presses are kept until the Pill can be controlled
+        if (waiting)
+            return Input.NONE;
+        
+        //apply the presses in order until one would be applied out of order
+        return pending.next();
+    }
+    
+    /**
+     * Get the Input for the key
+     * @param keyCode The key pressed
+     * @return int The Input, NONE if the key doesn't control the Pill
+     */
+    private static int getInput(final int keyCode)
+    {
+        switch (keyCode)
         {
-            //move the blocks right
-            getPill().increaseCol();
-
-            //now that the blocked moved check for collision
-            if (getBoard().hasCollision(getPill()))
-            {
-                //move the blocks back;
-                getPill().decreaseCol();
-            }
-            else
-            {
-                //play sound effect
-                //engine.getResources().getGameAudio(Resources.GameAudio.Move).play();
-            }
-            
-            engine.getKeyboard().removeKeyPressed(KeyEvent.VK_RIGHT);
+            //the user is forcing the piece to drop
+            case KeyEvent.VK_DOWN:
+                return Input.DOWN;
+                
+            //the user wants to rotate the pieces
+            case KeyEvent.VK_UP:
+                return Input.ROTATE;
+                
+            //move piece to the left
+            case KeyEvent.VK_LEFT:
+                return Input.LEFT;
+                
+            //move the piece to the right
+            case KeyEvent.VK_RIGHT:
+                return Input.RIGHT;
+                
+            default:
+                return Input.NONE;
         }
-        
-        //set the correct x,y Location for the current Pill
-        updateLocation();
     }
 }
\ No newline at end of file
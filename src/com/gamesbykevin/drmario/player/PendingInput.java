@@ -0,0 +1,118 @@
+package com.gamesbykevin.drmario.player;
+
+import com.gamesbykevin.drmario.sim.Input;
+
+/**
+ * The key presses of the Human waiting to be applied to the Pill in the order received.<br><br>
+ * Every press is applied once. A step applies DOWN, ROTATE, LEFT then RIGHT, so a press is held for the next step
+ * when the step would apply it before a press already taken, or when the same input was already taken.
+ * This way presses are never lost and never applied out of order.
+ * @author GOD
+ */
+final class PendingInput
+{
+    //the most key presses waiting to be applied
+    static final int CAPACITY = 16;
+    
+    //the key presses not applied yet in the order received, each is an Input
+    private final int[] pending = new int[CAPACITY];
+    private int start = 0;
+    private int count = 0;
+    
+    /**
+     * Add a key press to be applied, it is dropped if too many are waiting
+     * @param input The Input
+     * @param waiting Can the Pill not be controlled yet, while waiting a held key only counts once
+     */
+    void add(final int input, final boolean waiting)
+    {
+        //the same as when the keyboard was polled
+        if (waiting && contains(input))
+            return;
+        
+        if (count == CAPACITY)
+            return;
+        
+        pending[(start + count) % CAPACITY] = input;
+        count++;
+    }
+    
+    /**
+     * Take the presses for the next step, in order until the step would apply one out of order
+     * @return int Each bit is an Input
+     */
+    int next()
+    {
+        int input = Input.NONE;
+        
+        //the inputs the step applies after every press taken so far
+        int later = Input.DOWN | Input.ROTATE | Input.LEFT | Input.RIGHT;
+        
+        while (count > 0 && (later & pending[start]) != 0)
+        {
+            input |= pending[start];
+            later &= getLater(pending[start]);
+            
+            start = (start + 1) % CAPACITY;
+            count--;
+        }
+        
+        return input;
+    }
+    
+    /**
+     * Get the inputs a step applies after the input, a step applies DOWN, ROTATE, LEFT then RIGHT
+     * @param input The Input
+     * @return int Each bit is an Input
+     */
+    private static int getLater(final int input)
+    {
+        switch (input)
+        {
+            case Input.DOWN:
+                return Input.ROTATE | Input.LEFT | Input.RIGHT;
+                
+            case Input.ROTATE:
+                return Input.LEFT | Input.RIGHT;
+                
+            case Input.LEFT:
+                return Input.RIGHT;
+                
+            default:
+                return Input.NONE;
+        }
+    }
+    
+    /**
+     * Forget every press waiting
+     */
+    void clear()
+    {
+        count = 0;
+    }
+    
+    /**
+     * Get the number of presses waiting
+     * @return int
+     */
+    int getCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Is the Input waiting to be applied
+     * @param input The Input
+     * @return boolean
+     */
+    private boolean contains(final int input)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (pending[(start + i) % CAPACITY] == input)
+                return true;
+        }
+        
+        return false;
+    }
+}
\ No newline at end of file
@@ -5,45 +5,43 @@ import com.gamesbykevin.drmario.block.Block.Type;
 import com.gamesbykevin.drmario.block.Pill;
 import com.gamesbykevin.drmario.block.Pill.Rotation;
 import com.gamesbykevin.drmario.board.Board;
+import com.gamesbykevin.drmario.board.Board.Representation;
 import com.gamesbykevin.drmario.engine.Engine;
 import com.gamesbykevin.drmario.resource.*;
+import com.gamesbykevin.drmario.shared.DrawList;
 import com.gamesbykevin.drmario.shared.IElement;
+import com.gamesbykevin.drmario.shared.Shared;
+import com.gamesbykevin.drmario.sim.Event;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
 
 import com.gamesbykevin.framework.base.Cell;
-import com.gamesbykevin.framework.util.Timer;
-import com.gamesbykevin.framework.util.TimerCollection;
 
 import java.awt.Graphics;
-import java.awt.image.BufferedImage;
 import java.awt.Rectangle;
 import java.util.Random;
 
 /**
- * Each player will have a game board and Pill
+ * Each player will have a game board and Pill.<br><br>
+ * The rules are kept in the GameState, the player displays the game and plays the sound effects.
  * @author GOD
  */
 public class Player extends PlayerInformation implements IElement
 {
+    //the rules of the game for this player
+    private GameState state;
+    
     //the board where the game play will occur
     private Board board;
     
     //pill piece
     private Pill pill, next;
     
-    //the start location for the Pill
-    protected static final Cell START = new Cell(3, 0);
-    
-    //other starting location for the pill
-    protected static final Cell START1 = new Cell(4, 0);
+    //the number of the Pill we are displaying
+    private int pills = 0;
     
-    //our timer object to determine when the pieces should drop
-    private Timer gravityTimer, gameTimer;
-    
-    //has the player lost
-    private boolean lose = false;
-    
-    //has the player won
-    private boolean win = false;
+    //the start location for the Pill
+    protected static final Cell START = new Cell(GameState.START_COL, GameState.START_ROW);
     
     //the final location of the Pill
     private Cell goal;
@@ -57,28 +55,35 @@ public class Player extends PlayerInformation implements IElement
     //random number generator
     private final Random random;
     
-    //time delay for the differet speed(s)
-    private static final long SPEED_LOW = TimerCollection.toNanoSeconds(1500L);
-    private static final long SPEED_MED = TimerCollection.toNanoSeconds(500L);
-    private static final long SPEED_HI = TimerCollection.toNanoSeconds(250L);
+    //the ticks between each time gravity is applied for the different speed(s)
+    private static final int SPEED_LOW = GameState.toTicks(1500L);
+    private static final int SPEED_MED = GameState.toTicks(500L);
+    private static final int SPEED_HI = GameState.toTicks(250L);
     
-    //we will write all player objects etc... to this single image
-    private BufferedImage playerImage;
+    //the ticks between each time gravity is applied
+    private int gravityTicks = SPEED_MED;
     
-    //where the buffered image will be drawn and the dimensions as well
-    private final Rectangle renderLocation;
+    //the ticks until the game is lost, 0 if there is no limit
+    private int timeLimit = 0;
+    
+    //everything the player shows is recorded here so it can be drawn on another thread
+    private final DrawList drawList = new DrawList();
+    
+    //the last snapshot created on the game thread, null until the first is created
+    private volatile PlayerSnapshot snapshot;
     
-    //if we have destroyed a virus kill will be true
-    private boolean kill = false;
+    //where the player will be drawn and the dimensions as well
+    private final Rectangle renderLocation;
     
     //the players overall score;
     private int score;
     
+    //the count of every Type of Block on the board, indexed by the Type ordinal
+    private final int[] counts = new int[Type.values().length];
+    
     /**
-     * Create a new timer with the specified delay that will determine the duration
-     * between Pill drops.
-     * @param container the overall dimensions of this game
-     * @param delay The time delay in milliseconds
+     * Create a new player
+     * @param renderLocation Where the player will be drawn
      */
     public Player(final Rectangle renderLocation)
     {
@@ -90,25 +95,37 @@ public class Player extends PlayerInformation implements IElement
         //set a random background
         super.setBackground(random);
         
-        //create our buffered image object
-        playerImage = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-        
-        //the location/dimension(s) of the buffered image
+        //the location/dimension(s) the player is drawn at
         this.renderLocation = renderLocation;
     }
     
     /**
-     * Create game timer, if we are counting down the time
-     * @param time The time to countdown
+     * Set the time limit for the next board, if we are counting down the time
+     * @param ticks The ticks to countdown, 0 if there is no limit
      */
-    public void createTimer(final long time)
+    public void createTimer(final int ticks)
     {
-        this.gameTimer = new Timer(time);
+        this.timeLimit = ticks;
     }
     
+    /**
+     * Create a new game with a new board
+     * @param virusCount The total number of viruses
+     */
     public void createBoard(final int virusCount)
     {
-        board = new Board(virusCount, SEED);
+        if (board != null)
+            board.dispose();
+        
+        state = new GameState(virusCount, random.nextLong(), gravityTicks, timeLimit);
+        //the board is drawn from the packed cells, an Agent's Sprite(s) are only created when a Block is asked for
+        board = new Board(state.getBoard(), (isHuman()) ? Representation.Objects : Representation.Packed);
+        
+        //nothing is displayed for the new game yet
+        pill = null;
+        next = null;
+        pills = 0;
+        resetGoal();
         
         //set the location/dimension
         super.setBoardLocation(board, (int)getWidth());
@@ -117,6 +134,15 @@ public class Player extends PlayerInformation implements IElement
         super.setVirusCount(virusCount);
     }
     
+    /**
+     * Get the rules of the game for this player
+     * @return GameState
+     */
+    public GameState getState()
+    {
+        return this.state;
+    }
+    
     public Board getBoard()
     {
         return this.board;
@@ -140,39 +166,63 @@ public class Player extends PlayerInformation implements IElement
         board = null;
         pill = null;
         next = null;
-        
-        gravityTimer = null;
+        state = null;
     
         goal = null;
     
         rotation = null;
     }
     
+    /**
+     * Get the input used to control the Pill for the next step of the game
+     * @param engine
+     * @return int Each bit is an Input
+     */
+    public int getInput(final Engine engine) throws Exception
+    {
+        return Input.NONE;
+    }
+    
+    /**
+     * Display the game once the step has been made and play the sound effects for the events
+     * @param engine
+     * @throws Exception 
+     */
     @Override
     public void update(final Engine engine) throws Exception
     {
         super.update(engine);
         
+        //the events from the last step
+        final int events = state.getEvents();
+        
+        if (Event.Match.isSet(events))
+            engine.getResources().playGameAudio(GameAudio.Keys.Match, false);
+        if (Event.Chain.isSet(events))
+            engine.getResources().playGameAudio(GameAudio.Keys.Chain, false);
+        if (Event.Stack.isSet(events))
+            engine.getResources().playGameAudio(GameAudio.Keys.Stack, false);
+        if (Event.Rotate.isSet(events))
+            engine.getResources().playGameAudio(GameAudio.Keys.Rotate, false);
+        
+        if (Event.Win.isSet(events))
+            super.setWin();
+        
+        if (Event.Lose.isSet(events))
+        {
+            super.setLose();
+            super.setDisplayGameOver();
+        }
+        
         //if the player has lost or won no more updates are required
         if (hasLose() || hasWin())
             return;
         
-        //update Timer as long as game hasn't ended
-        updateTimer(engine.getMain().getTime());
-        
-        //are there dead blocks on the board
-        boolean hasDead = getBoard().hasDead();
+        updateTimer();
         
-        //check for matches on board etc...
+        //display the Block(s) on the board
         getBoard().update(engine);
         
-        //if there were no dead blocks before update and now there is and there are viruses among the dead
-        if (!hasDead && getBoard().hasDead() && getBoard().getDeadVirusCount() > 0)
-        {
-            //set flag that we have killed a virus
-            kill = true;
-        }
-        
         //check here if any viruses hurt so can change the display virus in PlayerInformation
         if (getBoard().hasDeadType(Type.BlueVirus))
             super.setBlueHurt();
@@ -181,72 +231,29 @@ public class Player extends PlayerInformation implements IElement
         if (getBoard().hasDeadType(Type.YellowVirus))
             super.setYellowHurt();
         
+        //get the count of every Type of Block once
+        getBoard().getCounts(counts);
+        
         //check here if any viruses should be displayed at all in PlayerInformation
-        super.setRedDisplay((getBoard().getCount(Type.RedVirus) > 0));
-        super.setBlueDisplay((getBoard().getCount(Type.BlueVirus) > 0));
-        super.setYellowDisplay((getBoard().getCount(Type.YellowVirus) > 0));
+        super.setRedDisplay((counts[Type.RedVirus.ordinal()] > 0));
+        super.setBlueDisplay((counts[Type.BlueVirus.ordinal()] > 0));
+        super.setYellowDisplay((counts[Type.YellowVirus.ordinal()] > 0));
+        
+        //display the current and next Pill
+        updatePill();
+        
+        //set the correct x,y Location for the current Pill
+        updateLocation();
         
         //if we can't interact with the board due to a virus/pill match or pill drop etc..
         if (!getBoard().canInteract())
             return;
         
         //set the correct virus count
-        super.setVirusCount(getBoard().getVirusCount());
+        super.setVirusCount(counts[Type.RedVirus.ordinal()] + counts[Type.BlueVirus.ordinal()] + counts[Type.YellowVirus.ordinal()]);
         
         //set the score to the player total score + the current board score
         super.setScore(getScore() + getBoard().getScore());
-        
-        //have we removed all of the viruses
-        if (getBoard().getVirusCount() <= 0)
-        {
-            setWin();
-            return;
-        }
-        
-        //if our pill has not been created yet 
-        if (getPill() == null)
-        {
-            //make sure penalty wasn't applied before creating a new pill
-            if (!getBoard().applyPenalty())
-            {
-                //take the next Pill and assign as current
-                createPill();
-
-                //create a new Pill for the future
-                createNextPill();
-
-                //reset pill throw animation
-                resetPillThrow();
-                
-                //reset the timer
-                getTimer().reset();
-            }
-            else
-            {
-                //penalty has been applied
-            }
-        }
-        
-        //update timer
-        getTimer().update(engine.getMain().getTime());
-        
-        //has time passed
-        if (getTimer().hasTimePassed())
-        {
-            //if the entrance is blocked or in timed mode and time ran out
-            if (hasEntranceBlocked() || hasTimePassed())
-            {
-                setLose();
-                return;
-            }
-            
-            //apply gravity to the Pill and check the Board for collision
-            final boolean result = applyGravity();
-            
-            //if block(s) were placed play sound effect
-            if (result)
-                engine.getResources().playGameAudio(GameAudio.Keys.Stack, false);
-        }
     }
     
     public int getScore()
@@ -261,108 +268,79 @@ public class Player extends PlayerInformation implements IElement
     }
     
     /**
-     * Did the player kill a virus
-     * @return boolean
+     * Display the time remaining if we are counting down, otherwise the time passed
      */
-    public boolean hasKill()
+    private void updateTimer()
     {
-        return this.kill;
+        final int ticks = (state.getTimeLimit() != 0) ? Math.max(state.getTimeLimit() - state.getTicks(), 0) : state.getTicks();
+        
+        final int seconds = ticks / Shared.DEFAULT_UPS;
+        
+        super.setTimeDesc(String.format("%02d:%02d", seconds / 60, seconds % 60));
     }
     
     /**
-     * Add penalty to player if they don't have a kill
+     * Make sure the current and next Pill match the game, a new Pill will reset the goal
      */
-    public void penalize()
+    private void updatePill()
     {
-        //if this player does not have a kill they will be penalized
-        if (!kill)
+        //a new Pill has been created so the next Pill is now the current
+        if (state.getPills() != pills)
         {
-            getBoard().penalize();
+            pills = state.getPills();
+            
+            pill = createPill(state.getPillType(), state.getPillExtraType());
+            next = null;
+            
+            //reset pill throw animation
+            resetPillThrow();
+            
+            //the goal was for the previous Pill
+            resetGoal();
         }
-        else
+        
+        //the Pill has been placed
+        if (!state.hasPill() && pill != null)
         {
-            //since we have a kill we won't be penalized, but also set kill = false
-            kill = false;
+            pill = null;
+            resetGoal();
+        }
+        
+        if (next == null)
+            next = createPill(state.getNextType(), state.getNextExtraType());
+        
+        if (pill != null)
+        {
+            pill.setRotation(state.getPillRotation());
+            pill.setCol(state.getPillCol());
+            pill.setRow(state.getPillRow());
         }
-    }
-    
-    @Override
-    public void setLose()
-    {
-        this.lose = true;
-        super.setLose();
-        super.setDisplayGameOver();
-    }
-    
-    @Override
-    public void setWin()
-    {
-        this.win = true;
-        super.setWin();
     }
     
     /**
-     * Are the two Cells where the pill starts already occupied in the Board
-     * @return boolean
+     * Create the Sprite for a Pill
+     * @param type The Type of the Pill
+     * @param extraType The Type of the extra Block
+     * @return Pill
      */
-    private boolean hasEntranceBlocked()
+    private Pill createPill(final Type type, final Type extraType)
     {
-        //iif pills are dropping we can't check yet
-        if (getBoard().hasDrop())
-            return false;
+        final Pill tmp = new Pill();
         
-        //if the entrance is blocked and the block below is occupied
-        if (getBoard().getBlock(START) != null && getBoard().getBlock(START.getCol(), START.getRow() + 1) != null)
-            return true;
+        tmp.setType(type);
+        tmp.getExtra().setType(extraType);
         
-        //if the entrance is blocked and the block below is occupied
-        if (getBoard().getBlock(START1) != null && getBoard().getBlock(START1.getCol(), START1.getRow() + 1) != null)
-            return true;
+        //setup animations
+        tmp.setup();
         
-        return false;
-    }
-    
-    /**
-     * If playing timed mode and time has run out
-     * @return boolean
-     */
-    private boolean hasTimePassed()
-    {
-        //if we are counting down and the time has passed
-        if (hasCountdown() && gameTimer.hasTimePassed())
-        {
-            gameTimer.setRemaining(0);
-            return true;
-        }
-        else
-        {
-            return false;
-        }
-    }
-    
-    private void updateTimer(final long time)
-    {
-        //update game timer as long as game hasn't ended
-        gameTimer.update(time);
-
-        //are we counting down
-        if (hasCountdown())
-        {
-            //set the time remaining
-            super.setTimeDesc(gameTimer.getDescRemaining("mm:ss"));
-        }
-        else
-        {
-            //set the time passed
-            super.setTimeDesc(gameTimer.getDescPassed("mm:ss"));
-        }
+        //start location
+        tmp.setStart(START);
+        
+        return tmp;
     }
     
     public void resetStatus()
     {
-        this.lose = false;
-        this.win = false;
-        
         super.resetLose();
         super.resetWin();
         
@@ -372,15 +350,6 @@ public class Player extends PlayerInformation implements IElement
         super.setBackground(random);
     }
     
-    /**
-     * Are we in timed mode
-     * @return 
-     */
-    private boolean hasCountdown()
-    {
-        return (gameTimer.getReset() != 0);
-    }
-    
     /**
      * Let the Artificial Intelligence know what the destination and rotation is
      * @param goal The col/row of where we want the Pill to be placed.
@@ -410,21 +379,30 @@ public class Player extends PlayerInformation implements IElement
         return this.rotation;
     }
     
+    /**
+     * Get the ticks between each time gravity is applied
+     * @return int
+     */
+    protected int getGravityTicks()
+    {
+        return this.gravityTicks;
+    }
+    
     @Override
     public void setSpeed(final SpeedKey speedKey)
     {
         switch(speedKey)
         {
             case Low:
-                this.gravityTimer = new Timer(SPEED_LOW);
+                this.gravityTicks = SPEED_LOW;
                 break;
                 
             case Medium:
-                this.gravityTimer = new Timer(SPEED_MED);
+                this.gravityTicks = SPEED_MED;
                 break;
                 
             case High:
-                this.gravityTimer = new Timer(SPEED_HI);
+                this.gravityTicks = SPEED_HI;
                 break;
         }
         
@@ -432,63 +410,9 @@ public class Player extends PlayerInformation implements IElement
         super.setSpeed(speedKey);
     }
     
-    /**
-     * Apply gravity to the current Pill.
-     * If the Pill hits the bottom or has a collision we will
-     * add the Pill to the board and then remove and reset the goal.
-     * In addition since gravity is applied we reset the gravity timer as well
-     * 
-     * @param board The board we are using to check for collision
-     * @return boolean True if the Pill was placed on the board, false otherwise
-     */
-    protected boolean applyGravity() throws Exception
-    {
-        if (getPill() != null)
-        {
-            //move the pill down 1 row
-            getPill().increaseRow();
-
-            //now that the pill moved check for collision
-            if (getBoard().hasCollision(getPill()))
-            {
-                //move the pill back
-                getPill().decreaseRow();
-
-                if (getPill().getRow() < 0 || getPill().getExtra().getRow() < 0)
-                {
-                    this.lose = true;
-
-                    //pill was not placed
-                    return false;
-                }
-                else
-                {
-                    //place Pill on board
-                    getBoard().addPill(getPill());
-
-                    //now that Pill has been placed remove it
-                    removePill();
-
-                    //reset the goal
-                    resetGoal();
-
-                    //pill was placed
-                    return true;
-                }
-            }
-        }
-        
-        //reset the time until gravity has to be applied again
-        getTimer().reset();
-            
-        //pill was not placed
-        return false;
-    }
-    
     /**
      * Make sure the current Pill has the correct 
      * (x,y) coordinates based on their (column, row) location
-     * @param board The game board that contains the (x, y) start position
      */
     protected void updateLocation()
     {
@@ -501,21 +425,12 @@ public class Player extends PlayerInformation implements IElement
     
     public boolean hasLose()
     {
-        return this.lose;
+        return state.hasLose();
     }
     
     public boolean hasWin()
     {
-        return this.win;
-    }
-    
-    /**
-     * Get the Timer for the player that determines when gravity is applied
-     * @return Timer
-     */
-    private Timer getTimer()
-    {
-        return this.gravityTimer;
+        return state.hasWin();
     }
     
     /**
@@ -538,37 +453,6 @@ public class Player extends PlayerInformation implements IElement
         return this.next;
     }
     
-    public void createNextPill()
-    {
-        this.next = new Pill();
-        
-        //set random type(s)
-        this.next.setRandom(random);
-        
-        //setup animations
-        this.next.setup();
-        
-        //start location
-        this.next.setStart(START);
-    }
-    
-    /**
-     * Take the next Pill and make that the current
-     */
-    public void createPill()
-    {
-        //assign the next Pill to the current
-        this.pill = next;
-    }
-    
-    /**
-     * Remove the current Pill
-     */
-    private void removePill()
-    {
-        this.pill = null;
-    }
-    
     /**
      * Remove the goal set
      */
@@ -578,61 +462,58 @@ public class Player extends PlayerInformation implements IElement
         this.rotation = null;
     }
     
-    public BufferedImage getBufferedImage()
-    {
-        return this.playerImage;
-    }
-    
+    /**
+     * Draw the last snapshot created, this never reads the game so it can be called from any thread
+     * @param graphics Graphics object
+     */
     @Override
     public void render(final Graphics graphics)
     {
-        //create buffered image
-        this.render();
+        final PlayerSnapshot current = snapshot;
         
-        //draw our buffered image
-        graphics.drawImage(playerImage, renderLocation.x, renderLocation.y, renderLocation.width, renderLocation.height, null);
+        //nothing has been recorded yet
+        if (current != null)
+            current.render(graphics);
     }
     
-    public void render()
+    /**
+     * Record everything the player shows right now so it can be drawn on another thread, render draws the last one created.<br>
+     * This has to be called on the game thread since it reads the board, Pill and information.
+     * @param time The time in nanoseconds, used to choose the frame of each virus animation
+     * @return PlayerSnapshot
+     */
+    public PlayerSnapshot createSnapshot(final long time)
     {
-        Graphics bufferedGraphics = playerImage.createGraphics();
+        drawList.reset();
         
         //draw all player info etc...
-        super.render(bufferedGraphics);
+        super.record(drawList);
         
         if (!hasLose() && !hasWin())
         {
             //draw board
-            renderBoard(bufferedGraphics);
+            getBoard().record(drawList, time);
         }
         
         if (!hasWin() && !hasLose())
         {
             //now draw player pill if it exists and we can interact with the board
             if (getPill() != null && getBoard().canInteract())
-                getPill().render(bufferedGraphics, getImage());
+                getPill().record(drawList, time);
 
             //draw next pill in upper right corner
             if (getNext() != null && !hasDisplayPillThrow())
             {
                 getNext().setPosition(getMarioLocation().x - (Block.WIDTH * 2), getMarioLocation().y - Block.HEIGHT);
-                getNext().render(bufferedGraphics, getImage());
-            }
-        }
-    }
-    
-    private void renderBoard(final Graphics graphics)
-    {
-        for (int row=0; row < getBoard().getRows(); row++)
-        {
-            for (int col=0; col < getBoard().getCols(); col++)
-            {
-                //draw the blocks that exist
-                if (getBoard().getBlock(col, row) != null)
-                {
-                    getBoard().getBlock(col, row).render(graphics, getImage());
-                }
+                getNext().record(drawList, time);
             }
         }
+        
+        final PlayerSnapshot created = new PlayerSnapshot(getImage(), renderLocation, drawList.toArray());
+        
+        //kept for render
+        snapshot = created;
+        
+        return created;
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.gamesbykevin.framework.util.TimerCollection;
 
 import com.gamesbykevin.drmario.board.Board;
 import com.gamesbykevin.drmario.engine.Engine;
+import com.gamesbykevin.drmario.shared.DrawList;
 
 import java.awt.*;
 import java.util.HashMap;
@@ -484,6 +485,11 @@ public class PlayerInformation extends Sprite
         human = result;
     }
     
+    public boolean isHuman()
+    {
+        return this.human;
+    }
+    
     public void setSpeed(final SpeedKey speed)
     {
         this.speed = speed;
@@ -555,49 +561,53 @@ public class PlayerInformation extends Sprite
             animations.get(AnimationKey.MarioGameOver).update(engine.getMain().getTime());
     }
     
-    protected void render(final Graphics graphics)
+    /**
+     * Record the information so it can be drawn later
+     * @param list Where the information is recorded
+     */
+    protected void record(final DrawList list)
     {
         switch (background)
         {
             case Background1:
                 //draw background
-                drawImage(graphics, getImage(), BACKGROUND_1, new Point(0,0));
+                list.add(BACKGROUND_1, new Point(0,0));
 
                 //draw pill jar
-                drawImage(graphics, getImage(), PILL_CONTAINER_1, pillContainerDestination);
+                list.add(PILL_CONTAINER_1, pillContainerDestination);
                 break;
                 
             case Background2:
                 //draw background
-                drawImage(graphics, getImage(), BACKGROUND_2, new Point(0,0));
+                list.add(BACKGROUND_2, new Point(0,0));
 
                 //draw pill jar
-                drawImage(graphics, getImage(), PILL_CONTAINER_2, pillContainerDestination);
+                list.add(PILL_CONTAINER_2, pillContainerDestination);
                 break;
                 
             case Background3:
                 //draw background
-                drawImage(graphics, getImage(), BACKGROUND_3, new Point(0,0));
+                list.add(BACKGROUND_3, new Point(0,0));
 
                 //draw pill jar
-                drawImage(graphics, getImage(), PILL_CONTAINER_3, pillContainerDestination);
+                list.add(PILL_CONTAINER_3, pillContainerDestination);
                 break;
         }
         
         //draw magnifying glass
-        drawImage(graphics, getImage(), VIRUS_CONTAINER, magnifyingGlassContainer);
+        list.add(VIRUS_CONTAINER, magnifyingGlassContainer);
         
         if (displayBlueVirus)
         {
             if (displayBlueVirusHurt)
             {
                 //draw blue display virus hurt
-                drawImage(graphics, getImage(), animations.get(AnimationKey.DisplayHurtBlue).getLocation(), displayVirusBlue);
+                list.add(animations.get(AnimationKey.DisplayHurtBlue).getLocation(), displayVirusBlue);
             }
             else
             {
                 //draw blue display virus alive
-                drawImage(graphics, getImage(), animations.get(AnimationKey.DisplayAliveBlue).getLocation(), displayVirusBlue);
+                list.add(animations.get(AnimationKey.DisplayAliveBlue).getLocation(), displayVirusBlue);
             }
         }
         
@@ -606,12 +616,12 @@ public class PlayerInformation extends Sprite
             if (displayRedVirusHurt)
             {
                 //draw red display virus hurt
-                drawImage(graphics, getImage(), animations.get(AnimationKey.DisplayHurtRed).getLocation(), displayVirusRed);
+                list.add(animations.get(AnimationKey.DisplayHurtRed).getLocation(), displayVirusRed);
             }
             else
             {
                 //draw red display virus alive
-                drawImage(graphics, getImage(), animations.get(AnimationKey.DisplayAliveRed).getLocation(), displayVirusRed);
+                list.add(animations.get(AnimationKey.DisplayAliveRed).getLocation(), displayVirusRed);
             }
         }
         
@@ -620,47 +630,47 @@ public class PlayerInformation extends Sprite
             if (displayYellowVirusHurt)
             {
                 //draw yellow display virus hurt
-                drawImage(graphics, getImage(), animations.get(AnimationKey.DisplayHurtYellow).getLocation(), displayVirusYellow);
+                list.add(animations.get(AnimationKey.DisplayHurtYellow).getLocation(), displayVirusYellow);
             }
             else
             {
                 //draw yellow display virus alive
-                drawImage(graphics, getImage(), animations.get(AnimationKey.DisplayAliveYellow).getLocation(), displayVirusYellow);
+                list.add(animations.get(AnimationKey.DisplayAliveYellow).getLocation(), displayVirusYellow);
             }
         }
         
         //draw score and timer, and player status (human, cpu)
-        drawImage(graphics, getImage(), INFORMATION_CONTAINER_1, informationContainer1);
+        list.add(INFORMATION_CONTAINER_1, informationContainer1);
         
         //draw level, speed and virus count
-        drawImage(graphics, getImage(), INFORMATION_CONTAINER_2, informationContainer2);
+        list.add(INFORMATION_CONTAINER_2, informationContainer2);
         
         //draw container mario will be in
-        drawImage(graphics, getImage(), MARIO_CONTAINER, marioContainer);
+        list.add(MARIO_CONTAINER, marioContainer);
         
         //draw logo
-        drawImage(graphics, getImage(), LOGO, gameLogo);
+        list.add(LOGO, gameLogo);
         
         if (!displayGameover)
         {
             //draw mario himself
-            drawImage(graphics, getImage(), animations.get(AnimationKey.MarioPillThrow).getLocation(), drMario);
+            list.add(animations.get(AnimationKey.MarioPillThrow).getLocation(), drMario);
         }
         else
         {
             //draw mario himself
-            drawImage(graphics, getImage(), animations.get(AnimationKey.MarioGameOver).getLocation(), drMario);
+            list.add(animations.get(AnimationKey.MarioGameOver).getLocation(), drMario);
         }
         
         if (showGameover)
         {
             if (human)
             {
-                drawImage(graphics, getImage(), LOSE_NOTIFICATION, finishLocation);
+                list.add(LOSE_NOTIFICATION, finishLocation);
             }
             else
             {
-                drawImage(graphics, getImage(), LOSE_NOTIFICATION_CPU, finishLocation);
+                list.add(LOSE_NOTIFICATION_CPU, finishLocation);
             }
         }
         
@@ -668,52 +678,52 @@ public class PlayerInformation extends Sprite
         {
             if (human)
             {
-                drawImage(graphics, getImage(), WIN_NOTIFICATION, finishLocation);
+                list.add(WIN_NOTIFICATION, finishLocation);
             }
             else
             {
-                drawImage(graphics, getImage(), WIN_NOTIFICATION_CPU, finishLocation);
+                list.add(WIN_NOTIFICATION_CPU, finishLocation);
             }
         }
         
         if (human)
         {
-            drawImage(graphics, getImage(), TEXT_HUMAN, statusLocation);
+            list.add(TEXT_HUMAN, statusLocation);
         }
         else
         {
-            drawImage(graphics, getImage(), TEXT_CPU, statusLocation);
+            list.add(TEXT_CPU, statusLocation);
         }
         
         switch(speed)
         {
             case Low:
-                drawImage(graphics, getImage(), TEXT_LOW, speedLocation);
+                list.add(TEXT_LOW, speedLocation);
                 break;
                 
             case Medium:
-                drawImage(graphics, getImage(), TEXT_MED, speedLocation);
+                list.add(TEXT_MED, speedLocation);
                 break;
                 
             case High:
-                drawImage(graphics, getImage(), TEXT_HI, speedLocation);
+                list.add(TEXT_HI, speedLocation);
                 break;
         }
         
         //draw score
-        drawNumberDescription(graphics, getImage(), Integer.toString(score), scoreLocation);
+        drawNumberDescription(list, Integer.toString(score), scoreLocation);
         
         //draw virus count
-        drawNumberDescription(graphics, getImage(), Integer.toString(count), virusCountLocation);
+        drawNumberDescription(list, Integer.toString(count), virusCountLocation);
         
         //draw level number
-        drawNumberDescription(graphics, getImage(), Integer.toString(level), levelLocation);
+        drawNumberDescription(list, Integer.toString(level), levelLocation);
         
         //draw timer
-        drawNumberDescription(graphics, getImage(), timeDesc, timeLocation);
+        drawNumberDescription(list, timeDesc, timeLocation);
     }
     
-    private void drawNumberDescription(final Graphics graphics, final Image image, final String desc, Point start)
+    private void drawNumberDescription(final DrawList list, final String desc, Point start)
     {
         final Point drawLocation = new Point(start);
         
@@ -722,7 +732,7 @@ public class PlayerInformation extends Sprite
             Rectangle tmp = getTextLocation(desc.trim().substring(i, i + 1));
             
             //draw number
-            drawImage(graphics, image, tmp, drawLocation);
+            list.add(tmp, drawLocation);
             
             drawLocation.x += tmp.width + 1;
         }
@@ -757,18 +767,4 @@ public class PlayerInformation extends Sprite
         
         return null;
     }
-    
-    private void drawImage(final Graphics graphics, final Image image, final Rectangle source, final Point destination)
-    {
-        graphics.drawImage(image, 
-            destination.x, 
-            destination.y, 
-            destination.x + source.width, 
-            destination.y + source.height, 
-            source.x, 
-            source.y, 
-            source.x + source.width, 
-            source.y + source.height, 
-            null);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.gamesbykevin.drmario.player;
+
+import com.gamesbykevin.drmario.shared.DrawList;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+
+/**
+ * Everything a Player showed at the end of a single update, it is never changed once created.<br><br>
+ * The snapshot is created on the game thread and drawn on the render thread,
+ * so drawing never reads the board, Pill or information while the game is changing them.
+ * @author GOD
+ */
+public final class PlayerSnapshot
+{
+    //the sprite sheet the commands are copied from
+    private final Image image;
+    
+    //where the Player is drawn and the dimensions as well
+    private final Rectangle renderLocation;
+    
+    //what the Player drew at the original size
+    private final int[] commands;
+    
+    /**
+     * Create a new snapshot
+     * @param image The sprite sheet the commands are copied from
+     * @param renderLocation Where the Player is drawn, a copy is taken
+     * @param commands What the Player drew at the original size, this array can't be changed afterwards
+     */
+    public PlayerSnapshot(final Image image, final Rectangle renderLocation, final int[] commands)
+    {
+        this.image = image;
+        this.renderLocation = new Rectangle(renderLocation);
+        this.commands = commands;
+    }
+    
+    /**
+     * Draw the Player stretched to its location
+     * @param graphics Graphics object the Player is drawn to
+     */
+    public void render(final Graphics graphics)
+    {
+        final Graphics2D panel = (Graphics2D)graphics.create(renderLocation.x, renderLocation.y, renderLocation.width, renderLocation.height);
+        
+        try
+        {
+            //the Player is drawn at the original size then stretched
+            panel.scale(renderLocation.width / (double)PlayerInformation.SCREEN_WIDTH, renderLocation.height / (double)PlayerInformation.SCREEN_HEIGHT);
+            
+            DrawList.draw(panel, image, commands);
+        }
+        finally
+        {
+            panel.dispose();
+        }
+    }
+}
\ No newline at end of file
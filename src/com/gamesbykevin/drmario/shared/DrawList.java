@@ -0,0 +1,128 @@
+package com.gamesbykevin.drmario.shared;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Records what a game element draws so it can be drawn later on another thread.<br><br>
+ * Every command is a part of the sprite sheet drawn at a location, or the outline of an oval.
+ * The list is filled on the game thread and copied into an array that is never changed,
+ * so the array can be drawn on the render thread while the game keeps running.
+ * @author GOD
+ */
+public final class DrawList
+{
+    //the type of each command
+    private static final int COMMAND_IMAGE = 0;
+    private static final int COMMAND_OVAL = 1;
+    
+    //the number of values for each command, the type, the source and the destination
+    private static final int COMMAND_SIZE = 9;
+    
+    //every command recorded
+    private int[] commands = new int[COMMAND_SIZE * 64];
+    private int length = 0;
+    
+    /**
+     * Remove every command
+     */
+    public void reset()
+    {
+        this.length = 0;
+    }
+    
+    /**
+     * Draw part of the image at its own size
+     * @param source The part of the image
+     * @param destination Where the top left is drawn
+     */
+    public void add(final Rectangle source, final Point destination)
+    {
+        add(source, destination.x, destination.y, source.width, source.height);
+    }
+    
+    /**
+     * Draw part of the image stretched to the size
+     * @param source The part of the image
+     * @param x Where the left is drawn
+     * @param y Where the top is drawn
+     * @param width The width drawn
+     * @param height The height drawn
+     */
+    public void add(final Rectangle source, final int x, final int y, final int width, final int height)
+    {
+        add(COMMAND_IMAGE, source.x, source.y, source.width, source.height, x, y, width, height);
+    }
+    
+    /**
+     * Draw the outline of an oval
+     * @param x Where the left is drawn
+     * @param y Where the top is drawn
+     * @param width The width drawn
+     * @param height The height drawn
+     * @param color The color of the outline
+     */
+    public void addOval(final int x, final int y, final int width, final int height, final Color color)
+    {
+        add(COMMAND_OVAL, color.getRGB(), 0, 0, 0, x, y, width, height);
+    }
+    
+    private void add(final int command, final int sx, final int sy, final int sw, final int sh, final int dx, final int dy, final int dw, final int dh)
+    {
+        if (length + COMMAND_SIZE > commands.length)
+            commands = Arrays.copyOf(commands, commands.length * 2);
+        
+        commands[length++] = command;
+        commands[length++] = sx;
+        commands[length++] = sy;
+        commands[length++] = sw;
+        commands[length++] = sh;
+        commands[length++] = dx;
+        commands[length++] = dy;
+        commands[length++] = dw;
+        commands[length++] = dh;
+    }
+    
+    /**
+     * Get a copy of every command recorded
+     * @return int[] The commands, this array is never changed by the list
+     */
+    public int[] toArray()
+    {
+        return Arrays.copyOf(commands, length);
+    }
+    
+    /**
+     * Draw the commands
+     * @param graphics Graphics object the commands are drawn to
+     * @param image The image the parts are copied from
+     * @param commands The commands from toArray()
+     */
+    public static void draw(final Graphics graphics, final Image image, final int[] commands)
+    {
+        for (int i = 0; i < commands.length; i += COMMAND_SIZE)
+        {
+            final int dx = commands[i + 5];
+            final int dy = commands[i + 6];
+            final int dw = commands[i + 7];
+            final int dh = commands[i + 8];
+            
+            if (commands[i] == COMMAND_OVAL)
+            {
+                graphics.setColor(new Color(commands[i + 1], true));
+                graphics.drawOval(dx, dy, dw, dh);
+            }
+            else
+            {
+                final int sx = commands[i + 1];
+                final int sy = commands[i + 2];
+                
+                graphics.drawImage(image, dx, dy, dx + dw, dy + dh, sx, sy, sx + commands[i + 3], sy + commands[i + 4], null);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,709 @@
+package com.gamesbykevin.drmario.sim;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+import com.gamesbykevin.drmario.board.MatchResult;
+
+import java.util.Random;
+
+/**
+ * The rules of the board without any Sprite(s), timers or sound.<br><br>
+ * Each call to update is 1 tick, the Block(s) are stored in a packed board.
+ * @author GOD
+ */
+public final class BoardState
+{
+    //the Block(s) on the board
+    private final BitBoard board;
+    
+    //the rows and columns that have changed since we last checked for matches, each bit is a row/column
+    private int dirtyRows = BitBoard.ALL_ROWS;
+    private int dirtyCols = BitBoard.ALL_COLUMNS;
+    
+    //the Block(s) found when checking for matches, cleared and reused on every check
+    private final MatchResult matches;
+    
+    //the Block(s) that are dead and will be removed once the death time has passed
+    private final MatchResult dead;
+    
+    //every match made when settling the board
+    private final ChainReport report;
+    
+    //the cells of every Block moved by the last drop
+    private final long[] moved;
+    
+    //the row to start the virus spawn to give the player some room
+    private static final int SPAWN_START_ROW = 6;
+    
+    //the cells where a virus can still be spawned
+    private final int[] locations;
+    
+    //the number of cells remaining in locations
+    private int locationCount;
+    
+    //the virus count, and progress count
+    private final int virusCount;
+    private int countProgress = 0;
+    
+    //are we done spawning viruses
+    private boolean spawnComplete = false;
+    
+    //are we dropping the hanging Block(s)
+    private boolean drop = false;
+    
+    //did we drop Block(s) before the current match, if so it is a chain
+    private boolean previousDrop = false;
+    
+    //the number of ticks waited for the death or drop
+    private int ticks = 0;
+    
+    //the ticks to wait before removing dead Block(s) and between each drop
+    private static final int DEATH_TICKS = GameState.toTicks(500L);
+    private static final int DROP_TICKS = GameState.toTicks(125L);
+    
+    //the number of penalty blocks we will be adding
+    private static final int PENALTY_LIMIT = BitBoard.COLUMNS / 2;
+    
+    //the penalty Block(s) waiting to be added to the first row
+    private final int[] penaltyCols;
+    private final Type[] penaltyTypes;
+    private int penaltyCount = 0;
+    
+    //the columns that can still be chosen for a penalty
+    private final int[] penaltyChoices;
+    
+    //random number generator
+    private final Random random;
+    
+    //the score for the board
+    private int score = 0;
+    
+    //the rules kept when the transaction began, the packed board keeps its own journal
+    private int savedDirtyRows, savedDirtyCols, savedTicks;
+    private boolean savedDrop, savedPreviousDrop;
+    private final MatchResult savedDead = new MatchResult();
+    
+    //the score for every pill destroyed
+    private static final int SCORE_PILL_KILL = 10;
+    
+    //the score for every virus destroyed
+    private static final int SCORE_VIRUS_KILL = 100;
+    
+    //the score for every virus destroyed as part of a chain
+    private static final int SCORE_VIRUS_KILL_CHAIN = 200;
+    
+    /**
+     * Create a new empty board that will spawn the specified number of viruses
+     * @param virusCount The total number of viruses
+     * @param random The random number generator used for the viruses and penalties
+     */
+    public BoardState(final int virusCount, final Random random)
+    {
+        this.virusCount = virusCount;
+        this.random = random;
+        
+        this.board = new BitBoard();
+        this.matches = new MatchResult();
+        this.dead = new MatchResult();
+        this.report = new ChainReport();
+        this.moved = new long[2];
+        
+        this.penaltyCols = new int[PENALTY_LIMIT];
+        this.penaltyTypes = new Type[PENALTY_LIMIT];
+        this.penaltyChoices = new int[BitBoard.COLUMNS];
+        
+        this.locations = new int[(BitBoard.ROWS - SPAWN_START_ROW) * BitBoard.COLUMNS];
+        
+        resetLocations();
+    }
+    
+    /**
+     * Empty the board and spawn the viruses again, every buffer is reused.<br>
+     * The random number generator is not changed, reseed it first to play the same board as a new BoardState.
+     */
+    public void reset()
+    {
+        board.clear();
+        matches.reset();
+        dead.reset();
+        report.reset();
+        moved[0] = 0;
+        moved[1] = 0;
+        
+        dirtyRows = BitBoard.ALL_ROWS;
+        dirtyCols = BitBoard.ALL_COLUMNS;
+        
+        countProgress = 0;
+        spawnComplete = false;
+        drop = false;
+        previousDrop = false;
+        ticks = 0;
+        penaltyCount = 0;
+        score = 0;
+        
+        resetLocations();
+    }
+    
+    /**
+     * Add all spawn locations so we can choose at random
+     */
+    private void resetLocations()
+    {
+        locationCount = 0;
+        
+        for (int row = SPAWN_START_ROW; row < BitBoard.ROWS; row++)
+        {
+            for (int col = 0; col < BitBoard.COLUMNS; col++)
+            {
+                locations[locationCount++] = BitBoard.getIndex(col, row);
+            }
+        }
+    }
+    
+    /**
+     * Get the packed board containing the Block(s)
+     * @return BitBoard
+     */
+    public BitBoard getBoard()
+    {
+        return this.board;
+    }
+    
+    public int getScore()
+    {
+        return this.score;
+    }
+    
+    public void addScore(final int bonus)
+    {
+        this.score += bonus;
+    }
+    
+    /**
+     * Are we done spawning viruses
+     * @return boolean
+     */
+    public boolean isSpawnComplete()
+    {
+        return this.spawnComplete;
+    }
+    
+    /**
+     * Are any of the blocks currently dead
+     * @return boolean
+     */
+    public boolean hasDead()
+    {
+        return (!dead.isEmpty());
+    }
+    
+    /**
+     * Get the dead Block(s)
+     * @return MatchResult
+     */
+    public MatchResult getDead()
+    {
+        return this.dead;
+    }
+    
+    /**
+     * Are we in the middle of dropping any single existing blocks
+     * @return boolean
+     */
+    public boolean hasDrop()
+    {
+        return this.drop;
+    }
+    
+    /**
+     * Get the cells of every Block moved during the last tick
+     * @return long[] Array of 2 longs, each bit is a cell
+     */
+    public long[] getMoved()
+    {
+        return this.moved;
+    }
+    
+    /**
+     * Does the Player have the opportunity to interact with the board.
+     * This will be true if the spawn is complete, there are no dead Block(s)
+     * and no Block(s) are currently dropping.
+     *
+     * @return boolean
+     */
+    public boolean canInteract()
+    {
+        return (isSpawnComplete() && !hasDead() && !hasDrop());
+    }
+    
+    /**
+     * Count the total number of viruses on the board.
+     * @return int
+     */
+    public int getVirusCount()
+    {
+        return board.getVirusCount();
+    }
+    
+    /**
+     * Get the count for a specific Type of Block
+     * @param type The type of Block we want a count for
+     * @return int
+     */
+    public int getCount(final Type type)
+    {
+        return board.getCount(type);
+    }
+    
+    /**
+     * Copy the count of every Type of Block
+     * @param result The array where the counts will be written, indexed by the Type ordinal
+     */
+    public void getCounts(final int[] result)
+    {
+        board.getCounts(result);
+    }
+    
+    /**
+     * Run the board logic for 1 tick.<br>
+     * A virus is spawned until the spawn is complete, otherwise the dead Block(s) are removed,
+     * the hanging Block(s) are dropped or we check for matches.
+     * @return int The events that took place, each bit is an Event
+     */
+    public int update()
+    {
+        moved[0] = 0;
+        moved[1] = 0;
+        
+        //if we haven't reached our goal and there are still spawn locations
+        if (!isSpawnComplete())
+        {
+            //add virus to board
+            spawnVirus();
+            
+            //if we have reached our limit or no more spawn locations the spawn is complete
+            this.spawnComplete = (countProgress >= virusCount || locationCount == 0);
+            
+            return 0;
+        }
+        
+        //if blocks are dead wait until the death time has passed
+        if (hasDead())
+        {
+            ticks++;
+            
+            if (ticks >= DEATH_TICKS)
+            {
+                ticks = 0;
+                
+                //remove any existing dead pieces
+                removeDead();
+                
+                //now that the dead pieces have been removed we need to drop the extra Block(s)
+                this.drop = true;
+            }
+            
+            return 0;
+        }
+        
+        if (hasDrop())
+        {
+            //we are dropping so set flag
+            previousDrop = true;
+            
+            ticks++;
+            
+            if (ticks >= DROP_TICKS)
+            {
+                ticks = 0;
+                
+                //if no changes were made, stop checking the drop
+                if (!board.drop(moved))
+                {
+                    drop = false;
+                }
+                else
+                {
+                    setDirty(moved);
+                }
+            }
+            
+            return 0;
+        }
+        
+        //get the Block(s) that match
+        final MatchResult result = getMatches();
+        
+        //no match was found so set flag back to false
+        if (result.isEmpty())
+        {
+            previousDrop = false;
+            return 0;
+        }
+        
+        ticks = 0;
+        
+        //now mark them as dead
+        dead.copy(result);
+        
+        //add pill score
+        addScore(result.getPillCount() * SCORE_PILL_KILL);
+        
+        //if we were previously dropping this is part of a chain
+        if (previousDrop)
+        {
+            addScore(result.getVirusCount() * SCORE_VIRUS_KILL_CHAIN);
+            return Event.Chain.getFlag();
+        }
+        else
+        {
+            addScore(result.getVirusCount() * SCORE_VIRUS_KILL);
+            return Event.Match.getFlag();
+        }
+    }
+    
+    /**
+     * Add a random virus to one of the remaining spawn locations
+     */
+    private void spawnVirus()
+    {
+        //pick a random index
+        int index = 0;
+        
+        if (locationCount > 1)
+            index = random.nextInt(locationCount - 1);
+        
+        final int location = locations[index];
+        
+        //remove location so we don't pick it again
+        System.arraycopy(locations, index + 1, locations, index, locationCount - index - 1);
+        locationCount--;
+        
+        //set random type
+        final Type type;
+        
+        switch (random.nextInt(3))
+        {
+            case 0:
+                type = Type.RedVirus;
+                break;
+            
+            case 1:
+                type = Type.BlueVirus;
+                break;
+            
+            default:
+                type = Type.YellowVirus;
+                break;
+        }
+        
+        set(location % BitBoard.COLUMNS, location / BitBoard.COLUMNS, type);
+        
+        //increase the progress
+        countProgress++;
+    }
+    
+    /**
+     * Remove any dead Block(s)
+     */
+    private void removeDead()
+    {
+        for (int index = dead.next(0); index >= 0; index = dead.next(index + 1))
+        {
+            remove(index % BitBoard.COLUMNS, index / BitBoard.COLUMNS);
+        }
+        
+        dead.reset();
+    }
+    
+    /**
+     * Check if the Block Type is found in the dead blocks.
+     * @param type The type of Block we are looking for
+     * @return boolean True if found.
+     */
+    public boolean hasDeadType(final Type type)
+    {
+        return (dead.getCount(type) > 0);
+    }
+    
+    /**
+     * Count the number of dead viruses
+     * @return int
+     */
+    public int getDeadVirusCount()
+    {
+        return dead.getVirusCount();
+    }
+    
+    /**
+     * Get the Block(s) that are part of a match.<br><br>
+     * Only the rows and columns that have changed since the last check are examined,
+     * because a new match has to cross at least 1 of the changed cells.
+     * The result is reused on the next check.
+     * @return MatchResult The matching Block(s)
+     */
+    public MatchResult getMatches()
+    {
+        //the rows and columns we need to check
+        final int rows = dirtyRows;
+        final int cols = dirtyCols;
+        
+        //any row or column that still contains a match will be checked again next time
+        dirtyRows = 0;
+        dirtyCols = 0;
+        
+        if (board.getMatches(matches, rows, cols))
+        {
+            for (int index = matches.next(0); index >= 0; index = matches.next(index + 1))
+            {
+                setDirty(index % BitBoard.COLUMNS, index / BitBoard.COLUMNS);
+            }
+        }
+        
+        return matches;
+    }
+    
+    /**
+     * Drop every hanging Block and remove every match until the board no longer changes.<br><br>
+     * This happens instantly without waiting for the drop ticks. Any Block(s) already
+     * marked dead are removed first, the score is not changed.
+     * @return ChainReport Every match made, the report is reused on the next call
+     */
+    public ChainReport settle()
+    {
+        //remove any Block(s) waiting to be removed
+        removeDead();
+        
+        board.settle(report);
+        
+        //the Block(s) could be anywhere now
+        if (report.hasDrop() || report.getMatches() > 0)
+        {
+            dirtyRows = BitBoard.ALL_ROWS;
+            dirtyCols = BitBoard.ALL_COLUMNS;
+        }
+        
+        //there is nothing left to drop
+        drop = false;
+        previousDrop = false;
+        ticks = 0;
+        
+        return report;
+    }
+    
+    /**
+     * Start a transaction, every change to the board from now on is undone by rollback.<br><br>
+     * The rows and columns to check for matches, the dead Block(s) and the drop are kept as well,
+     * so after rollback the board plays on exactly as if nothing happened. Transactions can't be nested.
+     */
+    public void begin()
+    {
+        if (board.hasTransaction())
+            throw new IllegalStateException("A transaction is already open");
+        
+        savedDirtyRows = dirtyRows;
+        savedDirtyCols = dirtyCols;
+        savedTicks = ticks;
+        savedDrop = drop;
+        savedPreviousDrop = previousDrop;
+        savedDead.copy(dead);
+        
+        board.begin();
+    }
+    
+    /**
+     * Undo every change made since the transaction began
+     */
+    public void rollback()
+    {
+        board.rollback();
+        
+        dirtyRows = savedDirtyRows;
+        dirtyCols = savedDirtyCols;
+        ticks = savedTicks;
+        drop = savedDrop;
+        previousDrop = savedPreviousDrop;
+        dead.copy(savedDead);
+    }
+    
+    /**
+     * Is there an open transaction
+     * @return boolean
+     */
+    public boolean hasTransaction()
+    {
+        return board.hasTransaction();
+    }
+    
+    /**
+     * If there are penalty blocks add them to the first row and return true, otherwise return false
+     * @return boolean
+     */
+    public boolean applyPenalty()
+    {
+        if (penaltyCount == 0)
+            return false;
+        
+        for (int i = 0; i < penaltyCount; i++)
+        {
+            set(penaltyCols[i], 0, penaltyTypes[i]);
+        }
+        
+        penaltyCount = 0;
+        
+        //drop the new pieces
+        drop = true;
+        
+        return true;
+    }
+    
+    /**
+     * When we penalize we add pills to random columns that won't match the Block below.<br><br>
+     * The penalty is added the next time a Pill would be created.
+     */
+    public void penalize()
+    {
+        //we don't want to stack up too many blocks too fast
+        if (penaltyCount > 0)
+            return;
+        
+        //the columns we can still choose from
+        int remaining = BitBoard.COLUMNS;
+        
+        for (int col = 0; col < BitBoard.COLUMNS; col++)
+        {
+            penaltyChoices[col] = col;
+        }
+        
+        while (penaltyCount < PENALTY_LIMIT && remaining > 0)
+        {
+            //pick a random column
+            final int index = random.nextInt(remaining);
+            final int col = penaltyChoices[index];
+            
+            penaltyCols[penaltyCount] = col;
+            penaltyTypes[penaltyCount] = getPenaltyType(col);
+            penaltyCount++;
+            
+            //remove the column so we don't choose it again
+            System.arraycopy(penaltyChoices, index + 1, penaltyChoices, index, remaining - index - 1);
+            remaining--;
+        }
+    }
+    
+    /**
+     * Pick the Type of the penalty Block so it won't match the first Block in the column
+     * @param col The column
+     * @return Type
+     */
+    private Type getPenaltyType(final int col)
+    {
+        final Type below = board.getType(col, board.getTop(col));
+        
+        if (below == null)
+        {
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    return Type.RedPill;
+                
+                case 1:
+                    return Type.BluePill;
+                
+                default:
+                    return Type.YellowPill;
+            }
+        }
+        
+        switch (below)
+        {
+            case RedPill:
+            case RedVirus:
+                return (random.nextInt(2) == 1) ? Type.BluePill : Type.YellowPill;
+            
+            case BluePill:
+            case BlueVirus:
+                return (random.nextInt(2) == 1) ? Type.YellowPill : Type.RedPill;
+            
+            default:
+                return (random.nextInt(2) == 1) ? Type.BluePill : Type.RedPill;
+        }
+    }
+    
+    /**
+     * Add both halves of a Pill to the board
+     * @param col Column of the first half
+     * @param row Row of the first half
+     * @param type Type of the first half
+     * @param col2 Column of the second half
+     * @param row2 Row of the second half
+     * @param type2 Type of the second half
+     */
+    public void addPill(final int col, final int row, final Type type, final int col2, final int row2, final Type type2)
+    {
+        set(col, row, type);
+        set(col2, row2, type2);
+        
+        //connect both halves so they drop together
+        board.link(col, row, col2, row2);
+    }
+    
+    /**
+     * Place a Block on the board
+     * @param col Column
+     * @param row Row
+     * @param type The type of Block
+     */
+    public void set(final int col, final int row, final Type type)
+    {
+        setDirty(col, row);
+        
+        board.set(col, row, type);
+    }
+    
+    /**
+     * Remove the Block from the board
+     * @param col Column
+     * @param row Row
+     */
+    public void remove(final int col, final int row)
+    {
+        setDirty(col, row);
+        
+        board.remove(col, row);
+    }
+    
+    /**
+     * Mark the row and column of the cell as changed so it will be checked for matches
+     * @param col Column
+     * @param row Row
+     */
+    private void setDirty(final int col, final int row)
+    {
+        dirtyRows |= (1 << row);
+        dirtyCols |= (1 << col);
+    }
+    
+    /**
+     * Mark every cell that has moved down 1 row as changed, including the cell below
+     * @param cells Array of 2 longs, each bit is a cell
+     */
+    private void setDirty(final long[] cells)
+    {
+        for (int word = 0; word < 2; word++)
+        {
+            long remaining = cells[word];
+            
+            while (remaining != 0)
+            {
+                final int index = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                
+                setDirty(index % BitBoard.COLUMNS, index / BitBoard.COLUMNS);
+                setDirty(index % BitBoard.COLUMNS, index / BitBoard.COLUMNS + 1);
+                
+                remaining &= (remaining - 1);
+            }
+        }
+    }
+}
\ No newline at end of file
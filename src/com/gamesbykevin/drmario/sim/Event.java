@@ -0,0 +1,52 @@
+package com.gamesbykevin.drmario.sim;
+
+/**
+ * The things that can happen during a single step of the game.<br><br>
+ * Instead of playing a sound effect the game logic will report the event and leave it up to whoever is watching.
+ * @author GOD
+ */
+public enum Event
+{
+    //Block(s) have been matched right after a Pill was placed
+    Match,
+    
+    //Block(s) have been matched after other Block(s) have dropped
+    Chain,
+    
+    //a Pill was placed on the board
+    Stack,
+    
+    //the Pill was rotated
+    Rotate,
+    
+    //a new Pill is now being controlled
+    Spawn,
+    
+    //at least 1 virus was destroyed
+    Kill,
+    
+    //all of the viruses have been destroyed
+    Win,
+    
+    //the entrance is blocked or the time has run out
+    Lose;
+    
+    /**
+     * Get the bit that represents this event
+     * @return int
+     */
+    public int getFlag()
+    {
+        return (1 << ordinal());
+    }
+    
+    /**
+     * Does the event exist in the flags
+     * @param events Each bit represents an event
+     * @return boolean
+     */
+    public boolean isSet(final int events)
+    {
+        return ((events & getFlag()) != 0);
+    }
+}
\ No newline at end of file
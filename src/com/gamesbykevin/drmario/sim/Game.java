@@ -0,0 +1,162 @@
+package com.gamesbykevin.drmario.sim;
+
+/**
+ * A game between 1 or more players.<br><br>
+ * The first player is the one the rest are competing against,
+ * if they lose every opponent still playing wins and if every opponent loses they win.
+ * @author GOD
+ */
+public final class Game
+{
+    //every player in the game
+    private final GameState[] players;
+    
+    //is every other player penalized when a virus is destroyed
+    private final boolean attack;
+    
+    /**
+     * Create a new game
+     * @param players Every player in the game, the first player competes against the rest
+     * @param attack Is every other player penalized when a virus is destroyed
+     */
+    public Game(final GameState[] players, final boolean attack)
+    {
+        this.players = players;
+        this.attack = attack;
+    }
+    
+    /**
+     * Get the number of players
+     * @return int
+     */
+    public int getPlayerCount()
+    {
+        return players.length;
+    }
+    
+    /**
+     * Get the player
+     * @param index The index of the player
+     * @return GameState
+     */
+    public GameState getPlayer(final int index)
+    {
+        return players[index];
+    }
+    
+    /**
+     * Run the game for 1 tick
+     * @param inputs The input for each player, each bit is an Input
+     */
+    public void step(final int[] inputs)
+    {
+        for (int i = 0; i < players.length; i++)
+        {
+            players[i].step(inputs[i]);
+        }
+        
+        //if playing attack mode we need to see if any players need to be penalized
+        if (attack)
+            checkPenalty();
+        
+        //check if one of the players won
+        locateWinner();
+    }
+    
+    /**
+     * Has the game ended for the first player
+     * @return boolean
+     */
+    public boolean hasEnded()
+    {
+        return (players[0].hasWin() || players[0].hasLose());
+    }
+    
+    /**
+     * Check if 1 player has a virus kill and if so penalize all other players
+     */
+    private void checkPenalty()
+    {
+        boolean hasKill = false;
+        
+        for (GameState player : players)
+        {
+            if (player.hasKill())
+            {
+                hasKill = true;
+                break;
+            }
+        }
+        
+        //if somebody has a kill add penalty, player(s) that have a kill will not be penalized
+        if (hasKill)
+        {
+            for (GameState player : players)
+            {
+                player.penalize();
+            }
+        }
+    }
+    
+    /**
+     * Check if one of the players won and if so mark every one else defeated.
+     */
+    private void locateWinner()
+    {
+        //if there are no opponents
+        if (players.length < 2)
+            return;
+        
+        //has one of the opponents won
+        boolean hasWin = false;
+        
+        for (int i = 1; i < players.length; i++)
+        {
+            if (players[i].hasWin())
+            {
+                hasWin = true;
+                break;
+            }
+        }
+        
+        //if an opponent won set others to lose as well as the first player
+        if (hasWin)
+        {
+            for (GameState player : players)
+            {
+                if (!player.hasWin())
+                    player.setLose();
+            }
+            
+            return;
+        }
+        
+        //if the first player won every opponent loses
+        if (players[0].hasWin())
+        {
+            for (int i = 1; i < players.length; i++)
+            {
+                players[i].setLose();
+            }
+        }
+        
+        //if the first player lost any opponent that hasn't lost wins
+        if (players[0].hasLose())
+        {
+            for (int i = 1; i < players.length; i++)
+            {
+                if (!players[i].hasLose())
+                    players[i].setWin();
+            }
+        }
+        
+        //if all opponents lost the first player has won
+        for (int i = 1; i < players.length; i++)
+        {
+            if (!players[i].hasLose())
+                return;
+        }
+        
+        players[0].setWin();
+    }
+}
\ No newline at end of file
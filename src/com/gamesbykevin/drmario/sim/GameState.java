@@ -0,0 +1,521 @@
+package com.gamesbykevin.drmario.sim;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.shared.Shared;
+
+import java.util.Random;
+
+/**
+ * The rules for a single player without any Sprite(s), timers or sound.<br><br>
+ * The game is advanced 1 tick at a time by calling step with the input for that tick,
+ * so the same seed and inputs will always play the same game.
+ * @author GOD
+ */
+public final class GameState
+{
+    //the board where the game play will occur
+    private final BoardState board;
+    
+    //random number generator
+    private final Random random;
+    
+    //the start location for the Pill
+    public static final int START_COL = 3;
+    public static final int START_ROW = 0;
+    
+    //the location of the extra Block compared to the Pill for each Rotation
+    private static final int[] EXTRA_COL = {1, 0, -1, 0};
+    private static final int[] EXTRA_ROW = {0, 1, 0, -1};
+    
+    //the current Pill
+    private boolean pill = false;
+    private int pillCol, pillRow;
+    private Rotation pillRotation;
+    private Type pillType, pillExtraType;
+    
+    //the Pill after the current Pill
+    private Type nextType, nextExtraType;
+    
+    //the number of Pill(s) created
+    private int pills = 0;
+    
+    //the ticks between each time gravity is applied to the Pill
+    private final int gravityTicks;
+    private int gravityWait = 0;
+    
+    //the number of ticks played and the limit if we are counting down, 0 if there is no limit
+    private int ticks = 0;
+    private final int timeLimit;
+    
+    //has the player won or lost
+    private boolean win = false;
+    private boolean lose = false;
+    
+    //if we have destroyed a virus kill will be true
+    private boolean kill = false;
+    
+    //the events from the last step, each bit is an Event
+    private int events = 0;
+    
+    /**
+     * Create a new game
+     * @param virusCount The total number of viruses
+     * @param seed The seed used to generate random numbers
+     * @param gravityTicks The ticks between each time gravity is applied to the Pill
+     * @param timeLimit The ticks until the game is lost, 0 if there is no limit
+     */
+    public GameState(final int virusCount, final long seed, final int gravityTicks, final int timeLimit)
+    {
+        this.random = new Random(seed);
+        this.board = new BoardState(virusCount, random);
+        this.gravityTicks = gravityTicks;
+        this.timeLimit = timeLimit;
+        
+        //create the first Pill
+        createNextPill();
+    }
+    
+    /**
+     * Start a new game with the same rules, every buffer is reused.<br>
+     * The game plays exactly the same as a new GameState created with the seed.
+     * @param seed The seed used to generate random numbers
+     */
+    public void reset(final long seed)
+    {
+        random.setSeed(seed);
+        board.reset();
+        
+        pill = false;
+        pillCol = 0;
+        pillRow = 0;
+        pillRotation = null;
+        pillType = null;
+        pillExtraType = null;
+        nextType = null;
+        nextExtraType = null;
+        pills = 0;
+        gravityWait = 0;
+        ticks = 0;
+        win = false;
+        lose = false;
+        kill = false;
+        events = 0;
+        
+        //create the first Pill
+        createNextPill();
+    }
+    
+    /**
+     * Convert a time into the number of ticks at the default updates per second
+     * @param milliseconds The time in milliseconds
+     * @return int The ticks, rounded up
+     */
+    public static int toTicks(final long milliseconds)
+    {
+        return (int)((milliseconds * Shared.DEFAULT_UPS + 999L) / 1000L);
+    }
+    
+    public BoardState getBoard()
+    {
+        return this.board;
+    }
+    
+    /**
+     * Run the game for 1 tick
+     * @param inputs The input for this tick, each bit is an Input
+     * @return int The events that took place, each bit is an Event
+     */
+    public int step(final int inputs)
+    {
+        events = 0;
+        
+        //if the player has lost or won no more updates are required
+        if (hasLose() || hasWin())
+            return events;
+        
+        ticks++;
+        
+        //are there dead blocks on the board
+        final boolean hasDead = board.hasDead();
+        
+        //check for matches on board etc...
+        events |= board.update();
+        
+        //if there were no dead blocks before update and now there is and there are viruses among the dead
+        if (!hasDead && board.hasDead() && board.getDeadVirusCount() > 0)
+        {
+            kill = true;
+            events |= Event.Kill.getFlag();
+        }
+        
+        //if we can't interact with the board due to a virus/pill match or pill drop etc..
+        if (!board.canInteract())
+            return events;
+        
+        //have we removed all of the viruses
+        if (board.getVirusCount() <= 0)
+        {
+            setWin();
+            return events;
+        }
+        
+        //if our pill has not been created yet, make sure penalty wasn't applied first
+        if (!hasPill() && !board.applyPenalty())
+        {
+            //there is no room for the new Pill
+            if (hasCollision(START_COL, START_ROW, Rotation.East))
+            {
+                setLose();
+                return events;
+            }
+            
+            createPill();
+        }
+        
+        gravityWait++;
+        
+        //has time passed
+        if (gravityWait >= gravityTicks)
+        {
+            //if the entrance is blocked or in timed mode and time ran out
+            if (hasEntranceBlocked() || hasTimePassed())
+            {
+                setLose();
+                return events;
+            }
+            
+            applyGravity();
+        }
+        
+        //we can't control the Pill
+        if (hasLose() || !hasPill() || !board.canInteract())
+            return events;
+        
+        if ((inputs & Input.DOWN) != 0)
+            applyGravity();
+        
+        if ((inputs & Input.ROTATE) != 0 && hasPill() && canRotate())
+        {
+            pillRotation = getNextRotation();
+            events |= Event.Rotate.getFlag();
+        }
+        
+        if ((inputs & Input.LEFT) != 0 && hasPill() && !hasCollision(pillCol - 1, pillRow, pillRotation))
+            pillCol--;
+        
+        if ((inputs & Input.RIGHT) != 0 && hasPill() && !hasCollision(pillCol + 1, pillRow, pillRotation))
+            pillCol++;
+        
+        return events;
+    }
+    
+    /**
+     * Get the events from the last step
+     * @return int Each bit is an Event
+     */
+    public int getEvents()
+    {
+        return this.events;
+    }
+    
+    /**
+     * Did the event take place during the last step
+     * @param event The event we are checking
+     * @return boolean
+     */
+    public boolean hasEvent(final Event event)
+    {
+        return event.isSet(events);
+    }
+    
+    /**
+     * Move the Pill down 1 row, if there is a collision place the Pill on the board
+     */
+    private void applyGravity()
+    {
+        //reset the time until gravity has to be applied again
+        gravityWait = 0;
+        
+        if (!hasPill())
+            return;
+        
+        //the pill can move down 1 row
+        if (!hasCollision(pillCol, pillRow + 1, pillRotation))
+        {
+            pillRow++;
+            return;
+        }
+        
+        if (pillRow < 0 || getPillExtraRow() < 0)
+        {
+            setLose();
+            return;
+        }
+        
+        //place Pill on board
+        board.addPill(pillCol, pillRow, pillType, getPillExtraCol(), getPillExtraRow(), pillExtraType);
+        
+        //now that Pill has been placed remove it
+        pill = false;
+        
+        events |= Event.Stack.getFlag();
+    }
+    
+    /**
+     * Take the next Pill and make that the current, then create a new next Pill
+     */
+    private void createPill()
+    {
+        pill = true;
+        pillCol = START_COL;
+        pillRow = START_ROW;
+        pillRotation = Rotation.East;
+        pillType = nextType;
+        pillExtraType = nextExtraType;
+        pills++;
+        
+        createNextPill();
+        
+        //reset the timer
+        gravityWait = 0;
+        
+        events |= Event.Spawn.getFlag();
+    }
+    
+    /**
+     * Pick random types for the next Pill
+     */
+    private void createNextPill()
+    {
+        nextType = getRandomType();
+        nextExtraType = getRandomType();
+    }
+    
+    private Type getRandomType()
+    {
+        switch (random.nextInt(3))
+        {
+            case 0:
+                return Type.RedPill;
+            
+            case 1:
+                return Type.BluePill;
+            
+            default:
+                return Type.YellowPill;
+        }
+    }
+    
+    /**
+     * Are the two cells where the pill starts already occupied in the board
+     * @return boolean
+     */
+    private boolean hasEntranceBlocked()
+    {
+        //if pills are dropping we can't check yet
+        if (board.hasDrop())
+            return false;
+        
+        final BitBoard bits = board.getBoard();
+        
+        if (bits.hasBlock(START_COL, START_ROW) && bits.hasBlock(START_COL, START_ROW + 1))
+            return true;
+        
+        if (bits.hasBlock(START_COL + 1, START_ROW) && bits.hasBlock(START_COL + 1, START_ROW + 1))
+            return true;
+        
+        return false;
+    }
+    
+    /**
+     * If playing timed mode and time has run out
+     * @return boolean
+     */
+    private boolean hasTimePassed()
+    {
+        return (timeLimit != 0 && ticks >= timeLimit);
+    }
+    
+    /**
+     * Would the Pill collide with the board at the specified location
+     * @param col Column of the Pill
+     * @param row Row of the Pill
+     * @param rotation Rotation of the Pill
+     * @return boolean true if either half is out of bounds or on top of a Block
+     */
+    public boolean hasCollision(final int col, final int row, final Rotation rotation)
+    {
+        final BitBoard bits = board.getBoard();
+        
+        return (bits.hasCollision(col, row) || bits.hasCollision(col + EXTRA_COL[rotation.ordinal()], row + EXTRA_ROW[rotation.ordinal()]));
+    }
+    
+    /**
+     * Can the Pill rotate without a collision
+     * @return boolean
+     */
+    public boolean canRotate()
+    {
+        return (hasPill() && !hasCollision(pillCol, pillRow, getNextRotation()));
+    }
+    
+    private Rotation getNextRotation()
+    {
+        return Rotation.values()[(pillRotation.ordinal() + 1) % Rotation.values().length];
+    }
+    
+    /**
+     * Is there a Pill being controlled
+     * @return boolean
+     */
+    public boolean hasPill()
+    {
+        return this.pill;
+    }
+    
+    /**
+     * Get the number of Pill(s) created, each Pill will have a different number
+     * @return int
+     */
+    public int getPills()
+    {
+        return this.pills;
+    }
+    
+    public int getPillCol()
+    {
+        return this.pillCol;
+    }
+    
+    public int getPillRow()
+    {
+        return this.pillRow;
+    }
+    
+    /**
+     * Get the column of the Pill extra compared to the Pill
+     * @param rotation The Rotation of the Pill
+     * @return int
+     */
+    public static int getExtraCol(final Rotation rotation)
+    {
+        return EXTRA_COL[rotation.ordinal()];
+    }
+    
+    /**
+     * Get the row of the Pill extra compared to the Pill
+     * @param rotation The Rotation of the Pill
+     * @return int
+     */
+    public static int getExtraRow(final Rotation rotation)
+    {
+        return EXTRA_ROW[rotation.ordinal()];
+    }
+    
+    public int getPillExtraCol()
+    {
+        return pillCol + EXTRA_COL[pillRotation.ordinal()];
+    }
+    
+    public int getPillExtraRow()
+    {
+        return pillRow + EXTRA_ROW[pillRotation.ordinal()];
+    }
+    
+    public Rotation getPillRotation()
+    {
+        return this.pillRotation;
+    }
+    
+    public Type getPillType()
+    {
+        return this.pillType;
+    }
+    
+    public Type getPillExtraType()
+    {
+        return this.pillExtraType;
+    }
+    
+    public Type getNextType()
+    {
+        return this.nextType;
+    }
+    
+    public Type getNextExtraType()
+    {
+        return this.nextExtraType;
+    }
+    
+    /**
+     * Get the number of ticks played
+     * @return int
+     */
+    public int getTicks()
+    {
+        return this.ticks;
+    }
+    
+    /**
+     * Get the ticks until the game is lost
+     * @return int 0 if there is no limit
+     */
+    public int getTimeLimit()
+    {
+        return this.timeLimit;
+    }
+    
+    public boolean hasWin()
+    {
+        return this.win;
+    }
+    
+    public boolean hasLose()
+    {
+        return this.lose;
+    }
+    
+    public void setWin()
+    {
+        if (!win)
+            events |= Event.Win.getFlag();
+        
+        this.win = true;
+    }
+    
+    public void setLose()
+    {
+        if (!lose)
+            events |= Event.Lose.getFlag();
+        
+        this.lose = true;
+    }
+    
+    /**
+     * Did the player kill a virus
+     * @return boolean
+     */
+    public boolean hasKill()
+    {
+        return this.kill;
+    }
+    
+    /**
+     * Add penalty to player if they don't have a kill
+     */
+    public void penalize()
+    {
+        //if this player does not have a kill they will be penalized
+        if (!kill)
+        {
+            board.penalize();
+        }
+        else
+        {
+            //since we have a kill we won't be penalized, but also set kill = false
+            kill = false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.gamesbykevin.drmario.sim;
+
+/**
+ * The input used to control the Pill for a single step, each input is a bit so they can be combined
+ * @author GOD
+ */
+public final class Input
+{
+    //no input
+    public static final int NONE = 0;
+    
+    //move the Pill 1 column to the west
+    public static final int LEFT = (1 << 0);
+    
+    //move the Pill 1 column to the east
+    public static final int RIGHT = (1 << 1);
+    
+    //move the Pill 1 row to the south
+    public static final int DOWN = (1 << 2);
+    
+    //rotate the Pill
+    public static final int ROTATE = (1 << 3);
+    
+    private Input()
+    {
+        //this class only contains constants
+    }
+}
\ No newline at end of file
@@ -0,0 +1,273 @@
+package com.gamesbykevin.drmario.sim;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many independent single player games that are all advanced with 1 call.<br><br>
+ * This is not a structure of arrays, every game keeps its own GameState so the rules are only written once.
+ * The board of a GameState is already packed into a few longs and nothing is created while stepping,
+ * so each game is a handful of small objects that stay together in memory.
+ * Only the rewards, done flags, scores and seeds are primitive arrays indexed by game, created once and reused on every step.
+ * The games are split across the cores with a fork/join pool.
+ * @author GOD
+ */
+public final class VectorGame
+{
+    //the fewest games a single task will step before splitting the work
+    private static final int TASK_MINIMUM = 64;
+    
+    //every game being played
+    private final GameState[] games;
+    
+    //the seed used to create the next game for each index
+    private final long[] seeds;
+    
+    //the score of each game after the previous step
+    private final int[] scores;
+    
+    //the reward for each game from the last step
+    private final float[] rewards;
+    
+    //did each game end during the last step
+    private final boolean[] done;
+    
+    //the number of games each index has finished
+    private final int[] episodes;
+    
+    //the rules for each game created
+    private final int virusCount;
+    private final int gravityTicks;
+    private final int timeLimit;
+    
+    //the reward added when a game is won or lost
+    private static final float REWARD_WIN = 1000f;
+    private static final float REWARD_LOSE = -1000f;
+    
+    //the pool that will step the games, null once disposed
+    private ForkJoinPool pool;
+    
+    /**
+     * Create the games using every available core
+     * @param count The number of games
+     * @param virusCount The total number of viruses in each game
+     * @param gravityTicks The ticks between each time gravity is applied to the Pill
+     * @param seed The seed used to create the seed of every game
+     */
+    public VectorGame(final int count, final int virusCount, final int gravityTicks, final long seed)
+    {
+        this(count, virusCount, gravityTicks, 0, seed, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Create the games
+     * @param count The number of games
+     * @param virusCount The total number of viruses in each game
+     * @param gravityTicks The ticks between each time gravity is applied to the Pill
+     * @param timeLimit The ticks until a game is lost, 0 if there is no limit
+     * @param seed The seed used to create the seed of every game
+     * @param parallelism The number of threads used to step the games
+     */
+    public VectorGame(final int count, final int virusCount, final int gravityTicks, final int timeLimit, final long seed, final int parallelism)
+    {
+        this.virusCount = virusCount;
+        this.gravityTicks = gravityTicks;
+        this.timeLimit = timeLimit;
+        
+        this.games = new GameState[count];
+        this.seeds = new long[count];
+        this.scores = new int[count];
+        this.rewards = new float[count];
+        this.done = new boolean[count];
+        this.episodes = new int[count];
+        
+        final Random random = new Random(seed);
+        
+        for (int i = 0; i < count; i++)
+        {
+            seeds[i] = random.nextLong();
+            
+            //the only time a game is created, every game after this reuses it
+            games[i] = new GameState(virusCount, seeds[i], gravityTicks, timeLimit);
+            nextSeed(i);
+        }
+        
+        this.pool = new ForkJoinPool(parallelism);
+    }
+    
+    /**
+     * Stop the threads used to step the games, the games can't be stepped after this
+     */
+    public void dispose()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+    
+    /**
+     * Get the number of games
+     * @return int
+     */
+    public int getCount()
+    {
+        return games.length;
+    }
+    
+    /**
+     * Get the game
+     * @param index The index of the game
+     * @return GameState
+     */
+    public GameState getGame(final int index)
+    {
+        return games[index];
+    }
+    
+    /**
+     * Get the reward for each game from the last step, the array is reused on every step
+     * @return float[] The change in score, plus the win reward or lose reward if the game ended
+     */
+    public float[] getRewards()
+    {
+        return this.rewards;
+    }
+    
+    /**
+     * Get which games ended during the last step, the array is reused on every step.<br>
+     * A game that ended has already been replaced with a new game.
+     * @return boolean[]
+     */
+    public boolean[] getDone()
+    {
+        return this.done;
+    }
+    
+    /**
+     * Get the number of games finished at the index, the game being played is not counted
+     * @param index The index of the game
+     * @return int
+     */
+    public int getEpisodes(final int index)
+    {
+        return episodes[index];
+    }
+    
+    /**
+     * Run every game for 1 tick
+     * @param actions The input for each game, each bit is an Input
+     * @throws IllegalStateException if the games were disposed
+     */
+    public void stepAll(final int[] actions)
+    {
+        if (pool == null)
+            throw new IllegalStateException("The games were disposed");
+        
+        if (actions.length != games.length)
+            throw new IllegalArgumentException("There must be 1 action for each game " + games.length);
+        
+        //small batches are not worth splitting
+        if (games.length <= TASK_MINIMUM)
+        {
+            step(actions, 0, games.length);
+        }
+        else
+        {
+            pool.invoke(new StepTask(actions, 0, games.length));
+        }
+    }
+    
+    /**
+     * Run the games within the range for 1 tick
+     * @param actions The input for each game, each bit is an Input
+     * @param start The first game
+     * @param end The game after the last game
+     */
+    private void step(final int[] actions, final int start, final int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            final GameState game = games[i];
+            
+            game.step(actions[i]);
+            
+            final int score = game.getBoard().getScore();
+            
+            float reward = score - scores[i];
+            
+            scores[i] = score;
+            
+            if (game.hasWin() || game.hasLose())
+            {
+                reward += (game.hasWin()) ? REWARD_WIN : REWARD_LOSE;
+                
+                done[i] = true;
+                
+                episodes[i]++;
+                
+                //start the next game right away
+                reset(i);
+            }
+            else
+            {
+                done[i] = false;
+            }
+            
+            rewards[i] = reward;
+        }
+    }
+    
+    /**
+     * Start a new game at the index, the existing game is reset so nothing is created
+     * @param index The index of the game
+     */
+    private void reset(final int index)
+    {
+        games[index].reset(seeds[index]);
+        scores[index] = 0;
+        
+        nextSeed(index);
+    }
+    
+    /**
+     * Pick the seed for the next game at the index
+     * @param index The index of the game
+     */
+    private void nextSeed(final int index)
+    {
+        seeds[index] = seeds[index] * 6364136223846793005L + 1442695040888963407L;
+    }
+    
+    /**
+     * Steps a range of games, splitting the range in half until it is small enough
+     */
+    private final class StepTask extends RecursiveAction
+    {
+        private final int[] actions;
+        private final int start, end;
+        
+        private StepTask(final int[] actions, final int start, final int end)
+        {
+            this.actions = actions;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (end - start <= TASK_MINIMUM)
+            {
+                step(actions, start, end);
+                return;
+            }
+            
+            final int middle = (start + end) >>> 1;
+            
+            invokeAll(new StepTask(actions, start, middle), new StepTask(actions, middle, end));
+        }
+    }
+}
\ No newline at end of file
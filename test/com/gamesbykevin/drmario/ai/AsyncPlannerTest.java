@@ -0,0 +1,120 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks waiting for a plan returns once the result is ready, and the result is the same as planning on the game thread.
+ * @author GOD
+ */
+public class AsyncPlannerTest
+{
+    //the positions planned for each strategy
+    private static final int POSITIONS = 10;
+    
+    /**
+     * Plan positions from a game on another thread and wait for each result
+     * @param name The name of the strategy
+     */
+    private static void assertAwaitIsReady(final String name)
+    {
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        
+        try
+        {
+            final AsyncPlanner planner = new AsyncPlanner(StrategyRegistry.create(name, pool, Weights.DEFAULT), executor);
+            final IAgentStrategy expected = StrategyRegistry.create(name, null, Weights.DEFAULT);
+            
+            //only the placements count so both plans are the same
+            planner.setBudget(Long.MAX_VALUE);
+            planner.setNodeBudget(5000L);
+            expected.setBudget(Long.MAX_VALUE);
+            expected.setNodeBudget(5000L);
+            
+            final GameState state = new GameState(40, 3L, GameState.toTicks(500L), 0);
+            final Type[] types = new Type[4];
+            
+            int pills = -1, planned = 0;
+            
+            while (planned < POSITIONS && !state.hasWin() && !state.hasLose())
+            {
+                if (state.hasPill() && state.getBoard().canInteract() && state.getPills() != pills)
+                {
+                    pills = state.getPills();
+                    
+                    types[0] = state.getPillType();
+                    types[1] = state.getPillExtraType();
+                    types[2] = state.getNextType();
+                    types[3] = state.getNextExtraType();
+                    
+                    assertTrue(planner.submit(pills, state.getBoard().getBoard(), types, 2));
+                    
+                    planner.await();
+                    
+                    //the result is there as soon as the wait is over
+                    assertFalse(planner.isRunning());
+                    assertTrue(planner.hasResult(pills));
+                    assertEquals(expected.plan(state.getBoard().getBoard(), types, 2), planner.hasPlacement());
+                    assertEquals(expected.getCol(), planner.getCol());
+                    assertEquals(expected.getRow(), planner.getRow());
+                    assertEquals(expected.getRotation(), planner.getRotation());
+                    
+                    planned++;
+                }
+                
+                state.step(Input.DOWN);
+            }
+            
+            assertTrue(planned > 0);
+        }
+        finally
+        {
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void awaitIsReadyForTheDefault()
+    {
+        assertAwaitIsReady(StrategyRegistry.DEFAULT);
+    }
+    
+    @Test
+    public void awaitIsReadyForRollouts()
+    {
+        assertAwaitIsReady("rollout");
+    }
+    
+    @Test
+    public void awaitReturnsWhenNothingIsRunning()
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        
+        try
+        {
+            final AsyncPlanner planner = new AsyncPlanner(StrategyRegistry.create(StrategyRegistry.DEFAULT, null), executor);
+            
+            planner.await();
+            
+            assertFalse(planner.isRunning());
+            assertFalse(planner.hasResult(0L));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks every level of a chain reaction is scored, the first match with the virus kill weight
+ * and every match after it with the chain virus kill and chain weights.
+ * @author GOD
+ */
+public class EvaluatorTest
+{
+    //different weights for each part of the chain score so each one can be seen in the total
+    private static final int VIRUS_KILL = 1000;
+    private static final int PILL_KILL = 100;
+    private static final int CHAIN_VIRUS_KILL = 10;
+    private static final int CHAIN = 1;
+    
+    private static Evaluator createEvaluator()
+    {
+        final int[] values = Weights.DEFAULT.toArray();
+        values[Weights.VIRUS_KILL] = VIRUS_KILL;
+        values[Weights.PILL_KILL] = PILL_KILL;
+        values[Weights.CHAIN_VIRUS_KILL] = CHAIN_VIRUS_KILL;
+        values[Weights.CHAIN] = CHAIN;
+        
+        return new Evaluator(new Weights(values));
+    }
+    
+    /**
+     * Create a board where a red Pill at column 3, row 12 completes a row of red, then the blue half
+     * left hanging in column 0 drops onto 3 blue viruses for a second match
+     * @return BitBoard
+     */
+    private static BitBoard createChain()
+    {
+        final BitBoard board = new BitBoard();
+        
+        for (int row = 13; row < BitBoard.ROWS; row++)
+        {
+            board.set(0, row, Type.BlueVirus);
+            board.set(3, row, Type.YellowVirus);
+        }
+        
+        board.set(0, 12, Type.RedPill);
+        board.set(0, 11, Type.BluePill);
+        board.set(1, 12, Type.RedVirus);
+        board.set(2, 12, Type.RedVirus);
+        
+        return board;
+    }
+    
+    @Test
+    public void everyLevelOfTheChainIsScored()
+    {
+        final BitBoard board = createChain();
+        final ChainReport report = new ChainReport();
+        
+        board.addPill(3, 12, Type.RedPill, 3, 11, Type.BluePill);
+        board.settle(report);
+        
+        //the row of red, then the column of blue once the blue half drops
+        assertEquals(2, report.getMatches());
+        assertEquals(1, report.getChains());
+        assertEquals(2, report.getVirusCount(0));
+        assertEquals(2, report.getPillCount(0));
+        assertEquals(3, report.getVirusCount(1));
+        assertEquals(1, report.getPillCount(1));
+        
+        final int first = (2 * VIRUS_KILL) + (2 * PILL_KILL);
+        final int second = (3 * CHAIN_VIRUS_KILL) + PILL_KILL + CHAIN;
+        
+        assertEquals(first + second, createEvaluator().getScore(report));
+    }
+    
+    @Test
+    public void aSingleMatchHasNoChainScore()
+    {
+        final BitBoard board = createChain();
+        final ChainReport report = new ChainReport();
+        
+        //nothing is left hanging over the blue viruses
+        board.remove(0, 11);
+        
+        board.addPill(3, 12, Type.RedPill, 3, 11, Type.BluePill);
+        board.settle(report);
+        
+        assertEquals(1, report.getMatches());
+        assertEquals(0, report.getChains());
+        assertEquals((2 * VIRUS_KILL) + (2 * PILL_KILL), createEvaluator().getScore(report));
+    }
+    
+    @Test
+    public void noMatchScoresNothing()
+    {
+        final BitBoard board = createChain();
+        final ChainReport report = new ChainReport();
+        
+        board.addPill(3, 12, Type.BluePill, 3, 11, Type.BluePill);
+        board.settle(report);
+        
+        assertEquals(0, report.getMatches());
+        assertEquals(0, createEvaluator().getScore(report));
+    }
+}
\ No newline at end of file
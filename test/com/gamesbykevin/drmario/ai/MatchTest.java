@@ -0,0 +1,184 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks a match with the same seed always plays the same, and the players plan at the same time.
+ * @author GOD
+ */
+public class MatchTest
+{
+    //the number of viruses in each match
+    private static final int VIRUSES = 10;
+    
+    /**
+     * Waits in the first plan until every player has started planning, then plans with the greedy strategy
+     */
+    private static final class TogetherStrategy implements IAgentStrategy
+    {
+        private final IAgentStrategy strategy = StrategyRegistry.create("greedy", null);
+        
+        //counted down once by the first plan of every player
+        private final CountDownLatch started;
+        
+        //did every player start the first plan before this one finished
+        private volatile boolean together = false;
+        private boolean first = true;
+        
+        private TogetherStrategy(final CountDownLatch started)
+        {
+            this.started = started;
+        }
+        
+        @Override
+        public boolean plan(final BitBoard board, final Type[] types, final int pills)
+        {
+            if (first)
+            {
+                first = false;
+                started.countDown();
+                
+                try
+                {
+                    together = started.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            return strategy.plan(board, types, pills);
+        }
+        
+        @Override
+        public void setInputsPerRow(final int inputsPerRow)
+        {
+            strategy.setInputsPerRow(inputsPerRow);
+        }
+        
+        @Override
+        public void setBudget(final long budget)
+        {
+            strategy.setBudget(budget);
+        }
+        
+        @Override
+        public void setNodeBudget(final long nodes)
+        {
+            strategy.setNodeBudget(nodes);
+        }
+        
+        @Override
+        public int getCol()
+        {
+            return strategy.getCol();
+        }
+        
+        @Override
+        public int getRow()
+        {
+            return strategy.getRow();
+        }
+        
+        @Override
+        public Rotation getRotation()
+        {
+            return strategy.getRotation();
+        }
+        
+        @Override
+        public int getPath(final int[] result)
+        {
+            return strategy.getPath(result);
+        }
+        
+        @Override
+        public void cancel()
+        {
+            strategy.cancel();
+        }
+        
+        @Override
+        public void resume()
+        {
+            strategy.resume();
+        }
+        
+        @Override
+        public boolean hasCancel()
+        {
+            return strategy.hasCancel();
+        }
+    }
+    
+    /**
+     * Play a match between the default and rollout strategies
+     * @param seed The seed of the match
+     * @return int[] The winner and the ticks the match took
+     */
+    private static int[] play(final long seed)
+    {
+        final Match match = new Match(new IAgentStrategy[] {StrategyRegistry.create(StrategyRegistry.DEFAULT, null), StrategyRegistry.create("rollout", null)}, Match.DEFAULT_NODES, true);
+        
+        try
+        {
+            final int winner = match.play(seed, VIRUSES);
+            
+            return new int[] {winner, match.getTicks()};
+        }
+        finally
+        {
+            match.dispose();
+        }
+    }
+    
+    @Test
+    public void sameSeedPlaysTheSame()
+    {
+        for (long seed = 0; seed < 3; seed++)
+        {
+            final int[] expected = play(seed);
+            final int[] actual = play(seed);
+            
+            assertEquals("seed " + seed, expected[0], actual[0]);
+            assertEquals("seed " + seed, expected[1], actual[1]);
+            assertTrue(expected[1] > 0);
+        }
+    }
+    
+    @Test
+    public void playersPlanAtTheSameTime()
+    {
+        final CountDownLatch started = new CountDownLatch(3);
+        
+        final TogetherStrategy[] strategies = {new TogetherStrategy(started), new TogetherStrategy(started), new TogetherStrategy(started)};
+        
+        final Match match = new Match(strategies, Match.DEFAULT_NODES, false);
+        
+        try
+        {
+            match.play(1L, VIRUSES);
+        }
+        finally
+        {
+            match.dispose();
+        }
+        
+        //if the plans ran 1 after another the first would have given up waiting for the others
+        for (TogetherStrategy strategy : strategies)
+        {
+            assertTrue(strategy.together);
+        }
+    }
+}
\ No newline at end of file
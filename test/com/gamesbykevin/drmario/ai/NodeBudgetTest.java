@@ -0,0 +1,134 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks a budget of placements limits the search, and the same position always gets the same plan however many threads search it.
+ * @author GOD
+ */
+public class NodeBudgetTest
+{
+    //the placements scored for each plan
+    private static final long NODES = 600L;
+    
+    //the positions planned
+    private static final int POSITIONS = 40;
+    
+    /**
+     * Plan positions from a game with both strategies and check they always choose the same placement
+     * @param single The strategy searching on 1 thread
+     * @param parallel The same strategy searching on a pool
+     */
+    private static void assertSamePlans(final IAgentStrategy single, final IAgentStrategy parallel)
+    {
+        for (IAgentStrategy strategy : new IAgentStrategy[] {single, parallel})
+        {
+            strategy.setBudget(Long.MAX_VALUE);
+            strategy.setNodeBudget(NODES);
+            strategy.setInputsPerRow(SelfPlay.INPUTS_PER_ROW);
+        }
+        
+        final GameState state = new GameState(40, 5L, GameState.toTicks(500L), 0);
+        final Type[] types = new Type[4];
+        
+        int pills = -1, planned = 0;
+        
+        while (planned < POSITIONS && !state.hasWin() && !state.hasLose())
+        {
+            if (state.hasPill() && state.getBoard().canInteract() && state.getPills() != pills)
+            {
+                pills = state.getPills();
+                
+                types[0] = state.getPillType();
+                types[1] = state.getPillExtraType();
+                types[2] = state.getNextType();
+                types[3] = state.getNextExtraType();
+                
+                assertEquals(single.plan(state.getBoard().getBoard(), types, 2), parallel.plan(state.getBoard().getBoard(), types, 2));
+                
+                assertEquals("pill " + pills, single.getCol(), parallel.getCol());
+                assertEquals("pill " + pills, single.getRow(), parallel.getRow());
+                assertEquals("pill " + pills, single.getRotation(), parallel.getRotation());
+                
+                planned++;
+            }
+            
+            state.step(Input.DOWN);
+        }
+        
+        assertTrue(planned > 0);
+    }
+    
+    @Test
+    public void plannerStaysWithinTheBudget()
+    {
+        final Planner planner = (Planner)StrategyRegistry.create(StrategyRegistry.DEFAULT, null);
+        
+        final GameState state = new GameState(40, 1L, GameState.toTicks(500L), 0);
+        final Type[] types = {state.getNextType(), state.getNextExtraType(), Type.RedPill, Type.BluePill};
+        
+        planner.setBudget(Long.MAX_VALUE);
+        
+        //without a limit the whole search is done
+        assertTrue(planner.plan(state.getBoard().getBoard(), types, 2));
+        assertTrue(planner.getNodes() > NODES);
+        
+        planner.setNodeBudget(NODES);
+        
+        assertTrue(planner.plan(state.getBoard().getBoard(), types, 2));
+        assertTrue(planner.getNodes() <= NODES);
+        assertTrue(planner.hasTimeout());
+        
+        //the first Pill is always scored
+        planner.setNodeBudget(1);
+        
+        assertTrue(planner.plan(state.getBoard().getBoard(), types, 2));
+        assertTrue(planner.getNodes() > 1);
+    }
+    
+    @Test
+    public void plannerIsTheSameOnEveryThread()
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        
+        try
+        {
+            assertSamePlans(StrategyRegistry.create(StrategyRegistry.DEFAULT, null), StrategyRegistry.create(StrategyRegistry.DEFAULT, pool));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void rolloutsAreTheSameOnEveryThread()
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        
+        try
+        {
+            final RolloutPlanner single = (RolloutPlanner)StrategyRegistry.create("rollout", null);
+            final RolloutPlanner parallel = (RolloutPlanner)StrategyRegistry.create("rollout", pool);
+            
+            assertSamePlans(single, parallel);
+            
+            //the budget only allows a few of the rollouts
+            assertEquals(single.getRollouts(), parallel.getRollouts());
+            assertTrue(single.getRollouts() >= 1 && single.getRollouts() < 32);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
\ No newline at end of file
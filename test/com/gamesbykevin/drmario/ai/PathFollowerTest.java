@@ -0,0 +1,190 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Plays headless games following the path of each plan the same way the Agent does,
+ * and checks every Pill that lands while on a path is at the goal, the goal planned or the best one still reachable.
+ * @author GOD
+ */
+public class PathFollowerTest
+{
+    //the ticks between gravity and between each move, the same as the medium speed
+    private static final int GRAVITY_TICKS = GameState.toTicks(500L);
+    private static final int MOVEMENT_TICKS = GameState.toTicks(250L);
+    
+    //the inputs the Agent has before gravity moves the Pill down a row
+    private static final int INPUTS_PER_ROW = Math.max(1, GRAVITY_TICKS / MOVEMENT_TICKS);
+    
+    //the number of games played
+    private static final int GAMES = 10;
+    
+    @Test
+    public void pillsLandAtTheGoal()
+    {
+        final Planner planner = new Planner(4, 1, Long.MAX_VALUE);
+        planner.setInputsPerRow(INPUTS_PER_ROW);
+        
+        final MoveGenerator moves = new MoveGenerator();
+        moves.setInputsPerRow(INPUTS_PER_ROW);
+        
+        final PathFollower path = new PathFollower();
+        final Evaluator evaluator = new Evaluator();
+        final int[] inputs = new int[MoveGenerator.PATH_LIMIT];
+        final Type[] types = new Type[4];
+        
+        //the Pill(s) with a goal, the Pill(s) that landed on a path, the searches when a Pill left the path, the goals changed and the inputs used
+        int pillsPlayed = 0, landed = 0, searches = 0, replans = 0, inputsPlayed = 0;
+        
+        for (int game = 0; game < GAMES; game++)
+        {
+            final GameState state = new GameState(20, game, GRAVITY_TICKS, 0);
+            
+            //the Pill planned and the goal
+            int pills = -1, movementWait = 0, inputRow = -1, inputsUsed = 0;
+            boolean goal = false;
+            int goalCol = -1, goalRow = -1;
+            Rotation goalRotation = null;
+            
+            while (!state.hasWin() && !state.hasLose() && state.getPills() < 200)
+            {
+                //the Pill was placed, if it never left the path it has to be where we planned
+                if (goal && (!state.hasPill() || state.getPills() != pills))
+                {
+                    pillsPlayed++;
+                    
+                    if (path.hasPath())
+                    {
+                        //the step that placed the Pill can also move it, so the Pill is found on the board
+                        final BitBoard board = state.getBoard().getBoard();
+                        final int goalCol2 = goalCol + GameState.getExtraCol(goalRotation);
+                        final int goalRow2 = goalRow + GameState.getExtraRow(goalRotation);
+                        
+                        assertEquals("game " + game + " pill " + pills, types[0], board.getType(goalCol, goalRow));
+                        assertEquals("game " + game + " pill " + pills, types[1], board.getType(goalCol2, goalRow2));
+                        assertEquals("game " + game + " pill " + pills, BitBoard.getIndex(goalCol2, goalRow2), board.getPartner(goalCol, goalRow));
+                        
+                        landed++;
+                    }
+                    
+                    goal = false;
+                }
+                
+                int input = Input.NONE;
+                
+                if (state.hasPill() && state.getBoard().canInteract())
+                {
+                    if (state.getPills() != pills)
+                    {
+                        pills = state.getPills();
+                        
+                        types[0] = state.getPillType();
+                        types[1] = state.getPillExtraType();
+                        types[2] = state.getNextType();
+                        types[3] = state.getNextExtraType();
+                        
+                        goal = planner.plan(state.getBoard().getBoard(), types, 2);
+                        
+                        if (goal)
+                        {
+                            goalCol = planner.getCol();
+                            goalRow = planner.getRow();
+                            goalRotation = planner.getRotation();
+                            
+                            path.setPath(inputs, planner.getPath(inputs));
+                        }
+                        
+                        movementWait = 0;
+                        inputRow = -1;
+                    }
+                    
+                    movementWait++;
+                    
+                    if (goal && movementWait >= MOVEMENT_TICKS)
+                    {
+                        movementWait = 0;
+                        
+                        if (state.getPillRow() != inputRow)
+                        {
+                            inputRow = state.getPillRow();
+                            inputsUsed = 0;
+                        }
+                        
+                        input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+                        
+                        //the Pill left the path so search again from where it is
+                        if (input < 0)
+                        {
+                            final MoveGenerator.Moves reachable = moves.generate(state.getBoard().getBoard(), state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputsUsed);
+                            
+                            path.setPath(state.getPillCol(), state.getPillRow(), state.getPillRotation(), inputs, reachable.getPath(goalCol, goalRow, goalRotation, inputs));
+                            
+                            input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+                            searches++;
+                            
+                            //the goal can't be reached so the best placement that can becomes the goal
+                            if (input < 0)
+                            {
+                                final int best = path.setBestPath(reachable, state.getBoard().getBoard(), evaluator, state.getPillType(), state.getPillExtraType(), state.getPillCol(), state.getPillRow(), state.getPillRotation());
+                                
+                                assertTrue("game " + game + " pill " + pills, best >= 0);
+                                
+                                goalCol = reachable.getCol(best);
+                                goalRow = reachable.getRow(best);
+                                goalRotation = reachable.getRotation(best);
+                                
+                                input = path.getInput(state.getPillCol(), state.getPillRow(), state.getPillRotation());
+                                replans++;
+                            }
+                            
+                            assertTrue(input >= 0);
+                        }
+                        
+                        inputsPlayed++;
+                        
+                        inputsUsed++;
+                    }
+                }
+                
+                state.step(input);
+            }
+        }
+        
+        //make sure Pill(s) were placed and most inputs came from a path without searching again
+        assertTrue(landed > 0);
+        assertTrue(searches * 4 < inputsPlayed);
+        
+        //a goal that can't be reached is replaced, so every Pill lands on a path
+        assertTrue(replans > 0);
+        assertEquals(pillsPlayed, landed);
+    }
+    
+    @Test
+    public void leavingThePathStopsFollowing()
+    {
+        final int[] inputs = {Input.RIGHT, Input.ROTATE, Input.DOWN, Input.DOWN};
+        
+        final PathFollower path = new PathFollower();
+        path.setPath(inputs, inputs.length);
+        
+        assertTrue(path.hasPath());
+        assertEquals(Input.RIGHT, path.getInput(GameState.START_COL, GameState.START_ROW, Rotation.East));
+        assertEquals(Input.ROTATE, path.getInput(GameState.START_COL + 1, GameState.START_ROW, Rotation.East));
+        
+        //only falling is left so drop
+        assertEquals(Input.DOWN, path.getInput(GameState.START_COL + 1, GameState.START_ROW, Rotation.South));
+        
+        //somewhere the path never goes
+        assertEquals(-1, path.getInput(GameState.START_COL, GameState.START_ROW + 1, Rotation.East));
+        assertTrue(!path.hasPath());
+    }
+}
\ No newline at end of file
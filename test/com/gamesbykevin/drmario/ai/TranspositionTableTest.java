@@ -0,0 +1,115 @@
+package com.gamesbykevin.drmario.ai;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+import com.gamesbykevin.drmario.sim.GameState;
+import com.gamesbykevin.drmario.sim.Input;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the transposition table keeps the recently used entries, and that a planner reusing the scores
+ * it saved chooses exactly the same placements as a new planner that has to score everything.
+ * @author GOD
+ */
+public class TranspositionTableTest
+{
+    //the Pill(s) placed in each game
+    private static final int PILLS = 40;
+    
+    //the number of games played
+    private static final int GAMES = 4;
+    
+    private static final Type[] PILL_TYPES = {Type.RedPill, Type.BluePill, Type.YellowPill};
+    
+    @Test
+    public void recentlyUsedEntriesAreKept()
+    {
+        //a single group of slots so every key competes for the same slots
+        final TranspositionTable table = new TranspositionTable(4);
+        
+        for (int key = 1; key <= 4; key++)
+        {
+            table.put(key, key * 10);
+        }
+        
+        //use every entry except the third
+        assertEquals(10, table.getValue(table.find(1)));
+        assertEquals(20, table.getValue(table.find(2)));
+        assertEquals(40, table.getValue(table.find(4)));
+        
+        table.put(5, 50);
+        
+        assertEquals(-1, table.find(3));
+        assertEquals(50, table.getValue(table.find(5)));
+        assertEquals(10, table.getValue(table.find(1)));
+        
+        table.clear();
+        
+        assertEquals(-1, table.find(1));
+    }
+    
+    @Test
+    public void savedScoresDontChangeThePlan()
+    {
+        final Planner planner = new Planner(8, 3, Long.MAX_VALUE);
+        final ChainReport report = new ChainReport();
+        
+        for (int game = 0; game < GAMES; game++)
+        {
+            final GameState state = new GameState(30, game, GameState.toTicks(500L), 0);
+            
+            while (!state.getBoard().isSpawnComplete())
+            {
+                state.step(Input.NONE);
+            }
+            
+            final BitBoard board = new BitBoard();
+            board.copy(state.getBoard().getBoard());
+            
+            final Random random = new Random(game);
+            final Type[] types = new Type[4];
+            
+            for (int i = 0; i < types.length; i++)
+            {
+                types[i] = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+            }
+            
+            //place each Pill where the planner chose so the next position was looked at by the previous plan
+            for (int pill = 0; pill < PILLS && board.getVirusCount() > 0; pill++)
+            {
+                final Planner fresh = new Planner(8, 3, Long.MAX_VALUE);
+                
+                final boolean placed = planner.plan(board, types, 2);
+                
+                assertEquals(fresh.plan(board, types, 2), placed);
+                
+                if (!placed)
+                    break;
+                
+                assertEquals("game " + game + " pill " + pill, fresh.getCol(), planner.getCol());
+                assertEquals("game " + game + " pill " + pill, fresh.getRow(), planner.getRow());
+                assertEquals("game " + game + " pill " + pill, fresh.getRotation(), planner.getRotation());
+                
+                final Rotation rotation = planner.getRotation();
+                
+                board.addPill(planner.getCol(), planner.getRow(), types[0], planner.getCol() + GameState.getExtraCol(rotation), planner.getRow() + GameState.getExtraRow(rotation), types[1]);
+                board.settle(report);
+                
+                types[0] = types[2];
+                types[1] = types[3];
+                types[2] = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+                types[3] = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+            }
+        }
+        
+        assertTrue(planner.getHits() > 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.gamesbykevin.drmario.board;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the top of each column and the first virus of each column are kept up to date
+ * by every change to the board, by comparing them with a scan of the column.
+ * @author GOD
+ */
+public class BitBoardIndexTest
+{
+    //the number of random changes made to each board
+    private static final int CHANGES = 400;
+    
+    //the number of boards
+    private static final int BOARDS = 200;
+    
+    /**
+     * Check the indexes of every column against a scan
+     * @param message Describes the board if the check fails
+     * @param board The board
+     */
+    private static void assertIndexes(final String message, final BitBoard board)
+    {
+        for (int col = 0; col < BitBoard.COLUMNS; col++)
+        {
+            int top = BitBoard.ROWS, virusTop = BitBoard.ROWS;
+            
+            for (int row = BitBoard.ROWS - 1; row >= 0; row--)
+            {
+                if (board.hasBlock(col, row))
+                    top = row;
+                if (board.isVirus(col, row))
+                    virusTop = row;
+            }
+            
+            assertEquals(message + " column " + col, top, board.getTop(col));
+            assertEquals(message + " column " + col, virusTop, board.getVirusTop(col));
+            
+            //above every Block the Block below is the top
+            for (int row = 0; row < top; row++)
+            {
+                assertEquals(message + " column " + col, top, board.getBelow(col, row));
+            }
+        }
+    }
+    
+    @Test
+    public void indexesFollowEveryChange()
+    {
+        final Random random = new Random(3);
+        
+        final BitBoard board = new BitBoard();
+        final ChainReport report = new ChainReport();
+        final long[] moved = new long[2];
+        
+        for (int i = 0; i < BOARDS; i++)
+        {
+            board.clear();
+            assertIndexes("board " + i + " cleared", board);
+            
+            for (int change = 0; change < CHANGES; change++)
+            {
+                final String message = "board " + i + " change " + change;
+                
+                final int col = random.nextInt(BitBoard.COLUMNS);
+                final int row = random.nextInt(BitBoard.ROWS);
+                
+                switch (random.nextInt(6))
+                {
+                    case 0:
+                    case 1:
+                        if (!board.hasBlock(col, row))
+                            board.set(col, row, Type.values()[random.nextInt(Type.values().length)]);
+                        break;
+                    
+                    case 2:
+                        if (board.hasBlock(col, row))
+                            board.remove(col, row);
+                        break;
+                    
+                    case 3:
+                        //a Pill above the column so it has somewhere to drop
+                        if (row + 1 < BitBoard.ROWS && !board.hasBlock(col, row) && !board.hasBlock(col, row + 1))
+                            board.addPill(col, row, Type.RedPill, col, row + 1, Type.BluePill);
+                        break;
+                    
+                    case 4:
+                        board.drop(moved);
+                        break;
+                    
+                    default:
+                        board.settle(report);
+                        break;
+                }
+                
+                assertIndexes(message, board);
+            }
+            
+            //a copy has the same indexes
+            final BitBoard copy = new BitBoard();
+            copy.copy(board);
+            assertIndexes("board " + i + " copy", copy);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.gamesbykevin.drmario.board;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks a Pill placed and settled inside a transaction is undone by rollback,
+ * leaving the exact cells, links, counts, column tops and hash the board had before.
+ * @author GOD
+ */
+public class BitBoardJournalTest
+{
+    //the number of random boards checked
+    private static final int BOARDS = 2000;
+    
+    //the placements tried on each board
+    private static final int PLACEMENTS = 10;
+    
+    //the viruses and Pill(s) on each random board
+    private static final int VIRUSES = 30;
+    private static final int PILLS = 12;
+    
+    //the first row a virus can be in
+    private static final int VIRUS_START_ROW = 5;
+    
+    private static final Type[] PILL_TYPES = {Type.RedPill, Type.BluePill, Type.YellowPill};
+    private static final Type[] VIRUS_TYPES = {Type.RedVirus, Type.BlueVirus, Type.YellowVirus};
+    
+    /**
+     * Place a random Pill above the Block(s) in a random column, vertical or horizontal
+     * @param random Random numbers
+     * @param board The board
+     * @return boolean true if the Pill was placed, false if there was no room
+     */
+    private static boolean addPill(final Random random, final BitBoard board)
+    {
+        final Type type = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+        final Type type2 = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+        
+        final int col = random.nextInt(BitBoard.COLUMNS);
+        
+        if (random.nextBoolean() && col + 1 < BitBoard.COLUMNS)
+        {
+            final int row = Math.min(board.getTop(col), board.getTop(col + 1)) - 1;
+            
+            if (row < 0)
+                return false;
+            
+            board.addPill(col, row, type, col + 1, row, type2);
+        }
+        else
+        {
+            final int row = board.getTop(col) - 1;
+            
+            if (row < 1)
+                return false;
+            
+            board.addPill(col, row - 1, type, col, row, type2);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Build a random board with viruses and linked Pill(s) that have been settled
+     * @param random Random numbers
+     * @param board The board, it is cleared first
+     */
+    private static void createBoard(final Random random, final BitBoard board)
+    {
+        board.clear();
+        
+        final ChainReport report = new ChainReport();
+        
+        for (int i = 0; i < VIRUSES; i++)
+        {
+            final int col = random.nextInt(BitBoard.COLUMNS);
+            final int row = VIRUS_START_ROW + random.nextInt(BitBoard.ROWS - VIRUS_START_ROW);
+            
+            if (!board.hasBlock(col, row))
+                board.set(col, row, VIRUS_TYPES[random.nextInt(VIRUS_TYPES.length)]);
+        }
+        
+        for (int i = 0; i < PILLS; i++)
+        {
+            if (addPill(random, board))
+                board.settle(report);
+        }
+    }
+    
+    /**
+     * Check both boards are exactly the same
+     * @param message Describes the board if the check fails
+     * @param expected The board before the transaction
+     * @param actual The board after rollback
+     */
+    private static void assertBoard(final String message, final BitBoard expected, final BitBoard actual)
+    {
+        for (int col = 0; col < BitBoard.COLUMNS; col++)
+        {
+            for (int row = 0; row < BitBoard.ROWS; row++)
+            {
+                assertEquals(message, expected.getType(col, row), actual.getType(col, row));
+                assertEquals(message, expected.getPartner(col, row), actual.getPartner(col, row));
+            }
+            
+            assertEquals(message, expected.getTop(col), actual.getTop(col));
+            assertEquals(message, expected.getVirusTop(col), actual.getVirusTop(col));
+        }
+        
+        final int[] counts = new int[Type.values().length];
+        final int[] counts2 = new int[Type.values().length];
+        expected.getCounts(counts);
+        actual.getCounts(counts2);
+        
+        assertArrayEquals(message, counts, counts2);
+        assertEquals(message, expected.getVirusCount(), actual.getVirusCount());
+        assertEquals(message, expected.getHash(), actual.getHash());
+    }
+    
+    @Test
+    public void rollbackRestoresTheBoard()
+    {
+        final Random random = new Random(9);
+        
+        final BitBoard board = new BitBoard();
+        final BitBoard expected = new BitBoard();
+        final ChainReport report = new ChainReport();
+        
+        //make sure the placements destroy something so the rollback has more to undo than the Pill
+        int matches = 0;
+        
+        for (int i = 0; i < BOARDS; i++)
+        {
+            createBoard(random, board);
+            expected.copy(board);
+            
+            for (int placement = 0; placement < PLACEMENTS; placement++)
+            {
+                board.begin();
+                
+                if (addPill(random, board))
+                {
+                    board.settle(report);
+                    matches += report.getMatches();
+                }
+                
+                board.rollback();
+                
+                assertTrue(!board.hasTransaction());
+                assertBoard("board " + i + " placement " + placement, expected, board);
+            }
+        }
+        
+        assertTrue(matches > 0);
+    }
+    
+    @Test
+    public void nestedRollbackOnlyUndoesItsOwnChanges()
+    {
+        final Random random = new Random(4);
+        
+        final BitBoard board = new BitBoard();
+        final BitBoard outer = new BitBoard();
+        final BitBoard expected = new BitBoard();
+        final ChainReport report = new ChainReport();
+        
+        for (int i = 0; i < BOARDS; i++)
+        {
+            createBoard(random, board);
+            expected.copy(board);
+            
+            board.begin();
+            
+            if (addPill(random, board))
+                board.settle(report);
+            
+            outer.copy(board);
+            
+            board.begin();
+            
+            if (addPill(random, board))
+                board.settle(report);
+            
+            board.rollback();
+            assertBoard("board " + i + " inner", outer, board);
+            assertTrue(board.hasTransaction());
+            
+            board.rollback();
+            assertBoard("board " + i + " outer", expected, board);
+            assertTrue(!board.hasTransaction());
+        }
+    }
+}
\ No newline at end of file
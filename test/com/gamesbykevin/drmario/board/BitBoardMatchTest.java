@@ -0,0 +1,285 @@
+package com.gamesbykevin.drmario.board;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the bitwise match scan against a plain cell by cell scan of the same rule on random boards.<br><br>
+ * A match is 4 or more of the same color in a row or column with at least 1 Pill.
+ * @author GOD
+ */
+public class BitBoardMatchTest
+{
+    //the number of random boards checked by each test
+    private static final int BOARDS = 20000;
+    
+    //the share of cells that are filled on each random board
+    private static final double FILL = 0.6;
+    
+    //the share of the filled cells that are removed again
+    private static final double EMPTY = 0.1;
+    
+    /**
+     * Build a random board through set and remove, the same board is written to the grid
+     * @param random Random numbers
+     * @param board The board, it is cleared first
+     * @param grid The Type of every cell by column then row, null if empty
+     */
+    private static void createBoard(final Random random, final BitBoard board, final Type[][] grid)
+    {
+        board.clear();
+        
+        for (int col = 0; col < BitBoard.COLUMNS; col++)
+        {
+            for (int row = 0; row < BitBoard.ROWS; row++)
+            {
+                grid[col][row] = null;
+                
+                if (random.nextDouble() >= FILL)
+                    continue;
+                
+                grid[col][row] = Type.values()[random.nextInt(Type.values().length)];
+                board.set(col, row, grid[col][row]);
+                
+                if (random.nextDouble() < EMPTY)
+                {
+                    grid[col][row] = null;
+                    board.remove(col, row);
+                }
+            }
+        }
+    }
+    
+    private static boolean isVirus(final Type type)
+    {
+        return (type == Type.RedVirus || type == Type.BlueVirus || type == Type.YellowVirus);
+    }
+    
+    private static int getColor(final Type type)
+    {
+        switch (type)
+        {
+            case RedPill:
+            case RedVirus:
+                return 0;
+            
+            case BluePill:
+            case BlueVirus:
+                return 1;
+            
+            default:
+                return 2;
+        }
+    }
+    
+    /**
+     * Find the matches cell by cell
+     * @param grid The Type of every cell by column then row, null if empty
+     * @param rows Each bit is a row checked for horizontal matches
+     * @param cols Each bit is a column checked for vertical matches
+     * @return boolean[] Is each cell part of a match, by cell index
+     */
+    private static boolean[] getMatches(final Type[][] grid, final int rows, final int cols)
+    {
+        final boolean[] result = new boolean[BitBoard.CELLS];
+        
+        //horizontal runs
+        for (int row = 0; row < BitBoard.ROWS; row++)
+        {
+            if ((rows & (1 << row)) == 0)
+                continue;
+            
+            int start = 0;
+            
+            while (start < BitBoard.COLUMNS)
+            {
+                if (grid[start][row] == null)
+                {
+                    start++;
+                    continue;
+                }
+                
+                int end = start + 1;
+                boolean pill = !isVirus(grid[start][row]);
+                
+                while (end < BitBoard.COLUMNS && grid[end][row] != null && getColor(grid[end][row]) == getColor(grid[start][row]))
+                {
+                    pill |= !isVirus(grid[end][row]);
+                    end++;
+                }
+                
+                if (end - start >= Board.MATCH_MINIMUM && pill)
+                {
+                    for (int col = start; col < end; col++)
+                    {
+                        result[BitBoard.getIndex(col, row)] = true;
+                    }
+                }
+                
+                start = end;
+            }
+        }
+        
+        //vertical runs
+        for (int col = 0; col < BitBoard.COLUMNS; col++)
+        {
+            if ((cols & (1 << col)) == 0)
+                continue;
+            
+            int start = 0;
+            
+            while (start < BitBoard.ROWS)
+            {
+                if (grid[col][start] == null)
+                {
+                    start++;
+                    continue;
+                }
+                
+                int end = start + 1;
+                boolean pill = !isVirus(grid[col][start]);
+                
+                while (end < BitBoard.ROWS && grid[col][end] != null && getColor(grid[col][end]) == getColor(grid[col][start]))
+                {
+                    pill |= !isVirus(grid[col][end]);
+                    end++;
+                }
+                
+                if (end - start >= Board.MATCH_MINIMUM && pill)
+                {
+                    for (int row = start; row < end; row++)
+                    {
+                        result[BitBoard.getIndex(col, row)] = true;
+                    }
+                }
+                
+                start = end;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Check the result has exactly the expected cells and counts
+     * @param message Describes the board if the check fails
+     * @param grid The Type of every cell by column then row, null if empty
+     * @param expected Is each cell part of a match
+     * @param found The value returned by the scan
+     * @param result The result of the scan
+     */
+    private static void assertMatches(final String message, final Type[][] grid, final boolean[] expected, final boolean found, final MatchResult result)
+    {
+        boolean any = false;
+        int viruses = 0;
+        int pills = 0;
+        
+        for (int index = 0; index < BitBoard.CELLS; index++)
+        {
+            assertEquals(message + " cell " + index, expected[index], result.has(index));
+            
+            if (!expected[index])
+                continue;
+            
+            any = true;
+            
+            if (isVirus(grid[index % BitBoard.COLUMNS][index / BitBoard.COLUMNS]))
+                viruses++;
+            else
+                pills++;
+        }
+        
+        assertEquals(message, any, found);
+        assertEquals(message, viruses, result.getVirusCount());
+        assertEquals(message, pills, result.getPillCount());
+    }
+    
+    @Test
+    public void fullScanMatchesBaseline()
+    {
+        final Random random = new Random(1L);
+        final BitBoard board = new BitBoard();
+        final MatchResult result = new MatchResult();
+        final Type[][] grid = new Type[BitBoard.COLUMNS][BitBoard.ROWS];
+        
+        for (int i = 0; i < BOARDS; i++)
+        {
+            createBoard(random, board, grid);
+            
+            final boolean found = board.getMatches(result);
+            
+            assertMatches("board " + i, grid, getMatches(grid, BitBoard.ALL_ROWS, BitBoard.ALL_COLUMNS), found, result);
+        }
+    }
+    
+    @Test
+    public void dirtyRowsAndColumnsMatchBaseline()
+    {
+        final Random random = new Random(2L);
+        final BitBoard board = new BitBoard();
+        final MatchResult result = new MatchResult();
+        final Type[][] grid = new Type[BitBoard.COLUMNS][BitBoard.ROWS];
+        
+        for (int i = 0; i < BOARDS; i++)
+        {
+            createBoard(random, board, grid);
+            
+            final int rows = random.nextInt(BitBoard.ALL_ROWS + 1);
+            final int cols = random.nextInt(BitBoard.ALL_COLUMNS + 1);
+            
+            final boolean found = board.getMatches(result, rows, cols);
+            
+            assertMatches("board " + i + " rows " + rows + " cols " + cols, grid, getMatches(grid, rows, cols), found, result);
+        }
+    }
+    
+    @Test
+    public void placedPillOnlyNeedsItsRowsAndColumns()
+    {
+        final Random random = new Random(3L);
+        final BitBoard board = new BitBoard();
+        final MatchResult result = new MatchResult();
+        final Type[][] grid = new Type[BitBoard.COLUMNS][BitBoard.ROWS];
+        
+        int checked = 0;
+        
+        while (checked < BOARDS)
+        {
+            createBoard(random, board, grid);
+            
+            //the board has to be settled before the Pill is placed
+            if (board.getMatches(result))
+                continue;
+            
+            //place both halves of a Pill in empty cells
+            final int col = random.nextInt(BitBoard.COLUMNS - 1);
+            final int row = random.nextInt(BitBoard.ROWS - 1);
+            final boolean horizontal = random.nextBoolean();
+            final int col2 = (horizontal) ? col + 1 : col;
+            final int row2 = (horizontal) ? row : row + 1;
+            
+            if (grid[col][row] != null || grid[col2][row2] != null)
+                continue;
+            
+            grid[col][row] = Type.values()[random.nextInt(3) * 2];
+            grid[col2][row2] = Type.values()[random.nextInt(3) * 2];
+            board.set(col, row, grid[col][row]);
+            board.set(col2, row2, grid[col2][row2]);
+            
+            final int rows = (1 << row) | (1 << row2);
+            final int cols = (1 << col) | (1 << col2);
+            
+            final boolean found = board.getMatches(result, rows, cols);
+            
+            //only checking the rows and columns of the Pill finds every match on the board
+            assertMatches("board " + checked, grid, getMatches(grid, BitBoard.ALL_ROWS, BitBoard.ALL_COLUMNS), found, result);
+            
+            checked++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.gamesbykevin.drmario.board;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks every Block in a match is counted once, even where runs cross or overlap,
+ * and the result is cleared in place each time it is filled.
+ * @author GOD
+ */
+public class MatchResultTest
+{
+    /**
+     * Create a board with a row of 5 and a column of 7 red Block(s) crossing at column 2, row 5
+     * @return BitBoard
+     */
+    private static BitBoard createCross()
+    {
+        final BitBoard board = new BitBoard();
+        
+        for (int col = 0; col < 5; col++)
+        {
+            board.set(col, 5, Type.RedPill);
+        }
+        
+        for (int row = 2; row < 9; row++)
+        {
+            if (row != 5)
+                board.set(2, row, Type.RedPill);
+        }
+        
+        //a virus at the end of each run
+        board.set(4, 5, Type.RedVirus);
+        board.set(2, 8, Type.RedVirus);
+        
+        return board;
+    }
+    
+    @Test
+    public void crossingRunsAreCountedOnce()
+    {
+        final BitBoard board = createCross();
+        final MatchResult result = new MatchResult();
+        
+        assertTrue(board.getMatches(result));
+        
+        //5 in the row and 7 in the column share 1 cell
+        assertEquals(9, result.getPillCount());
+        assertEquals(2, result.getVirusCount());
+        assertEquals(9, result.getCount(Type.RedPill));
+        assertEquals(2, result.getCount(Type.RedVirus));
+        assertEquals(0, result.getCount(Type.BluePill));
+        
+        int cells = 0;
+        
+        for (int index = result.next(0); index >= 0; index = result.next(index + 1))
+        {
+            assertTrue(board.hasBlock(index % BitBoard.COLUMNS, index / BitBoard.COLUMNS));
+            cells++;
+        }
+        
+        assertEquals(11, cells);
+        assertTrue(result.has(BitBoard.getIndex(2, 5)));
+    }
+    
+    @Test
+    public void resultIsClearedWhenFilledAgain()
+    {
+        final BitBoard board = createCross();
+        final MatchResult result = new MatchResult();
+        
+        board.getMatches(result);
+        board.getMatches(result);
+        
+        //the counts don't add up over each check
+        assertEquals(9, result.getPillCount());
+        assertEquals(2, result.getVirusCount());
+        
+        //break both runs so nothing matches
+        board.remove(1, 5);
+        board.remove(3, 5);
+        board.remove(2, 4);
+        board.remove(2, 6);
+        
+        assertTrue(!board.getMatches(result));
+        assertTrue(result.isEmpty());
+        assertEquals(0, result.getPillCount());
+        assertEquals(0, result.getVirusCount());
+        assertEquals(-1, result.next(0));
+    }
+    
+    @Test
+    public void virusesAloneAreNotAMatch()
+    {
+        final BitBoard board = new BitBoard();
+        final MatchResult result = new MatchResult();
+        
+        for (int col = 0; col < 4; col++)
+        {
+            board.set(col, 10, Type.BlueVirus);
+        }
+        
+        assertTrue(!board.getMatches(result));
+        
+        //1 Pill makes it a match
+        board.set(4, 10, Type.BluePill);
+        
+        assertTrue(board.getMatches(result));
+        assertEquals(4, result.getVirusCount());
+        assertEquals(1, result.getPillCount());
+    }
+}
\ No newline at end of file
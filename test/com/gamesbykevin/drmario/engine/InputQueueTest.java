@@ -0,0 +1,168 @@
+package com.gamesbykevin.drmario.engine;
+
+import java.awt.Component;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the events pass from 1 producer to 1 consumer in order, and the events that don't fit are dropped and counted.
+ * @author GOD
+ */
+public class InputQueueTest
+{
+    //the source of the events created
+    private static final Component SOURCE = new Component()
+    {
+    };
+    
+    /**
+     * Create a key press
+     * @param keyCode The key pressed
+     * @return InputEvent
+     */
+    private static InputEvent createEvent(final int keyCode)
+    {
+        return new KeyEvent(SOURCE, KeyEvent.KEY_PRESSED, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityHasToBeAPowerOfTwo()
+    {
+        new InputQueue(12);
+    }
+    
+    @Test
+    public void fullQueueDropsAndCounts()
+    {
+        final InputQueue queue = new InputQueue(4);
+        final InputEvent[] events = new InputEvent[queue.getCapacity()];
+        final long[] times = new long[queue.getCapacity()];
+        
+        for (int i = 0; i < queue.getCapacity(); i++)
+        {
+            assertTrue(queue.offer(createEvent(i), i));
+        }
+        
+        assertFalse(queue.offer(createEvent(99), 99));
+        assertFalse(queue.offer(createEvent(99), 99));
+        assertEquals(2, queue.getDropped());
+        
+        //the events that fit are kept in order
+        assertEquals(queue.getCapacity(), queue.drain(events, times));
+        
+        for (int i = 0; i < queue.getCapacity(); i++)
+        {
+            assertEquals(i, ((KeyEvent)events[i]).getKeyCode());
+            assertEquals(i, times[i]);
+        }
+        
+        assertEquals(0, queue.drain(events, times));
+    }
+    
+    @Test
+    public void slotsAreReusedPastTheCapacity()
+    {
+        final InputQueue queue = new InputQueue(4);
+        final InputEvent[] events = new InputEvent[queue.getCapacity()];
+        final long[] times = new long[queue.getCapacity()];
+        
+        long next = 0, expected = 0;
+        
+        //3 at a time so the slots wrap around at a different place every round
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                final InputEvent event = createEvent(KeyEvent.VK_LEFT);
+                
+                assertTrue(queue.offer(event, next++));
+            }
+            
+            final int count = queue.drain(events, times);
+            
+            assertEquals(3, count);
+            
+            for (int i = 0; i < count; i++)
+            {
+                assertEquals(expected++, times[i]);
+            }
+        }
+        
+        assertEquals(0, queue.getDropped());
+    }
+    
+    @Test
+    public void producerAndConsumerKeepTheOrder() throws Exception
+    {
+        final int total = 2000000;
+        
+        //a small queue so the producer wraps around and fills it often
+        final InputQueue queue = new InputQueue(8);
+        
+        //a few events used over and over, the time is the order each was offered
+        final InputEvent[] created = new InputEvent[16];
+        
+        for (int i = 0; i < created.length; i++)
+        {
+            created[i] = createEvent(i);
+        }
+        
+        final long[] rejected = new long[1];
+        
+        final Thread producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < total; i++)
+                {
+                    if (!queue.offer(created[i % created.length], i))
+                        rejected[0]++;
+                }
+            }
+        });
+        
+        final InputEvent[] events = new InputEvent[queue.getCapacity()];
+        final long[] times = new long[queue.getCapacity()];
+        
+        long received = 0, last = -1;
+        
+        producer.start();
+        
+        while (true)
+        {
+            //check if the producer is done before draining so nothing offered is missed
+            final boolean done = !producer.isAlive();
+            
+            final int count = queue.drain(events, times);
+            
+            for (int i = 0; i < count; i++)
+            {
+                //never out of order or twice, dropped events leave a gap
+                assertTrue(times[i] > last);
+                assertSame(created[(int)(times[i] % created.length)], events[i]);
+                
+                last = times[i];
+            }
+            
+            received += count;
+            
+            if (done && count == 0)
+                break;
+        }
+        
+        producer.join();
+        
+        //every event was received or counted as dropped
+        assertEquals(rejected[0], queue.getDropped());
+        assertEquals(total, received + queue.getDropped());
+        assertTrue(received > queue.getCapacity());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.gamesbykevin.drmario.main;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the steps due, the steps skipped after a stall and the share of the next step.
+ * @author GOD
+ */
+public class FixedTimestepTest
+{
+    //1 step every millisecond so the times below are exact
+    private static final double NANO_SECONDS_PER_STEP = 1000000.0;
+    
+    //the most steps run at once
+    private static final int MAXIMUM_STEPS = 5;
+    
+    /**
+     * Create a timestep that starts counting at time 0
+     * @return FixedTimestep
+     */
+    private static FixedTimestep create()
+    {
+        final FixedTimestep timestep = new FixedTimestep(NANO_SECONDS_PER_STEP, MAXIMUM_STEPS);
+        timestep.reset(0);
+        
+        return timestep;
+    }
+    
+    @Test
+    public void stallRunsTheMaximumAndSkipsTheRest()
+    {
+        final FixedTimestep timestep = create();
+        
+        //60 steps are owed after the stall
+        assertEquals(MAXIMUM_STEPS, timestep.advance(60000000L));
+        assertEquals(55, timestep.getSkipped());
+        
+        //the skipped steps are not run later
+        assertEquals(0, timestep.advance(60500000L));
+        assertEquals(1, timestep.advance(61000000L));
+        assertEquals(55, timestep.getSkipped());
+    }
+    
+    @Test
+    public void stepsAreDueForEveryWholeStep()
+    {
+        final FixedTimestep timestep = create();
+        
+        assertEquals(0, timestep.advance(250000L));
+        assertEquals(0.25, timestep.getAlpha(), 1e-9);
+        
+        //the time left over is kept for the next step
+        assertEquals(2, timestep.advance(2500000L));
+        assertEquals(0.5, timestep.getAlpha(), 1e-9);
+        assertEquals(3000000L, timestep.getNextDeadline());
+        
+        assertEquals(0, timestep.getSkipped());
+    }
+    
+    @Test
+    public void resetForgetsTheStepsOwed()
+    {
+        final FixedTimestep timestep = create();
+        
+        timestep.advance(500000L);
+        timestep.reset(10000000L);
+        
+        assertEquals(0.0, timestep.getAlpha(), 0.0);
+        assertEquals(0, timestep.advance(10900000L));
+        assertEquals(1, timestep.advance(11000000L));
+    }
+}
\ No newline at end of file
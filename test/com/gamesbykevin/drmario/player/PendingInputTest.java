@@ -0,0 +1,113 @@
+package com.gamesbykevin.drmario.player;
+
+import com.gamesbykevin.drmario.sim.Input;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the key presses of the Human are applied once each and never out of the order received.
+ * @author GOD
+ */
+public class PendingInputTest
+{
+    @Test
+    public void differentPressesShareAStep()
+    {
+        final PendingInput pending = new PendingInput();
+        
+        //a step rotates before it moves
+        pending.add(Input.ROTATE, false);
+        pending.add(Input.LEFT, false);
+        
+        assertEquals(Input.ROTATE | Input.LEFT, pending.next());
+        assertEquals(Input.NONE, pending.next());
+    }
+    
+    @Test
+    public void pressesAreNeverAppliedOutOfOrder()
+    {
+        final PendingInput pending = new PendingInput();
+        
+        //a step would rotate before moving left and move left before right, so each press waits for the next step
+        pending.add(Input.LEFT, false);
+        pending.add(Input.ROTATE, false);
+        pending.add(Input.RIGHT, false);
+        pending.add(Input.LEFT, false);
+        
+        assertEquals(Input.LEFT, pending.next());
+        assertEquals(Input.ROTATE | Input.RIGHT, pending.next());
+        assertEquals(Input.LEFT, pending.next());
+        assertEquals(Input.NONE, pending.next());
+    }
+    
+    @Test
+    public void repeatedPressCarriesToTheNextStep()
+    {
+        final PendingInput pending = new PendingInput();
+        
+        //tapping right twice between steps moves twice
+        pending.add(Input.RIGHT, false);
+        pending.add(Input.RIGHT, false);
+        pending.add(Input.ROTATE, false);
+        
+        assertEquals(Input.RIGHT, pending.next());
+        assertEquals(Input.RIGHT, pending.next());
+        assertEquals(Input.ROTATE, pending.next());
+        assertEquals(Input.NONE, pending.next());
+    }
+    
+    @Test
+    public void heldKeyCountsOnceWhileWaiting()
+    {
+        final PendingInput pending = new PendingInput();
+        
+        //the key repeats while the board is busy
+        for (int i = 0; i < 10; i++)
+        {
+            pending.add(Input.LEFT, true);
+        }
+        
+        pending.add(Input.RIGHT, true);
+        
+        assertEquals(2, pending.getCount());
+        assertEquals(Input.LEFT | Input.RIGHT, pending.next());
+        assertEquals(Input.NONE, pending.next());
+    }
+    
+    @Test
+    public void pressesAboveTheCapacityAreDropped()
+    {
+        final PendingInput pending = new PendingInput();
+        
+        for (int i = 0; i < PendingInput.CAPACITY + 4; i++)
+        {
+            pending.add(Input.LEFT, false);
+        }
+        
+        assertEquals(PendingInput.CAPACITY, pending.getCount());
+        
+        int steps = 0;
+        
+        while (pending.next() != Input.NONE)
+        {
+            steps++;
+        }
+        
+        assertEquals(PendingInput.CAPACITY, steps);
+    }
+    
+    @Test
+    public void clearForgetsEveryPress()
+    {
+        final PendingInput pending = new PendingInput();
+        
+        pending.add(Input.LEFT, false);
+        pending.add(Input.RIGHT, false);
+        pending.clear();
+        
+        assertEquals(0, pending.getCount());
+        assertEquals(Input.NONE, pending.next());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.gamesbykevin.drmario.sim;
+
+import com.gamesbykevin.drmario.ai.Planner;
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.block.Pill.Rotation;
+import com.gamesbykevin.drmario.board.BitBoard;
+import com.gamesbykevin.drmario.board.ChainReport;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the instant settle gives the same board as waiting for the animated drop.<br><br>
+ * Each Pill is placed on a packed board that is settled at once, and on a board that is updated
+ * tick by tick until a check for matches finds nothing. Both have to end with the same Block(s) and links,
+ * make the same matches in the same order and never move a virus.
+ * @author GOD
+ */
+public class BoardStateSettleTest
+{
+    //the number of viruses on each board
+    private static final int VIRUS_COUNT = 60;
+    
+    //the number of games played
+    private static final int GAMES = 40;
+    
+    //the Pill(s) placed in each game
+    private static final int PILLS = 60;
+    
+    //the update limit while waiting for the board to settle
+    private static final int UPDATE_LIMIT = 100000;
+    
+    private static final Type[] PILL_TYPES = {Type.RedPill, Type.BluePill, Type.YellowPill};
+    
+    @Test
+    public void settleMatchesTheAnimatedDrop()
+    {
+        final Random random = new Random(17);
+        
+        //places the Pill(s) where they make matches, so there are chains to compare
+        final Planner planner = new Planner(4, 2, Long.MAX_VALUE);
+        final Type[] types = new Type[4];
+        
+        final BitBoard expected = new BitBoard();
+        final BitBoard before = new BitBoard();
+        final ChainReport report = new ChainReport();
+        
+        //the viruses and pills destroyed by each match while updating
+        final int[] viruses = new int[BitBoard.CELLS];
+        final int[] pills = new int[BitBoard.CELLS];
+        
+        //make sure there were chains and Pill halves left hanging to drop
+        int chains = 0, drops = 0;
+        
+        for (int game = 0; game < GAMES; game++)
+        {
+            final BoardState state = new BoardState(VIRUS_COUNT, new Random(game));
+            state.reset();
+            
+            for (int update = 0; update < UPDATE_LIMIT && !state.canInteract(); update++)
+            {
+                state.update();
+            }
+            
+            for (int pill = 0; pill < PILLS; pill++)
+            {
+                final String message = "game " + game + " pill " + pill;
+                
+                final BitBoard board = state.getBoard();
+                
+                for (int i = 0; i < types.length; i++)
+                {
+                    types[i] = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+                }
+                
+                //the board is full
+                if (!planner.plan(board, types, 2))
+                    break;
+                
+                final Type type = types[0];
+                final Type type2 = types[1];
+                final Rotation rotation = planner.getRotation();
+                
+                final int col = planner.getCol();
+                final int row = planner.getRow();
+                final int col2 = col + GameState.getExtraCol(rotation);
+                final int row2 = row + GameState.getExtraRow(rotation);
+                
+                before.copy(board);
+                
+                expected.copy(board);
+                expected.addPill(col, row, type, col2, row2, type2);
+                expected.settle(report);
+                
+                state.addPill(col, row, type, col2, row2, type2);
+                
+                int matches = 0;
+                
+                //the board can be interacted with before each check for matches, so it is settled once a check finds nothing
+                boolean settled = false;
+                
+                for (int update = 0; update < UPDATE_LIMIT && !settled; update++)
+                {
+                    final boolean interact = state.canInteract();
+                    final int events = state.update();
+                    
+                    settled = (interact && events == 0);
+                    
+                    if (Event.Match.isSet(events) || Event.Chain.isSet(events))
+                    {
+                        //only the first match isn't part of a chain
+                        assertEquals(message, matches > 0, Event.Chain.isSet(events));
+                        
+                        viruses[matches] = state.getDead().getVirusCount();
+                        pills[matches] = state.getDead().getPillCount();
+                        matches++;
+                    }
+                }
+                
+                assertTrue(message, settled);
+                
+                //the same matches were made in the same order
+                assertEquals(message, report.getMatches(), matches);
+                
+                for (int match = 0; match < matches; match++)
+                {
+                    assertEquals(message + " match " + match, report.getVirusCount(match), viruses[match]);
+                    assertEquals(message + " match " + match, report.getPillCount(match), pills[match]);
+                }
+                
+                //the same Block(s) end up in the same place, still linked to the same half
+                for (int c = 0; c < BitBoard.COLUMNS; c++)
+                {
+                    for (int r = 0; r < BitBoard.ROWS; r++)
+                    {
+                        assertEquals(message, expected.getType(c, r), board.getType(c, r));
+                        assertEquals(message, expected.getPartner(c, r), board.getPartner(c, r));
+                        
+                        //a virus is only ever removed, never moved
+                        if (board.isVirus(c, r))
+                            assertEquals(message, before.getType(c, r), board.getType(c, r));
+                    }
+                }
+                
+                assertEquals(message, expected.getVirusCount(), board.getVirusCount());
+                assertEquals(message, expected.getHash(), board.getHash());
+                
+                chains += report.getChains();
+                
+                if (report.hasDrop())
+                    drops++;
+                
+                if (board.getVirusCount() == 0)
+                    break;
+            }
+        }
+        
+        assertTrue(chains > 0);
+        assertTrue(drops > 0);
+    }
+}
\ No newline at end of file
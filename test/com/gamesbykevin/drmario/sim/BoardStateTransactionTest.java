@@ -0,0 +1,130 @@
+package com.gamesbykevin.drmario.sim;
+
+import com.gamesbykevin.drmario.block.Block.Type;
+import com.gamesbykevin.drmario.board.BitBoard;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks a board that places and settles a Pill inside a transaction and rolls it back
+ * plays on exactly the same as a board with the same seed that never did.
+ * @author GOD
+ */
+public class BoardStateTransactionTest
+{
+    //the number of viruses on each board
+    private static final int VIRUS_COUNT = 40;
+    
+    //the number of games compared
+    private static final int GAMES = 30;
+    
+    //the Pill(s) placed in each game
+    private static final int PILLS = 40;
+    
+    //the update limit while waiting for the board to settle
+    private static final int UPDATE_LIMIT = 10000;
+    
+    private static final Type[] PILL_TYPES = {Type.RedPill, Type.BluePill, Type.YellowPill};
+    
+    /**
+     * Check both boards are in the same position
+     * @param message Describes the board if the check fails
+     * @param expected The board that never had a transaction
+     * @param actual The board that rolled back
+     */
+    private static void assertState(final String message, final BoardState expected, final BoardState actual)
+    {
+        assertEquals(message, expected.getBoard().getHash(), actual.getBoard().getHash());
+        assertEquals(message, expected.getVirusCount(), actual.getVirusCount());
+        assertEquals(message, expected.getScore(), actual.getScore());
+        assertEquals(message, expected.hasDead(), actual.hasDead());
+        assertEquals(message, expected.hasDrop(), actual.hasDrop());
+        assertEquals(message, expected.canInteract(), actual.canInteract());
+    }
+    
+    /**
+     * Update both boards until they can be interacted with, checking they stay the same
+     * @param message Describes the board if the check fails
+     * @param expected The board that never had a transaction
+     * @param actual The board that rolled back
+     */
+    private static void updateBoth(final String message, final BoardState expected, final BoardState actual)
+    {
+        for (int update = 0; update < UPDATE_LIMIT && !expected.canInteract(); update++)
+        {
+            assertEquals(message, expected.update(), actual.update());
+            assertState(message, expected, actual);
+        }
+        
+        assertTrue(message, expected.canInteract());
+    }
+    
+    @Test
+    public void rollbackPlaysOnTheSame()
+    {
+        final Random random = new Random(21);
+        
+        for (int game = 0; game < GAMES; game++)
+        {
+            final BoardState expected = new BoardState(VIRUS_COUNT, new Random(game));
+            final BoardState actual = new BoardState(VIRUS_COUNT, new Random(game));
+            expected.reset();
+            actual.reset();
+            
+            updateBoth("game " + game, expected, actual);
+            
+            for (int pill = 0; pill < PILLS; pill++)
+            {
+                final String message = "game " + game + " pill " + pill;
+                
+                //try a few placements the same way the planners do
+                for (int i = 0; i < 4; i++)
+                {
+                    actual.begin();
+                    
+                    final int col = random.nextInt(BitBoard.COLUMNS);
+                    final int row = actual.getBoard().getTop(col) - 2;
+                    
+                    if (row >= 0)
+                    {
+                        actual.addPill(col, row, PILL_TYPES[random.nextInt(PILL_TYPES.length)], col, row + 1, PILL_TYPES[random.nextInt(PILL_TYPES.length)]);
+                        actual.settle();
+                    }
+                    
+                    actual.rollback();
+                    
+                    assertTrue(message, !actual.hasTransaction());
+                    assertState(message, expected, actual);
+                }
+                
+                //then place the same Pill on both and let the boards play it out
+                final int col = random.nextInt(BitBoard.COLUMNS);
+                final int row = expected.getBoard().getTop(col) - 2;
+                
+                if (row < 0)
+                    break;
+                
+                final Type type = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+                final Type type2 = PILL_TYPES[random.nextInt(PILL_TYPES.length)];
+                
+                expected.addPill(col, row, type, col, row + 1, type2);
+                actual.addPill(col, row, type, col, row + 1, type2);
+                
+                updateBoth(message, expected, actual);
+            }
+        }
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void transactionsCantBeNested()
+    {
+        final BoardState state = new BoardState(VIRUS_COUNT, new Random(1));
+        state.begin();
+        state.begin();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.gamesbykevin.drmario.sim;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks a game that is reset plays exactly the same as a new game with the same seed,
+ * that VectorGame counts the games finished and can't be stepped once disposed.
+ * @author GOD
+ */
+public class GameStateResetTest
+{
+    //the rules for every game
+    private static final int VIRUS_COUNT = 20;
+    private static final int GRAVITY_TICKS = 10;
+    private static final int TIME_LIMIT = 5000;
+    
+    //the number of games compared
+    private static final int GAMES = 20;
+    
+    /**
+     * Check both games are in the same position
+     * @param message Describes the game if the check fails
+     * @param expected The new game
+     * @param actual The game that was reset
+     */
+    private static void assertSame(final String message, final GameState expected, final GameState actual)
+    {
+        assertEquals(message, expected.getBoard().getBoard().getHash(), actual.getBoard().getBoard().getHash());
+        assertEquals(message, expected.getBoard().getScore(), actual.getBoard().getScore());
+        assertEquals(message, expected.getEvents(), actual.getEvents());
+        assertEquals(message, expected.hasPill(), actual.hasPill());
+        assertEquals(message, expected.getPillCol(), actual.getPillCol());
+        assertEquals(message, expected.getPillRow(), actual.getPillRow());
+        assertEquals(message, expected.getPillRotation(), actual.getPillRotation());
+        assertEquals(message, expected.getPillType(), actual.getPillType());
+        assertEquals(message, expected.getNextType(), actual.getNextType());
+        assertEquals(message, expected.getNextExtraType(), actual.getNextExtraType());
+        assertEquals(message, expected.getTicks(), actual.getTicks());
+        assertEquals(message, expected.hasWin(), actual.hasWin());
+        assertEquals(message, expected.hasLose(), actual.hasLose());
+    }
+    
+    @Test
+    public void resetPlaysTheSameAsNewGame()
+    {
+        final Random random = new Random(1L);
+        
+        //the game that is reused for every game
+        final GameState reused = new GameState(VIRUS_COUNT, random.nextLong(), GRAVITY_TICKS, TIME_LIMIT);
+        
+        for (int game = 0; game < GAMES; game++)
+        {
+            //finish the previous game so every part of the state has been changed
+            while (!reused.hasWin() && !reused.hasLose())
+            {
+                reused.step(random.nextInt(16));
+            }
+            
+            final long seed = random.nextLong();
+            
+            reused.reset(seed);
+            
+            final GameState created = new GameState(VIRUS_COUNT, seed, GRAVITY_TICKS, TIME_LIMIT);
+            
+            assertSame("game " + game + " start", created, reused);
+            
+            while (!created.hasWin() && !created.hasLose())
+            {
+                final int input = random.nextInt(16);
+                
+                created.step(input);
+                reused.step(input);
+                
+                assertSame("game " + game + " tick " + created.getTicks(), created, reused);
+            }
+        }
+    }
+    
+    @Test
+    public void episodesCountFinishedGames()
+    {
+        final VectorGame games = new VectorGame(8, VIRUS_COUNT, GRAVITY_TICKS, TIME_LIMIT, 2L, 1);
+        
+        try
+        {
+            final Random random = new Random(3L);
+            final int[] actions = new int[games.getCount()];
+            final int[] finished = new int[games.getCount()];
+            
+            for (int i = 0; i < games.getCount(); i++)
+            {
+                assertEquals(0, games.getEpisodes(i));
+            }
+            
+            for (int step = 0; step < 20000; step++)
+            {
+                for (int i = 0; i < actions.length; i++)
+                {
+                    actions[i] = random.nextInt(16);
+                }
+                
+                games.stepAll(actions);
+                
+                for (int i = 0; i < games.getCount(); i++)
+                {
+                    if (games.getDone()[i])
+                        finished[i]++;
+                    
+                    assertEquals(finished[i], games.getEpisodes(i));
+                }
+            }
+            
+            //make sure games were actually finished and restarted
+            assertTrue(finished[0] > 0);
+        }
+        finally
+        {
+            games.dispose();
+        }
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void disposedGamesCantBeStepped()
+    {
+        //more games than a single task steps, so the pool would be used
+        final VectorGame games = new VectorGame(100, VIRUS_COUNT, GRAVITY_TICKS, TIME_LIMIT, 4L, 1);
+        
+        games.dispose();
+        games.stepAll(new int[games.getCount()]);
+    }
+}
\ No newline at end of file